@@ -23,12 +23,15 @@ You can contact the author at ahabra@yahoo.com
 
 package com.tek271.util;
 
+import java.io.IOException;
+import com.tek271.util.string.StringBuilderPool;
 import com.tek271.util.string.StringUtility;
 
 /**
  * Different overloaded printf methods.
  * Not as extensive as Java 1.5. Very handy for building dynamic SQL statements or
- * error messages.
+ * error messages. The int and long overloads with up to three fillers use a cached
+ * PrintfPattern, see PrintfPattern for formatting into an Appendable.
  * <p>Copyright (c) 2003 Technology Exponent</p>
  * @author Abdul Habra
  * @version 1.0
@@ -54,16 +57,35 @@ public class Printf {
    */
   public static String p(String aStr, String[] aFillers) {
     if ((aFillers==null) || (StringUtility.isBlank(aStr))) return aStr;
-    int fn= aFillers.length;
-    if (fn==0) return aStr;
+    if (aFillers.length==0) return aStr;
+
+    StringBuilder b= StringBuilderPool.acquire(aStr.length() +
+                                               StringUtility.getLengthSum(aFillers) );
+    return StringBuilderPool.release( fill(b, aStr, aFillers) );
+  } // p
+
+  /**
+   * Same as p(aStr, aFillers) but appends the result to aOut, e.g. a Writer.
+   * @return aOut
+   */
+  public static Appendable p(Appendable aOut, String aStr, String[] aFillers)
+                             throws IOException {
+    if (aOut instanceof StringBuilder) {
+      if ((aFillers==null) || (StringUtility.isBlank(aStr))) return aOut.append(aStr);
+      return fill((StringBuilder) aOut, aStr, aFillers);
+    }
+    return aOut.append( p(aStr, aFillers) );
+  } // p
 
-    StringBuffer b= new StringBuffer(aStr.length() + StringUtility.getLengthSum(aFillers) );
+  /** Append aStr to b replacing question marks with aFillers */
+  private static StringBuilder fill(StringBuilder b, String aStr, String[] aFillers) {
+    int fn= aFillers.length;
     char c;   // current char
     int f=0;  // fillers index
     boolean ignoreQ= false; // ignore next question mark
     for (int i=0, n= aStr.length(); i<n; i++) {
       if (ignoreQ) { ignoreQ=false; continue; }
-      if (f>=fn) { b.append(aStr.substring(i)); break; }  // no more fillers
+      if (f>=fn) { b.append(aStr, i, n); break; }  // no more fillers
       c= aStr.charAt(i);
       if ( (c!=pBS) && (c!=pQM) ) { b.append(c);  continue; } // not ? nor /
       if (c==pBS) {
@@ -77,8 +99,8 @@ public class Printf {
       if (f<fn)  b.append(aFillers[f++]);
       else b.append(pQM);
     }
-    return b.toString();
-  } // p
+    return b;
+  } // fill
 
   /** @see #p(String, String[]) */
   public static String p(String aStr, String aFiller1) {
@@ -118,20 +140,17 @@ public class Printf {
 
   /** @see #p(String, String[]) */
   public static String p(String aStr, int aFiller1) {
-    return p(aStr, String.valueOf(aFiller1) );
+    return p(aStr, (long) aFiller1);
   }
 
   /** @see #p(String, String[]) */
   public static String p(String aStr, int aFiller1, int aFiller2) {
-    return p(aStr, String.valueOf(aFiller1), String.valueOf(aFiller2) );
+    return p(aStr, (long) aFiller1, (long) aFiller2);
   }
 
   /** @see #p(String, String[]) */
   public static String p(String aStr, int aFiller1, int aFiller2, int aFiller3) {
-    return p(aStr,
-             String.valueOf(aFiller1),
-             String.valueOf(aFiller2),
-             String.valueOf(aFiller3) );
+    return p(aStr, (long) aFiller1, (long) aFiller2, (long) aFiller3);
   }
 
   /** @see #p(String, String[]) */
@@ -164,20 +183,20 @@ public class Printf {
 
   /** @see #p(String, String[]) */
   public static String p(String aStr, long aFiller1) {
-    return p(aStr, String.valueOf(aFiller1) );
+    if (StringUtility.isBlank(aStr)) return aStr;
+    return PrintfPattern.compile(aStr).format(aFiller1);
   }
 
   /** @see #p(String, String[]) */
   public static String p(String aStr, long aFiller1, long aFiller2) {
-    return p(aStr, String.valueOf(aFiller1), String.valueOf(aFiller2) );
+    if (StringUtility.isBlank(aStr)) return aStr;
+    return PrintfPattern.compile(aStr).format(aFiller1, aFiller2);
   }
 
   /** @see #p(String, String[]) */
   public static String p(String aStr, long aFiller1, long aFiller2, long aFiller3) {
-    return p(aStr,
-             String.valueOf(aFiller1),
-             String.valueOf(aFiller2),
-             String.valueOf(aFiller3) );
+    if (StringUtility.isBlank(aStr)) return aStr;
+    return PrintfPattern.compile(aStr).format(aFiller1, aFiller2, aFiller3);
   }
 
   /** @see #p(String, String[]) */
@@ -0,0 +1,243 @@
+/*
+Technology Exponent Common Utilities For Java (TECUJ)
+Copyright (C) 2003,2008  Abdul Habra.
+www.tek271.com
+
+This file is part of TECUJ.
+
+TECUJ is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published
+by the Free Software Foundation; version 2.
+
+TECUJ is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with TECUJ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+You can contact the author at ahabra@yahoo.com
+*/
+package com.tek271.util;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import com.tek271.util.collections.list.IntList;
+import com.tek271.util.string.StringBuilderPool;
+import com.tek271.util.string.StringUtility;
+
+/**
+ * A Printf pattern parsed once into literal segments and filler slots, so formatting
+ * does not rescan the pattern for ? and \? escapes. Gives the same results as
+ * Printf.p(): fillers replace question marks in order, \? is a literal question mark,
+ * and once the fillers run out, the rest of the pattern is appended as is.
+ * <p>compile() caches patterns by their string, so it can be called with constant
+ * patterns on each use. Instances are immutable and thread safe.</p>
+ * <p>int and long fillers are appended without creating strings or arrays. For other
+ * mixes of filler types, append the segments directly:</p>
+ * <pre>
+ *   PrintfPattern p= PrintfPattern.compile("? of ? is ?");
+ *   p.appendSegment(buf, 0);
+ *   buf.append(count);
+ *   p.appendSegment(buf, 1);
+ *   ...
+ * </pre>
+ * <p>Copyright (c) 2008 Technology Exponent</p>
+ * @author Abdul Habra
+ * @version 1.0
+ */
+public final class PrintfPattern {
+  /** compile() caches up to this # of patterns, later patterns are not cached */
+  public static final int MAX_CACHED= 1024;
+
+  private static final char pQM= '?';   // question mark
+  private static final char pBS= '\\';  // back slash
+  private static final ConcurrentHashMap pCache= new ConcurrentHashMap();
+
+  private final String pPattern;
+  private final String[] pSegments;   // literal text around the slots, slot count + 1
+  private final int[] pRawAfter;      // index in pPattern after each slot's ?
+  private final int pLiteralLength;
+
+  private PrintfPattern(final String aPattern) {
+    pPattern= aPattern;
+    int n= aPattern.length();
+    StringBuilder seg= new StringBuilder(n);
+    List segments= new ArrayList();
+    IntList rawAfter= new IntList();
+    for (int i=0; i<n; i++) {
+      char c= aPattern.charAt(i);
+      if (c==pBS && i<n-1 && aPattern.charAt(i+1)==pQM) {  // \? is a ?
+        seg.append(pQM);
+        i++;
+      } else if (c==pQM) {
+        segments.add(seg.toString());
+        seg.setLength(0);
+        rawAfter.add(i+1);
+      } else {
+        seg.append(c);
+      }
+    }
+    segments.add(seg.toString());
+    pSegments= (String[]) segments.toArray(new String[segments.size()]);
+    pRawAfter= rawAfter.toArray();
+    int len= 0;
+    for (int i=0; i<pSegments.length; i++) len += pSegments[i].length();
+    pLiteralLength= len;
+  }  // PrintfPattern
+
+/**
+ * Get the compiled form of aPattern, from the cache if it was compiled before.
+ * @param aPattern A string that contains question marks. e.g. "one=?, two=?, name=?"
+ */
+  public static PrintfPattern compile(final String aPattern) {
+    PrintfPattern r= (PrintfPattern) pCache.get(aPattern);
+    if (r != null) return r;
+    r= new PrintfPattern(aPattern);
+    if (pCache.size() < MAX_CACHED) pCache.putIfAbsent(aPattern, r);
+    return r;
+  }  // compile
+
+/** Get the pattern string */
+  public String getPattern() {
+    return pPattern;
+  }
+
+/** # of question marks to be filled */
+  public int getSlotCount() {
+    return pRawAfter.length;
+  }
+
+/**
+ * Append the literal text before the slot at aIndex, or the text after the last slot
+ * if aIndex is getSlotCount().
+ * @return aOut
+ */
+  public Appendable appendSegment(final Appendable aOut, final int aIndex) throws IOException {
+    return aOut.append(pSegments[aIndex]);
+  }
+
+/** Same as appendSegment(Appendable, int) for a StringBuilder. @return aOut */
+  public StringBuilder appendSegment(final StringBuilder aOut, final int aIndex) {
+    return aOut.append(pSegments[aIndex]);
+  }
+
+  /** Append the rest of the pattern, as is, after aFilled slots were filled */
+  private Appendable appendRest(final Appendable aOut, final int aFilled) throws IOException {
+    int start= aFilled==0 ? 0 : pRawAfter[aFilled-1];
+    return aOut.append(pPattern, start, pPattern.length());
+  }
+
+/**
+ * Append the pattern to aOut, replacing question marks with aFillers.
+ * @return aOut
+ */
+  public Appendable format(final Appendable aOut, final String[] aFillers) throws IOException {
+    int fn= aFillers==null ? 0 : aFillers.length;
+    if (fn==0) return aOut.append(pPattern);
+
+    int slots= pRawAfter.length;
+    for (int i=0; i<slots; i++) {
+      if (i==fn) return appendRest(aOut, fn);  // no more fillers
+      aOut.append(pSegments[i]);
+      aOut.append(aFillers[i]);
+    }
+    if (fn==slots) return appendRest(aOut, fn);
+    return aOut.append(pSegments[slots]);
+  }  // format
+
+  private static void appendLong(final Appendable aOut, final long aValue) throws IOException {
+    if (aOut instanceof StringBuilder) ((StringBuilder) aOut).append(aValue);
+    else if (aOut instanceof StringBuffer) ((StringBuffer) aOut).append(aValue);
+    else aOut.append(String.valueOf(aValue));
+  }
+
+/**
+ * Append the segment before slot aIndex and aValue, or if there is no such slot, the
+ * last segment.
+ * @return false if there are no more slots.
+ */
+  private boolean fill(final Appendable aOut, final int aIndex, final long aValue)
+                       throws IOException {
+    aOut.append(pSegments[aIndex]);
+    if (aIndex == pRawAfter.length) return false;
+    appendLong(aOut, aValue);
+    return true;
+  }
+
+/** Append the pattern to aOut with one number filler. @return aOut */
+  public Appendable format(final Appendable aOut, final long a1) throws IOException {
+    if (!fill(aOut, 0, a1)) return aOut;
+    return appendRest(aOut, 1);
+  }
+
+/** Append the pattern to aOut with two number fillers. @return aOut */
+  public Appendable format(final Appendable aOut, final long a1, final long a2)
+                           throws IOException {
+    if (!fill(aOut, 0, a1) || !fill(aOut, 1, a2)) return aOut;
+    return appendRest(aOut, 2);
+  }
+
+/** Append the pattern to aOut with three number fillers. @return aOut */
+  public Appendable format(final Appendable aOut, final long a1, final long a2,
+                           final long a3) throws IOException {
+    if (!fill(aOut, 0, a1) || !fill(aOut, 1, a2) || !fill(aOut, 2, a3)) return aOut;
+    return appendRest(aOut, 3);
+  }
+
+  private StringBuilder newBuilder(final int aFillersLength) {
+    return StringBuilderPool.acquire(pPattern.length() + aFillersLength);
+  }
+
+/** Get the pattern with question marks replaced with aFillers */
+  public String format(final String[] aFillers) {
+    StringBuilder b= newBuilder(StringUtility.getLengthSum(aFillers));
+    try {
+      format(b, aFillers);
+    } catch (IOException e) {  // cannot happen with StringBuilder
+      throw new IllegalStateException(e.getMessage());
+    }
+    return StringBuilderPool.release(b);
+  }  // format
+
+/** Get the pattern with question marks replaced with a1 */
+  public String format(final long a1) {
+    StringBuilder b= newBuilder(20);
+    try {
+      format(b, a1);
+    } catch (IOException e) {
+      throw new IllegalStateException(e.getMessage());
+    }
+    return StringBuilderPool.release(b);
+  }
+
+/** Get the pattern with question marks replaced with a1 and a2 */
+  public String format(final long a1, final long a2) {
+    StringBuilder b= newBuilder(40);
+    try {
+      format(b, a1, a2);
+    } catch (IOException e) {
+      throw new IllegalStateException(e.getMessage());
+    }
+    return StringBuilderPool.release(b);
+  }
+
+/** Get the pattern with question marks replaced with a1, a2, and a3 */
+  public String format(final long a1, final long a2, final long a3) {
+    StringBuilder b= newBuilder(60);
+    try {
+      format(b, a1, a2, a3);
+    } catch (IOException e) {
+      throw new IllegalStateException(e.getMessage());
+    }
+    return StringBuilderPool.release(b);
+  }
+
+  public String toString() {
+    return pPattern;
+  }
+
+}  // PrintfPattern
@@ -4,6 +4,7 @@ import java.io.Serializable;
 
 import com.tek271.util.collections.list.ListOfString;
 import com.tek271.util.Printf;
+import com.tek271.util.string.StringBuilderPool;
 import com.tek271.util.string.StringUtility;
 
 
@@ -167,13 +168,13 @@ public abstract class AbstractKey implements IKey, Serializable {
   public String getString() {
     if (pPartCount==1) return pSinglePart;
 
-    StringBuffer b= new StringBuffer(32);
+    StringBuilder b= StringBuilderPool.acquire(pPartCount * 12);
     int n= pPartCount-1;
     for (int i=0; i<n; i++) {
       b.append(getPart(i)).append(pSeparator);
     }
     b.append(getPart(n));
-    return b.toString();
+    return StringBuilderPool.release(b);
   }
 
 /** Number of parts in the key */
@@ -0,0 +1,315 @@
+/*
+Technology Exponent Common Utilities For Java (TECUJ)
+Copyright (C) 2003,2008  Abdul Habra.
+www.tek271.com
+
+This file is part of TECUJ.
+
+TECUJ is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published
+by the Free Software Foundation; version 2.
+
+TECUJ is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with TECUJ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+You can contact the author at ahabra@yahoo.com
+*/
+package com.tek271.util.collections;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import com.tek271.util.ICallback;
+import com.tek271.util.log.RollingMeter;
+
+/**
+ * Delivers the notifications of notifying collections to their ICallback listeners on an
+ * executor, so that slow listeners do not block the threads that change the collections.
+ * Set it on a collection with <code>NotifyingCollection.setAsyncNotifier()</code>; one
+ * notifier can serve many collections.
+ * <p>Notifications are put in a bounded queue, and delivered in batches of up to
+ * maxBatchSize by one task at a time, so listeners see them in the order they happened and
+ * are never called concurrently by the same notifier. When the queue is full the
+ * backpressure policy decides: BLOCK waits for room, DROP discards the notification, and
+ * CALLER_RUNS delivers it in the calling thread, out of order. The calling thread waits
+ * for the batch being delivered to finish first, so listeners are still not called
+ * concurrently.
+ * <p>When coalescing, consecutive notifications for the same listeners are delivered as
+ * one call whose parameter is a <code>java.util.List</code> of the items, e.g. the items of
+ * an addAll(). Listeners must expect a List in this mode.
+ * <p>An exception or error thrown by a listener is counted and does not stop the delivery
+ * to the other listeners. The time spent in listener calls is kept in a RollingMeter, in
+ * microseconds.
+ * <p>Copyright (c) 2008 Technology Exponent</p>
+ * @author Abdul Habra
+ * @version 1.0
+ */
+public class AsyncNotifier {
+  /** When the queue is full, wait for room */
+  public static final int BLOCK= 1;
+  /** When the queue is full, discard the notification */
+  public static final int DROP= 2;
+  /** When the queue is full, deliver the notification in the calling thread */
+  public static final int CALLER_RUNS= 3;
+
+  public static final int DEFAULT_QUEUE_CAPACITY= 10000;
+  public static final int DEFAULT_MAX_BATCH_SIZE= 256;
+
+  /** A notification waiting in the queue */
+  private static class Event {
+    final List listeners;  // of ICallback
+    final Object item;
+
+    Event(final List aListeners, final Object aItem) {
+      listeners= aListeners;
+      item= aItem;
+    }
+  }  // Event
+
+  private final BlockingQueue pQueue;
+  private final int pMaxBatchSize;
+  private final int pPolicy;
+  private final boolean pIsCoalescing;
+  private final Executor pExecutor;
+  private final ExecutorService pOwnExecutor;  // created by this object, null if given
+  private final AtomicBoolean pIsScheduled= new AtomicBoolean();
+  private final AtomicLong pInFlight= new AtomicLong();
+  /** Held while calling listeners, so they are never called concurrently */
+  private final Object pDeliveryLock= new Object();
+  private volatile boolean pIsShutdown;
+
+  private final AtomicLong pDeliveredCount= new AtomicLong();
+  private final AtomicLong pDroppedCount= new AtomicLong();
+  private final AtomicLong pBatchCount= new AtomicLong();
+  private final AtomicLong pCallbackCount= new AtomicLong();
+  private final AtomicLong pFailedCallbackCount= new AtomicLong();
+  private final RollingMeter pLatency= new RollingMeter();
+
+  private final Runnable pDrainTask= new Runnable() {
+    public void run() {
+      drain();
+    }
+  };
+
+/**
+ * Create a notifier.
+ * @param aExecutor Executor to deliver on, if null a daemon thread is created which is
+ * stopped by shutdown().
+ * @param aQueueCapacity max # of notifications waiting to be delivered.
+ * @param aMaxBatchSize max # of notifications delivered by one task.
+ * @param aPolicy what to do when the queue is full: BLOCK, DROP, or CALLER_RUNS.
+ * @param aIsCoalescing deliver consecutive notifications for the same listeners as one
+ * call with a List of the items.
+ */
+  public AsyncNotifier(final Executor aExecutor, final int aQueueCapacity,
+                       final int aMaxBatchSize, final int aPolicy,
+                       final boolean aIsCoalescing) {
+    if (aQueueCapacity<=0 || aMaxBatchSize<=0) {
+      throw new IllegalArgumentException("Queue capacity and batch size must be greater than 0");
+    }
+    if (aPolicy<BLOCK || aPolicy>CALLER_RUNS) {
+      throw new IllegalArgumentException("Unknown backpressure policy: " + aPolicy);
+    }
+    pQueue= new ArrayBlockingQueue(aQueueCapacity);
+    pMaxBatchSize= aMaxBatchSize;
+    pPolicy= aPolicy;
+    pIsCoalescing= aIsCoalescing;
+    if (aExecutor != null) {
+      pExecutor= aExecutor;
+      pOwnExecutor= null;
+    } else {
+      pOwnExecutor= Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(final Runnable aRunnable) {
+          Thread t= new Thread(aRunnable, "AsyncNotifier");
+          t.setDaemon(true);
+          return t;
+        }
+      });
+      pExecutor= pOwnExecutor;
+    }
+  }  // AsyncNotifier
+
+/** Create a notifier with its own thread, default sizes, BLOCK policy, and no coalescing */
+  public AsyncNotifier() {
+    this(null, DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_BATCH_SIZE, BLOCK, false);
+  }
+
+/**
+ * Queue a notification of aItem to aListeners.
+ * @return false if the notification was dropped.
+ * @throws IllegalStateException if this notifier was shut down.
+ */
+  public boolean notify(final List aListeners, final Object aItem) {
+    if (aListeners==null || aListeners.isEmpty()) return true;
+    if (pIsShutdown) throw new IllegalStateException("AsyncNotifier is shut down");
+
+    Event event= new Event(aListeners, aItem);
+    pInFlight.incrementAndGet();
+    if (!pQueue.offer(event)) {
+      if (pPolicy==DROP) {
+        pInFlight.decrementAndGet();
+        pDroppedCount.incrementAndGet();
+        return false;
+      }
+      if (pPolicy==CALLER_RUNS) {
+        synchronized (pDeliveryLock) {
+          deliver(event);
+        }
+        return true;
+      }
+      try {
+        schedule();  // make sure the queue is being drained while we wait
+        pQueue.put(event);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        pInFlight.decrementAndGet();
+        pDroppedCount.incrementAndGet();
+        return false;
+      }
+    }
+    schedule();
+    return true;
+  }  // notify
+
+  private void schedule() {
+    if (!pIsScheduled.compareAndSet(false, true)) return;
+    try {
+      pExecutor.execute(pDrainTask);
+    } catch (RejectedExecutionException e) {
+      pIsScheduled.set(false);
+      throw e;
+    }
+  }  // schedule
+
+  private void drain() {
+    List batch= new ArrayList(Math.min(pMaxBatchSize, 64));
+    while (true) {
+      pQueue.drainTo(batch, pMaxBatchSize);
+      if (batch.isEmpty()) {
+        pIsScheduled.set(false);
+        // an event may have been queued after drainTo() but before the flag was cleared
+        if (pQueue.isEmpty() || !pIsScheduled.compareAndSet(false, true)) return;
+        continue;
+      }
+      pBatchCount.incrementAndGet();
+      synchronized (pDeliveryLock) {
+        if (pIsCoalescing) deliverCoalesced(batch);
+        else {
+          for (int i=0, n=batch.size(); i<n; i++) deliver((Event) batch.get(i));
+        }
+      }
+      batch.clear();
+    }
+  }  // drain
+
+  private void deliver(final Event aEvent) {
+    call(aEvent.listeners, aEvent.item);
+    delivered(1);
+  }
+
+  /** Deliver runs of events for the same listeners as one call with a List of the items */
+  private void deliverCoalesced(final List aBatch) {
+    int start= 0;
+    for (int i=1, n=aBatch.size(); i<=n; i++) {
+      List listeners= ((Event) aBatch.get(start)).listeners;
+      if (i<n && ((Event) aBatch.get(i)).listeners==listeners) continue;
+      List items= new ArrayList(i - start);
+      for (int k=start; k<i; k++) items.add(((Event) aBatch.get(k)).item);
+      call(listeners, items);
+      delivered(i - start);
+      start= i;
+    }
+  }  // deliverCoalesced
+
+  private void delivered(final int aCount) {
+    pDeliveredCount.addAndGet(aCount);
+    pInFlight.addAndGet(-aCount);
+  }
+
+  private void call(final List aListeners, final Object aParam) {
+    for (Iterator i= aListeners.iterator(); i.hasNext();) {
+      ICallback cb= (ICallback) i.next();
+      long start= System.nanoTime();
+      try {
+        cb.call(aParam);
+      } catch (Throwable e) {
+        // an Error must not stop the drain either, or the queue would never empty
+        pFailedCallbackCount.incrementAndGet();
+      }
+      pLatency.update((System.nanoTime() - start) / 1000);
+      pCallbackCount.incrementAndGet();
+    }
+  }  // call
+
+/**
+ * Wait until all queued notifications are delivered.
+ * @return true if all were delivered, false if the timeout passed first.
+ */
+  public boolean awaitIdle(final long aTimeoutMillis) throws InterruptedException {
+    long end= System.currentTimeMillis() + aTimeoutMillis;
+    while (pInFlight.get() > 0) {
+      if (System.currentTimeMillis() >= end) return false;
+      Thread.sleep(1);
+    }
+    return true;
+  }  // awaitIdle
+
+/**
+ * Stop accepting notifications, wait up to aTimeoutMillis for the queued ones to be
+ * delivered, and stop the thread of this notifier if it created one.
+ * @return true if all notifications were delivered.
+ */
+  public boolean shutdown(final long aTimeoutMillis) throws InterruptedException {
+    pIsShutdown= true;
+    boolean r= awaitIdle(aTimeoutMillis);
+    if (pOwnExecutor != null) pOwnExecutor.shutdown();
+    return r;
+  }  // shutdown
+
+  public boolean isShutdown() {
+    return pIsShutdown;
+  }
+
+/** # of notifications waiting in the queue */
+  public int getPendingCount() {
+    return pQueue.size();
+  }
+
+/** # of notifications delivered to their listeners */
+  public long getDeliveredCount() {
+    return pDeliveredCount.get();
+  }
+
+/** # of notifications dropped because the queue was full */
+  public long getDroppedCount() {
+    return pDroppedCount.get();
+  }
+
+/** # of batches taken from the queue */
+  public long getBatchCount() {
+    return pBatchCount.get();
+  }
+
+/** # of listener calls */
+  public long getCallbackCount() {
+    return pCallbackCount.get();
+  }
+
+/** # of listener calls that threw an exception */
+  public long getFailedCallbackCount() {
+    return pFailedCallbackCount.get();
+  }
+
+/** Latency of listener calls in microseconds */
+  public RollingMeter getLatencyMeter() {
+    return pLatency;
+  }
+
+}  // AsyncNotifier
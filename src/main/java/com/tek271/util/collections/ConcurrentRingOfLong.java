@@ -0,0 +1,210 @@
+/*
+Technology Exponent Common Utilities For Java (TECUJ)
+Copyright (C) 2003,2008  Abdul Habra.
+www.tek271.com
+
+This file is part of TECUJ.
+
+TECUJ is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published
+by the Free Software Foundation; version 2.
+
+TECUJ is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with TECUJ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+You can contact the author at ahabra@yahoo.com
+*/
+package com.tek271.util.collections;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import com.tek271.util.collections.iterator.ILongIterator;
+
+/**
+ * A thread safe, lock free ring buffer of long values that keeps the most recent
+ * <code>capacity</code> values, a concurrent version of <code>CircularFifoOfLong</code>.
+ * Many threads can add values at the same time without locking, e.g. to record latency
+ * samples, while other threads read snapshots.
+ * <p>Each add() claims the next sequence number from a shared counter with one atomic
+ * increment. The counter is padded so that it does not share a cache line with other
+ * data. The value is written into the slot <code>sequence % capacity</code>. Each slot
+ * also stores the sequence of its value, marked as in progress while it is written.
+ * If a slow writer finds its slot already taken by a newer value, its value is
+ * dropped, because it would have been overwritten anyway.
+ * <p><code>toArray()</code> returns a consistent snapshot: the values of the last
+ * <code>capacity</code> sequences that were completely written when read, in the
+ * order their sequences were claimed. Slots being written during the snapshot are
+ * skipped, so a snapshot may have fewer values while writers are active.
+ * <p>Copyright (c) 2008 Technology Exponent</p>
+ * @author Abdul Habra
+ * @version 1.0
+ */
+public class ConcurrentRingOfLong {
+  private static final long pEMPTY= 0;
+
+  /** An AtomicLong padded to fill a cache line, to avoid false sharing */
+  private static class PaddedAtomicLong extends AtomicLong {
+    private static final long serialVersionUID = 1;
+
+    public volatile long p1, p2, p3, p4, p5, p6, p7= 7L;
+
+    /** Prevents the padding fields from being removed as unused */
+    long sumPaddingToPreventOptimisation() {
+      return p1 + p2 + p3 + p4 + p5 + p6 + p7;
+    }
+  }  // PaddedAtomicLong
+
+  private final int pCapacity;
+  private final int pMask;
+  // slot i uses two cells: [2i] holds sequence+1 when written, -(sequence+1) while
+  // being written, 0 if empty; [2i+1] holds the value. Both share one cache line.
+  private final AtomicLongArray pSlots;
+  private final PaddedAtomicLong pCursor= new PaddedAtomicLong();
+
+/**
+ * Create a ring that keeps the last aCapacity values.
+ * @throws IllegalArgumentException if the capacity is less than 1
+ */
+  public ConcurrentRingOfLong(final int aCapacity) {
+    if (aCapacity<=0) throw new IllegalArgumentException("The capacity must be greater than 0");
+    if (aCapacity > (1 << 29)) throw new IllegalArgumentException("The capacity is too large");
+    int size= Integer.highestOneBit(aCapacity);
+    if (size < aCapacity) size<<= 1;
+    pCapacity= aCapacity;
+    pMask= size - 1;
+    pSlots= new AtomicLongArray(size * 2);
+  }
+
+/** Maximum number of values kept */
+  public int maxSize() {
+    return pCapacity;
+  }
+
+/** Total number of values added since creation */
+  public long getCount() {
+    return pCursor.get();
+  }
+
+/** Number of values kept, at most maxSize() */
+  public int size() {
+    return (int) Math.min(pCursor.get(), pCapacity);
+  }
+
+  public boolean isEmpty() {
+    return pCursor.get()==0;
+  }
+
+/** Add a value, overwriting the oldest value when full. Lock free. */
+  public void add(final long aValue) {
+    long seq= pCursor.getAndIncrement();
+    int i= ((int) seq & pMask) << 1;
+    long published= seq + 1;
+    while (true) {
+      long current= pSlots.get(i);
+      if (current==pEMPTY || (current > 0 && current < published)) {
+        if (pSlots.compareAndSet(i, current, -published)) break;
+      } else if (Math.abs(current) >= published) {
+        return;  // a newer value owns this slot
+      } else {
+        Thread.yield();  // an older value is being written, very rare
+      }
+    }
+    // the CAS above is a full fence, ordered stores are enough from here
+    pSlots.lazySet(i + 1, aValue);
+    pSlots.lazySet(i, published);
+  }  // add
+
+/** A snapshot of the most recent values, oldest first */
+  public long[] toArray() {
+    long end= pCursor.get();
+    long start= Math.max(0, end - pCapacity);
+    long[] r= new long[(int) (end - start)];
+    int n= 0;
+    for (long seq=start; seq<end; seq++) {
+      int i= ((int) seq & pMask) << 1;
+      long published= seq + 1;
+      if (pSlots.get(i) != published) continue;
+      long v= pSlots.get(i + 1);
+      if (pSlots.get(i) != published) continue;
+      r[n++]= v;
+    }
+    if (n==r.length) return r;
+    long[] t= new long[n];
+    System.arraycopy(r, 0, t, 0, n);
+    return t;
+  }  // toArray
+
+/** Iterate a snapshot of the values, oldest first. remove() is not supported. */
+  public ILongIterator iterator() {
+    final long[] values= toArray();
+    return new ILongIterator() {
+      private int index= 0;
+
+      public boolean hasNext() {
+        return index < values.length;
+      }
+
+      public long nextLong() {
+        if (index >= values.length) throw new NoSuchElementException();
+        return values[index++];
+      }
+
+      public Object next() {
+        return Long.valueOf(nextLong());
+      }
+
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }  // iterator
+
+  public String toString() {
+    return Arrays.toString(toArray());
+  }
+
+/** For testing: throughput of many threads adding, compared with a synchronized CircularFifoOfLong */
+  public static void main(String[] args) throws Exception {
+    final int threads= args.length > 0 ? Integer.parseInt(args[0]) : 8;
+    final int perThread= args.length > 1 ? Integer.parseInt(args[1]) : 2000000;
+    for (int round=0; round<3; round++) {
+      final ConcurrentRingOfLong ring= new ConcurrentRingOfLong(1024);
+      long ms= run(threads, new Runnable() {
+        public void run() {
+          for (int i=0; i<perThread; i++) ring.add(i);
+        }
+      });
+      System.out.println("ConcurrentRingOfLong:        " + ms + "ms, " +
+                         (threads * (long) perThread / Math.max(1, ms)) + " adds/ms");
+
+      final CircularFifoOfLong fifo= new CircularFifoOfLong(1024);
+      ms= run(threads, new Runnable() {
+        public void run() {
+          for (int i=0; i<perThread; i++) {
+            synchronized (fifo) {
+              fifo.add(i);
+            }
+          }
+        }
+      });
+      System.out.println("synchronized CircularFifoOfLong: " + ms + "ms, " +
+                         (threads * (long) perThread / Math.max(1, ms)) + " adds/ms");
+    }
+  }  // main
+
+  private static long run(final int aThreads, final Runnable aTask) throws InterruptedException {
+    Thread[] t= new Thread[aThreads];
+    for (int i=0; i<aThreads; i++) t[i]= new Thread(aTask);
+    long start= System.currentTimeMillis();
+    for (int i=0; i<aThreads; i++) t[i].start();
+    for (int i=0; i<aThreads; i++) t[i].join();
+    return System.currentTimeMillis() - start;
+  }
+
+}  // ConcurrentRingOfLong
@@ -23,20 +23,25 @@ You can contact the author at ahabra@yahoo.com
 package com.tek271.util.collections;
 
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 import com.tek271.util.*;
 import com.tek271.util.collections.iterator.NotifyingIterator;
 
 /**
  * A collection implementation that notifies when items are added
  * or deleted. It decorates another collection be making it notifying.
+ * <p>By default the listeners are called in the thread that changes the collection, inside
+ * add(), remove(), clear(), etc. Use setAsyncNotifier() to have them called on an executor
+ * instead, see AsyncNotifier for batching, coalescing, and backpressure.
  * <p>Copyright (c) 2005 Technology Exponent</p>
  * @author Abdul Habra
  * @version 1.0
  */
 public class NotifyingCollection implements Collection {
   private Collection pOrgCollection;
-  private List pRemoveListeners = new ArrayList();  // of ICallback
-  private List pAddListeners = new ArrayList();     // of ICallback
+  private List pRemoveListeners = new CopyOnWriteArrayList();  // of ICallback
+  private List pAddListeners = new CopyOnWriteArrayList();     // of ICallback
+  private volatile AsyncNotifier pNotifier;  // null for synchronous notification
 
 /**
  * Decorate a given collection by making it notifying. Use addAddListener() or
@@ -72,9 +77,27 @@ public class NotifyingCollection implements Collection {
   }
 
 
-  private static void notifyListeners(final List aListeners, final Object aParam) {
+/**
+ * Deliver notifications through the given notifier, or synchronously if null, which is
+ * the default. The notifier may be shared with other collections.
+ */
+  public void setAsyncNotifier(final AsyncNotifier aNotifier) {
+    pNotifier= aNotifier;
+  }
+
+  public AsyncNotifier getAsyncNotifier() {
+    return pNotifier;
+  }
+
+  private void notifyListeners(final List aListeners, final Object aParam) {
     if (aListeners==null || aListeners.isEmpty()) return;
 
+    AsyncNotifier notifier= pNotifier;
+    if (notifier != null) {
+      notifier.notify(aListeners, aParam);
+      return;
+    }
+
     for (Iterator i= aListeners.iterator(); i.hasNext();) {
       ICallback cb= (ICallback) i.next();
       cb.call(aParam);
@@ -93,7 +116,7 @@ public class NotifyingCollection implements Collection {
     if (c==null) return false;
     boolean r= false;
     for (Iterator i= c.iterator(); i.hasNext();) {
-      r= r || add(i.next());
+      r= add(i.next()) || r;
     }
     return r;
   } // addAll
@@ -138,7 +161,7 @@ public class NotifyingCollection implements Collection {
  * @return Iterator a notifying iterator.
  */
   public Iterator iterator() {
-    return new NotifyingIterator(pOrgCollection.iterator(), pRemoveListeners);
+    return new NotifyingIterator(pOrgCollection.iterator(), pRemoveListeners, pNotifier);
   }
 
 /**
@@ -24,11 +24,14 @@ You can contact the author at ahabra@yahoo.com
 package com.tek271.util.collections.array;
 
 import com.tek271.util.collections.list.ListOfString;
+import com.tek271.util.string.AhoCorasick;
+import com.tek271.util.string.BoyerMooreHorspool;
 import com.tek271.util.string.StringUtility;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.ObjectUtils;
 
 import java.lang.reflect.Array;
+import java.nio.CharBuffer;
 import java.util.Collection;
 import java.util.Iterator;
 
@@ -72,29 +75,15 @@ public class ArrayUtilities extends ArrayUtils {
   }
 
 /**
-* Search the contents of a character array for another character array.
+* Search the contents of a character array for another character array. Large arrays
+* are searched with BoyerMooreHorspool.
 * @param aArray The array to search.
 * @param aArrayToFind The array to search for.
 * @param aStartIndex The index of starting character in the source array.
 * @return The index of the begining of the found target, -1 if not found.
 */
   public static int indexOf(char[] aArray, char[] aArrayToFind, int aStartIndex) {
-    int sourceLen = aArray.length;
-    if (aStartIndex >= sourceLen) return -1;
-
-    int targetLen = aArrayToFind.length;
-    int n= sourceLen-targetLen;
-    int i, j;
-
-    for(i=aStartIndex; i<=n ; i++) {
-      int m= i+targetLen;
-      for(j=i; j<m; j++) {
-        if (aArray[j] != aArrayToFind[j-i]) break;
-      } // j
-      if (j == i+targetLen) return i;
-    } // i
-
-    return -1;
+    return BoyerMooreHorspool.indexOf(aArray, aArrayToFind, aStartIndex);
   } // indexOf
 
 /**
@@ -108,8 +97,19 @@ public class ArrayUtilities extends ArrayUtils {
     return indexOf(aArray, aStringToFind.toCharArray(), aStartIndex);
   } // indexOf
 
+  /** Large texts and pattern lists without empty patterns are searched with AhoCorasick */
+  private static boolean isAhoCorasickWorthy(final int aTextLength, final ListOfString aList) {
+    if (aTextLength < AhoCorasick.MIN_TEXT_LENGTH) return false;
+    if (aList.size() < AhoCorasick.MIN_PATTERNS) return false;
+    for (int i=0, n=aList.size(); i<n; i++) {
+      if (StringUtility.isEmpty(aList.getItem(i))) return false;  // an empty item matches at once
+    }
+    return true;
+  }  // isAhoCorasickWorthy
+
 /**
 * Search the contents of a character array for the first element in a list of strings.
+* Large arrays are searched for all the elements at once with AhoCorasick.
 * @param aArray The array to search.
 * @param aListToFind The list of strings to search for any of its items.
 * @param aStartIndex The index of starting character in the source array.
@@ -121,6 +121,10 @@ public class ArrayUtilities extends ArrayUtils {
                             final ListOfString aListToFind,
                             final int aStartIndex,
                             final int[] aListIndex) {
+    if (isAhoCorasickWorthy(aArray.length - aStartIndex, aListToFind)) {
+      return new AhoCorasick(aListToFind).indexOfFirstPattern(CharBuffer.wrap(aArray),
+                                                              aStartIndex, aListIndex);
+    }
     for (int i=0, n= aListToFind.size(); i<n; i++) {
       int si= indexOf(aArray, aListToFind.getItem(i), aStartIndex);
       if (si>=0) {
@@ -266,7 +270,8 @@ public class ArrayUtilities extends ArrayUtils {
   }
 
 /**
-* Search the contents of a byte array for another byte array.
+* Search the contents of a byte array for another byte array. Large arrays are searched
+* with BoyerMooreHorspool.
 * @param aArray The array to search.
 * @param aArrayToFind The array to search for.
 * @param aStartIndex The index of starting byte in the source array.
@@ -275,22 +280,7 @@ public class ArrayUtilities extends ArrayUtils {
   public static int indexOf(final byte[] aArray,
                             final byte[] aArrayToFind,
                             final int aStartIndex) {
-    int sourceLen = aArray.length;
-    if (aStartIndex >= sourceLen) return -1;
-
-    int targetLen = aArrayToFind.length;
-    int n= sourceLen-targetLen;
-    int i, j;
-
-    for(i=aStartIndex; i<=n ; i++) {
-      int m= i+targetLen;
-      for(j=i; j<m; j++) {
-        if (aArray[j] != aArrayToFind[j-i]) break;
-      } // j
-      if (j == i+targetLen) return i;
-    } // i
-
-    return -1;
+    return BoyerMooreHorspool.indexOf(aArray, aArrayToFind, aStartIndex);
   } // indexOf
 
 /**
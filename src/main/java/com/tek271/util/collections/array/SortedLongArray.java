@@ -0,0 +1,162 @@
+/*
+Technology Exponent Common Utilities For Java (TECUJ)
+Copyright (C) 2003,2008  Abdul Habra.
+www.tek271.com
+
+This file is part of TECUJ.
+
+TECUJ is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published
+by the Free Software Foundation; version 2.
+
+TECUJ is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with TECUJ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+You can contact the author at ahabra@yahoo.com
+*/
+package com.tek271.util.collections.array;
+
+import java.util.*;
+import com.tek271.util.collections.iterator.ILongIterator;
+
+/**
+ * An immutable sorted array of primitive long values with binary search. It is a
+ * compact alternative to a <code>TreeSet</code> of Long for lookups and range counts
+ * on data that is built once and read many times, e.g. id lists.
+ * <p>contains(), indexOf(), lowerBound(), and upperBound() run in O(log n).
+ * <p>Copyright (c) 2008 Technology Exponent</p>
+ * @author Abdul Habra
+ * @version 1.0
+ */
+public class SortedLongArray {
+  private final long[] pValues;
+
+/**
+ * Create a sorted array from a copy of aValues.
+ * @param aValues long[] values in any order.
+ * @param aIsDistinct boolean if true, remove duplicate values.
+ */
+  public SortedLongArray(final long[] aValues, final boolean aIsDistinct) {
+    long[] a= (long[]) aValues.clone();
+    Arrays.sort(a);
+    if (aIsDistinct && a.length > 1) {
+      int n= 1;
+      for (int i=1; i<a.length; i++) {
+        if (a[i] != a[n-1]) a[n++]= a[i];
+      }
+      if (n < a.length) {
+        long[] d= new long[n];
+        System.arraycopy(a, 0, d, 0, n);
+        a= d;
+      }
+    }
+    pValues= a;
+  }
+
+/** Create a sorted array from a copy of aValues, keeping duplicates */
+  public SortedLongArray(final long[] aValues) {
+    this(aValues, false);
+  }
+
+  public int size() {
+    return pValues.length;
+  }
+
+  public boolean isEmpty() {
+    return pValues.length==0;
+  }
+
+  public long get(final int aIndex) {
+    return pValues[aIndex];
+  }
+
+/** Index of aValue, -1 if not found. With duplicates, any of the matching indexes. */
+  public int indexOf(final long aValue) {
+    int i= Arrays.binarySearch(pValues, aValue);
+    return i<0 ? -1 : i;
+  }
+
+  public boolean contains(final long aValue) {
+    return Arrays.binarySearch(pValues, aValue) >= 0;
+  }
+
+/** Index of the first value that is &gt;= aValue, size() if none */
+  public int lowerBound(final long aValue) {
+    int low= 0;
+    int high= pValues.length;
+    while (low < high) {
+      int mid= (low + high) >>> 1;
+      if (pValues[mid] < aValue) low= mid + 1;
+      else high= mid;
+    }
+    return low;
+  }
+
+/** Index of the first value that is &gt; aValue, size() if none */
+  public int upperBound(final long aValue) {
+    int low= 0;
+    int high= pValues.length;
+    while (low < high) {
+      int mid= (low + high) >>> 1;
+      if (pValues[mid] <= aValue) low= mid + 1;
+      else high= mid;
+    }
+    return low;
+  }
+
+/** Number of values v where aFrom &lt;= v &lt;= aTo */
+  public int countInRange(final long aFrom, final long aTo) {
+    if (aFrom > aTo) return 0;
+    return upperBound(aTo) - lowerBound(aFrom);
+  }
+
+/** A copy of the values */
+  public long[] toArray() {
+    return (long[]) pValues.clone();
+  }
+
+/** Iterate the values in ascending order */
+  public ILongIterator iterator() {
+    return new ILongIterator() {
+      private int index= 0;
+
+      public boolean hasNext() {
+        return index < pValues.length;
+      }
+
+      public long nextLong() {
+        if (index >= pValues.length) throw new NoSuchElementException();
+        return pValues[index++];
+      }
+
+      public Object next() {
+        return Long.valueOf(nextLong());
+      }
+
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }  // iterator
+
+  public boolean equals(final Object aObject) {
+    if (this==aObject) return true;
+    if (!(aObject instanceof SortedLongArray)) return false;
+    return Arrays.equals(pValues, ((SortedLongArray) aObject).pValues);
+  }
+
+  public int hashCode() {
+    return Arrays.hashCode(pValues);
+  }
+
+  public String toString() {
+    return Arrays.toString(pValues);
+  }
+
+}  // SortedLongArray
@@ -45,7 +45,33 @@ public abstract class AbstractGraphStructuredStackNode implements IGraphStructur
   private static final int pINDENT_SIZE=2;  // used with toString()
 
   protected List pParentList= new ArrayList(); // of AbstractGraphStructuredStackNode objects
-  protected List pChildren= new ArrayList();   // of AbstractGraphStructuredStackNode objects
+  protected List pChildren= new ChildList();   // of AbstractGraphStructuredStackNode objects
+  private Map pChildIndex;              // key -> Integer index in pChildren, null if not indexed
+  private int pChildIndexVersion= -1;   // version of pChildren when pChildIndex was built
+  private boolean pIsCountCached;
+  // descendantsCount() if cached, -1 if not known. It is also set on nodes that do not
+  // cache, to mark that an ancestor's count was computed through them.
+  private int pCount= -1;
+  private int pCountVersion;            // version of pChildren when pCount was computed
+
+/**
+ * An ArrayList with a version that changes with every modification, including set()
+ * which does not change modCount.
+ */
+  private static class ChildList extends ArrayList {
+    private static final long serialVersionUID = 1;
+
+    private int pSetCount;
+
+    public Object set(final int aIndex, final Object aElement) {
+      pSetCount++;
+      return super.set(aIndex, aElement);
+    }
+
+    int getVersion() {
+      return modCount + pSetCount;
+    }
+  }  // ChildList
 
 
 /** Check if this IGraphStructuredStackNode has a parent */
@@ -165,7 +191,15 @@ public abstract class AbstractGraphStructuredStackNode implements IGraphStructur
     // first add aChild to the parent's list of children
     int i= aParent.indexOfChild(aChild.getKey());
     if (i < 0) { // is new child
-      aParent.getChildren().add(aChild);
+      if (aParent instanceof AbstractGraphStructuredStackNode) {
+        AbstractGraphStructuredStackNode parent= (AbstractGraphStructuredStackNode) aParent;
+        if (parent.pIsCountCached && aChild instanceof AbstractGraphStructuredStackNode) {
+          ((AbstractGraphStructuredStackNode) aChild).pIsCountCached= true;
+        }
+        parent.appendChild(aChild);
+      } else {
+        aParent.getChildren().add(aChild);
+      }
     } else {  // child exists, replace its contents and children
       IGraphStructuredStackNode ch= aParent.getChild(i);
       ch.setContents( aChild.getContents() );
@@ -188,6 +222,9 @@ public abstract class AbstractGraphStructuredStackNode implements IGraphStructur
 
     // second remove aChild from the parent's list of children
     aParent.getChildren().remove(aChildIndex);
+    if (aParent instanceof AbstractGraphStructuredStackNode) {
+      ((AbstractGraphStructuredStackNode) aParent).countChanged();
+    }
   }  // unhookParentToChild
 
 
@@ -201,16 +238,118 @@ public abstract class AbstractGraphStructuredStackNode implements IGraphStructur
   }  // unhookParentToChild
 
 
-/** Get the total number of descendants of this IGraphStructuredStackNode object */
+/**
+ * Get the total number of descendants of this IGraphStructuredStackNode object. A node
+ * reachable through more than one path is counted once for each path.
+ */
   public int descendantsCount() {
-    int n=childrenCount();
-    int total=n;
-    for (int i=0; i<n; i++) {
-      total += getChild(i).descendantsCount();
+    int cached= cachedCount(this);
+    if (cached >= 0) return cached;
+
+    // post order walk, the stacks hold the node, the index of its next child, and its count
+    IGraphStructuredStackNode[] nodes= new IGraphStructuredStackNode[16];
+    int[] next= new int[16];
+    int[] counts= new int[16];
+    int top= 0;
+    nodes[0]= this;
+    while (true) {
+      IGraphStructuredStackNode node= nodes[top];
+      int i= next[top];
+      if (i < node.childrenCount()) {
+        next[top]= i+1;
+        IGraphStructuredStackNode child= node.getChild(i);
+        int n= cachedCount(child);
+        counts[top]++;
+        if (n >= 0) {
+          counts[top] += n;
+          continue;
+        }
+        if (++top == nodes.length) {
+          nodes= (IGraphStructuredStackNode[]) Arrays.copyOf(nodes, top * 2);
+          next= Arrays.copyOf(next, top * 2);
+          counts= Arrays.copyOf(counts, top * 2);
+        }
+        nodes[top]= child;
+        next[top]= 0;
+        counts[top]= 0;
+        continue;
+      }
+
+      int count= counts[top];
+      nodes[top]= null;
+      if (node instanceof AbstractGraphStructuredStackNode) {
+        ((AbstractGraphStructuredStackNode) node).cacheCount(count);
+      }
+      if (top==0) return count;
+      counts[--top] += count;
+    }
+  }  // descendantsCount
+
+/**
+ * Get the descendants count of aNode if known without walking its descendants.
+ * @return the count, or -1 if it has to be computed.
+ */
+  private static int cachedCount(final IGraphStructuredStackNode aNode) {
+    if (!(aNode instanceof AbstractGraphStructuredStackNode)) return aNode.descendantsCount();
+    AbstractGraphStructuredStackNode node= (AbstractGraphStructuredStackNode) aNode;
+    if (!node.hasChildren()) {
+      node.cacheCount(0);  // so that adding a child clears the counts of the ancestors
+      return 0;
     }
-    return total;
+    if (!node.pIsCountCached || node.pCount < 0) return -1;
+    if (node.pCountVersion != node.childListVersion()) return -1;
+    return node.pCount;
+  }  // cachedCount
+
+  private int childListVersion() {
+    return ((ChildList) pChildren).getVersion();
   }
 
+  private void cacheCount(final int aCount) {
+    if (!(pChildren instanceof ChildList)) return;
+    pCount= aCount;
+    pCountVersion= childListVersion();
+  }
+
+/**
+ * Keep the result of descendantsCount() until the descendants change. Turn it on for all
+ * the nodes of a graph, e.g. with GssUtils.setCountCached(). Changes made with the
+ * methods of the nodes clear the counts of their ancestors; changes made directly to
+ * the list returned by getChildren() are seen only by the node that owns the list.
+ * Off by default.
+ */
+  public void setCountCached(final boolean aIsCached) {
+    pIsCountCached= aIsCached;
+    pCount= 0;  // make sure countChanged() walks up
+    countChanged();
+  }
+
+/** Is descendantsCount() cached */
+  public boolean isCountCached() {
+    return pIsCountCached;
+  }
+
+/**
+ * Clear the cached count of this node and of its ancestors. The walk up stops at nodes
+ * without a count: every node a count is computed through gets one, cached or not, so
+ * no ancestor's count was computed through them since they were cleared.
+ */
+  private void countChanged() {
+    if (pCount < 0) return;
+    List stack= new ArrayList();
+    stack.add(this);
+    while (!stack.isEmpty()) {
+      AbstractGraphStructuredStackNode node=
+        (AbstractGraphStructuredStackNode) stack.remove(stack.size()-1);
+      if (node.pCount < 0) continue;
+      node.pCount= -1;
+      for (int i=0, n=CollectionUtility.size(node.pParentList); i<n; i++) {
+        Object p= node.pParentList.get(i);
+        if (p instanceof AbstractGraphStructuredStackNode) stack.add(p);
+      }
+    }
+  }  // countChanged
+
 /** Get the number of (direct) children of this IGraphStructuredStackNode object */
   public int childrenCount() {
     return CollectionUtility.size(pChildren);
@@ -228,14 +367,16 @@ public abstract class AbstractGraphStructuredStackNode implements IGraphStructur
 
 /** Set the children of this IGraphStructuredStackNode object */
   public void setChildren(final List aChildren) {
-    // unhook old children from this parent
-    for (int i=0, n=childrenCount(); i<n; i++) {
+    List newChildren= new ArrayList(aChildren);  // aChildren may be our own list
+
+    // unhook old children from this parent, from the end so indexes do not shift
+    for (int i=childrenCount()-1; i>=0; i--) {
       unhookParentFromChild(this, i);
     }
 
     // hook new children to this parent
     pChildren.clear();
-    for (Iterator i=aChildren.iterator(); i.hasNext();) {
+    for (Iterator i=newChildren.iterator(); i.hasNext();) {
       IGraphStructuredStackNode ch= (IGraphStructuredStackNode) i.next();
       hookParentToChild(this, ch);
     }
@@ -248,8 +389,14 @@ public abstract class AbstractGraphStructuredStackNode implements IGraphStructur
  * @return int index of the child, -1 if not found.
  */
   public int indexOfChild(final Object aKey, final int aStartIndex) {
+    Map index= childIndex();
+    if (index==null) return searchList(pChildren, aKey, aStartIndex);
+
+    Integer i= (Integer) index.get(aKey);
+    if (i==null) return -1;
+    if (i.intValue() >= aStartIndex) return i.intValue();
     return searchList(pChildren, aKey, aStartIndex);
-  }
+  }  // indexOfChild
 
 /**
  * Find the index of the child with the given key starting at first child.
@@ -257,9 +404,57 @@ public abstract class AbstractGraphStructuredStackNode implements IGraphStructur
  * @return int index of the child, -1 if not found.
  */
   public int indexOfChild(final Object aKey) {
-    return searchList(pChildren, aKey, 0);
+    return indexOfChild(aKey, 0);
   }
 
+/**
+ * Keep an index of the children by key, so that finding or adding a child does not scan
+ * the list of children. The index uses the keys' equals() and hashCode(), which must agree
+ * with isEqualKey(). It is updated when the children change, but not when the key of a
+ * child changes; turn it off and on again after changing the key of a child.
+ * The index is off by default.
+ */
+  public void setChildIndexed(final boolean aIsIndexed) {
+    if (aIsIndexed) {
+      pChildIndex= new HashMap();
+    } else {
+      pChildIndex= null;
+    }
+    pChildIndexVersion= -1;
+  }  // setChildIndexed
+
+/** Is there an index of the children by key */
+  public boolean isChildIndexed() {
+    return pChildIndex != null;
+  }
+
+/** Get the index of children by key, rebuilt if the children changed; null if not indexed */
+  private Map childIndex() {
+    if (pChildIndex==null || !(pChildren instanceof ChildList)) return null;
+
+    int version= ((ChildList) pChildren).getVersion();
+    if (version != pChildIndexVersion) {
+      pChildIndex.clear();
+      for (int i=pChildren.size()-1; i>=0; i--) {  // backward so the first of a key wins
+        pChildIndex.put(getChild(i).getKey(), Integer.valueOf(i));
+      }
+      pChildIndexVersion= version;
+    }
+    return pChildIndex;
+  }  // childIndex
+
+/** Add aChild at the end of the children, keeping the index current */
+  private void appendChild(final IGraphStructuredStackNode aChild) {
+    Map index= childIndex();
+    pChildren.add(aChild);
+    countChanged();
+    if (index==null) return;
+
+    Object key= aChild.getKey();
+    if (!index.containsKey(key)) index.put(key, Integer.valueOf(pChildren.size()-1));
+    pChildIndexVersion= ((ChildList) pChildren).getVersion();
+  }  // appendChild
+
 /** Get the child at the given index. Null if not a valid index */
   public IGraphStructuredStackNode getChild(final int aIndex) {
     if (CollectionUtility.isNotValidIndex(pChildren, aIndex)) return null;
@@ -338,27 +533,19 @@ public abstract class AbstractGraphStructuredStackNode implements IGraphStructur
     return k.hashCode();
   }
 
-/**
- * Add this IGraphStructuredStackNode object to the given list
- * @param aList ListOfString List that contains IGraphStructuredStackNode objects serialized to strings
- * @param aIndent int Size of indentation before the serialized string
- */
-  private void addToListOfString(final ListOfString aList, final int aIndent) {
-    int n= childrenCount();
-    StringBuffer buf= new StringBuffer(64);
+/** Add aNode, indented by aIndent, to the given list */
+  private static void addToListOfString(final ListOfString aList,
+                                        final IGraphStructuredStackNode aNode,
+                                        final int aIndent) {
+    int n= aNode.childrenCount();
+    StringBuilder buf= new StringBuilder(64);
     buf.append( StringUtility.blanks(aIndent) );
-    buf.append("(Key=").append( getKey() ).append(") ");
-    buf.append("(Contents=").append( getContents() ).append(")");
+    buf.append("(Key=").append( aNode.getKey() ).append(") ");
+    buf.append("(Contents=").append( aNode.getContents() ).append(")");
     if (n>0) {
       buf.append(", (Children count=").append(n).append(")");
     }
     aList.addItem( buf.toString() );
-
-    int indent= aIndent + pINDENT_SIZE;
-    for (int i=0; i<n; i++) {
-      AbstractGraphStructuredStackNode child= (AbstractGraphStructuredStackNode) getChild(i);
-      child.addToListOfString(aList, indent);
-    }
   }  // addToListOfString
 
 /**
@@ -366,9 +553,13 @@ public abstract class AbstractGraphStructuredStackNode implements IGraphStructur
  * @return ListOfString
  */
   private ListOfString toListOfString() {
-    int n= descendantsCount();
-    ListOfString r= new ListOfString(n + 1);
-    addToListOfString(r, 0);
+    final ListOfString r= new ListOfString();
+    GssUtils.visitDepthFirst(this, new GssUtils.IGssNodeVisitor() {
+      public boolean visit(final IGraphStructuredStackNode aNode, final int aDepth) {
+        addToListOfString(r, aNode, aDepth * pINDENT_SIZE);
+        return true;
+      }
+    });
     return r;
   }  // toListOfString
 
@@ -406,14 +597,20 @@ public abstract class AbstractGraphStructuredStackNode implements IGraphStructur
     return getDescendant(list);
   }
 
-/** Find the first descendant with the given key */
+/**
+ * Find the first descendant with the given key. The children of a node are checked
+ * before its grand children.
+ */
   public IGraphStructuredStackNode findDescendant(final Object aKey) {
-    IGraphStructuredStackNode r= getChild(aKey);
-    if (r != null) return r;
-
-    for (int i=0, n= childrenCount(); i<n; i++) {
-      r= getChild(i).findDescendant(aKey);
+    List stack= new ArrayList();
+    stack.add(this);
+    while (!stack.isEmpty()) {
+      IGraphStructuredStackNode node= (IGraphStructuredStackNode) stack.remove(stack.size()-1);
+      IGraphStructuredStackNode r= node.getChild(aKey);
       if (r != null) return r;
+      for (int i=node.childrenCount()-1; i>=0; i--) {
+        stack.add(node.getChild(i));
+      }
     }
     return null;
   }  // findDescendant
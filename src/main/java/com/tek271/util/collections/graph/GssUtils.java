@@ -24,6 +24,10 @@ You can contact the author at ahabra@yahoo.com
 package com.tek271.util.collections.graph;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import com.tek271.util.collections.list.IntList;
 
 /**
  * Helper static methods for graph handling.
@@ -32,6 +36,12 @@ import java.util.*;
  * @version 1.0
  */
 public class GssUtils {
+/** createGraph() creates the nodes in parallel if asked to and the list is this large */
+  public static final int PARALLEL_THRESHOLD= 100000;
+/** createGraph() indexes the children of a node while building once it has this many */
+  public static final int CHILD_INDEX_THRESHOLD= 16;
+  /** visitParallel() splits the children of a node among tasks in chunks of this size */
+  private static final int pPARALLEL_CHUNK= 256;
 
 /**
  * Encapsulates (key, contents, parentKey) of a graph entry, a list of this object
@@ -55,6 +65,17 @@ public class GssUtils {
     IGraphStructuredStackNode create();
   }
 
+/** Called for each node visited by visitDepthFirst(), visitBreadthFirst(), etc. */
+  public interface IGssNodeVisitor {
+/**
+ * Visit a node.
+ * @param aNode the visited node.
+ * @param aDepth distance from the node where the visit started, which has depth 0.
+ * @return true to continue, false to stop visiting.
+ */
+    boolean visit(IGraphStructuredStackNode aNode, int aDepth);
+  }
+
   private static IGraphStructuredStackNode getNode(final MapOfGraphNode aMap,
                                                    final Object aKey) {
     return (IGraphStructuredStackNode) aMap.getNode(aKey);
@@ -68,24 +89,35 @@ public class GssUtils {
  */
   public static List createGraph(final List aGraphEntryList,
                                  final IGssNodeFactory aFactory) {
-    // create a map of nodes
+    return createGraph(aGraphEntryList, aFactory, false);
+  }
+
+/**
+ * Given a list of GraphEntry objects, create the appropriate graph nodes. While building,
+ * nodes that extend AbstractGraphStructuredStackNode and have at least
+ * CHILD_INDEX_THRESHOLD children get their children indexed, which keeps the time linear
+ * in the size of the list. The indexes are turned off when the graph is built.
+ * @param aGraphEntryList List of GraphEntry objects. No order is required.
+ * @param aFactory IGssNodeFactory Used to create IGraphStructuredStackNode objects
+ * @param aIsParallel if true and the list has at least PARALLEL_THRESHOLD entries, the
+ *        nodes are created in parallel; aFactory must then be thread safe.
+ * @return List of IGraphStructuredStackNode root nodes.
+ */
+  public static List createGraph(final List aGraphEntryList,
+                                 final IGssNodeFactory aFactory,
+                                 final boolean aIsParallel) {
     int n= aGraphEntryList.size();
-    MapOfGraphNode map= new MapOfGraphNode(n);
-    for (int i=0; i<n; i++) {
-      GraphEntry ge= (GraphEntry) aGraphEntryList.get(i);
-      IGraphStructuredStackNode node= getNode(map, ge.key);
-      if (node==null) {
-        node= aFactory.create();
-        node.setKey(ge.key);
-        map.put(node);
-      }
-      if (ge.contents != null && node.getContents() == null) {
-        node.setContents(ge.contents);
-      }
-    }  // for
+    MapOfGraphNode map;
+    if (aIsParallel && n >= PARALLEL_THRESHOLD) {
+      map= createNodesParallel(aGraphEntryList, aFactory);
+    } else {
+      map= createNodes(aGraphEntryList, aFactory);
+    }
 
     // list of roots
     List roots= new ArrayList();
+    // nodes whose children were indexed while building
+    List indexed= new ArrayList();
 
     // assign parents for each node
     for (int i=0; i<n; i++) {
@@ -100,13 +132,113 @@ public class GssUtils {
       if (parent==null) {
         roots.add(node);
       } else {
+        indexWideNode(parent, indexed);
         node.addParent(parent);
       }
     }  // for
 
+    for (int i=0, m=indexed.size(); i<m; i++) {
+      ((AbstractGraphStructuredStackNode) indexed.get(i)).setChildIndexed(false);
+    }
     return roots;
   } // createGraph
 
+  /** Index the children of aNode if it is wide, so adding more children does not scan */
+  private static void indexWideNode(final IGraphStructuredStackNode aNode,
+                                    final List aIndexed) {
+    if (!(aNode instanceof AbstractGraphStructuredStackNode)) return;
+    if (aNode.childrenCount() < CHILD_INDEX_THRESHOLD) return;
+    AbstractGraphStructuredStackNode node= (AbstractGraphStructuredStackNode) aNode;
+    if (node.isChildIndexed()) return;
+    node.setChildIndexed(true);
+    aIndexed.add(node);
+  }  // indexWideNode
+
+  private static IGraphStructuredStackNode createNode(final IGssNodeFactory aFactory,
+                                                      final Object aKey) {
+    IGraphStructuredStackNode node= aFactory.create();
+    node.setKey(aKey);
+    return node;
+  }  // createNode
+
+  /** Create a map of nodes, one node for each key */
+  private static MapOfGraphNode createNodes(final List aGraphEntryList,
+                                            final IGssNodeFactory aFactory) {
+    int n= aGraphEntryList.size();
+    MapOfGraphNode map= new MapOfGraphNode(n);
+    for (int i=0; i<n; i++) {
+      GraphEntry ge= (GraphEntry) aGraphEntryList.get(i);
+      IGraphStructuredStackNode node= getNode(map, ge.key);
+      if (node==null) {
+        node= createNode(aFactory, ge.key);
+        map.put(node);
+      }
+      if (ge.contents != null && node.getContents() == null) {
+        node.setContents(ge.contents);
+      }
+    }  // for
+    return map;
+  }  // createNodes
+
+  /**
+   * Same as createNodes(), but the nodes are created by the tasks of a fork join pool.
+   * The keys and the contents of each key are found first, so the result is the same.
+   */
+  private static MapOfGraphNode createNodesParallel(final List aGraphEntryList,
+                                                    final IGssNodeFactory aFactory) {
+    int n= aGraphEntryList.size();
+    Map slots= new HashMap(n);   // key -> Integer index in keys[]
+    final Object[] keys= new Object[n];
+    final Object[] contents= new Object[n];
+    int count= 0;
+    for (int i=0; i<n; i++) {
+      GraphEntry ge= (GraphEntry) aGraphEntryList.get(i);
+      Integer slot= (Integer) slots.get(ge.key);
+      if (slot==null) {
+        slot= Integer.valueOf(count++);
+        slots.put(ge.key, slot);
+        keys[slot.intValue()]= ge.key;
+      }
+      if (contents[slot.intValue()]==null) contents[slot.intValue()]= ge.contents;
+    }
+
+    final IGraphStructuredStackNode[] nodes= new IGraphStructuredStackNode[count];
+    ForkJoinPool pool= ForkJoinPool.commonPool();
+    int chunkSize= Math.max(1024, count / (pool.getParallelism() * 4) + 1);
+    List tasks= new ArrayList();
+    for (int start=0; start<count; start+= chunkSize) {
+      final int from= start;
+      final int to= Math.min(count, start + chunkSize);
+      tasks.add(new Callable() {
+        public Object call() {
+          for (int i=from; i<to; i++) {
+            IGraphStructuredStackNode node= createNode(aFactory, keys[i]);
+            if (contents[i] != null && node.getContents() == null) {
+              node.setContents(contents[i]);
+            }
+            nodes[i]= node;
+          }
+          return null;
+        }
+      });
+    }
+    List futures= pool.invokeAll(tasks);
+    for (Iterator i= futures.iterator(); i.hasNext();) {
+      try {
+        ((Future) i.next()).get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted while creating graph nodes", e);
+      } catch (ExecutionException e) {
+        throw new RuntimeException("Failed to create graph nodes", e.getCause());
+      }
+    }
+
+    MapOfGraphNode map= new MapOfGraphNode(count);
+    for (int i=0; i<count; i++) map.put(nodes[i]);
+    return map;
+  }  // createNodesParallel
+
 /**
  * Sort a list of IGraphStructuredStackNode and all their descendants
  * @param aNodeList List of IGraphStructuredStackNode objects
@@ -139,5 +271,251 @@ public class GssUtils {
     sortNodeList(aNode.getChildren(), aComparator);
   }  // sortChildren
 
+/**
+ * Visit aNode and its descendants, each node before its children and the children in
+ * order, without recursion. A node reachable through more than one path is visited once
+ * for each path.
+ * @return false if the visitor stopped the visit.
+ */
+  public static boolean visitDepthFirst(final IGraphStructuredStackNode aNode,
+                                        final IGssNodeVisitor aVisitor) {
+    if (aNode==null) return true;
+    List nodes= new ArrayList();
+    IntList depths= new IntList();
+    nodes.add(aNode);
+    depths.add(0);
+    while (!nodes.isEmpty()) {
+      int last= nodes.size()-1;
+      IGraphStructuredStackNode node= (IGraphStructuredStackNode) nodes.remove(last);
+      int depth= depths.removeAt(last);
+      if (!aVisitor.visit(node, depth)) return false;
+      for (int i=node.childrenCount()-1; i>=0; i--) {
+        nodes.add(node.getChild(i));
+        depths.add(depth+1);
+      }
+    }
+    return true;
+  }  // visitDepthFirst
+
+/**
+ * Visit aNode and its descendants level by level. A node reachable through more than one
+ * path is visited once for each path.
+ * @return false if the visitor stopped the visit.
+ */
+  public static boolean visitBreadthFirst(final IGraphStructuredStackNode aNode,
+                                          final IGssNodeVisitor aVisitor) {
+    if (aNode==null) return true;
+    List level= new ArrayList();
+    level.add(aNode);
+    for (int depth=0; !level.isEmpty(); depth++) {
+      List next= new ArrayList();
+      for (int k=0, n=level.size(); k<n; k++) {
+        IGraphStructuredStackNode node= (IGraphStructuredStackNode) level.get(k);
+        if (!aVisitor.visit(node, depth)) return false;
+        next.addAll(node.getChildren());
+      }
+      level= next;
+    }
+    return true;
+  }  // visitBreadthFirst
+
+  /** Visits the subtrees of a range of children of a node */
+  private static class VisitTask extends RecursiveAction {
+    private static final long serialVersionUID = 1;
+
+    private final IGraphStructuredStackNode pParent;
+    private final int pFrom;
+    private final int pTo;
+    private final int pDepth;  // of the children
+    private final IGssNodeVisitor pVisitor;
+    private final AtomicBoolean pIsStopped;
+
+    VisitTask(final IGraphStructuredStackNode aParent, final int aFrom, final int aTo,
+              final int aDepth, final IGssNodeVisitor aVisitor,
+              final AtomicBoolean aIsStopped) {
+      pParent= aParent;
+      pFrom= aFrom;
+      pTo= aTo;
+      pDepth= aDepth;
+      pVisitor= aVisitor;
+      pIsStopped= aIsStopped;
+    }
+
+    protected void compute() {
+      if (pTo - pFrom > pPARALLEL_CHUNK) {
+        int mid= (pFrom + pTo) >>> 1;
+        invokeAll(new VisitTask(pParent, pFrom, mid, pDepth, pVisitor, pIsStopped),
+                  new VisitTask(pParent, mid, pTo, pDepth, pVisitor, pIsStopped));
+        return;
+      }
+
+      List forked= new ArrayList();
+      List nodes= new ArrayList();
+      IntList depths= new IntList();
+      for (int i=pTo-1; i>=pFrom; i--) {
+        nodes.add(pParent.getChild(i));
+        depths.add(pDepth);
+      }
+      while (!nodes.isEmpty() && !pIsStopped.get()) {
+        int last= nodes.size()-1;
+        IGraphStructuredStackNode node= (IGraphStructuredStackNode) nodes.remove(last);
+        int depth= depths.removeAt(last);
+        if (!pVisitor.visit(node, depth)) {
+          pIsStopped.set(true);
+          break;
+        }
+        int n= node.childrenCount();
+        if (n >= pPARALLEL_CHUNK) {   // a wide node, let other threads share its children
+          forked.add(new VisitTask(node, 0, n, depth+1, pVisitor, pIsStopped).fork());
+          continue;
+        }
+        for (int i=n-1; i>=0; i--) {
+          nodes.add(node.getChild(i));
+          depths.add(depth+1);
+        }
+      }
+      for (int i=0, n=forked.size(); i<n; i++) ((ForkJoinTask) forked.get(i)).join();
+    }  // compute
+  }  // VisitTask
+
+/**
+ * Visit aNode and its descendants using the common fork join pool. The children of wide
+ * nodes are visited by several threads, in no specific order, so aVisitor must be thread
+ * safe. A node reachable through more than one path is visited once for each path.
+ * @return false if the visitor stopped the visit; nodes being visited by other threads at
+ * that time are still visited.
+ */
+  public static boolean visitParallel(final IGraphStructuredStackNode aNode,
+                                      final IGssNodeVisitor aVisitor) {
+    if (aNode==null) return true;
+    if (!aVisitor.visit(aNode, 0)) return false;
+    AtomicBoolean isStopped= new AtomicBoolean();
+    ForkJoinPool.commonPool().invoke(
+        new VisitTask(aNode, 0, aNode.childrenCount(), 1, aVisitor, isStopped));
+    return !isStopped.get();
+  }  // visitParallel
+
+/**
+ * Turn the caching of descendantsCount() on or off for the given nodes and their
+ * descendants, see AbstractGraphStructuredStackNode.setCountCached().
+ * @param aNodeList List of IGraphStructuredStackNode objects.
+ */
+  public static void setCountCached(final List aNodeList, final boolean aIsCached) {
+    if (aNodeList==null) return;
+    Set done= Collections.newSetFromMap(new IdentityHashMap());
+    List stack= new ArrayList(aNodeList);
+    while (!stack.isEmpty()) {
+      IGraphStructuredStackNode node=
+        (IGraphStructuredStackNode) stack.remove(stack.size()-1);
+      if (!done.add(node)) continue;  // reached before through another path
+      if (node instanceof AbstractGraphStructuredStackNode) {
+        ((AbstractGraphStructuredStackNode) node).setCountCached(aIsCached);
+      }
+      stack.addAll(node.getChildren());
+    }
+  }  // setCountCached
+
+  private static List benchEntries(final int aTop, final int aFanOut) {
+    List list= new ArrayList(1 + aTop + aTop * aFanOut);
+    list.add(new GraphEntry("root", "root", null));
+    for (int i=0; i<aTop; i++) {
+      String top= "t" + i;
+      list.add(new GraphEntry(top, top, "root"));
+      for (int k=0; k<aFanOut; k++) {
+        String leaf= top + "." + k;
+        list.add(new GraphEntry(leaf, leaf, top));
+      }
+    }
+    return list;
+  }  // benchEntries
+
+  /** The recursive count used before, for comparison */
+  private static int recursiveCount(final IGraphStructuredStackNode aNode) {
+    int n= aNode.childrenCount();
+    int total= n;
+    for (int i=0; i<n; i++) total += recursiveCount(aNode.getChild(i));
+    return total;
+  }
+
+  /** For testing: build a graph of about 2M nodes */
+  public static void main(final String[] a) {
+    int top= 1000;
+    int fanOut= 2000;
+    List entries= benchEntries(top, fanOut);
+    IGssNodeFactory factory= new IGssNodeFactory() {
+      public IGraphStructuredStackNode create() {
+        return new GraphStructuredStackNode();
+      }
+    };
+
+    List roots= null;
+    for (int round=0; round<3; round++) {
+      long t= System.currentTimeMillis();
+      roots= createGraph(entries, factory, false);
+      long seq= System.currentTimeMillis() - t;
+      t= System.currentTimeMillis();
+      roots= createGraph(entries, factory, true);
+      long par= System.currentTimeMillis() - t;
+      System.out.println(entries.size() + " nodes: sequential=" + seq + "ms, parallel=" +
+                         par + "ms, children of root=" +
+                         ((IGraphStructuredStackNode) roots.get(0)).childrenCount());
+    }
+
+    // traversals of the 2M nodes graph
+    IGraphStructuredStackNode root= (IGraphStructuredStackNode) roots.get(0);
+    final AtomicLong visits= new AtomicLong();
+    IGssNodeVisitor counter= new IGssNodeVisitor() {
+      public boolean visit(final IGraphStructuredStackNode aNode, final int aDepth) {
+        visits.incrementAndGet();
+        return true;
+      }
+    };
+    for (int round=0; round<3; round++) {
+      long t= System.currentTimeMillis();
+      int recursive= recursiveCount(root);
+      long tRecursive= System.currentTimeMillis() - t;
+      t= System.currentTimeMillis();
+      int count= root.descendantsCount();
+      long tCount= System.currentTimeMillis() - t;
+      t= System.currentTimeMillis();
+      visitDepthFirst(root, counter);
+      long tDfs= System.currentTimeMillis() - t;
+      t= System.currentTimeMillis();
+      visitBreadthFirst(root, counter);
+      long tBfs= System.currentTimeMillis() - t;
+      t= System.currentTimeMillis();
+      visitParallel(root, counter);
+      long tPar= System.currentTimeMillis() - t;
+      System.out.println("count=" + count + "/" + recursive + ": recursive=" + tRecursive +
+                         "ms, iterative=" + tCount + "ms, dfs=" + tDfs + "ms, bfs=" + tBfs +
+                         "ms, parallel=" + tPar + "ms");
+    }
+    setCountCached(roots, true);
+    for (int round=0; round<3; round++) {
+      long t= System.nanoTime();
+      int count= root.descendantsCount();
+      System.out.println("cached count=" + count + ": " + (System.nanoTime() - t) / 1000 + "us");
+    }
+    root.getChild(0).addChild(new GraphStructuredStackNode("new", null));
+    long tAdd= System.nanoTime();
+    int count= root.descendantsCount();
+    System.out.println("after an add, count=" + count + ": " +
+                       (System.nanoTime() - tAdd) / 1000 + "us");
+
+    // one parent with many children, with and without the index
+    int wide= 50000;
+    for (int round=0; round<2; round++) {
+      boolean isIndexed= round==0;
+      long t= System.currentTimeMillis();
+      GraphStructuredStackNode parent= new GraphStructuredStackNode("p", null);
+      parent.setChildIndexed(isIndexed);
+      for (int k=0; k<wide; k++) {
+        parent.addChild(new GraphStructuredStackNode("c" + k, null));
+      }
+      System.out.println(wide + " children, indexed=" + isIndexed + ": " +
+                         (System.currentTimeMillis() - t) + "ms");
+    }
+  }  // main
+
 
 }  // GssUtils
@@ -24,6 +24,7 @@ package com.tek271.util.collections.iterator;
 
 import java.util.*;
 import com.tek271.util.*;
+import com.tek271.util.collections.AsyncNotifier;
 
 
 /**
@@ -37,6 +38,7 @@ public class NotifyingIterator implements Iterator {
   private Iterator pOrgIterator;
   private List pRemoveListeners;  // of ICallback
   private Object pCurrentItem;
+  private AsyncNotifier pNotifier;
 
 /**
  * Decorate an iterator by making it notifying on remove operations.
@@ -51,6 +53,19 @@ public class NotifyingIterator implements Iterator {
     }
   }
 
+/**
+ * Decorate an iterator by making it notifying on remove operations.
+ * @param aIterator Iterator The iterator to decorate.
+ * @param aRemoveListener List A list of ICallback listeners.
+ * @param aNotifier AsyncNotifier to deliver the notifications on, if null the listeners
+ * are called in the remove() call.
+ */
+  public NotifyingIterator(final Iterator aIterator, final List aRemoveListener,
+                           final AsyncNotifier aNotifier) {
+    this(aIterator, aRemoveListener);
+    pNotifier= aNotifier;
+  }
+
 /** Is there a next item */
   public boolean hasNext() {
     return pOrgIterator.hasNext();
@@ -73,6 +88,12 @@ public class NotifyingIterator implements Iterator {
   public void remove() {
     if (pCurrentItem==null) return;
 
+    if (pNotifier != null) {
+      pNotifier.notify(pRemoveListeners, pCurrentItem);
+      pOrgIterator.remove();
+      pCurrentItem= null;
+      return;
+    }
     int n= listenerCount();
     for (int i=0; i<n; i++) {
       ICallback cb= (ICallback) pRemoveListeners.get(i);
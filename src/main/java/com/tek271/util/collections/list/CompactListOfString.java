@@ -0,0 +1,530 @@
+/*
+Technology Exponent Common Utilities For Java (TECUJ)
+Copyright (C) 2003,2008  Abdul Habra.
+www.tek271.com
+
+This file is part of TECUJ.
+
+TECUJ is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published
+by the Free Software Foundation; version 2.
+
+TECUJ is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with TECUJ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+You can contact the author at ahabra@yahoo.com
+*/
+package com.tek271.util.collections.list;
+
+import java.io.*;
+import java.util.*;
+
+import com.tek271.util.string.StringUtility;
+
+/**
+ * A memory compact list of lines, for large text files that are read once and then
+ * searched. Where <code>ListOfString</code> keeps a String object per line, this list keeps
+ * the text of all lines in one array with an <code>int[]</code> table of line offsets. The
+ * text is kept as one byte per char while all chars are Latin-1 (below 256), and is widened
+ * to a char array when the first char above 255 is added.
+ * <p>Lines are returned either as <code>CharSequence</code> views with get(), which do not
+ * copy the text, or as Strings created on demand with getItem(). The common read operations
+ * of ListOfString are supported: indexOf(), lastIndexOf(), indexOfStart(), indexOfName(),
+ * getValueOfName(), getText() and writeToTextFile(). Lines can only be added at the end.
+ * <p>This class is not synchronized.
+ * <p>Copyright (c) 2008 Technology Exponent</p>
+ * @author Abdul Habra
+ * @version 1.0
+ */
+public class CompactListOfString {
+  /** Case sensitivity for searches. Default=true */
+  public boolean isCaseSensitive = true;
+
+  /** The symbol used for name/value pairs. The default is = */
+  public String valueEquator = "=";
+
+  /** The character to separate lines of text. The default is \n */
+  public String lineSeparator = "\n";
+
+  private static final int pDEFAULT_LINES= 16;
+  private static final int pDEFAULT_CHARS= 256;
+
+  private byte[] pBytes;   // the text while it is Latin-1, otherwise null
+  private char[] pChars;   // the text after a char above 255 was added, otherwise null
+  private int pLength;     // # of chars used in the arena
+  private int[] pOffsets;  // pOffsets[i] is the start of line i, pOffsets[size] is pLength
+  private int pSize;
+
+  public CompactListOfString() {
+    this(pDEFAULT_LINES, pDEFAULT_CHARS);
+  }
+
+/** Create a list with room for the given number of lines and chars of text */
+  public CompactListOfString(final int aLinesCapacity, final int aCharsCapacity) {
+    pOffsets= new int[Math.max(aLinesCapacity, 1) + 1];
+    pBytes= new byte[Math.max(aCharsCapacity, 1)];
+  }
+
+/** Create a list with the items of the given ListOfString and its settings */
+  public CompactListOfString(final ListOfString aList) {
+    this(aList.size(), aList.size() * 16);
+    isCaseSensitive= aList.isCaseSensitive;
+    valueEquator= aList.valueEquator;
+    lineSeparator= aList.lineSeparator;
+    for (int i=0, n=aList.size(); i<n; i++) add(aList.getItem(i));
+  }
+
+/** # of lines */
+  public int size() {
+    return pSize;
+  }
+
+  public boolean isEmpty() {
+    return pSize==0;
+  }
+
+/** Total # of chars in all the lines */
+  public int getTextLength() {
+    return pLength;
+  }
+
+/** Check if the text is kept as one byte per char */
+  public boolean isLatin1() {
+    return pChars==null;
+  }
+
+/** Remove all lines */
+  public void clear() {
+    pSize= 0;
+    pLength= 0;
+  }
+
+/** Reduce the arrays to the size used */
+  public void trimToSize() {
+    if (pOffsets.length > pSize + 1) {
+      int[] t= new int[pSize + 1];
+      System.arraycopy(pOffsets, 0, t, 0, pSize + 1);
+      pOffsets= t;
+    }
+    if (pChars != null && pChars.length > pLength) {
+      char[] t= new char[pLength];
+      System.arraycopy(pChars, 0, t, 0, pLength);
+      pChars= t;
+    } else if (pChars == null && pBytes.length > pLength) {
+      byte[] t= new byte[pLength];
+      System.arraycopy(pBytes, 0, t, 0, pLength);
+      pBytes= t;
+    }
+  }  // trimToSize
+
+  private void ensureTextCapacity(final int aLength) {
+    int capacity= pChars != null ? pChars.length : pBytes.length;
+    if (aLength <= capacity) return;
+    int newCapacity= Math.max(aLength, capacity + (capacity >> 1) + 16);
+    if (pChars != null) {
+      char[] t= new char[newCapacity];
+      System.arraycopy(pChars, 0, t, 0, pLength);
+      pChars= t;
+    } else {
+      byte[] t= new byte[newCapacity];
+      System.arraycopy(pBytes, 0, t, 0, pLength);
+      pBytes= t;
+    }
+  }  // ensureTextCapacity
+
+  /** Switch the arena from bytes to chars */
+  private void widen() {
+    char[] t= new char[Math.max(pBytes.length, 16)];
+    for (int i=0; i<pLength; i++) t[i]= (char) (pBytes[i] & 0xFF);
+    pChars= t;
+    pBytes= null;
+  }  // widen
+
+  private void appendChar(final char aChar) {
+    if (pChars==null && aChar > 0xFF) widen();
+    if (pChars != null) pChars[pLength++]= aChar;
+    else pBytes[pLength++]= (byte) aChar;
+  }
+
+  private void appendChars(final char[] aChars, final int aStart, final int aEnd) {
+    ensureTextCapacity(pLength + aEnd - aStart);
+    for (int i=aStart; i<aEnd; i++) appendChar(aChars[i]);
+  }
+
+  private void endLine() {
+    if (pSize + 2 > pOffsets.length) {
+      int[] t= new int[pOffsets.length + (pOffsets.length >> 1) + 2];
+      System.arraycopy(pOffsets, 0, t, 0, pSize + 1);
+      pOffsets= t;
+    }
+    pSize++;
+    pOffsets[pSize]= pLength;
+  }  // endLine
+
+/** Add a line at the end of the list. A null line is added as an empty line. */
+  public void add(final CharSequence aLine) {
+    if (aLine != null) {
+      int n= aLine.length();
+      ensureTextCapacity(pLength + n);
+      for (int i=0; i<n; i++) appendChar(aLine.charAt(i));
+    }
+    endLine();
+  }  // add
+
+  private void checkIndex(final int aIndex) {
+    if (aIndex<0 || aIndex>=pSize) {
+      throw new IndexOutOfBoundsException("Index: " + aIndex + ", Size: " + pSize);
+    }
+  }
+
+/** Length of the line at the given index */
+  public int length(final int aIndex) {
+    checkIndex(aIndex);
+    return pOffsets[aIndex+1] - pOffsets[aIndex];
+  }
+
+  private char charAtOffset(final int aOffset) {
+    if (pChars != null) return pChars[aOffset];
+    return (char) (pBytes[aOffset] & 0xFF);
+  }
+
+/** Char at aPosition of the line at aIndex */
+  public char charAt(final int aIndex, final int aPosition) {
+    if (aPosition<0 || aPosition>=length(aIndex)) {
+      throw new StringIndexOutOfBoundsException(aPosition);
+    }
+    return charAtOffset(pOffsets[aIndex] + aPosition);
+  }
+
+/** Create a String from the given range of the arena */
+  private String substring(final int aStart, final int aEnd) {
+    if (aStart==aEnd) return StringUtility.EMPTY;
+    if (pChars != null) return new String(pChars, aStart, aEnd - aStart);
+    char[] t= new char[aEnd - aStart];
+    for (int i=aStart; i<aEnd; i++) t[i - aStart]= (char) (pBytes[i] & 0xFF);
+    return new String(t);
+  }  // substring
+
+/** The line at the given index as a new String */
+  public String getItem(final int aIndex) {
+    checkIndex(aIndex);
+    return substring(pOffsets[aIndex], pOffsets[aIndex+1]);
+  }
+
+/** The line at the given index as a view of this list's text, the text is not copied */
+  public CharSequence get(final int aIndex) {
+    checkIndex(aIndex);
+    return new Line(pOffsets[aIndex], pOffsets[aIndex+1]);
+  }
+
+  /** A view of a range of the arena */
+  private class Line implements CharSequence {
+    private final int pStart;
+    private final int pEnd;
+
+    Line(final int aStart, final int aEnd) {
+      pStart= aStart;
+      pEnd= aEnd;
+    }
+
+    public int length() {
+      return pEnd - pStart;
+    }
+
+    public char charAt(final int aIndex) {
+      if (aIndex<0 || aIndex>=length()) throw new StringIndexOutOfBoundsException(aIndex);
+      return charAtOffset(pStart + aIndex);
+    }
+
+    public CharSequence subSequence(final int aStart, final int aEnd) {
+      if (aStart<0 || aEnd>length() || aStart>aEnd) {
+        throw new StringIndexOutOfBoundsException(aStart);
+      }
+      return new Line(pStart + aStart, pStart + aEnd);
+    }
+
+    public String toString() {
+      return substring(pStart, pEnd);
+    }
+  }  // Line
+
+/** All the lines as an array of Strings */
+  public String[] getArray() {
+    String[] r= new String[pSize];
+    for (int i=0; i<pSize; i++) r[i]= getItem(i);
+    return r;
+  }
+
+/** Copy the lines into a new ListOfString with the same settings */
+  public ListOfString toListOfString() {
+    ListOfString r= new ListOfString(pSize);
+    r.isCaseSensitive= isCaseSensitive;
+    r.valueEquator= valueEquator;
+    r.lineSeparator= lineSeparator;
+    for (int i=0; i<pSize; i++) r.add(getItem(i));
+    return r;
+  }
+
+  private static boolean isSameChar(final char a, final char b, final boolean aCaseSensitive) {
+    if (a==b) return true;
+    if (aCaseSensitive) return false;
+    char ua= Character.toUpperCase(a);
+    char ub= Character.toUpperCase(b);
+    return ua==ub || Character.toLowerCase(ua)==Character.toLowerCase(ub);
+  }
+
+  /** Check if the arena at aOffset matches aText, without creating strings */
+  private boolean isMatch(final int aOffset, final String aText) {
+    for (int i=0, n=aText.length(); i<n; i++) {
+      if (!isSameChar(charAtOffset(aOffset + i), aText.charAt(i), isCaseSensitive)) return false;
+    }
+    return true;
+  }
+
+  private boolean isEqual(final int aIndex, final String aItem) {
+    if (pOffsets[aIndex+1] - pOffsets[aIndex] != aItem.length()) return false;
+    return isMatch(pOffsets[aIndex], aItem);
+  }
+
+  private boolean isStartsWith(final int aIndex, final String aPrefix) {
+    if (pOffsets[aIndex+1] - pOffsets[aIndex] < aPrefix.length()) return false;
+    return isMatch(pOffsets[aIndex], aPrefix);
+  }
+
+/** Find the index of aItem taking case sensitivity into consideration, -1 if not found */
+  public int indexOf(final String aItem) {
+    if (aItem==null) return -1;
+    for (int i=0; i<pSize; i++) {
+      if (isEqual(i, aItem)) return i;
+    }
+    return -1;
+  }  // indexOf
+
+/** Find the index of the last occurrence of aItem, -1 if not found */
+  public int lastIndexOf(final String aItem) {
+    if (aItem==null) return -1;
+    for (int i=pSize-1; i>=0; i--) {
+      if (isEqual(i, aItem)) return i;
+    }
+    return -1;
+  }  // lastIndexOf
+
+/** Check if the given item exists */
+  public boolean isExist(final String aItem) {
+    return indexOf(aItem) >= 0;
+  }
+
+/** Find the index of the item that starts with aItemPrefix, -1 if not found */
+  public int indexOfStart(final String aItemPrefix) {
+    for (int i=0; i<pSize; i++) {
+      if (isStartsWith(i, aItemPrefix)) return i;
+    }
+    return -1;
+  }  // indexOfStart
+
+/**
+ * Treating the list items as name/value pairs, find the first index of the
+ * given name. Uses <b>valueEquator</b> to separate name and value.
+ * @return Index of found item, -1 if not found.
+ */
+  public int indexOfName(final String aName) {
+    return indexOfName(aName, 0);
+  }
+
+/** Find the first index of the given name starting at aStartIndex, -1 if not found */
+  public int indexOfName(String aName, final int aStartIndex) {
+    if (aName==null) return -1;
+    aName= aName.trim();
+    if (aName.length()==0) return -1;
+    aName += valueEquator;
+    for (int i=aStartIndex; i<pSize; i++) {
+      if (isStartsWith(i, aName)) return i;
+    }
+    return -1;
+  }  // indexOfName
+
+/** Treating the list items as name/value pairs, get the value at the given index */
+  public String getValueAtIndex(final int aIndex) {
+    checkIndex(aIndex);
+    int start= pOffsets[aIndex];
+    int end= pOffsets[aIndex+1];
+    int n= valueEquator.length();
+    for (int i=start; i<=end - n; i++) {
+      if (isSameCharsAt(i, valueEquator)) return substring(i + n, end);
+    }
+    return substring(start, end);
+  }  // getValueAtIndex
+
+  private boolean isSameCharsAt(final int aOffset, final String aText) {
+    for (int i=0, n=aText.length(); i<n; i++) {
+      if (charAtOffset(aOffset + i) != aText.charAt(i)) return false;
+    }
+    return true;
+  }
+
+/** Get the value for the given name, empty string if name not found */
+  public String getValueOfName(final String aName) {
+    int index= indexOfName(aName);
+    if (index<0) return StringUtility.EMPTY;
+    return getValueAtIndex(index);
+  }
+
+/** Convert the lines into a string separated by aLineSeparator */
+  public String getText(final String aLineSeparator) {
+    if (pSize==0) return StringUtility.EMPTY;
+    StringBuilder buf= new StringBuilder(pLength + pSize * aLineSeparator.length());
+    appendTo(buf, aLineSeparator);
+    return buf.toString();
+  }  // getText
+
+  public String getText() {
+    return getText(lineSeparator);
+  }
+
+  public String toString() {
+    return getText();
+  }
+
+  private void appendTo(final StringBuilder aBuf, final String aLineSeparator) {
+    for (int i=0; i<pSize; i++) {
+      if (i>0) aBuf.append(aLineSeparator);
+      for (int k=pOffsets[i], e=pOffsets[i+1]; k<e; k++) aBuf.append(charAtOffset(k));
+    }
+  }  // appendTo
+
+/** Write the lines separated by lineSeparator to the given writer, without creating the whole text */
+  public void writeTo(final Writer aWriter) throws IOException {
+    char[] buf= new char[8192];
+    int n= 0;
+    for (int i=0; i<pSize; i++) {
+      if (i>0) {
+        for (int k=0; k<lineSeparator.length(); k++) {
+          if (n==buf.length) { aWriter.write(buf, 0, n); n= 0; }
+          buf[n++]= lineSeparator.charAt(k);
+        }
+      }
+      for (int k=pOffsets[i], e=pOffsets[i+1]; k<e; k++) {
+        if (n==buf.length) { aWriter.write(buf, 0, n); n= 0; }
+        buf[n++]= charAtOffset(k);
+      }
+    }
+    aWriter.write(buf, 0, n);
+    aWriter.flush();
+  }  // writeTo
+
+/** Write the list into the given text file */
+  public void writeToTextFile(final String aFileName) throws IOException {
+    Writer out= new BufferedWriter(new FileWriter(aFileName));
+    try {
+      writeTo(out);
+    } finally {
+      out.close();
+    }
+  }  // writeToTextFile
+
+/**
+ * Read a text file into the list, each line is an item. Lines end with \n, \r, or
+ * \r\n as in BufferedReader.readLine(). No String is created for the lines.
+ */
+  public void readFromTextFile(final String aFileName) throws IOException {
+    readFromReader(new FileReader(aFileName));
+  }
+
+/** Read from the given stream, using the platform's default charset. Closes the stream. */
+  public void readFromStream(final InputStream aStream) throws IOException {
+    readFromReader(new InputStreamReader(aStream));
+  }
+
+/** Read lines from the given reader into this list. Closes the reader. */
+  public void readFromReader(final Reader aReader) throws IOException {
+    try {
+      char[] buf= new char[8192];
+      boolean isLineOpen= false;  // chars were read for a line not yet ended
+      boolean isSkipLf= false;    // the previous buffer ended with \r
+      int n;
+      while ((n= aReader.read(buf)) >= 0) {
+        int start= 0;
+        for (int i=0; i<n; i++) {
+          char c= buf[i];
+          if (c != '\n' && c != '\r') {
+            isSkipLf= false;
+            continue;
+          }
+          if (c=='\n' && isSkipLf && i==start) {  // the \n of a \r\n
+            isSkipLf= false;
+            start= i + 1;
+            continue;
+          }
+          appendChars(buf, start, i);
+          endLine();
+          isLineOpen= false;
+          isSkipLf= c=='\r';
+          start= i + 1;
+        }
+        if (start < n) {
+          appendChars(buf, start, n);
+          isLineOpen= true;
+        }
+      }
+      if (isLineOpen) endLine();
+    } finally {
+      aReader.close();
+    }
+  }  // readFromReader
+
+/** For testing: compare the heap used by ListOfString and CompactListOfString */
+  public static void main(String[] args) throws Exception {
+    int lines= args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    File file= File.createTempFile("CompactListOfString", ".txt");
+    file.deleteOnExit();
+    Writer w= new BufferedWriter(new FileWriter(file));
+    Random random= new Random(1);
+    for (int i=0; i<lines; i++) {
+      w.write("name" + i + "=value " + random.nextInt(1000000) + " of line " + i + "\n");
+    }
+    w.close();
+    System.out.println("File size: " + file.length() / 1024 + "KB, " + lines + " lines");
+
+    for (int round=0; round<2; round++) {
+      long before= usedHeap();
+      long start= System.currentTimeMillis();
+      ListOfString list= new ListOfString();
+      list.readFromTextFile(file.getPath());
+      long ms= System.currentTimeMillis() - start;
+      long used= usedHeap() - before;
+      start= System.currentTimeMillis();
+      int found= list.indexOf("name" + (lines - 1));
+      System.out.println("ListOfString:        " + used / 1024 + "KB, read " + ms + "ms, indexOf " +
+                         (System.currentTimeMillis() - start) + "ms, size " + list.size() + ", found " + found);
+      list= null;
+
+      before= usedHeap();
+      start= System.currentTimeMillis();
+      CompactListOfString compact= new CompactListOfString();
+      compact.readFromTextFile(file.getPath());
+      compact.trimToSize();
+      ms= System.currentTimeMillis() - start;
+      used= usedHeap() - before;
+      start= System.currentTimeMillis();
+      found= compact.indexOf("name" + (lines - 1));
+      System.out.println("CompactListOfString: " + used / 1024 + "KB, read " + ms + "ms, indexOf " +
+                         (System.currentTimeMillis() - start) + "ms, size " + compact.size() + ", found " + found);
+    }
+  }  // main
+
+  private static long usedHeap() throws InterruptedException {
+    Runtime rt= Runtime.getRuntime();
+    for (int i=0; i<3; i++) {
+      System.gc();
+      Thread.sleep(100);
+    }
+    return rt.totalMemory() - rt.freeMemory();
+  }
+
+}  // CompactListOfString
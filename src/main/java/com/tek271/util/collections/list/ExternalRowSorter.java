@@ -0,0 +1,573 @@
+/*
+Technology Exponent Common Utilities For Java (TECUJ)
+Copyright (C) 2003,2008  Abdul Habra.
+www.tek271.com
+
+This file is part of TECUJ.
+
+TECUJ is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published
+by the Free Software Foundation; version 2.
+
+TECUJ is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with TECUJ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+You can contact the author at ahabra@yahoo.com
+*/
+package com.tek271.util.collections.list;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Sort rows that do not fit in memory, using an external merge sort. Rows are added one
+ * at a time or from a RowList, and are sorted using the same syntax as
+ * <code>RowList.orderBy()</code>, e.g. "NAME ASC, 2 DESC".
+ * <p>Added rows are collected into runs of at most <code>maxRowsInMemory</code> rows.
+ * Each full run is sorted on a background thread and spilled to a temp file in the
+ * <code>RowListCodec</code> binary format. Up to <code>parallelism</code> runs are
+ * sorted at the same time, and adding rows blocks while that many runs are in progress,
+ * so while adding, memory use is bounded by about
+ * <code>(parallelism + 1) * maxRowsInMemory</code> rows. <code>sort()</code> then k-way
+ * merges the runs, reading one row at a time from each run. If there are more runs than
+ * <code>maxMergeFanIn</code>, groups of runs are first merged into bigger runs. If all
+ * rows fit into one run, nothing is written to disk.
+ * <p>While merging, each open run holds one row, an 8KB read buffer, and a string
+ * dictionary of at most about 256KB (see <code>RowDataOutput</code>), plus a 32KB
+ * inflater window when compressed. With the default <code>maxMergeFanIn</code> of 64 this
+ * is at most about 19MB, lower <code>maxMergeFanIn</code> to lower it.
+ * <p>The sort is stable: rows that compare equal keep the order they were added in.
+ * <p>A sorter is used once: add rows, call one of the <code>sort</code> methods, then
+ * close the returned <code>SortedRows</code>. Temp files are deleted when they are no
+ * longer needed, and by <code>close()</code>.
+ * <p>Example:<pre>
+ExternalRowSorter sorter= new ExternalRowSorter(header, "STATE ASC, AMOUNT DESC");
+sorter.setMaxRowsInMemory(200000);
+while (rs.next()) sorter.add(readRow(rs));
+ExternalRowSorter.SortedRows rows= sorter.sort();
+try {
+  while (rows.hasNext()) process(rows.next());
+} finally {
+  rows.close();
+}
+</pre>
+ * <p>This class is not thread safe.
+ * <p>Copyright (c) 2008 Technology Exponent</p>
+ * @author Abdul Habra
+ * @version 1.0
+ */
+public class ExternalRowSorter {
+  /** Default number of rows in a run */
+  public static final int DEFAULT_MAX_ROWS_IN_MEMORY= 100000;
+
+  /** Default maximum number of runs merged at once */
+  public static final int DEFAULT_MAX_MERGE_FAN_IN= 64;
+
+  private static final String pTEMP_PREFIX= "rowsort";
+  private static final String pTEMP_SUFFIX= ".run";
+
+  private final RowList pHeader;
+  private final Comparator pComparator;
+  private final int pColumnCount;
+
+  private int pMaxRowsInMemory= DEFAULT_MAX_ROWS_IN_MEMORY;
+  private int pParallelism= Math.max(1, Runtime.getRuntime().availableProcessors());
+  private int pMaxMergeFanIn= DEFAULT_MAX_MERGE_FAN_IN;
+  private File pTempDirectory;
+  private boolean pIsCompress= false;
+
+  private List pBuffer;
+  private final List pRuns= new ArrayList();  // Future of File, in run order
+  private ExecutorService pExecutor;
+  private Semaphore pPermits;
+  private boolean pIsSorted= false;
+  private long pRowCount= 0;
+
+/**
+ * Create a sorter.
+ * @param aHeader RowList gives the column names used by aSortOrder, and the header
+ *        information of the spill files. Its rows are ignored.
+ * @param aSortOrder SQL like order by, see <code>RowList.orderBy()</code>.
+ */
+  public ExternalRowSorter(final RowList aHeader, final String aSortOrder) {
+    pHeader= aHeader;
+    pColumnCount= aHeader.getColumnCount();
+    pComparator= aHeader.createOrderByComparator(aSortOrder);
+  }
+
+  public int getMaxRowsInMemory() { return pMaxRowsInMemory; }
+
+/** Set the maximum number of rows in one run, must be called before adding rows */
+  public void setMaxRowsInMemory(final int aMaxRowsInMemory) {
+    if (aMaxRowsInMemory<1) throw new IllegalArgumentException("aMaxRowsInMemory < 1");
+    assertNotStarted();
+    pMaxRowsInMemory= aMaxRowsInMemory;
+  }
+
+  public int getParallelism() { return pParallelism; }
+
+/** Set the number of runs sorted at the same time, must be called before adding rows */
+  public void setParallelism(final int aParallelism) {
+    if (aParallelism<1) throw new IllegalArgumentException("aParallelism < 1");
+    assertNotStarted();
+    pParallelism= aParallelism;
+  }
+
+  public int getMaxMergeFanIn() { return pMaxMergeFanIn; }
+
+/** Set the maximum number of runs merged at once, at least 2 */
+  public void setMaxMergeFanIn(final int aMaxMergeFanIn) {
+    if (aMaxMergeFanIn<2) throw new IllegalArgumentException("aMaxMergeFanIn < 2");
+    pMaxMergeFanIn= aMaxMergeFanIn;
+  }
+
+  public File getTempDirectory() { return pTempDirectory; }
+
+/** Directory of the spill files, null means the system temp directory */
+  public void setTempDirectory(final File aTempDirectory) {
+    pTempDirectory= aTempDirectory;
+  }
+
+  public boolean isCompress() { return pIsCompress; }
+
+/** If true, compress the spill files. Saves disk i/o at the cost of cpu. */
+  public void setCompress(final boolean aIsCompress) {
+    pIsCompress= aIsCompress;
+  }
+
+/** Number of rows added so far */
+  public long getRowCount() {
+    return pRowCount;
+  }
+
+/** Number of runs spilled to disk so far */
+  public int getSpilledRunCount() {
+    return pRuns.size();
+  }
+
+  private void assertNotStarted() {
+    if (pRowCount>0) throw new IllegalStateException("Rows were already added");
+  }
+
+  private void assertNotSorted() {
+    if (pIsSorted) throw new IllegalStateException("sort() was already called");
+  }
+
+/**
+ * Add a row. The row array is kept, do not change it after adding.
+ * @param aRow Object[] the row values, its length must match the header column count.
+ * @throws IOException if spilling a previous run failed.
+ */
+  public void add(final Object[] aRow) throws IOException {
+    assertNotSorted();
+    if (aRow.length != pColumnCount) {
+      throw new IllegalArgumentException("Column count in the row (" + aRow.length +
+          ") must match the header column count(" + pColumnCount + ")");
+    }
+    if (pBuffer==null) pBuffer= new ArrayList(Math.min(pMaxRowsInMemory, 1024));
+    pBuffer.add(aRow);
+    pRowCount++;
+    if (pBuffer.size() >= pMaxRowsInMemory) spill();
+  }  // add
+
+/** Add all rows of the given row list */
+  public void addAll(final RowList aRowList) throws IOException {
+    List rows= aRowList.getAllRows();
+    for (int i=0, n=rows.size(); i<n; i++) {
+      add((Object[]) rows.get(i));
+    }
+  }
+
+/** Sort the current buffer and write it to a temp file on a background thread */
+  private void spill() throws IOException {
+    if (pExecutor==null) {
+      pExecutor= Executors.newFixedThreadPool(pParallelism, new ThreadFactory() {
+        public Thread newThread(final Runnable aRunnable) {
+          Thread t= new Thread(aRunnable, "ExternalRowSorter");
+          t.setDaemon(true);
+          return t;
+        }
+      });
+      pPermits= new Semaphore(pParallelism);
+    }
+    try {
+      pPermits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting to spill a run");
+    }
+
+    final List rows= pBuffer;
+    pBuffer= null;
+    Future f;
+    try {
+      f= pExecutor.submit(new Callable() {
+        public Object call() throws IOException {
+          try {
+            Collections.sort(rows, pComparator);
+            return writeRun(new RowIterator(rows));
+          } finally {
+            pPermits.release();
+          }
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      pPermits.release();
+      throw e;
+    }
+    pRuns.add(f);
+    checkFailedRuns();
+  }  // spill
+
+/** Throw the error of a run that failed, if any, after deleting all runs */
+  private void checkFailedRuns() throws IOException {
+    for (int i=0, n=pRuns.size(); i<n; i++) {
+      Future f= (Future) pRuns.get(i);
+      if (!f.isDone()) continue;
+      try {
+        getRunFile(f);
+      } catch (IOException e) {
+        abort();
+        throw e;
+      } catch (RuntimeException e) {
+        abort();
+        throw e;
+      }
+    }
+  }  // checkFailedRuns
+
+/** Stop the sorter after an error, deleting all runs. The sorter cannot be used again. */
+  private void abort() {
+    pIsSorted= true;
+    pBuffer= null;
+    if (pExecutor != null) pExecutor.shutdown();
+    for (int i=0, n=pRuns.size(); i<n; i++) {
+      try {
+        getRunFile((Future) pRuns.get(i)).delete();
+      } catch (Exception e) {
+        // this run failed, it has no file
+      }
+    }
+    pRuns.clear();
+  }  // abort
+
+  private static File getRunFile(final Future aFuture) throws IOException {
+    try {
+      return (File) aFuture.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for a run");
+    } catch (ExecutionException e) {
+      Throwable cause= e.getCause();
+      if (cause instanceof IOException) throw (IOException) cause;
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      if (cause instanceof Error) throw (Error) cause;
+      throw new IOException(String.valueOf(cause));
+    }
+  }  // getRunFile
+
+  private File createTempFile() throws IOException {
+    File f= File.createTempFile(pTEMP_PREFIX, pTEMP_SUFFIX, pTempDirectory);
+    f.deleteOnExit();
+    return f;
+  }
+
+/** Write the rows of aSource to a new temp file, then close aSource */
+  private File writeRun(final SortedRows aSource) throws IOException {
+    File file= createTempFile();
+    boolean isOk= false;
+    try {
+      writeTo(aSource, new FileOutputStream(file), true, pIsCompress);
+      isOk= true;
+      return file;
+    } finally {
+      if (!isOk) file.delete();
+    }
+  }  // writeRun
+
+/** Write all rows of aSource to aOut in RowListCodec format, then close aSource */
+  private void writeTo(final SortedRows aSource,
+                       final OutputStream aOut,
+                       final boolean aIsCloseOut,
+                       final boolean aIsCompress) throws IOException {
+    try {
+      int[] types= aSource.getColumnTypes();
+      if (types==null) types= new int[pColumnCount];  // all MIXED
+      RowListCodec.Encoder encoder= RowListCodec.CODEC.createEncoder(aOut, pHeader, types, aIsCompress);
+      while (aSource.hasNext()) {
+        encoder.writeRow(aSource.next());
+      }
+      encoder.finish();
+    } finally {
+      aSource.close();
+      if (aIsCloseOut) aOut.close();
+    }
+  }  // writeTo
+
+/**
+ * Finish adding rows and return the rows in sorted order. The caller must close the
+ * returned object.
+ */
+  public SortedRows sort() throws IOException {
+    assertNotSorted();
+    pIsSorted= true;
+    List buffer= pBuffer==null ? new ArrayList() : pBuffer;
+    pBuffer= null;
+
+    if (pRuns.isEmpty()) {
+      Collections.sort(buffer, pComparator);
+      return new RowIterator(buffer);
+    }
+
+    List files= new ArrayList();
+    if (!buffer.isEmpty()) {
+      pBuffer= buffer;
+      spill();
+    }
+    try {
+      for (int i=0, n=pRuns.size(); i<n; i++) {
+        files.add(getRunFile((Future) pRuns.get(i)));
+      }
+    } catch (IOException e) {
+      abort();
+      throw e;
+    } catch (RuntimeException e) {
+      abort();
+      throw e;
+    }
+    pExecutor.shutdown();
+
+    while (files.size() > pMaxMergeFanIn) {
+      files= mergePass(files);
+    }
+    return new RunMerger(files);
+  }  // sort
+
+/** Merge groups of maxMergeFanIn runs into bigger runs */
+  private List mergePass(final List aFiles) throws IOException {
+    List r= new ArrayList();
+    try {
+      for (int i=0, n=aFiles.size(); i<n; i+= pMaxMergeFanIn) {
+        List group= new ArrayList(aFiles.subList(i, Math.min(n, i + pMaxMergeFanIn)));
+        if (group.size()==1) {
+          r.add(group.get(0));
+        } else {
+          r.add(writeRun(new RunMerger(group)));
+        }
+      }
+      return r;
+    } catch (IOException e) {
+      deleteRuns(aFiles);
+      deleteRuns(r);
+      throw e;
+    }
+  }  // mergePass
+
+  private static void deleteRuns(final List aFiles) {
+    for (int i=0, n=aFiles.size(); i<n; i++) {
+      ((File) aFiles.get(i)).delete();
+    }
+  }
+
+/**
+ * Sort the rows and write them to aOut in the <code>RowListCodec</code> format, they
+ * can be read back with <code>RowListCodec.decode()</code> or a
+ * <code>RowListCodec.Decoder</code>. aOut is not closed.
+ * @param aOut OutputStream the target.
+ * @param aIsCompress boolean if true, compress the output.
+ */
+  public void sortTo(final OutputStream aOut, final boolean aIsCompress) throws IOException {
+    writeTo(sort(), aOut, false, aIsCompress);
+  }  // sortTo
+
+/** Sort the rows into a new RowList with the header's column names. */
+  public RowList sortToRowList() throws IOException {
+    RowList r= new RowList(pHeader.getColumnNames());
+    r.isCaseSensitive= pHeader.isCaseSensitive;
+    SortedRows rows= sort();
+    try {
+      while (rows.hasNext()) r.add(rows.next());
+    } finally {
+      rows.close();
+    }
+    return r;
+  }  // sortToRowList
+
+/** Rows in sorted order, returned by <code>sort()</code> */
+  public interface SortedRows {
+    boolean hasNext() throws IOException;
+
+/** Next row, must be called only after hasNext() returned true */
+    Object[] next() throws IOException;
+
+/** Release resources and delete temp files. May be called more than once. */
+    void close() throws IOException;
+
+/** The column types of the rows if known, null otherwise */
+    int[] getColumnTypes();
+  }  // SortedRows
+
+/** Iterates an in-memory list of rows */
+  private class RowIterator implements SortedRows {
+    private List pRows;
+    private int pIndex= 0;
+
+    RowIterator(final List aRows) {
+      pRows= aRows;
+    }
+
+    public boolean hasNext() {
+      return pRows != null && pIndex < pRows.size();
+    }
+
+    public Object[] next() {
+      if (!hasNext()) throw new NoSuchElementException();
+      Object[] r= (Object[]) pRows.get(pIndex);
+      pRows.set(pIndex++, null);  // let the row be collected
+      return r;
+    }
+
+    public void close() {
+      pRows= null;
+    }
+
+    public int[] getColumnTypes() {
+      return pRows==null ? null : RowDataTypes.columnTypes(pRows, pColumnCount);
+    }
+  }  // RowIterator
+
+/** One spilled run being read by the merger */
+  private static class RunReader {
+    final int index;
+    final InputStream in;
+    final RowListCodec.Decoder decoder;
+    Object[] row;
+
+    RunReader(final int aIndex, final File aFile) throws IOException {
+      index= aIndex;
+      in= new FileInputStream(aFile);
+      try {
+        decoder= RowListCodec.CODEC.createDecoder(in);
+      } catch (IOException e) {
+        in.close();
+        throw e;
+      }
+    }
+
+    boolean advance() throws IOException {
+      row= decoder.hasNext() ? decoder.next() : null;
+      return row != null;
+    }
+  }  // RunReader
+
+/** K-way merge of sorted runs using a priority queue */
+  private class RunMerger implements SortedRows {
+    private final List pFiles;
+    private final List pReaders= new ArrayList();
+    private final PriorityQueue pQueue;
+    private int[] pTypes;
+
+    RunMerger(final List aFiles) throws IOException {
+      pFiles= aFiles;
+      pQueue= new PriorityQueue(Math.max(1, aFiles.size()), new Comparator() {
+        public int compare(final Object a1, final Object a2) {
+          RunReader r1= (RunReader) a1;
+          RunReader r2= (RunReader) a2;
+          int c= pComparator.compare(r1.row, r2.row);
+          if (c!=0) return c;
+          return r1.index - r2.index;  // keep the sort stable
+        }
+      });
+      try {
+        for (int i=0, n=aFiles.size(); i<n; i++) {
+          RunReader r= new RunReader(i, (File) aFiles.get(i));
+          pReaders.add(r);
+          mergeTypes(r.decoder.getColumnTypes());
+          if (r.advance()) pQueue.add(r);
+        }
+      } catch (IOException e) {
+        close();
+        throw e;
+      }
+    }
+
+    private void mergeTypes(final int[] aTypes) {
+      if (pTypes==null) {
+        pTypes= aTypes;
+        return;
+      }
+      for (int i=0; i<pTypes.length; i++) {
+        if (pTypes[i] != aTypes[i]) pTypes[i]= RowDataTypes.MIXED;
+      }
+    }
+
+    public boolean hasNext() {
+      return !pQueue.isEmpty();
+    }
+
+    public Object[] next() throws IOException {
+      RunReader r= (RunReader) pQueue.poll();
+      if (r==null) throw new NoSuchElementException();
+      Object[] row= r.row;
+      if (r.advance()) pQueue.add(r);
+      return row;
+    }
+
+    public void close() throws IOException {
+      pQueue.clear();
+      for (int i=0, n=pReaders.size(); i<n; i++) {
+        ((RunReader) pReaders.get(i)).in.close();
+      }
+      pReaders.clear();
+      deleteRuns(pFiles);
+    }
+
+    public int[] getColumnTypes() {
+      return pTypes;
+    }
+  }  // RunMerger
+
+/** For testing: compare with RowList.orderBy() */
+  public static void main(String[] args) throws Exception {
+    int rowCount= args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    List names= new ArrayList();
+    names.add("ID");
+    names.add("NAME");
+    names.add("STATE");
+    names.add("AMOUNT");
+    RowList list= new RowList(names);
+    String[] states= {"IL", "IN", "WI", "MI", "OH"};
+    Random random= new Random(1);
+    for (int i=0; i<rowCount; i++) {
+      list.add(new Object[] { Integer.valueOf(i), "Name" + random.nextInt(rowCount),
+                              states[i % states.length], Long.valueOf(random.nextInt(100000)) });
+    }
+    String order= "STATE ASC, AMOUNT DESC, NAME";
+
+    long start= System.currentTimeMillis();
+    ExternalRowSorter sorter= new ExternalRowSorter(list, order);
+    sorter.addAll(list);
+    SortedRows rows= sorter.sort();
+    int n= 0;
+    while (rows.hasNext()) {
+      rows.next();
+      n++;
+    }
+    rows.close();
+    System.out.println("ExternalRowSorter: " + n + " rows, " + sorter.getSpilledRunCount() +
+                       " runs, " + (System.currentTimeMillis() - start) + "ms");
+
+    start= System.currentTimeMillis();
+    list.orderBy(order);
+    System.out.println("RowList.orderBy:   " + list.size() + " rows, " +
+                       (System.currentTimeMillis() - start) + "ms");
+  }  // main
+
+}  // ExternalRowSorter
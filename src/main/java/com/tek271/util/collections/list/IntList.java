@@ -0,0 +1,261 @@
+/*
+Technology Exponent Common Utilities For Java (TECUJ)
+Copyright (C) 2003,2008  Abdul Habra.
+www.tek271.com
+
+This file is part of TECUJ.
+
+TECUJ is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published
+by the Free Software Foundation; version 2.
+
+TECUJ is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with TECUJ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+You can contact the author at ahabra@yahoo.com
+*/
+package com.tek271.util.collections.list;
+
+import java.util.*;
+import com.tek271.util.collections.iterator.IIntIterator;
+
+/**
+ * A growable list of primitive int values, like <code>ArrayList</code> but without
+ * boxing each element in a <code>Integer</code> object. Elements are stored in a single
+ * <code>int[]</code> that grows by half its size when full.
+ * <p>add(), get(), and set() run in constant time, inserting and removing at an index
+ * are linear.
+ * <p>Note that this implementation is not synchronized.
+ * <p>Copyright (c) 2008 Technology Exponent</p>
+ * @author Abdul Habra
+ * @version 1.0
+ */
+public class IntList {
+  private static final int[] pEMPTY= new int[0];
+
+  private int[] pElements;
+  private int pSize= 0;
+
+/** Create an empty list with an initial capacity of 10 elements */
+  public IntList() {
+    this(10);
+  }
+
+/**
+ * Create an empty list.
+ * @param aCapacity int initial capacity.
+ */
+  public IntList(final int aCapacity) {
+    if (aCapacity<0) throw new IllegalArgumentException("Illegal capacity: " + aCapacity);
+    pElements= aCapacity==0 ? pEMPTY : new int[aCapacity];
+  }
+
+/** Create a list that contains a copy of the given values */
+  public IntList(final int[] aValues) {
+    pElements= (int[]) aValues.clone();
+    pSize= aValues.length;
+  }
+
+  public int size() {
+    return pSize;
+  }
+
+  public boolean isEmpty() {
+    return pSize==0;
+  }
+
+/** Remove all elements, keeping the current capacity */
+  public void clear() {
+    pSize= 0;
+  }
+
+/** Make sure the list can hold aCapacity elements without growing */
+  public void ensureCapacity(final int aCapacity) {
+    if (aCapacity <= pElements.length) return;
+    int newCapacity= Math.max(aCapacity, pElements.length + (pElements.length >> 1) + 1);
+    int[] a= new int[newCapacity];
+    System.arraycopy(pElements, 0, a, 0, pSize);
+    pElements= a;
+  }
+
+/** Shrink the capacity to the current size */
+  public void trimToSize() {
+    if (pSize==pElements.length) return;
+    int[] a= new int[pSize];
+    System.arraycopy(pElements, 0, a, 0, pSize);
+    pElements= a;
+  }
+
+  private void checkIndex(final int aIndex) {
+    if (aIndex<0 || aIndex>=pSize) {
+      throw new IndexOutOfBoundsException("Index: " + aIndex + ", Size: " + pSize);
+    }
+  }
+
+/** Append a value to the end of the list */
+  public void add(final int aValue) {
+    if (pSize==pElements.length) ensureCapacity(pSize + 1);
+    pElements[pSize++]= aValue;
+  }
+
+/** Insert a value at the given index, shifting the following elements */
+  public void add(final int aIndex, final int aValue) {
+    if (aIndex<0 || aIndex>pSize) {
+      throw new IndexOutOfBoundsException("Index: " + aIndex + ", Size: " + pSize);
+    }
+    if (pSize==pElements.length) ensureCapacity(pSize + 1);
+    System.arraycopy(pElements, aIndex, pElements, aIndex + 1, pSize - aIndex);
+    pElements[aIndex]= aValue;
+    pSize++;
+  }
+
+/** Append all the given values */
+  public void addAll(final int[] aValues) {
+    ensureCapacity(pSize + aValues.length);
+    System.arraycopy(aValues, 0, pElements, pSize, aValues.length);
+    pSize+= aValues.length;
+  }
+
+/** Append all the values of the given list */
+  public void addAll(final IntList aList) {
+    ensureCapacity(pSize + aList.pSize);
+    System.arraycopy(aList.pElements, 0, pElements, pSize, aList.pSize);
+    pSize+= aList.pSize;
+  }
+
+  public int get(final int aIndex) {
+    checkIndex(aIndex);
+    return pElements[aIndex];
+  }
+
+/** Replace the value at the given index, returns the old value */
+  public int set(final int aIndex, final int aValue) {
+    checkIndex(aIndex);
+    int old= pElements[aIndex];
+    pElements[aIndex]= aValue;
+    return old;
+  }
+
+/** Remove the element at the given index, returns the removed value */
+  public int removeAt(final int aIndex) {
+    checkIndex(aIndex);
+    int old= pElements[aIndex];
+    int moved= pSize - aIndex - 1;
+    if (moved>0) System.arraycopy(pElements, aIndex + 1, pElements, aIndex, moved);
+    pSize--;
+    return old;
+  }
+
+/** Remove the first occurrence of the given value, returns true if found */
+  public boolean removeValue(final int aValue) {
+    int i= indexOf(aValue);
+    if (i<0) return false;
+    removeAt(i);
+    return true;
+  }
+
+/** Index of the first occurrence of aValue, -1 if not found */
+  public int indexOf(final int aValue) {
+    for (int i=0; i<pSize; i++) {
+      if (pElements[i]==aValue) return i;
+    }
+    return -1;
+  }
+
+/** Index of the last occurrence of aValue, -1 if not found */
+  public int lastIndexOf(final int aValue) {
+    for (int i=pSize-1; i>=0; i--) {
+      if (pElements[i]==aValue) return i;
+    }
+    return -1;
+  }
+
+  public boolean contains(final int aValue) {
+    return indexOf(aValue) >= 0;
+  }
+
+/** Sort the elements in ascending order */
+  public void sort() {
+    Arrays.sort(pElements, 0, pSize);
+  }
+
+/**
+ * Binary search for a value, the list must be sorted.
+ * @return index of aValue, or (-(insertion point) - 1) if not found.
+ */
+  public int binarySearch(final int aValue) {
+    return Arrays.binarySearch(pElements, 0, pSize, aValue);
+  }
+
+/** A copy of the elements as an array */
+  public int[] toArray() {
+    int[] r= new int[pSize];
+    System.arraycopy(pElements, 0, r, 0, pSize);
+    return r;
+  }
+
+/** Iterate the elements in order. The iterator supports remove(). */
+  public IIntIterator iterator() {
+    return new IIntIterator() {
+      private int index= 0;
+      private int lastReturnedIndex= -1;
+
+      public boolean hasNext() {
+        return index < pSize;
+      }
+
+      public int nextInt() {
+        if (index >= pSize) throw new NoSuchElementException();
+        lastReturnedIndex= index;
+        return pElements[index++];
+      }
+
+      public Object next() {
+        return Integer.valueOf(nextInt());
+      }
+
+      public void remove() {
+        if (lastReturnedIndex==-1) throw new IllegalStateException();
+        removeAt(lastReturnedIndex);
+        index= lastReturnedIndex;
+        lastReturnedIndex= -1;
+      }
+    };
+  }  // iterator
+
+  public boolean equals(final Object aObject) {
+    if (this==aObject) return true;
+    if (!(aObject instanceof IntList)) return false;
+    IntList other= (IntList) aObject;
+    if (pSize != other.pSize) return false;
+    for (int i=0; i<pSize; i++) {
+      if (pElements[i] != other.pElements[i]) return false;
+    }
+    return true;
+  }
+
+  public int hashCode() {
+    int r= 1;
+    for (int i=0; i<pSize; i++) {
+      r= 31*r + pElements[i];
+    }
+    return r;
+  }
+
+  public String toString() {
+    StringBuilder b= new StringBuilder(pSize * 4 + 2);
+    b.append('[');
+    for (int i=0; i<pSize; i++) {
+      if (i>0) b.append(", ");
+      b.append(pElements[i]);
+    }
+    return b.append(']').toString();
+  }
+
+}  // IntList
@@ -26,10 +26,14 @@ package com.tek271.util.collections.list;
 import java.util.*;
 import java.io.*;
 import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
 import org.apache.commons.codec.language.*;
 import org.apache.commons.io.IOUtils;
 
 import com.tek271.util.collections.array.ArrayUtilities;
+import com.tek271.util.io.ChannelLineReader;
 import com.tek271.util.string.StringComparator;
 import com.tek271.util.string.StringUtility;
 
@@ -63,6 +67,12 @@ public class ListOfString extends ArrayList {
 
   private int pIndex; // use with setText
 
+  private boolean pIsNameIndexed;
+  private HashMap pNameIndex;  // name -> IntList of the ascending indexes of its lines
+  private int pNameIndexModCount;
+  private String pNameIndexEquator;
+  private boolean pNameIndexCaseSensitive;
+
 public ListOfString() {}
 
 public ListOfString(int aInitialCapacity) {
@@ -325,6 +335,13 @@ public int indexOfName(String aName, final int aStartIndex) {
   if (aName==null) return -1;
   aName= aName.trim();
   if (aName.length()==0) return -1;
+
+  HashMap index= getNameIndex();
+  if (index != null) {
+    String key= nameKeyOfName(aName);
+    if (key != null) return firstIndexOf((IntList) index.get(key), aStartIndex);
+  }
+
   aName += valueEquator;
 
   for (int i=aStartIndex, n=size(); i<n; i++) {
@@ -334,6 +351,136 @@ public int indexOfName(String aName, final int aStartIndex) {
   return -1;
 }  // indexOfName
 
+/**
+ * Enable or disable an index of names, which makes indexOfName(), getValueOfName(),
+ * setValueOfName() and the other name lookups O(1) instead of scanning all lines.
+ * The index costs a map entry per name, so it is off by default and worth it for large
+ * lists with many lookups, e.g. configuration files.
+ * <p>The index is built on the first lookup. It is kept up to date by add(Object) and
+ * set(); any other change to the list, or to <b>valueEquator</b> or
+ * <b>isCaseSensitive</b>, causes it to be rebuilt on the next lookup. Changes made
+ * through subList() are not detected. Lookups give the same results as without the index.
+ */
+public void setNameIndexed(final boolean aIsNameIndexed) {
+  pIsNameIndexed= aIsNameIndexed;
+  pNameIndex= null;
+}  // setNameIndexed
+
+/** Check if name lookups use an index, see setNameIndexed() */
+public boolean isNameIndexed() {
+  return pIsNameIndexed;
+}
+
+private boolean isNameIndexValid() {
+  return pNameIndex != null &&
+         pNameIndexModCount == modCount &&
+         pNameIndexCaseSensitive == isCaseSensitive &&
+         valueEquator.equals(pNameIndexEquator);
+}  // isNameIndexValid
+
+/** Get the name index, building it if needed. null if the list is not name indexed */
+private HashMap getNameIndex() {
+  if (!pIsNameIndexed) return null;
+  if (isNameIndexValid()) return pNameIndex;
+
+  pNameIndexEquator= valueEquator;
+  pNameIndexCaseSensitive= isCaseSensitive;
+  pNameIndex= new HashMap(size() * 2);
+  for (int i=0, n=size(); i<n; i++) {
+    indexName(nameKeyOfItem((String) get(i)), i);
+  }
+  pNameIndexModCount= modCount;
+  return pNameIndex;
+}  // getNameIndex
+
+/** The index key of an item: its text before the first valueEquator, null if none */
+private String nameKeyOfItem(String aItem) {
+  if (aItem==null) return null;
+  String equator= valueEquator;
+  if (!isCaseSensitive) {
+    aItem= StringUtility.foldCase(aItem);
+    equator= StringUtility.foldCase(equator);
+  }
+  int i= aItem.indexOf(equator);
+  if (i<=0) return null;
+  return aItem.substring(0, i);
+}  // nameKeyOfItem
+
+/**
+ * The index key of a trimmed name, null if the name contains valueEquator such that
+ * the lines it matches cannot be found by the index; these names are searched by a scan.
+ */
+private String nameKeyOfName(String aName) {
+  String equator= valueEquator;
+  if (!isCaseSensitive) {
+    aName= StringUtility.foldCase(aName);
+    equator= StringUtility.foldCase(equator);
+  }
+  if (equator.length()==0 || aName.indexOf(equator) >= 0) return null;
+  if (equator.length()>1 && (aName + equator).indexOf(equator) != aName.length()) return null;
+  return aName;
+}  // nameKeyOfName
+
+private void indexName(final String aKey, final int aIndex) {
+  if (aKey==null) return;
+  IntList indexes= (IntList) pNameIndex.get(aKey);
+  if (indexes==null) {
+    indexes= new IntList(1);
+    pNameIndex.put(aKey, indexes);
+  }
+  int n= indexes.size();
+  if (n==0 || indexes.get(n-1) < aIndex) {
+    indexes.add(aIndex);
+    return;
+  }
+  int i= indexes.binarySearch(aIndex);
+  if (i<0) indexes.add(-i-1, aIndex);
+}  // indexName
+
+private void unindexName(final String aKey, final int aIndex) {
+  if (aKey==null) return;
+  IntList indexes= (IntList) pNameIndex.get(aKey);
+  if (indexes==null) return;
+  int i= indexes.binarySearch(aIndex);
+  if (i>=0) indexes.removeAt(i);
+  if (indexes.isEmpty()) pNameIndex.remove(aKey);
+}  // unindexName
+
+/** First index in aIndexes that is at least aStartIndex, -1 if none */
+private static int firstIndexOf(final IntList aIndexes, final int aStartIndex) {
+  if (aIndexes==null) return -1;
+  if (aStartIndex<=0) return aIndexes.get(0);
+  int i= aIndexes.binarySearch(aStartIndex);
+  if (i<0) i= -i-1;
+  if (i>=aIndexes.size()) return -1;
+  return aIndexes.get(i);
+}  // firstIndexOf
+
+/** Add an item at the end of the list, keeping the name index if any up to date */
+public boolean add(final Object aItem) {
+  boolean isIndexValid= pIsNameIndexed && isNameIndexValid();
+  super.add(aItem);
+  if (isIndexValid) {
+    indexName(nameKeyOfItem((String) aItem), size()-1);
+    pNameIndexModCount= modCount;
+  }
+  return true;
+}  // add
+
+/** Replace the item at the given index, keeping the name index if any up to date */
+public Object set(final int aIndex, final Object aItem) {
+  Object old= super.set(aIndex, aItem);
+  if (pIsNameIndexed && isNameIndexValid()) {
+    String oldKey= nameKeyOfItem((String) old);
+    String newKey= nameKeyOfItem((String) aItem);
+    if (oldKey==null ? newKey != null : !oldKey.equals(newKey)) {
+      unindexName(oldKey, aIndex);
+      indexName(newKey, aIndex);
+    }
+  }
+  return old;
+}  // set
+
 /**
  * Treating the list items as name/value pairs, get the name at the given index.
  * @param aIndex The index in the list to get its name.
@@ -427,20 +574,115 @@ public boolean isNameValuePair(final int aIndex) {
 */
 public void writeToTextFile(final String aFileName) throws IOException {
   BufferedWriter out = new BufferedWriter(new FileWriter(aFileName));
-  out.write(getText());
-  out.close();
+  try {
+    writeTo(out);
+  } finally {
+    out.close();
+  }
 } // writeToTextFile
 
+/**
+* Write the list into a text file with the given charset. Lines are separated by
+* lineSeparator.
+* @param aFileName The name of the file to write to.
+* @throws IOException If the attempt to write the file failed.
+*/
+public void writeToTextFile(final String aFileName, final Charset aCharset) throws IOException {
+  FileChannel out= new FileOutputStream(aFileName).getChannel();
+  try {
+    writeTo(out, aCharset);
+  } finally {
+    out.close();
+  }
+} // writeToTextFile
+
+/**
+ * Write the items separated by lineSeparator to the given writer, without joining them
+ * into one string as getText() does. The writer is flushed but not closed.
+ */
+public void writeTo(final Writer aWriter) throws IOException {
+  for (int i=0, n=size(); i<n; i++) {
+    if (i>0) aWriter.write(lineSeparator);
+    aWriter.write(getItem(i));
+  }
+  aWriter.flush();
+}  // writeTo
+
+private static final int pIO_BUFFER_SIZE= 64 * 1024;
+
+/**
+ * Write the items separated by lineSeparator to the given channel, encoded with the
+ * given charset. The items are encoded through one buffer, without joining them into one
+ * string. The channel is not closed.
+ */
+public void writeTo(final WritableByteChannel aChannel, final Charset aCharset) throws IOException {
+  CharsetEncoder encoder= aCharset.newEncoder()
+                                  .onMalformedInput(CodingErrorAction.REPLACE)
+                                  .onUnmappableCharacter(CodingErrorAction.REPLACE);
+  ByteBuffer bytes= ByteBuffer.allocate(pIO_BUFFER_SIZE);
+  char[] chars= new char[256];
+  for (int i=0, n=size(); i<n; i++) {
+    String item= getItem(i);
+    if (i>0) item= lineSeparator + item;
+    int len= item.length();
+    if (len > chars.length) chars= new char[Math.max(len, chars.length * 2)];
+    item.getChars(0, len, chars, 0);
+    encode(encoder, CharBuffer.wrap(chars, 0, len), bytes, aChannel, false);
+  }
+  encode(encoder, CharBuffer.wrap(chars, 0, 0), bytes, aChannel, true);
+  while (encoder.flush(bytes).isOverflow()) drain(bytes, aChannel);
+  drain(bytes, aChannel);
+}  // writeTo
+
+private static void encode(final CharsetEncoder aEncoder, final CharBuffer aChars,
+                           final ByteBuffer aBytes, final WritableByteChannel aChannel,
+                           final boolean aIsEnd) throws IOException {
+  while (aEncoder.encode(aChars, aBytes, aIsEnd).isOverflow()) drain(aBytes, aChannel);
+}
+
+private static void drain(final ByteBuffer aBytes, final WritableByteChannel aChannel)
+    throws IOException {
+  aBytes.flip();
+  while (aBytes.hasRemaining()) aChannel.write(aBytes);
+  aBytes.clear();
+}  // drain
+
 /**
 * Read a text file into the list, each line is an item.
 * @param aFileName The name of the file to read from.
 * @throws IOException If the attempt to read the file failed.
 */
 public void readFromTextFile(final String aFileName) throws IOException {
-  BufferedReader in = new BufferedReader( new FileReader(aFileName) );
-  readFromBufferedReader(in);
+  readFromTextFile(aFileName, Charset.defaultCharset());
+} // readFromTextFile
+
+/**
+* Read a text file with the given charset into the list, each line is an item.
+* The file is read with NIO, see ChannelLineReader.
+* @param aFileName The name of the file to read from.
+* @throws IOException If the attempt to read the file failed.
+*/
+public void readFromTextFile(final String aFileName, final Charset aCharset) throws IOException {
+  readFromLineReader(new ChannelLineReader(aFileName, aCharset));
 } // readFromTextFile
 
+/**
+ * Iterate the lines of a text file lazily, without reading the whole file into a list.
+ * Close the returned reader if the iteration is not completed.
+ */
+public static ChannelLineReader lineIterator(final String aFileName, final Charset aCharset)
+    throws IOException {
+  return new ChannelLineReader(aFileName, aCharset);
+}  // lineIterator
+
+private void readFromLineReader(final ChannelLineReader aReader) throws IOException {
+  try {
+    for (String line= aReader.readLine(); line != null; line= aReader.readLine()) add(line);
+  } finally {
+    aReader.close();
+  }
+}  // readFromLineReader
+
 /**
 * Read from a given input stream into this object.
 * Will close the stream when done.
@@ -448,9 +690,17 @@ public void readFromTextFile(final String aFileName) throws IOException {
 * @throws IOException If the attempt to read the stream failed.
 */
 public void readFromStream(InputStream aStream) throws IOException {
-  InputStreamReader inpr= new InputStreamReader(aStream);
-  BufferedReader rdr= new BufferedReader(inpr);
-  readFromBufferedReader(rdr);
+  readFromStream(aStream, Charset.defaultCharset());
+}  // readFromStream();
+
+/**
+* Read from a given input stream with the given charset into this object.
+* Will close the stream when done.
+* @param aStream The stream to read from.
+* @throws IOException If the attempt to read the stream failed.
+*/
+public void readFromStream(final InputStream aStream, final Charset aCharset) throws IOException {
+  readFromLineReader(new ChannelLineReader(aStream, aCharset));
 }  // readFromStream();
 
 /**
@@ -889,6 +1139,7 @@ public ListOfString copy() {
 
 public Object clone() {
   ListOfString r= (ListOfString) super.clone();
+  r.pNameIndex= null;  // the copy builds its own index
 // The following immutable fields are copied automatically by the Object.clone()
 //  r.commentStartSingleLine= commentStartSingleLine;
 //  r.isCaseSensitive= isCaseSensitive;
@@ -0,0 +1,201 @@
+/*
+Technology Exponent Common Utilities For Java (TECUJ)
+Copyright (C) 2003,2008  Abdul Habra.
+www.tek271.com
+
+This file is part of TECUJ.
+
+TECUJ is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published
+by the Free Software Foundation; version 2.
+
+TECUJ is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with TECUJ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+You can contact the author at ahabra@yahoo.com
+*/
+package com.tek271.util.collections.list;
+
+import java.util.*;
+
+/**
+ * A reusable, forward/random access view over the rows of a <code>RowList</code>. A
+ * cursor reads the row arrays in place: it does not build a map per row, and its typed
+ * getters read Number values directly instead of converting them to strings and
+ * parsing them. Resolve column names once with <code>getColumnIndex()</code> and then
+ * use the index based getters inside the loop.
+ * <p>Example:<pre>
+RowCursor c= new RowCursor(rowList);
+int id= c.getColumnIndex("ID");
+int amount= c.getColumnIndex("AMOUNT");
+while (c.next()) {
+  total+= c.getLong(amount);
+}
+</pre>
+ * <p>The typed getters convert values the same way as the getters of RowList. The cursor
+ * reflects changes to the list, except that rows added or deleted while iterating may be
+ * skipped or visited twice. This class is not thread safe.
+ * <p>Copyright (c) 2008 Technology Exponent</p>
+ * @author Abdul Habra
+ * @version 1.0
+ */
+public class RowCursor {
+  private final RowList pRowList;
+  private final List pRows;
+  private int pRowIndex= -1;
+  private Object[] pRow;
+
+/** Create a cursor positioned before the first row of aRowList */
+  public RowCursor(final RowList aRowList) {
+    pRowList= aRowList;
+    pRows= aRowList.getAllRows();
+  }
+
+  public RowList getRowList() {
+    return pRowList;
+  }
+
+/** Index of a column, -1 if it does not exist. See RowList.getColumnIndex() */
+  public int getColumnIndex(final String aColumnName) {
+    return pRowList.getColumnIndex(aColumnName);
+  }
+
+/** Move to the next row. @return false if there are no more rows. */
+  public boolean next() {
+    int i= pRowIndex + 1;
+    if (i >= pRows.size()) {
+      pRowIndex= pRows.size();
+      pRow= null;
+      return false;
+    }
+    pRowIndex= i;
+    pRow= (Object[]) pRows.get(i);
+    return true;
+  }  // next
+
+/**
+ * Move to the given row.
+ * @throws IndexOutOfBoundsException if aRowIndex is not a valid row index.
+ */
+  public void moveTo(final int aRowIndex) {
+    pRow= (Object[]) pRows.get(aRowIndex);
+    pRowIndex= aRowIndex;
+  }
+
+/** Move before the first row */
+  public void reset() {
+    pRowIndex= -1;
+    pRow= null;
+  }
+
+/** Index of the current row, -1 before the first row */
+  public int getRowIndex() {
+    return pRowIndex;
+  }
+
+/** The values of the current row, the array is not copied */
+  public Object[] getRowData() {
+    assertRow();
+    return pRow;
+  }
+
+  private void assertRow() {
+    if (pRow==null) throw new IllegalStateException("The cursor is not on a row");
+  }
+
+  public Object getObject(final int aColumnIndex) {
+    assertRow();
+    return pRow[aColumnIndex];
+  }
+
+  public boolean isNull(final int aColumnIndex) {
+    return getObject(aColumnIndex)==null;
+  }
+
+/** The value as a String, values that are not strings are converted by toString() */
+  public String getString(final int aColumnIndex) {
+    Object v= getObject(aColumnIndex);
+    if (v==null || v instanceof String) return (String) v;
+    return v.toString();
+  }
+
+  public int getInt(final int aColumnIndex) {
+    return RowList.toInt(getObject(aColumnIndex));
+  }
+
+  public long getLong(final int aColumnIndex) {
+    return RowList.toLong(getObject(aColumnIndex));
+  }
+
+  public double getDouble(final int aColumnIndex) {
+    return RowList.toDouble(getObject(aColumnIndex));
+  }
+
+  public float getFloat(final int aColumnIndex) {
+    return RowList.toFloat(getObject(aColumnIndex));
+  }
+
+  public boolean getBoolean(final int aColumnIndex) {
+    return RowList.toBoolean(getObject(aColumnIndex));
+  }
+
+  public Date getDate(final int aColumnIndex) {
+    return (Date) getObject(aColumnIndex);
+  }
+
+/** Set the value of a column in the current row */
+  public void setObject(final int aColumnIndex, final Object aValue) {
+    assertRow();
+    pRow[aColumnIndex]= aValue;
+  }
+
+/** For testing: scan a RowList by column name, by column index, and with a cursor */
+  public static void main(String[] args) {
+    int rowCount= args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    List names= new ArrayList();
+    names.add("ID");
+    names.add("QTY");
+    names.add("PRICE");
+    RowList list= new RowList(names);
+    for (int i=0; i<rowCount; i++) {
+      list.add(new Object[] { Integer.valueOf(i), Long.valueOf(i % 100),
+                              java.math.BigDecimal.valueOf(i % 1000, 2) });
+    }
+
+    for (int round=0; round<3; round++) {
+      long start= System.currentTimeMillis();
+      double total= 0;
+      for (int i=0, n=list.size(); i<n; i++) {  // the old way: parse each value
+        total+= Integer.parseInt(list.getObject(i, 0).toString()) +
+                Long.parseLong(list.getObject(i, 1).toString()) +
+                Double.parseDouble(list.getObject(i, 2).toString());
+      }
+      System.out.println("toString/parse:  " + (System.currentTimeMillis() - start) + "ms " + total);
+
+      start= System.currentTimeMillis();
+      total= 0;
+      for (int i=0, n=list.size(); i<n; i++) {
+        total+= list.getInt(i, "ID") + list.getLong(i, "QTY") + list.getDouble(i, "PRICE");
+      }
+      System.out.println("getXXX(name):    " + (System.currentTimeMillis() - start) + "ms " + total);
+
+      start= System.currentTimeMillis();
+      total= 0;
+      RowCursor c= new RowCursor(list);
+      int id= c.getColumnIndex("ID");
+      int qty= c.getColumnIndex("QTY");
+      int price= c.getColumnIndex("PRICE");
+      while (c.next()) {
+        total+= c.getInt(id) + c.getLong(qty) + c.getDouble(price);
+      }
+      System.out.println("RowCursor:       " + (System.currentTimeMillis() - start) + "ms " + total);
+    }
+  }  // main
+
+}  // RowCursor
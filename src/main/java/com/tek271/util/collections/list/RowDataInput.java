@@ -0,0 +1,189 @@
+/*
+Technology Exponent Common Utilities For Java (TECUJ)
+Copyright (C) 2003,2008  Abdul Habra.
+www.tek271.com
+
+This file is part of TECUJ.
+
+TECUJ is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published
+by the Free Software Foundation; version 2.
+
+TECUJ is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with TECUJ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+You can contact the author at ahabra@yahoo.com
+*/
+package com.tek271.util.collections.list;
+
+import java.io.*;
+import java.math.*;
+import java.util.*;
+
+/**
+ * Reads rows written by <code>RowDataOutput</code>.
+ * <p>This class is not synchronized.
+ * <p>Copyright (c) 2008 Technology Exponent</p>
+ * @author Abdul Habra
+ * @version 1.0
+ */
+public class RowDataInput {
+  private static final String pUTF8= "UTF-8";
+
+  private final DataInputStream pIn;
+  private final List pDictionary= new ArrayList();
+  private int pDictionaryChars;
+
+/** Create a reader on the given stream */
+  public RowDataInput(final InputStream aIn) {
+    pIn= new DataInputStream(aIn);
+  }
+
+/** Read an unsigned int written by writeVarInt */
+  public int readVarInt() throws IOException {
+    int r= 0;
+    for (int shift=0; shift<35; shift+=7) {
+      int b= pIn.readUnsignedByte();
+      r |= (b & 0x7F) << shift;
+      if ((b & 0x80)==0) return r;
+    }
+    throw new IOException("Malformed varint");
+  }
+
+/** Read an unsigned long written by writeVarLong */
+  public long readVarLong() throws IOException {
+    long r= 0;
+    for (int shift=0; shift<70; shift+=7) {
+      int b= pIn.readUnsignedByte();
+      r |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80)==0) return r;
+    }
+    throw new IOException("Malformed varlong");
+  }
+
+  public int readZigZagInt() throws IOException {
+    int v= readVarInt();
+    return (v >>> 1) ^ -(v & 1);
+  }
+
+  public long readZigZagLong() throws IOException {
+    long v= readVarLong();
+    return (v >>> 1) ^ -(v & 1);
+  }
+
+/** Read an unsigned byte, -1 at the end of the stream */
+  public int readByteOrEof() throws IOException {
+    return pIn.read();
+  }
+
+  public int readByte() throws IOException {
+    return pIn.readUnsignedByte();
+  }
+
+  public boolean readBoolean() throws IOException {
+    return pIn.readBoolean();
+  }
+
+/** Read a length-prefixed byte array */
+  public byte[] readBytes() throws IOException {
+    byte[] r= new byte[readVarInt()];
+    pIn.readFully(r);
+    return r;
+  }
+
+/** Read a string written by writeString */
+  public String readString() throws IOException {
+    int index= readVarInt();
+    if (index > 0) {
+      if (index > pDictionary.size()) throw new IOException("Invalid string index: " + index);
+      return (String) pDictionary.get(index-1);
+    }
+    String r= new String(readBytes(), pUTF8);
+    int size= pDictionary.size();
+    if (RowDataOutput.isDictionaryCandidate(r, size, pDictionaryChars)) {
+      pDictionary.add(r);
+      pDictionaryChars += RowDataOutput.dictionaryChars(r);
+    }
+    return r;
+  }  // readString
+
+/** Read a value written by writeTaggedValue, may return null */
+  public Object readTaggedValue() throws IOException {
+    int type= pIn.readUnsignedByte();
+    if (type==RowDataTypes.MIXED) return null;
+    return readValue(type);
+  }
+
+/**
+ * Read a non-null value of the given type.
+ * @param aType int one of the RowDataTypes constants.
+ */
+  public Object readValue(final int aType) throws IOException {
+    switch (aType) {
+      case RowDataTypes.MIXED: return readTaggedValue();
+      case RowDataTypes.STRING: return readString();
+      case RowDataTypes.INTEGER: return Integer.valueOf(readZigZagInt());
+      case RowDataTypes.SHORT: return Short.valueOf((short) readZigZagInt());
+      case RowDataTypes.BYTE: return Byte.valueOf((byte) readZigZagInt());
+      case RowDataTypes.LONG: return Long.valueOf(readZigZagLong());
+      case RowDataTypes.DOUBLE: return Double.valueOf(Double.longBitsToDouble(pIn.readLong()));
+      case RowDataTypes.FLOAT: return Float.valueOf(Float.intBitsToFloat(pIn.readInt()));
+      case RowDataTypes.BOOLEAN: return Boolean.valueOf(pIn.readBoolean());
+      case RowDataTypes.BIG_DECIMAL: return readBigDecimal();
+      case RowDataTypes.BIG_INTEGER: return new BigInteger(readBytes());
+      case RowDataTypes.DATE: return new Date(readZigZagLong());
+      case RowDataTypes.SQL_DATE: return new java.sql.Date(readZigZagLong());
+      case RowDataTypes.TIME: return new java.sql.Time(readZigZagLong());
+      case RowDataTypes.TIMESTAMP:
+        java.sql.Timestamp ts= new java.sql.Timestamp(readZigZagLong());
+        ts.setNanos(readVarInt());
+        return ts;
+      case RowDataTypes.BYTES: return readBytes();
+      case RowDataTypes.CHARACTER: return Character.valueOf((char) readVarInt());
+      case RowDataTypes.OBJECT: return readObject();
+      default: throw new IOException("Unknown type tag: " + aType);
+    }
+  }  // readValue
+
+  private BigDecimal readBigDecimal() throws IOException {
+    int scale= readZigZagInt();
+    BigInteger unscaled;
+    if (pIn.readBoolean()) unscaled= BigInteger.valueOf(readZigZagLong());
+    else unscaled= new BigInteger(readBytes());
+    return new BigDecimal(unscaled, scale);
+  }
+
+  private Object readObject() throws IOException {
+    ObjectInputStream ois= new ObjectInputStream(new ByteArrayInputStream(readBytes()));
+    try {
+      return ois.readObject();
+    } catch (ClassNotFoundException e) {
+      throw new IOException("Cannot read serialized value: " + e.getMessage());
+    } finally {
+      ois.close();
+    }
+  }  // readObject
+
+/**
+ * Read a row written by RowDataOutput.writeRow().
+ * @param aTypes int[] the type of each column, same as the ones used when writing.
+ */
+  public Object[] readRow(final int[] aTypes) throws IOException {
+    int n= aTypes.length;
+    byte[] nulls= new byte[(n+7) >> 3];
+    pIn.readFully(nulls);
+    Object[] r= new Object[n];
+    for (int i=0; i<n; i++) {
+      if ((nulls[i >> 3] & (1 << (i & 7))) != 0) continue;
+      r[i]= readValue(aTypes[i]);
+    }
+    return r;
+  }  // readRow
+
+}  // RowDataInput
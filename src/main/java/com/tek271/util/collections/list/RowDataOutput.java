@@ -0,0 +1,296 @@
+/*
+Technology Exponent Common Utilities For Java (TECUJ)
+Copyright (C) 2003,2008  Abdul Habra.
+www.tek271.com
+
+This file is part of TECUJ.
+
+TECUJ is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published
+by the Free Software Foundation; version 2.
+
+TECUJ is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with TECUJ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+You can contact the author at ahabra@yahoo.com
+*/
+package com.tek271.util.collections.list;
+
+import java.io.*;
+import java.math.*;
+import java.util.*;
+
+/**
+ * Writes rows of a <code>RowList</code> in a compact binary format. Integral numbers
+ * are written as zig-zag varints, and short strings are written once then referred to
+ * by their index in a string dictionary. Use <code>RowDataInput</code> to read the data
+ * back.
+ * <p>Each row starts with a bitmap of its null columns, followed by the non-null values.
+ * A value of a <code>RowDataTypes.MIXED</code> column is prefixed with its own type tag.
+ * <p>This class is not synchronized.
+ * <p>Copyright (c) 2008 Technology Exponent</p>
+ * @author Abdul Habra
+ * @version 1.0
+ */
+public class RowDataOutput {
+  /** Max number of entries in the string dictionary */
+  static final int MAX_DICTIONARY_SIZE= 1 << 16;
+  /** Strings longer than this are not put into the dictionary */
+  static final int MAX_DICTIONARY_STRING_LENGTH= 256;
+  /** Each dictionary entry counts as this many chars on top of its length, for its overhead */
+  static final int DICTIONARY_ENTRY_CHARS= 16;
+  /**
+   * Max total of length plus DICTIONARY_ENTRY_CHARS of the strings in the dictionary,
+   * so a reader's or writer's dictionary takes about 256KB at most
+   */
+  static final int MAX_DICTIONARY_CHARS= 1 << 17;
+
+  private static final String pUTF8= "UTF-8";
+
+  private final DataOutputStream pOut;
+  private final Map pDictionary= new HashMap();
+  private int pDictionaryChars;
+
+/** Create a writer on the given stream */
+  public RowDataOutput(final OutputStream aOut) {
+    pOut= new DataOutputStream(aOut);
+  }
+
+/**
+ * Check if the given string will be added to the dictionary when first written/read.
+ * Once the dictionary is full, new strings are written in full.
+ * @param aValue String the string to check.
+ * @param aDictionarySize int number of entries in the dictionary.
+ * @param aDictionaryChars int sum of dictionaryChars() of the strings in the dictionary.
+ */
+  static boolean isDictionaryCandidate(final String aValue, final int aDictionarySize,
+                                       final int aDictionaryChars) {
+    int length= aValue.length();
+    return aDictionarySize < MAX_DICTIONARY_SIZE &&
+           length <= MAX_DICTIONARY_STRING_LENGTH &&
+           aDictionaryChars + dictionaryChars(aValue) <= MAX_DICTIONARY_CHARS;
+  }
+
+/** The share of MAX_DICTIONARY_CHARS taken by the given string */
+  static int dictionaryChars(final String aValue) {
+    return aValue.length() + DICTIONARY_ENTRY_CHARS;
+  }
+
+/** Write an unsigned int in 1 to 5 bytes */
+  public void writeVarInt(int aValue) throws IOException {
+    while ((aValue & ~0x7F) != 0) {
+      pOut.writeByte((aValue & 0x7F) | 0x80);
+      aValue >>>= 7;
+    }
+    pOut.writeByte(aValue);
+  }
+
+/** Write an unsigned long in 1 to 10 bytes */
+  public void writeVarLong(long aValue) throws IOException {
+    while ((aValue & ~0x7FL) != 0) {
+      pOut.writeByte(((int) aValue & 0x7F) | 0x80);
+      aValue >>>= 7;
+    }
+    pOut.writeByte((int) aValue);
+  }
+
+/** Write a signed int, small negative values take few bytes */
+  public void writeZigZagInt(final int aValue) throws IOException {
+    writeVarInt((aValue << 1) ^ (aValue >> 31));
+  }
+
+/** Write a signed long, small negative values take few bytes */
+  public void writeZigZagLong(final long aValue) throws IOException {
+    writeVarLong((aValue << 1) ^ (aValue >> 63));
+  }
+
+  public void writeByte(final int aValue) throws IOException {
+    pOut.writeByte(aValue);
+  }
+
+  public void writeBoolean(final boolean aValue) throws IOException {
+    pOut.writeBoolean(aValue);
+  }
+
+/** Write a length-prefixed byte array */
+  public void writeBytes(final byte[] aValue) throws IOException {
+    writeVarInt(aValue.length);
+    pOut.write(aValue);
+  }
+
+/**
+ * Write a non-null string. A string that was written before is written as its index
+ * in the dictionary.
+ */
+  public void writeString(final String aValue) throws IOException {
+    Integer index= (Integer) pDictionary.get(aValue);
+    if (index != null) {
+      writeVarInt(index.intValue() + 1);
+      return;
+    }
+    writeVarInt(0);
+    writeBytes(aValue.getBytes(pUTF8));
+    int size= pDictionary.size();
+    if (isDictionaryCandidate(aValue, size, pDictionaryChars)) {
+      pDictionary.put(aValue, Integer.valueOf(size));
+      pDictionaryChars += dictionaryChars(aValue);
+    }
+  }  // writeString
+
+/** Write a value which may be null, prefixed with its type tag */
+  public void writeTaggedValue(final Object aValue) throws IOException {
+    if (aValue==null) {
+      pOut.writeByte(RowDataTypes.MIXED);
+      return;
+    }
+    int type= RowDataTypes.typeOf(aValue);
+    pOut.writeByte(type);
+    writeValue(type, aValue);
+  }
+
+/**
+ * Write a non-null value of the given type.
+ * @param aType int one of the RowDataTypes constants.
+ * @param aValue Object the value, its class must match aType unless aType is MIXED.
+ *        A number in an integral column can be of any Number class as long as its value
+ *        fits in the column's type.
+ * @throws IOException if writing fails or an OBJECT value is not serializable.
+ * @throws IllegalArgumentException if a number does not fit in the column's type.
+ */
+  public void writeValue(final int aType, final Object aValue) throws IOException {
+    switch (aType) {
+      case RowDataTypes.MIXED:
+        writeTaggedValue(aValue);
+        return;
+      case RowDataTypes.STRING:
+        writeString((String) aValue);
+        return;
+      case RowDataTypes.INTEGER:
+        writeZigZagInt((int) toLong(aValue, Integer.MIN_VALUE, Integer.MAX_VALUE));
+        return;
+      case RowDataTypes.SHORT:
+        writeZigZagInt((int) toLong(aValue, Short.MIN_VALUE, Short.MAX_VALUE));
+        return;
+      case RowDataTypes.BYTE:
+        writeZigZagInt((int) toLong(aValue, Byte.MIN_VALUE, Byte.MAX_VALUE));
+        return;
+      case RowDataTypes.LONG:
+        writeZigZagLong(toLong(aValue, Long.MIN_VALUE, Long.MAX_VALUE));
+        return;
+      case RowDataTypes.DOUBLE:
+        pOut.writeLong(Double.doubleToLongBits(((Double) aValue).doubleValue()));
+        return;
+      case RowDataTypes.FLOAT:
+        pOut.writeInt(Float.floatToIntBits(((Float) aValue).floatValue()));
+        return;
+      case RowDataTypes.BOOLEAN:
+        pOut.writeBoolean(((Boolean) aValue).booleanValue());
+        return;
+      case RowDataTypes.BIG_DECIMAL:
+        writeBigDecimal((BigDecimal) aValue);
+        return;
+      case RowDataTypes.BIG_INTEGER:
+        writeBytes(((BigInteger) aValue).toByteArray());
+        return;
+      case RowDataTypes.DATE:
+      case RowDataTypes.SQL_DATE:
+      case RowDataTypes.TIME:
+        writeZigZagLong(((Date) aValue).getTime());
+        return;
+      case RowDataTypes.TIMESTAMP:
+        java.sql.Timestamp ts= (java.sql.Timestamp) aValue;
+        writeZigZagLong(ts.getTime());
+        writeVarInt(ts.getNanos());
+        return;
+      case RowDataTypes.BYTES:
+        writeBytes((byte[]) aValue);
+        return;
+      case RowDataTypes.CHARACTER:
+        writeVarInt(((Character) aValue).charValue());
+        return;
+      default:
+        writeObject(aValue);
+    }
+  }  // writeValue
+
+/**
+ * Get the value of an integral column's number, checking that it is a whole number
+ * between aMin and aMax.
+ */
+  private static long toLong(final Object aValue, final long aMin, final long aMax) {
+    Number number= (Number) aValue;
+    long r= number.longValue();
+    boolean isExact;
+    if (number instanceof Double || number instanceof Float) {
+      double d= number.doubleValue();
+      isExact= d==r && d != (double) Long.MAX_VALUE;
+    } else if (number instanceof BigDecimal) {
+      isExact= ((BigDecimal) number).compareTo(BigDecimal.valueOf(r))==0;
+    } else if (number instanceof BigInteger) {
+      isExact= ((BigInteger) number).bitLength() < 64;
+    } else {
+      isExact= true;
+    }
+    if (!isExact || r < aMin || r > aMax) {
+      throw new IllegalArgumentException("Value " + aValue + " of class " +
+        aValue.getClass().getName() + " does not fit in [" + aMin + ", " + aMax + "]");
+    }
+    return r;
+  }  // toLong
+
+  private void writeBigDecimal(final BigDecimal aValue) throws IOException {
+    writeZigZagInt(aValue.scale());
+    BigInteger unscaled= aValue.unscaledValue();
+    if (unscaled.bitLength() < 64) {
+      pOut.writeBoolean(true);
+      writeZigZagLong(unscaled.longValue());
+    } else {
+      pOut.writeBoolean(false);
+      writeBytes(unscaled.toByteArray());
+    }
+  }  // writeBigDecimal
+
+  private void writeObject(final Object aValue) throws IOException {
+    ByteArrayOutputStream bos= new ByteArrayOutputStream(128);
+    ObjectOutputStream oos= new ObjectOutputStream(bos);
+    oos.writeObject(aValue);
+    oos.close();
+    writeBytes(bos.toByteArray());
+  }
+
+/**
+ * Write a row: a bitmap of null columns followed by the non-null values.
+ * @param aRow Object[] the row's values.
+ * @param aTypes int[] the type of each column, must have the same length as aRow.
+ */
+  public void writeRow(final Object[] aRow, final int[] aTypes) throws IOException {
+    int n= aTypes.length;
+    int bits=0;
+    for (int i=0; i<n; i++) {
+      if (aRow[i]==null) bits |= 1 << (i & 7);
+      if ((i & 7)==7 || i==n-1) {
+        pOut.writeByte(bits);
+        bits= 0;
+      }
+    }
+    for (int i=0; i<n; i++) {
+      if (aRow[i] != null) writeValue(aTypes[i], aRow[i]);
+    }
+  }  // writeRow
+
+  public void flush() throws IOException {
+    pOut.flush();
+  }
+
+/** Number of bytes written so far */
+  public int size() {
+    return pOut.size();
+  }
+
+}  // RowDataOutput
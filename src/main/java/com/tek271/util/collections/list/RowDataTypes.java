@@ -0,0 +1,125 @@
+/*
+Technology Exponent Common Utilities For Java (TECUJ)
+Copyright (C) 2003,2008  Abdul Habra.
+www.tek271.com
+
+This file is part of TECUJ.
+
+TECUJ is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published
+by the Free Software Foundation; version 2.
+
+TECUJ is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with TECUJ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+You can contact the author at ahabra@yahoo.com
+*/
+package com.tek271.util.collections.list;
+
+import java.math.*;
+import java.util.*;
+
+/**
+ * Type tags used by <code>RowDataOutput</code> and <code>RowDataInput</code> to
+ * describe the values of a column in the compact binary row format.
+ * A column whose non-null values all have the same class gets that class' tag,
+ * otherwise it is <code>MIXED</code> and every value carries its own tag.
+ * <p>Copyright (c) 2008 Technology Exponent</p>
+ * @author Abdul Habra
+ * @version 1.0
+ */
+public class RowDataTypes {
+  public static final int MIXED= 0;
+  public static final int STRING= 1;
+  public static final int INTEGER= 2;
+  public static final int LONG= 3;
+  public static final int SHORT= 4;
+  public static final int BYTE= 5;
+  public static final int DOUBLE= 6;
+  public static final int FLOAT= 7;
+  public static final int BOOLEAN= 8;
+  public static final int BIG_DECIMAL= 9;
+  public static final int BIG_INTEGER= 10;
+  public static final int DATE= 11;
+  public static final int SQL_DATE= 12;
+  public static final int TIMESTAMP= 13;
+  public static final int TIME= 14;
+  public static final int BYTES= 15;
+  public static final int CHARACTER= 16;
+  /** Any other Serializable value, written with java serialization */
+  public static final int OBJECT= 17;
+
+  private static final Map pCLASS_TYPES= new HashMap();
+  static {
+    pCLASS_TYPES.put(String.class, Integer.valueOf(STRING));
+    pCLASS_TYPES.put(Integer.class, Integer.valueOf(INTEGER));
+    pCLASS_TYPES.put(Long.class, Integer.valueOf(LONG));
+    pCLASS_TYPES.put(Short.class, Integer.valueOf(SHORT));
+    pCLASS_TYPES.put(Byte.class, Integer.valueOf(BYTE));
+    pCLASS_TYPES.put(Double.class, Integer.valueOf(DOUBLE));
+    pCLASS_TYPES.put(Float.class, Integer.valueOf(FLOAT));
+    pCLASS_TYPES.put(Boolean.class, Integer.valueOf(BOOLEAN));
+    pCLASS_TYPES.put(BigDecimal.class, Integer.valueOf(BIG_DECIMAL));
+    pCLASS_TYPES.put(BigInteger.class, Integer.valueOf(BIG_INTEGER));
+    pCLASS_TYPES.put(Date.class, Integer.valueOf(DATE));
+    pCLASS_TYPES.put(java.sql.Date.class, Integer.valueOf(SQL_DATE));
+    pCLASS_TYPES.put(java.sql.Timestamp.class, Integer.valueOf(TIMESTAMP));
+    pCLASS_TYPES.put(java.sql.Time.class, Integer.valueOf(TIME));
+    pCLASS_TYPES.put(byte[].class, Integer.valueOf(BYTES));
+    pCLASS_TYPES.put(Character.class, Integer.valueOf(CHARACTER));
+  }
+
+  private RowDataTypes() {}
+
+/**
+ * Get the type tag of the given value.
+ * @param aValue Object a non-null value.
+ * @return int one of the type constants, OBJECT if the class is not directly supported.
+ */
+  public static int typeOf(final Object aValue) {
+    Integer t= (Integer) pCLASS_TYPES.get(aValue.getClass());
+    if (t==null) return OBJECT;
+    return t.intValue();
+  }
+
+/**
+ * Find the type of each column of the given row list by scanning its values.
+ * @param aRowList RowList the list to inspect.
+ * @return int[] a type tag for each column. A column with only null values is MIXED.
+ */
+  public static int[] columnTypes(final RowList aRowList) {
+    return columnTypes(aRowList.getAllRows(), aRowList.getColumnCount());
+  }
+
+/**
+ * Find the type of each column of the given rows by scanning their values.
+ * @param aRows List of Object[] rows.
+ * @param aColumnCount int number of columns in each row.
+ * @return int[] a type tag for each column. A column with only null values is MIXED.
+ */
+  static int[] columnTypes(final List aRows, final int aColumnCount) {
+    int[] r= new int[aColumnCount];
+    boolean[] isKnown= new boolean[aColumnCount];
+    for (int i=0, n=aRows.size(); i<n; i++) {
+      Object[] row= (Object[]) aRows.get(i);
+      for (int c=0; c<aColumnCount; c++) {
+        if (row[c]==null) continue;
+        int t= typeOf(row[c]);
+        if (!isKnown[c]) {
+          r[c]= t;
+          isKnown[c]= true;
+        } else if (r[c] != t) {
+          r[c]= MIXED;
+        }
+      }
+    }
+    return r;
+  }  // columnTypes
+
+}  // RowDataTypes
@@ -26,6 +26,7 @@ package com.tek271.util.collections.list;
 import java.io.*;
 import java.util.*;
 import org.apache.commons.lang3.math.NumberUtils;
+import com.tek271.util.string.StringBuilderPool;
 import com.tek271.util.string.StringUtility;
 import com.tek271.util.collections.array.ArrayUtilities;
 import com.tek271.util.reflect.builder.*;
@@ -348,9 +349,7 @@ public class RowList implements Serializable {
     if (columnName==null) {
       return false;
     }
-    ColumnDescriptor searchKey=new ColumnDescriptor(columnName.toUpperCase(), 0);
-    int i=Arrays.binarySearch(pSortedColumnDescriptors, searchKey);
-    return i>=0;
+    return searchColumn(columnName.toUpperCase())>=0;
   }
 
   /**
@@ -521,10 +520,7 @@ public class RowList implements Serializable {
    * @since 1.0
    */
   public int getInt(int rowIndex, String columnName) {
-    Object o=getObject(rowIndex, columnName.toUpperCase());
-    if (o==null)
-      return 0;
-    return Integer.parseInt(o.toString());
+    return toInt(getObject(rowIndex, columnName));
   }
 
   /**
@@ -549,11 +545,7 @@ public class RowList implements Serializable {
    * @since 1.0
    */
   public int getInt(final int rowIndex, final int columnIndex) {
-    Object o=getObject(rowIndex, columnIndex);
-    if (o==null) {
-      return 0;
-    }
-    return Integer.parseInt(o.toString());
+    return toInt(getObject(rowIndex, columnIndex));
   }
 
 /**
@@ -593,11 +585,7 @@ public class RowList implements Serializable {
      * @since 1.0
      */
     public boolean getBoolean(int rowIndex, String columnName) {
-        Object o = getObject(rowIndex, columnName);
-        if (o == null) {
-            return false;
-        }
-        return Boolean.valueOf(o.toString()).booleanValue();
+        return toBoolean(getObject(rowIndex, columnName));
     }
 
     /**
@@ -622,11 +610,7 @@ public class RowList implements Serializable {
      * @since 1.0
      */
     public boolean getBoolean(final int rowIndex, final int columnIndex) {
-        Object o = getObject(rowIndex, columnIndex);
-        if (o == null) {
-            return false;
-        }
-        return Boolean.valueOf(o.toString()).booleanValue();
+        return toBoolean(getObject(rowIndex, columnIndex));
     }
 
 /**
@@ -666,11 +650,7 @@ public class RowList implements Serializable {
      * @since 1.0
      */
     public long getLong(int rowIndex, String columnName) {
-        Object o = getObject(rowIndex, columnName);
-        if (o == null) {
-            return 0l;
-        }
-        return Long.parseLong(o.toString());
+        return toLong(getObject(rowIndex, columnName));
     }
 
     /**
@@ -695,11 +675,7 @@ public class RowList implements Serializable {
      * @since 1.0
      */
     public long getLong(final int rowIndex, final int columnIndex) {
-        Object o = getObject(rowIndex, columnIndex);
-        if (o == null) {
-            return 0l;
-        }
-        return Long.parseLong(o.toString());
+        return toLong(getObject(rowIndex, columnIndex));
     }
 
 /**
@@ -739,11 +715,7 @@ public class RowList implements Serializable {
      * @since 1.0
      */
     public double getDouble(int rowIndex, String columnName) {
-        Object o = getObject(rowIndex, columnName);
-        if (o == null) {
-            return 0.0d;
-        }
-        return Double.parseDouble(o.toString());
+        return toDouble(getObject(rowIndex, columnName));
     }
 
     /**
@@ -768,11 +740,7 @@ public class RowList implements Serializable {
      * @since 1.0
      */
     public double getDouble(final int rowIndex, final int columnIndex) {
-        Object o = getObject(rowIndex, columnIndex);
-        if (o == null) {
-            return 0.0d;
-        }
-        return Double.parseDouble(o.toString());
+        return toDouble(getObject(rowIndex, columnIndex));
     }
 
 /**
@@ -812,11 +780,7 @@ public class RowList implements Serializable {
      * @since 1.0
      */
     public float getFloat(int rowIndex, String columnName) {
-        Object o = getObject(rowIndex, columnName);
-        if (o == null) {
-            return 0.0f;
-        }
-        return Float.parseFloat(o.toString());
+        return toFloat(getObject(rowIndex, columnName));
     }
 
     /**
@@ -841,11 +805,7 @@ public class RowList implements Serializable {
      * @since 1.0
      */
     public float getFloat(final int rowIndex, final int columnIndex) {
-        Object o = getObject(rowIndex, columnIndex);
-        if (o == null) {
-            return 0.0f;
-        }
-        return Float.parseFloat(o.toString());
+        return toFloat(getObject(rowIndex, columnIndex));
     }
 
 /**
@@ -1013,6 +973,14 @@ public class RowList implements Serializable {
         return pRows;
     }
 
+    /**
+     * Create a cursor over the rows of this list, for reading many rows without
+     * per-row allocations.
+     */
+    public RowCursor cursor() {
+        return new RowCursor(this);
+    }
+
     /**
      * Replaces the value of the specified column at the specified position in
      * this <code>RowList</code> with the specified element.
@@ -1178,38 +1146,56 @@ public class RowList implements Serializable {
                            final String aRowSeparator) {
         if (pRows.isEmpty()) return StringUtility.EMPTY;
 
-        StringBuffer buff = new StringBuffer(128);
+        int columns= pColumnNames.size() + 1;
+        StringBuilder buff = StringBuilderPool.acquire(columns * 8 * (size() + 1));
+        try {
+            appendTo(buff, aColumnSeparator, aRowSeparator);
+        } catch (IOException e) {  // cannot happen with StringBuilder
+            throw new IllegalStateException(e.getMessage());
+        }
+        return StringBuilderPool.release(buff);
+    }
+
+    /**
+     * Append the String representation of the RowList to aOut, e.g. a Writer, as
+     * toString(aColumnSeparator, aRowSeparator) does but without building the whole
+     * string in memory. Nothing is appended if the RowList is empty.
+     *
+     * @return aOut
+     */
+    public Appendable appendTo(final Appendable aOut,
+                               final String aColumnSeparator,
+                               final String aRowSeparator) throws IOException {
+        if (pRows.isEmpty()) return aOut;
+
         Object[] names= pColumnNames.toArray();
         if (pIsUseRowCounter) {
           names= (Object[])  ArrayUtilities.concat(new String[] {pRowCounterName}, names);
         }
-        appendArrayToBuffer(buff, names, aColumnSeparator);
+        appendArrayToBuffer(aOut, names, aColumnSeparator);
 
-        int n = size() - 1;
-        for (int x = 0; x < n; x++) {
-            buff.append(aRowSeparator);
-            appendRowToBuffer(buff, x, aColumnSeparator);
+        for (int x = 0, n = size(); x < n; x++) {
+            aOut.append(aRowSeparator);
+            appendRowToBuffer(aOut, x, aColumnSeparator);
         }
-        buff.append(aRowSeparator);
-        appendRowToBuffer(buff, n, aColumnSeparator);
-        return buff.toString();
+        return aOut;
     }
 
-    private void appendRowToBuffer(final StringBuffer aBuf,
+    private void appendRowToBuffer(final Appendable aBuf,
                                    final int aRowIndex,
-                                   final String aColumnSeparator) {
+                                   final String aColumnSeparator) throws IOException {
       if (pIsUseRowCounter) {
-        aBuf.append(pRowCounter.getItem(aRowIndex));
+        aBuf.append(String.valueOf(pRowCounter.getItem(aRowIndex)));
         aBuf.append(aColumnSeparator);
       }
       appendArrayToBuffer(aBuf, getRowData(aRowIndex), aColumnSeparator);
     }
 
-    private void appendArrayToBuffer(final StringBuffer aBuf,
+    private void appendArrayToBuffer(final Appendable aBuf,
                                      final Object[] aRow,
-                                     final String aColumnSeparator) {
+                                     final String aColumnSeparator) throws IOException {
         for (int i=0, n=aRow.length; i < n; i++) {
-            aBuf.append(aRow[i]);
+            aBuf.append(String.valueOf(aRow[i]));
             if (i < n - 1)
                 aBuf.append(aColumnSeparator);
         }
@@ -1217,9 +1203,13 @@ public class RowList implements Serializable {
 
 /** Convert the given row to a string */
     public String rowToString(final int aRowIndex, final String aColumnSeparator) {
-      StringBuffer b= new StringBuffer(64);
-      appendRowToBuffer(b, aRowIndex, aColumnSeparator);
-      return b.toString();
+      StringBuilder b= StringBuilderPool.acquire(64);
+      try {
+        appendRowToBuffer(b, aRowIndex, aColumnSeparator);
+      } catch (IOException e) {  // cannot happen with StringBuilder
+        throw new IllegalStateException(e.getMessage());
+      }
+      return StringBuilderPool.release(b);
     }
 
 /** Convert the given row to a string */
@@ -1262,8 +1252,7 @@ public class RowList implements Serializable {
     }
 
     private int indexOfColumn(String columnName) {
-      ColumnDescriptor searchKey=new ColumnDescriptor(columnName, 0);
-      int i=Arrays.binarySearch(pSortedColumnDescriptors, searchKey);
+      int i=searchColumn(columnName);
       if (i<0) {
         throw new IllegalArgumentException("ColumnName ("+columnName+ ") not found");
       }
@@ -1271,6 +1260,36 @@ public class RowList implements Serializable {
       return pSortedColumnDescriptors[i].index;
     }
 
+    /**
+     * Binary search the sorted column descriptors for an upper case column name,
+     * without allocating a search key.
+     * @return position in pSortedColumnDescriptors, -ve if not found.
+     */
+    private int searchColumn(final String aUpperCaseName) {
+      int low=0;
+      int high=pSortedColumnDescriptors.length - 1;
+      while (low<=high) {
+        int mid=(low + high) >>> 1;
+        int c=pSortedColumnDescriptors[mid].name.compareTo(aUpperCaseName);
+        if (c<0) low=mid + 1;
+        else if (c>0) high=mid - 1;
+        else return mid;
+      }
+      return -1;
+    }
+
+    /**
+     * Get the index of a column, resolve names once with this method and then use
+     * the index based getters or a <code>RowCursor</code> when reading many rows.
+     * @param aColumnName The column name, case insensitive.
+     * @return The column's index, -1 if the column does not exist.
+     */
+    public int getColumnIndex(final String aColumnName) {
+      if (aColumnName==null) return -1;
+      int i=searchColumn(aColumnName.toUpperCase());
+      return i<0 ? -1 : pSortedColumnDescriptors[i].index;
+    }
+
 /*
  * Check if the value in the rowlist at the given (rowIndex, ColumnName) is
  * equal to the given aColumnValue.
@@ -1466,6 +1485,15 @@ public class RowList implements Serializable {
      * @since 2.0
      */
     public void orderBy(final String aSortOrder) {
+      Collections.sort(pRows, createOrderByComparator(aSortOrder));
+    }  // orderBy
+
+    /**
+     * Create a comparator of rows (as Object[]) using the same syntax as
+     * <code>orderBy()</code>.
+     * @param aSortOrder SQL like order by syntax, e.g. "NAME ASC, 2 DESC".
+     */
+    Comparator createOrderByComparator(final String aSortOrder) {
       ListOfString list=new ListOfString();
       list.lineSeparator=StringUtility.COMMA;
       list.setText(aSortOrder, true);
@@ -1483,9 +1511,8 @@ public class RowList implements Serializable {
         flags[i]=DESC.equals(dir)?pSORT_DESC:pSORT_ASC;
       }
 
-      Comparator c = new RowListComparator(columns, flags);
-      Collections.sort(pRows, c);
-    }  // orderBy
+      return new RowListComparator(columns, flags);
+    }  // createOrderByComparator
 
     private int getSqlColumnIndex(final String aCol) {
       if (!NumberUtils.isDigits(aCol)) return indexOfColumn(aCol);
@@ -1499,24 +1526,58 @@ public class RowList implements Serializable {
 
     /**
      * Add the rows of the given aRowList to this RowList object. Make sure that
-     * the added rows have the same number and names as this object's.
+     * the added rows have the same number and names as this object's. The row
+     * arrays are copied, and columns are matched by name if they are in a different
+     * order.
      *
      * @param aRowList The RowList to append to this object.
      */
     public void addAll(final RowList aRowList) {
         if (aRowList == null) return;
-        for (int i = 0, n = aRowList.size(); i < n; i++) {
-            add(aRowList.get(i));
+        assertRowSize(aRowList.getColumnCount());
+        int[] map = new int[pColumnCount];
+        boolean isSameOrder = true;
+        for (int c = 0; c < pColumnCount; c++) {
+            String name = (String) aRowList.pColumnNames.get(c);
+            map[c] = name.equals(pColumnNames.get(c)) ? c : indexOfColumn(name);
+            if (map[c] != c) isSameOrder = false;
+        }
+
+        List rows = aRowList.pRows;
+        for (int i = 0, n = rows.size(); i < n; i++) {
+            Object[] source = (Object[]) rows.get(i);
+            Object[] row;
+            if (isSameOrder) {
+                row = (Object[]) source.clone();
+            } else {
+                row = new Object[pColumnCount];
+                for (int c = 0; c < pColumnCount; c++) row[map[c]] = source[c];
+            }
+            add(row);
         }
     }
 
   /**
-   * Converts the given row to a <code>SingleRowList</code>.
+   * Converts the given row to a <code>SingleRowList</code>. The row values are
+   * copied without building a map; if the row counter is used, its value is added as
+   * a last column named <code>getRowCounterName()</code>.
    * @return Returns the <code>RowList</code> as a <code>SingleRowList</code>.
    */
     public SingleRowList getRowAsSingleRowList(final int aRowIndex) {
-      Map row = get(aRowIndex);
-      SingleRowList rowList = new SingleRowList(row);
+      Object[] source = getRowData(aRowIndex);
+      SingleRowList rowList;
+      if (pIsUseRowCounter) {
+        List names = new ArrayList(pColumnNames);
+        names.add(pRowCounterName);
+        rowList = new SingleRowList(names);
+        Object[] row = new Object[pColumnCount + 1];
+        System.arraycopy(source, 0, row, 0, pColumnCount);
+        row[pColumnCount] = pRowCounter.getItem(aRowIndex);
+        rowList.add(row);
+      } else {
+        rowList = new SingleRowList(pColumnNames);
+        rowList.add((Object[]) source.clone());
+      }
       rowList.setColumnHeaders(getColumnHeaders());
       return rowList;
     }
@@ -1610,6 +1671,21 @@ public class RowList implements Serializable {
       return Integer.parseInt( pRowCounter.getItem(aRowIndex) );
     }
 
+/** The start index of the row counter. Used by RowListCodec */
+    int getRowCounterStartIndex() {
+      return pRowCounterStartIndex;
+    }
+
+/** The row counter values, null if no row counter is used. Used by RowListCodec */
+    ListOfString getRowCounterList() {
+      return pRowCounter;
+    }
+
+/** Replace the row counter values. Used by RowListCodec */
+    void setRowCounterList(final ListOfString aRowCounter) {
+      pRowCounter= aRowCounter;
+    }
+
 /**
  * Determines if the row has only null values in all of its columns.
  * @param aRowIndex The index within the <code>RowList</code>.
@@ -1697,6 +1773,77 @@ Now the person object can be used to set and get the values of the first row col
     }
   }
 
+  /**
+   * Convert a cell value to int. Integer, Short, Byte, and integral Long, BigInteger
+   * and BigDecimal values are converted directly; other values are parsed from their
+   * toString() as before, so the result and errors are the same. null is 0.
+   */
+  static int toInt(final Object aValue) {
+    if (aValue==null) return 0;
+    if (aValue instanceof Integer || aValue instanceof Short || aValue instanceof Byte) {
+      return ((Number) aValue).intValue();
+    }
+    if (aValue instanceof Long) {
+      long v= ((Long) aValue).longValue();
+      if (v==(int) v) return (int) v;
+    } else if (aValue instanceof java.math.BigDecimal) {
+      java.math.BigDecimal v= (java.math.BigDecimal) aValue;
+      if (v.scale()==0 && v.unscaledValue().bitLength()<32) return v.intValue();
+    } else if (aValue instanceof java.math.BigInteger) {
+      java.math.BigInteger v= (java.math.BigInteger) aValue;
+      if (v.bitLength()<32) return v.intValue();
+    }
+    return Integer.parseInt(aValue.toString());
+  }  // toInt
+
+  /** Convert a cell value to long, see toInt() */
+  static long toLong(final Object aValue) {
+    if (aValue==null) return 0L;
+    if (aValue instanceof Long || aValue instanceof Integer ||
+        aValue instanceof Short || aValue instanceof Byte) {
+      return ((Number) aValue).longValue();
+    }
+    if (aValue instanceof java.math.BigDecimal) {
+      java.math.BigDecimal v= (java.math.BigDecimal) aValue;
+      if (v.scale()==0 && v.unscaledValue().bitLength()<64) return v.longValue();
+    } else if (aValue instanceof java.math.BigInteger) {
+      java.math.BigInteger v= (java.math.BigInteger) aValue;
+      if (v.bitLength()<64) return v.longValue();
+    }
+    return Long.parseLong(aValue.toString());
+  }  // toLong
+
+  /**
+   * Convert a cell value to double. Float values are still parsed from their
+   * toString() to keep their decimal value, e.g. 0.1f gives 0.1
+   */
+  static double toDouble(final Object aValue) {
+    if (aValue==null) return 0.0d;
+    if (aValue instanceof Double || aValue instanceof Integer || aValue instanceof Long ||
+        aValue instanceof Short || aValue instanceof Byte ||
+        aValue instanceof java.math.BigDecimal) {
+      return ((Number) aValue).doubleValue();
+    }
+    return Double.parseDouble(aValue.toString());
+  }  // toDouble
+
+  /** Convert a cell value to float. Double values are still parsed from their toString() */
+  static float toFloat(final Object aValue) {
+    if (aValue==null) return 0.0f;
+    if (aValue instanceof Float || aValue instanceof Integer || aValue instanceof Long ||
+        aValue instanceof Short || aValue instanceof Byte) {
+      return ((Number) aValue).floatValue();
+    }
+    return Float.parseFloat(aValue.toString());
+  }  // toFloat
+
+  /** Convert a cell value to boolean. null is false. */
+  static boolean toBoolean(final Object aValue) {
+    if (aValue==null) return false;
+    if (aValue instanceof Boolean) return ((Boolean) aValue).booleanValue();
+    return Boolean.valueOf(aValue.toString()).booleanValue();
+  }
+
   /** for testing */
   public static void main(String[] args) {
     List cn= new ArrayList();
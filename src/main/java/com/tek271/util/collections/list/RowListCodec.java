@@ -0,0 +1,451 @@
+/*
+Technology Exponent Common Utilities For Java (TECUJ)
+Copyright (C) 2003,2008  Abdul Habra.
+www.tek271.com
+
+This file is part of TECUJ.
+
+TECUJ is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published
+by the Free Software Foundation; version 2.
+
+TECUJ is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with TECUJ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+You can contact the author at ahabra@yahoo.com
+*/
+package com.tek271.util.collections.list;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.*;
+import com.tek271.util.io.Compress;
+
+/**
+ * Encode a <code>RowList</code> into a compact binary format and decode it back. This is
+ * much smaller and faster than java serialization of a RowList, which makes it suitable
+ * to cache result sets off-heap or to send them between processes.
+ * <p>The format has a typed column header, integral numbers are written as varints,
+ * repeated strings are written once and referenced through a string dictionary, and
+ * the body can be compressed using <code>Compress.compressStream()</code>.
+ * See <code>RowDataOutput</code> for details of the row format.
+ * <p>Besides encoding/decoding a complete RowList, the <code>Encoder</code> and
+ * <code>Decoder</code> inner classes allow streaming rows one at a time without holding
+ * all of them in memory.
+ * <p>Subclasses can store extra properties of RowList subclasses by overriding
+ * <code>createRowList()</code>, <code>getProperties()</code>, and
+ * <code>setProperties()</code>; see <code>com.tek271.util.db.DBRowListCodec</code>.
+ * <p>Example:<pre>
+byte[] bytes= RowListCodec.CODEC.toBytes(rowList, true);
+RowList copy= RowListCodec.CODEC.fromBytes(bytes);
+</pre>
+ * <p>Copyright (c) 2008 Technology Exponent</p>
+ * @author Abdul Habra
+ * @version 1.0
+ */
+public class RowListCodec {
+  /** A shared codec for plain RowList objects. This class is stateless. */
+  public static final RowListCodec CODEC= new RowListCodec();
+
+  private static final int pMAGIC= 0x54524C31;  // "TRL1"
+  private static final int pFLAG_COMPRESSED= 1;
+  private static final int pROW= 1;
+  private static final int pEND= 0;
+  private static final int pBUFFER_SIZE= 8192;
+
+  public RowListCodec() {}
+
+/**
+ * Create an empty RowList with the given column names. Override to create a subclass.
+ * @param aColumnNames List of column names.
+ */
+  protected RowList createRowList(final List aColumnNames) {
+    return new RowList(aColumnNames);
+  }
+
+/**
+ * Get extra properties of the given row list to be stored with it. Override to
+ * store properties of RowList subclasses.
+ * @param aRowList RowList the list being encoded.
+ * @param aProperties Map put (String, String) pairs into this map.
+ */
+  protected void getProperties(final RowList aRowList, final Map aProperties) {}
+
+/**
+ * Set extra properties read from the stream on the given row list. Unknown
+ * properties should be ignored.
+ * @param aRowList RowList the list being decoded.
+ * @param aProperties Map (String, String) pairs as stored by getProperties().
+ */
+  protected void setProperties(final RowList aRowList, final Map aProperties) {}
+
+/** Create a streaming encoder. See Encoder for details. */
+  public Encoder createEncoder(final OutputStream aOut,
+                               final RowList aHeader,
+                               final int[] aColumnTypes,
+                               final boolean aIsCompress) throws IOException {
+    return new Encoder(aOut, aHeader, aColumnTypes, aIsCompress);
+  }
+
+/** Create a streaming decoder. See Decoder for details. */
+  public Decoder createDecoder(final InputStream aIn) throws IOException {
+    return new Decoder(aIn);
+  }
+
+/**
+ * Write the given row list to the given stream. The stream is not closed.
+ * @param aRowList RowList the list to write.
+ * @param aOut OutputStream the target stream.
+ * @param aIsCompress boolean if true, compress the data.
+ */
+  public void encode(final RowList aRowList,
+                     final OutputStream aOut,
+                     final boolean aIsCompress) throws IOException {
+    Encoder encoder= createEncoder(aOut, aRowList, RowDataTypes.columnTypes(aRowList), aIsCompress);
+    List rows= aRowList.getAllRows();
+    for (int i=0, n=rows.size(); i<n; i++) {
+      encoder.writeRow((Object[]) rows.get(i));
+    }
+    encoder.finish(aRowList.getRowCounterList());
+  }  // encode
+
+/**
+ * Read a row list from the given stream. The stream is not closed.
+ * @param aIn InputStream a stream written by encode() or by an Encoder.
+ * @return RowList the read list, its class is decided by createRowList().
+ */
+  public RowList decode(final InputStream aIn) throws IOException {
+    Decoder decoder= createDecoder(aIn);
+    RowList r= decoder.getHeader();
+    while (decoder.hasNext()) {
+      r.add(decoder.next());
+    }
+    ListOfString counters= decoder.getRowCounters();
+    if (counters != null) r.setRowCounterList(counters);
+    return r;
+  }  // decode
+
+/** Encode the given row list into a byte array */
+  public byte[] toBytes(final RowList aRowList, final boolean aIsCompress) throws IOException {
+    ByteArrayOutputStream bos= new ByteArrayOutputStream(pBUFFER_SIZE);
+    encode(aRowList, bos, aIsCompress);
+    return bos.toByteArray();
+  }
+
+/** Decode a row list from a byte array created by toBytes() */
+  public RowList fromBytes(final byte[] aBytes) throws IOException {
+    return decode(new ByteArrayInputStream(aBytes));
+  }
+
+/**
+ * Writes rows one at a time. The header (column names, column headers, case
+ * sensitivity, row counter settings, row interface, and the extra properties) is taken
+ * from a RowList whose rows are ignored. Call <code>finish()</code> after the last row.
+ */
+  public class Encoder {
+    private final OutputStream pTarget;
+    private final DeflaterOutputStream pDeflater;
+    private final RowDataOutput pOut;
+    private final int[] pTypes;
+    private int pRowCount= 0;
+
+/**
+ * @param aOut OutputStream the target stream, it will not be closed.
+ * @param aHeader RowList provides the header information.
+ * @param aColumnTypes int[] the RowDataTypes of each column, use RowDataTypes.MIXED
+ *        when a column's type is not known in advance.
+ * @param aIsCompress boolean if true, compress the data after the fixed prefix.
+ */
+    public Encoder(final OutputStream aOut,
+                   final RowList aHeader,
+                   final int[] aColumnTypes,
+                   final boolean aIsCompress) throws IOException {
+      if (aColumnTypes.length != aHeader.getColumnCount()) {
+        throw new IllegalArgumentException("Column types count (" + aColumnTypes.length +
+            ") must match the column count (" + aHeader.getColumnCount() + ")");
+      }
+      pTarget= aOut;
+      pTypes= (int[]) aColumnTypes.clone();
+
+      DataOutputStream prefix= new DataOutputStream(aOut);
+      prefix.writeInt(pMAGIC);
+      prefix.writeByte(aIsCompress ? pFLAG_COMPRESSED : 0);
+      prefix.flush();
+
+      if (aIsCompress) {
+        pDeflater= Compress.compressStream(aOut, Deflater.DEFAULT_COMPRESSION);
+        pOut= new RowDataOutput(new BufferedOutputStream(pDeflater, pBUFFER_SIZE));
+      } else {
+        pDeflater= null;
+        pOut= new RowDataOutput(new BufferedOutputStream(aOut, pBUFFER_SIZE));
+      }
+      writeHeader(aHeader);
+    }
+
+    private void writeHeader(final RowList aHeader) throws IOException {
+      List names= aHeader.getColumnNames();
+      int n= names.size();
+      pOut.writeVarInt(n);
+      for (int i=0; i<n; i++) {
+        pOut.writeString((String) names.get(i));
+        pOut.writeByte(pTypes[i]);
+      }
+      pOut.writeBoolean(aHeader.isCaseSensitive);
+
+      Map headers= aHeader.getColumnHeaders();
+      pOut.writeVarInt(headers.size());
+      for (Iterator it=headers.entrySet().iterator(); it.hasNext(); ) {
+        Map.Entry e= (Map.Entry) it.next();
+        pOut.writeTaggedValue(e.getKey());
+        pOut.writeTaggedValue(e.getValue());
+      }
+
+      boolean isCounter= aHeader.getIsUseRowCounter();
+      pOut.writeBoolean(isCounter);
+      if (isCounter) {
+        pOut.writeString(aHeader.getRowCounterName());
+        pOut.writeZigZagInt(aHeader.getRowCounterStartIndex());
+      }
+
+      Class rowInterface= aHeader.getRowInterface();
+      pOut.writeString(rowInterface==null ? "" : rowInterface.getName());
+
+      Map properties= new TreeMap();
+      getProperties(aHeader, properties);
+      pOut.writeVarInt(properties.size());
+      for (Iterator it=properties.entrySet().iterator(); it.hasNext(); ) {
+        Map.Entry e= (Map.Entry) it.next();
+        pOut.writeString((String) e.getKey());
+        pOut.writeString(String.valueOf(e.getValue()));
+      }
+    }  // writeHeader
+
+/** Write one row, its length must match the column count */
+    public void writeRow(final Object[] aRow) throws IOException {
+      if (aRow.length != pTypes.length) {
+        throw new IllegalArgumentException("Column count in the row (" + aRow.length +
+            ") must match the header column count(" + pTypes.length + ")");
+      }
+      pOut.writeByte(pROW);
+      pOut.writeRow(aRow, pTypes);
+      pRowCount++;
+    }
+
+/** Number of rows written so far */
+    public int getRowCount() {
+      return pRowCount;
+    }
+
+/** Write the end marker and flush. The target stream is not closed. */
+    public void finish() throws IOException {
+      finish(null);
+    }
+
+/**
+ * Write the end marker and the given row counter values, then flush.
+ * @param aRowCounters ListOfString row counter values, if null the decoder will
+ *        number the rows sequentially.
+ */
+    void finish(final ListOfString aRowCounters) throws IOException {
+      pOut.writeByte(pEND);
+      int n= aRowCounters==null ? 0 : aRowCounters.size();
+      pOut.writeVarInt(n);
+      long previous= 0;
+      for (int i=0; i<n; i++) {
+        long v= Long.parseLong(aRowCounters.getItem(i));
+        pOut.writeZigZagLong(v - previous);
+        previous= v;
+      }
+      pOut.flush();
+      if (pDeflater != null) pDeflater.finish();
+      pTarget.flush();
+    }  // finish
+
+  }  // Encoder
+
+/**
+ * Reads rows one at a time from a stream written by encode() or by an Encoder.
+ * The header is read when the decoder is created and is available as an empty RowList
+ * from <code>getHeader()</code>.
+ * <p>The decoder buffers its input, so it may read past the end of the encoded data.
+ */
+  public class Decoder {
+    private final InflaterInputStream pInflater;
+    private final RowDataInput pIn;
+    private final RowList pHeader;
+    private int[] pTypes;
+    private boolean pIsEnd= false;
+    private boolean pHasRow= false;
+    private ListOfString pRowCounters;
+
+/** @param aIn InputStream the source stream, it will not be closed. */
+    public Decoder(final InputStream aIn) throws IOException {
+      DataInputStream prefix= new DataInputStream(aIn);
+      if (prefix.readInt() != pMAGIC) throw new IOException("Not a RowList stream");
+      int flags= prefix.readUnsignedByte();
+      InputStream body;
+      if ((flags & pFLAG_COMPRESSED) != 0) {
+        pInflater= Compress.decompressStream(aIn);
+        body= pInflater;
+      } else {
+        pInflater= null;
+        body= aIn;
+      }
+      pIn= new RowDataInput(new BufferedInputStream(body, pBUFFER_SIZE));
+      pHeader= readHeader();
+    }
+
+    private RowList readHeader() throws IOException {
+      int n= pIn.readVarInt();
+      List names= new ArrayList(n);
+      pTypes= new int[n];
+      for (int i=0; i<n; i++) {
+        names.add(pIn.readString());
+        pTypes[i]= pIn.readByte();
+      }
+      RowList r= createRowList(names);
+      r.isCaseSensitive= pIn.readBoolean();
+
+      int headerCount= pIn.readVarInt();
+      for (int i=0; i<headerCount; i++) {
+        Object k= pIn.readTaggedValue();
+        r.getColumnHeaders().put(k, pIn.readTaggedValue());
+      }
+
+      if (pIn.readBoolean()) {
+        String counterName= pIn.readString();
+        r.setIsUseRowCounter(true, counterName, pIn.readZigZagInt());
+      }
+
+      String rowInterface= pIn.readString();
+      if (rowInterface.length() > 0) {
+        try {
+          r.setRowInterface(Class.forName(rowInterface));
+        } catch (ClassNotFoundException e) {
+          // the interface is not available in this JVM, leave it unset
+        }
+      }
+
+      int propertyCount= pIn.readVarInt();
+      Map properties= new HashMap();
+      for (int i=0; i<propertyCount; i++) {
+        String k= pIn.readString();
+        properties.put(k, pIn.readString());
+      }
+      setProperties(r, properties);
+      return r;
+    }  // readHeader
+
+/** An empty RowList with the header information of the stream */
+    public RowList getHeader() {
+      return pHeader;
+    }
+
+/** The type of each column as RowDataTypes constants */
+    public int[] getColumnTypes() {
+      return (int[]) pTypes.clone();
+    }
+
+/** Check if there is another row. Can be called many times before calling next(). */
+    public boolean hasNext() throws IOException {
+      if (pIsEnd) return false;
+      if (pHasRow) return true;
+      int marker= pIn.readByte();
+      if (marker==pROW) {
+        pHasRow= true;
+        return true;
+      }
+      if (marker != pEND) throw new IOException("Invalid row marker: " + marker);
+      readRowCounters();
+      pIsEnd= true;
+      return false;
+    }  // hasNext
+
+/**
+ * Read the next row.
+ * @throws NoSuchElementException if there are no more rows.
+ */
+    public Object[] next() throws IOException {
+      if (!hasNext()) throw new NoSuchElementException("No more rows");
+      pHasRow= false;
+      return pIn.readRow(pTypes);
+    }
+
+    private void readRowCounters() throws IOException {
+      int n= pIn.readVarInt();
+      if (n==0) return;
+      pRowCounters= new ListOfString(n);
+      long previous= 0;
+      for (int i=0; i<n; i++) {
+        previous+= pIn.readZigZagLong();
+        pRowCounters.add(String.valueOf(previous));
+      }
+    }  // readRowCounters
+
+/** Row counter values stored with the rows, null if rows are numbered sequentially */
+    ListOfString getRowCounters() {
+      return pRowCounters;
+    }
+
+  }  // Decoder
+
+/** For testing: compare size and speed with java serialization */
+  public static void main(String[] args) throws Exception {
+    int rowCount= args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+    List names= new ArrayList();
+    names.add("ID");
+    names.add("NAME");
+    names.add("STATE");
+    names.add("AMOUNT");
+    names.add("CREATED");
+    RowList list= new RowList(names);
+    String[] states= {"IL", "IN", "WI", "MI", "OH"};
+    for (int i=0; i<rowCount; i++) {
+      list.add(new Object[] { Integer.valueOf(i), "Name" + i, states[i % states.length],
+                              new java.math.BigDecimal(i).movePointLeft(2),
+                              new java.sql.Timestamp(1200000000000L + i) });
+    }
+
+    for (int round=0; round<3; round++) {
+      long start= System.currentTimeMillis();
+      ByteArrayOutputStream bos= new ByteArrayOutputStream();
+      ObjectOutputStream oos= new ObjectOutputStream(bos);
+      oos.writeObject(list);
+      oos.close();
+      byte[] serialized= bos.toByteArray();
+      long serWrite= System.currentTimeMillis() - start;
+      start= System.currentTimeMillis();
+      new ObjectInputStream(new ByteArrayInputStream(serialized)).readObject();
+      long serRead= System.currentTimeMillis() - start;
+
+      start= System.currentTimeMillis();
+      byte[] plain= CODEC.toBytes(list, false);
+      long plainWrite= System.currentTimeMillis() - start;
+      start= System.currentTimeMillis();
+      CODEC.fromBytes(plain);
+      long plainRead= System.currentTimeMillis() - start;
+
+      start= System.currentTimeMillis();
+      byte[] compressed= CODEC.toBytes(list, true);
+      long zipWrite= System.currentTimeMillis() - start;
+      start= System.currentTimeMillis();
+      CODEC.fromBytes(compressed);
+      long zipRead= System.currentTimeMillis() - start;
+
+      System.out.println("Round " + round + ", " + rowCount + " rows");
+      System.out.println("  Serializable: " + serialized.length + " bytes, write " +
+                         serWrite + " ms, read " + serRead + " ms");
+      System.out.println("  Codec:        " + plain.length + " bytes, write " +
+                         plainWrite + " ms, read " + plainRead + " ms");
+      System.out.println("  Compressed:   " + compressed.length + " bytes, write " +
+                         zipWrite + " ms, read " + zipRead + " ms");
+    }
+  }
+
+}  // RowListCodec
@@ -0,0 +1,104 @@
+/*
+Technology Exponent Common Utilities For Java (TECUJ)
+Copyright (C) 2003,2008  Abdul Habra.
+www.tek271.com
+
+This file is part of TECUJ.
+
+TECUJ is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published
+by the Free Software Foundation; version 2.
+
+TECUJ is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with TECUJ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+You can contact the author at ahabra@yahoo.com
+*/
+package com.tek271.util.collections.map;
+
+import java.io.Serializable;
+
+/**
+ * A String key of a case insensitive map. Its hashCode() and equals() ignore case, the same
+ * way String.equalsIgnoreCase() does, without creating lower case copies of the key. The
+ * original key is kept and returned by toString().
+ * <p>Lookups use a reusable probe per thread, so that get() and containsKey() do not
+ * allocate; only keys stored in a map are new objects.
+ * <p>Note that the class has a default package scope, and is not accessiable outside its
+ * package.</p>
+ * <p>Copyright (c) 2008 Technology Exponent</p>
+ * @author Abdul Habra
+ * @version 1.0
+ */
+class CaseInsensitiveKey implements Serializable {
+  private static final long serialVersionUID = 1;
+
+  private static final ThreadLocal pPROBE= new ThreadLocal() {
+    protected Object initialValue() {
+      return new CaseInsensitiveKey();
+    }
+  };
+
+  private String pKey;
+  private int pHash;
+
+  private CaseInsensitiveKey() {}
+
+  CaseInsensitiveKey(final String aKey) {
+    set(aKey);
+  }
+
+  private void set(final String aKey) {
+    pKey= aKey;
+    pHash= hash(aKey);
+  }
+
+/**
+ * Get the probe of the current thread set to the given key, to look up a map. The probe
+ * is reused by the next call on the same thread, so it must not be stored in a map.
+ */
+  static CaseInsensitiveKey probe(final String aKey) {
+    CaseInsensitiveKey r= (CaseInsensitiveKey) pPROBE.get();
+    r.set(aKey);
+    return r;
+  }
+
+/** A hash code of aText that is the same for texts that are equal ignoring case */
+  static int hash(final String aText) {
+    if (aText==null) return 0;
+    int h= 0;
+    for (int i=0, n=aText.length(); i<n; i++) {
+      h= 31 * h + Character.toLowerCase(Character.toUpperCase(aText.charAt(i)));
+    }
+    return h;
+  }  // hash
+
+/** The original key */
+  String getKey() {
+    return pKey;
+  }
+
+  public int hashCode() {
+    return pHash;
+  }
+
+  public boolean equals(final Object aObject) {
+    if (aObject==this) return true;
+    if (!(aObject instanceof CaseInsensitiveKey)) return false;
+    CaseInsensitiveKey other= (CaseInsensitiveKey) aObject;
+    if (pHash != other.pHash) return false;
+    if (pKey==null) return other.pKey==null;
+    return pKey.equalsIgnoreCase(other.pKey);
+  }  // equals
+
+  public String toString() {
+    return pKey;
+  }
+
+}  // CaseInsensitiveKey
@@ -0,0 +1,60 @@
+/*
+Technology Exponent Common Utilities For Java (TECUJ)
+Copyright (C) 2003,2008  Abdul Habra.
+www.tek271.com
+
+This file is part of TECUJ.
+
+TECUJ is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published
+by the Free Software Foundation; version 2.
+
+TECUJ is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with TECUJ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+You can contact the author at ahabra@yahoo.com
+*/
+package com.tek271.util.collections.map;
+
+/**
+ * Hashing helpers shared by the primitive open addressing collections.
+ * <p>Copyright (c) 2008 Technology Exponent</p>
+ * @author Abdul Habra
+ * @version 1.0
+ */
+public class HashUtil {
+  private static final int pMAX_CAPACITY= 1 << 30;
+
+  private HashUtil() {}
+
+/** Spread the bits of a long key, so that the low bits can be used as a table index */
+  public static int mix(final long aKey) {
+    long h= aKey * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32) ^ (h >>> 16));
+  }
+
+/** Spread the bits of an int key */
+  public static int mix(final int aKey) {
+    int h= aKey * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+/**
+ * Power of two table size that holds aExpectedSize entries at the given load factor,
+ * at least 2.
+ */
+  public static int arraySize(final int aExpectedSize, final float aLoadFactor) {
+    long needed= (long) Math.ceil(aExpectedSize / aLoadFactor) + 1;
+    if (needed > pMAX_CAPACITY) throw new IllegalArgumentException("Too many entries: " + aExpectedSize);
+    int r= 2;
+    while (r < needed) r <<= 1;
+    return r;
+  }
+
+}  // HashUtil
@@ -0,0 +1,249 @@
+/*
+Technology Exponent Common Utilities For Java (TECUJ)
+Copyright (C) 2003,2008  Abdul Habra.
+www.tek271.com
+
+This file is part of TECUJ.
+
+TECUJ is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published
+by the Free Software Foundation; version 2.
+
+TECUJ is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with TECUJ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+You can contact the author at ahabra@yahoo.com
+*/
+package com.tek271.util.collections.map;
+
+import java.util.*;
+import com.tek271.util.collections.iterator.IIntIterator;
+
+/**
+ * A hash map from primitive int keys to object values, without boxing the keys.
+ * Uses open addressing with linear probing and backward shift deletion, see
+ * <code>LongLongMap</code>. The key 0 is stored outside the arrays because 0 marks a
+ * free slot. null values are allowed; get() returns null for missing keys, use
+ * containsKey() to tell them apart.
+ * <p>Note that this implementation is not synchronized.
+ * <p>Copyright (c) 2008 Technology Exponent</p>
+ * @author Abdul Habra
+ * @version 1.0
+ */
+public class IntObjectMap {
+  private static final int pFREE= 0;
+  private static final float pDEFAULT_LOAD_FACTOR= 0.6f;
+
+  private final float pLoadFactor;
+  private int[] pKeys;
+  private Object[] pValues;
+  private int pMask;
+  private int pThreshold;
+  private int pSize= 0;  // not counting the zero key
+  private boolean pHasZeroKey= false;
+  private Object pZeroValue;
+
+/** Create an empty map for 16 entries */
+  public IntObjectMap() {
+    this(16);
+  }
+
+/** Create an empty map that can hold aExpectedSize entries without rehashing */
+  public IntObjectMap(final int aExpectedSize) {
+    this(aExpectedSize, pDEFAULT_LOAD_FACTOR);
+  }
+
+/**
+ * Create an empty map.
+ * @param aExpectedSize int number of entries the map can hold without rehashing.
+ * @param aLoadFactor float between 0 and 1, exclusive, how full the arrays can get.
+ */
+  public IntObjectMap(final int aExpectedSize, final float aLoadFactor) {
+    if (aExpectedSize<0) throw new IllegalArgumentException("aExpectedSize < 0");
+    if (aLoadFactor<=0 || aLoadFactor>=1) {
+      throw new IllegalArgumentException("aLoadFactor must be between 0 and 1");
+    }
+    pLoadFactor= aLoadFactor;
+    allocate(HashUtil.arraySize(aExpectedSize, aLoadFactor));
+  }
+
+  private void allocate(final int aCapacity) {
+    pKeys= new int[aCapacity];
+    pValues= new Object[aCapacity];
+    pMask= aCapacity - 1;
+    pThreshold= Math.min(aCapacity - 1, (int) Math.ceil(aCapacity * pLoadFactor));
+  }
+
+  public int size() {
+    return pHasZeroKey ? pSize + 1 : pSize;
+  }
+
+  public boolean isEmpty() {
+    return size()==0;
+  }
+
+  public void clear() {
+    Arrays.fill(pKeys, pFREE);
+    Arrays.fill(pValues, null);
+    pSize= 0;
+    pHasZeroKey= false;
+    pZeroValue= null;
+  }
+
+/** Slot of aKey, or the free slot where it would be inserted */
+  private int slot(final int aKey) {
+    int i= HashUtil.mix(aKey) & pMask;
+    int k;
+    while ((k= pKeys[i]) != pFREE) {
+      if (k==aKey) return i;
+      i= (i + 1) & pMask;
+    }
+    return i;
+  }
+
+  public boolean containsKey(final int aKey) {
+    if (aKey==pFREE) return pHasZeroKey;
+    return pKeys[slot(aKey)] != pFREE;
+  }
+
+/** Value of aKey, null if the key does not exist */
+  public Object get(final int aKey) {
+    if (aKey==pFREE) return pZeroValue;
+    int i= slot(aKey);
+    return pKeys[i]==pFREE ? null : pValues[i];
+  }
+
+/** Set the value of aKey, returns the previous value or null */
+  public Object put(final int aKey, final Object aValue) {
+    if (aKey==pFREE) {
+      Object old= pZeroValue;
+      pHasZeroKey= true;
+      pZeroValue= aValue;
+      return old;
+    }
+    int i= slot(aKey);
+    if (pKeys[i] != pFREE) {
+      Object old= pValues[i];
+      pValues[i]= aValue;
+      return old;
+    }
+    pKeys[i]= aKey;
+    pValues[i]= aValue;
+    if (++pSize > pThreshold) rehash(pKeys.length * 2);
+    return null;
+  }  // put
+
+/** Remove aKey, returns its value or null if it did not exist */
+  public Object remove(final int aKey) {
+    if (aKey==pFREE) {
+      Object old= pZeroValue;
+      pHasZeroKey= false;
+      pZeroValue= null;
+      return old;
+    }
+    int i= slot(aKey);
+    if (pKeys[i]==pFREE) return null;
+    Object old= pValues[i];
+    shiftKeys(i);
+    pSize--;
+    return old;
+  }  // remove
+
+/** Backward shift deletion, see LongLongMap */
+  private void shiftKeys(int aGap) {
+    int j= aGap;
+    while (true) {
+      j= (j + 1) & pMask;
+      int k= pKeys[j];
+      if (k==pFREE) break;
+      int home= HashUtil.mix(k) & pMask;
+      if (aGap <= j ? (aGap >= home || home > j) : (aGap >= home && home > j)) {
+        pKeys[aGap]= k;
+        pValues[aGap]= pValues[j];
+        aGap= j;
+      }
+    }
+    pKeys[aGap]= pFREE;
+    pValues[aGap]= null;
+  }  // shiftKeys
+
+  private void rehash(final int aCapacity) {
+    int[] keys= pKeys;
+    Object[] values= pValues;
+    allocate(aCapacity);
+    for (int j=0; j<keys.length; j++) {
+      int k= keys[j];
+      if (k==pFREE) continue;
+      int i= HashUtil.mix(k) & pMask;
+      while (pKeys[i] != pFREE) i= (i + 1) & pMask;
+      pKeys[i]= k;
+      pValues[i]= values[j];
+    }
+  }  // rehash
+
+/** A copy of the keys, in no particular order */
+  public int[] keys() {
+    int[] r= new int[size()];
+    int n= 0;
+    if (pHasZeroKey) r[n++]= 0;
+    for (int i=0; i<pKeys.length; i++) {
+      if (pKeys[i] != pFREE) r[n++]= pKeys[i];
+    }
+    return r;
+  }
+
+/** Iterate the keys in no particular order. The iterator does not support remove(). */
+  public IIntIterator keyIterator() {
+    return new IIntIterator() {
+      private boolean isZeroPending= pHasZeroKey;
+      private int index= nextSlot(0);
+
+      private int nextSlot(int aFrom) {
+        while (aFrom < pKeys.length && pKeys[aFrom]==pFREE) aFrom++;
+        return aFrom;
+      }
+
+      public boolean hasNext() {
+        return isZeroPending || index < pKeys.length;
+      }
+
+      public int nextInt() {
+        if (isZeroPending) {
+          isZeroPending= false;
+          return 0;
+        }
+        if (index >= pKeys.length) throw new NoSuchElementException();
+        int r= pKeys[index];
+        index= nextSlot(index + 1);
+        return r;
+      }
+
+      public Object next() {
+        return Integer.valueOf(nextInt());
+      }
+
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }  // keyIterator
+
+  public String toString() {
+    StringBuilder b= new StringBuilder(size() * 8 + 2);
+    b.append('{');
+    if (pHasZeroKey) b.append("0=").append(pZeroValue);
+    for (int i=0; i<pKeys.length; i++) {
+      if (pKeys[i]==pFREE) continue;
+      if (b.length()>1) b.append(", ");
+      b.append(pKeys[i]).append('=').append(pValues[i]);
+    }
+    return b.append('}').toString();
+  }
+
+}  // IntObjectMap
@@ -0,0 +1,329 @@
+/*
+Technology Exponent Common Utilities For Java (TECUJ)
+Copyright (C) 2003,2008  Abdul Habra.
+www.tek271.com
+
+This file is part of TECUJ.
+
+TECUJ is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published
+by the Free Software Foundation; version 2.
+
+TECUJ is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with TECUJ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+You can contact the author at ahabra@yahoo.com
+*/
+package com.tek271.util.collections.map;
+
+import java.util.*;
+import com.tek271.util.collections.iterator.ILongIterator;
+
+/**
+ * A hash map from primitive long keys to primitive long values, without boxing.
+ * Uses open addressing with linear probing in parallel <code>long[]</code> arrays, and
+ * backward shift deletion so removals leave no tombstones. The key 0 is stored outside
+ * the arrays because 0 marks a free slot.
+ * <p>get(), put(), addTo(), and remove() run in constant expected time. The arrays
+ * are doubled when the map is more than <code>loadFactor</code> full.
+ * <p>get() returns <code>getNoValue()</code> (0 by default) for missing keys, use
+ * containsKey() when 0 is a valid value.
+ * <p>Note that this implementation is not synchronized.
+ * <p>Copyright (c) 2008 Technology Exponent</p>
+ * @author Abdul Habra
+ * @version 1.0
+ */
+public class LongLongMap {
+  private static final long pFREE= 0;
+  private static final float pDEFAULT_LOAD_FACTOR= 0.6f;
+
+  private final float pLoadFactor;
+  private long[] pKeys;
+  private long[] pValues;
+  private int pMask;
+  private int pThreshold;
+  private int pSize= 0;  // not counting the zero key
+  private boolean pHasZeroKey= false;
+  private long pZeroValue;
+  private long pNoValue= 0;
+
+/** Create an empty map for 16 entries */
+  public LongLongMap() {
+    this(16);
+  }
+
+/** Create an empty map that can hold aExpectedSize entries without rehashing */
+  public LongLongMap(final int aExpectedSize) {
+    this(aExpectedSize, pDEFAULT_LOAD_FACTOR);
+  }
+
+/**
+ * Create an empty map.
+ * @param aExpectedSize int number of entries the map can hold without rehashing.
+ * @param aLoadFactor float between 0 and 1, exclusive, how full the arrays can get.
+ */
+  public LongLongMap(final int aExpectedSize, final float aLoadFactor) {
+    if (aExpectedSize<0) throw new IllegalArgumentException("aExpectedSize < 0");
+    if (aLoadFactor<=0 || aLoadFactor>=1) {
+      throw new IllegalArgumentException("aLoadFactor must be between 0 and 1");
+    }
+    pLoadFactor= aLoadFactor;
+    allocate(HashUtil.arraySize(aExpectedSize, aLoadFactor));
+  }
+
+  private void allocate(final int aCapacity) {
+    pKeys= new long[aCapacity];
+    pValues= new long[aCapacity];
+    pMask= aCapacity - 1;
+    pThreshold= Math.min(aCapacity - 1, (int) Math.ceil(aCapacity * pLoadFactor));
+  }
+
+/** The value returned by get() and remove() for missing keys, 0 by default */
+  public long getNoValue() {
+    return pNoValue;
+  }
+
+  public void setNoValue(final long aNoValue) {
+    pNoValue= aNoValue;
+  }
+
+  public int size() {
+    return pHasZeroKey ? pSize + 1 : pSize;
+  }
+
+  public boolean isEmpty() {
+    return size()==0;
+  }
+
+  public void clear() {
+    Arrays.fill(pKeys, pFREE);
+    pSize= 0;
+    pHasZeroKey= false;
+  }
+
+/** Slot of aKey, or the free slot where it would be inserted */
+  private int slot(final long aKey) {
+    int i= HashUtil.mix(aKey) & pMask;
+    long k;
+    while ((k= pKeys[i]) != pFREE) {
+      if (k==aKey) return i;
+      i= (i + 1) & pMask;
+    }
+    return i;
+  }
+
+  public boolean containsKey(final long aKey) {
+    if (aKey==pFREE) return pHasZeroKey;
+    return pKeys[slot(aKey)] != pFREE;
+  }
+
+/** Value of aKey, getNoValue() if the key does not exist */
+  public long get(final long aKey) {
+    if (aKey==pFREE) return pHasZeroKey ? pZeroValue : pNoValue;
+    int i= slot(aKey);
+    return pKeys[i]==pFREE ? pNoValue : pValues[i];
+  }
+
+/** Value of aKey, aDefault if the key does not exist */
+  public long get(final long aKey, final long aDefault) {
+    if (aKey==pFREE) return pHasZeroKey ? pZeroValue : aDefault;
+    int i= slot(aKey);
+    return pKeys[i]==pFREE ? aDefault : pValues[i];
+  }
+
+/** Set the value of aKey, returns the previous value or getNoValue() */
+  public long put(final long aKey, final long aValue) {
+    if (aKey==pFREE) {
+      long old= pHasZeroKey ? pZeroValue : pNoValue;
+      pHasZeroKey= true;
+      pZeroValue= aValue;
+      return old;
+    }
+    int i= slot(aKey);
+    if (pKeys[i] != pFREE) {
+      long old= pValues[i];
+      pValues[i]= aValue;
+      return old;
+    }
+    pKeys[i]= aKey;
+    pValues[i]= aValue;
+    if (++pSize > pThreshold) rehash(pKeys.length * 2);
+    return pNoValue;
+  }  // put
+
+/**
+ * Add aDelta to the value of aKey, a missing key starts at 0.
+ * @return the new value.
+ */
+  public long addTo(final long aKey, final long aDelta) {
+    if (aKey==pFREE) {
+      pZeroValue= (pHasZeroKey ? pZeroValue : 0) + aDelta;
+      pHasZeroKey= true;
+      return pZeroValue;
+    }
+    int i= slot(aKey);
+    if (pKeys[i] != pFREE) return pValues[i]+= aDelta;
+    pKeys[i]= aKey;
+    pValues[i]= aDelta;
+    if (++pSize > pThreshold) rehash(pKeys.length * 2);
+    return aDelta;
+  }  // addTo
+
+/** Remove aKey, returns its value or getNoValue() if it did not exist */
+  public long remove(final long aKey) {
+    if (aKey==pFREE) {
+      if (!pHasZeroKey) return pNoValue;
+      pHasZeroKey= false;
+      return pZeroValue;
+    }
+    int i= slot(aKey);
+    if (pKeys[i]==pFREE) return pNoValue;
+    long old= pValues[i];
+    shiftKeys(i);
+    pSize--;
+    return old;
+  }  // remove
+
+/** Backward shift deletion: move following entries of the probe chain into the gap */
+  private void shiftKeys(int aGap) {
+    int j= aGap;
+    while (true) {
+      j= (j + 1) & pMask;
+      long k= pKeys[j];
+      if (k==pFREE) break;
+      int home= HashUtil.mix(k) & pMask;
+      // move k into the gap if its home slot is not cyclically in (gap, j]
+      if (aGap <= j ? (aGap >= home || home > j) : (aGap >= home && home > j)) {
+        pKeys[aGap]= k;
+        pValues[aGap]= pValues[j];
+        aGap= j;
+      }
+    }
+    pKeys[aGap]= pFREE;
+  }  // shiftKeys
+
+  private void rehash(final int aCapacity) {
+    long[] keys= pKeys;
+    long[] values= pValues;
+    allocate(aCapacity);
+    for (int j=0; j<keys.length; j++) {
+      long k= keys[j];
+      if (k==pFREE) continue;
+      int i= HashUtil.mix(k) & pMask;
+      while (pKeys[i] != pFREE) i= (i + 1) & pMask;
+      pKeys[i]= k;
+      pValues[i]= values[j];
+    }
+  }  // rehash
+
+/** A copy of the keys, in no particular order */
+  public long[] keys() {
+    long[] r= new long[size()];
+    int n= 0;
+    if (pHasZeroKey) r[n++]= 0;
+    for (int i=0; i<pKeys.length; i++) {
+      if (pKeys[i] != pFREE) r[n++]= pKeys[i];
+    }
+    return r;
+  }
+
+/** Iterate the keys in no particular order. The iterator does not support remove(). */
+  public ILongIterator keyIterator() {
+    return new ILongIterator() {
+      private boolean isZeroPending= pHasZeroKey;
+      private int index= nextSlot(0);
+
+      private int nextSlot(int aFrom) {
+        while (aFrom < pKeys.length && pKeys[aFrom]==pFREE) aFrom++;
+        return aFrom;
+      }
+
+      public boolean hasNext() {
+        return isZeroPending || index < pKeys.length;
+      }
+
+      public long nextLong() {
+        if (isZeroPending) {
+          isZeroPending= false;
+          return 0;
+        }
+        if (index >= pKeys.length) throw new NoSuchElementException();
+        long r= pKeys[index];
+        index= nextSlot(index + 1);
+        return r;
+      }
+
+      public Object next() {
+        return Long.valueOf(nextLong());
+      }
+
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }  // keyIterator
+
+  public boolean equals(final Object aObject) {
+    if (this==aObject) return true;
+    if (!(aObject instanceof LongLongMap)) return false;
+    LongLongMap other= (LongLongMap) aObject;
+    if (size() != other.size()) return false;
+    if (pHasZeroKey && (!other.pHasZeroKey || other.pZeroValue != pZeroValue)) return false;
+    for (int i=0; i<pKeys.length; i++) {
+      long k= pKeys[i];
+      if (k==pFREE) continue;
+      if (!other.containsKey(k) || other.get(k) != pValues[i]) return false;
+    }
+    return true;
+  }
+
+  public int hashCode() {
+    int r= pHasZeroKey ? (int) (pZeroValue ^ (pZeroValue >>> 32)) : 0;
+    for (int i=0; i<pKeys.length; i++) {
+      long k= pKeys[i];
+      if (k==pFREE) continue;
+      long v= pValues[i];
+      r+= (int) (k ^ (k >>> 32)) ^ (int) (v ^ (v >>> 32));
+    }
+    return r;
+  }
+
+  public String toString() {
+    StringBuilder b= new StringBuilder(size() * 8 + 2);
+    b.append('{');
+    if (pHasZeroKey) b.append("0=").append(pZeroValue);
+    for (int i=0; i<pKeys.length; i++) {
+      if (pKeys[i]==pFREE) continue;
+      if (b.length()>1) b.append(", ");
+      b.append(pKeys[i]).append('=').append(pValues[i]);
+    }
+    return b.append('}').toString();
+  }
+
+/** For testing: compare with HashMap of Long to Long */
+  public static void main(String[] args) {
+    int n= args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+    for (int round=0; round<3; round++) {
+      long start= System.currentTimeMillis();
+      LongLongMap map= new LongLongMap();
+      for (int i=0; i<n; i++) map.put(i * 7919L, i);
+      long sum= 0;
+      for (int i=0; i<n; i++) sum+= map.get(i * 7919L);
+      System.out.println("LongLongMap:         " + (System.currentTimeMillis() - start) + "ms " + sum);
+
+      start= System.currentTimeMillis();
+      Map boxed= new HashMap();
+      for (int i=0; i<n; i++) boxed.put(Long.valueOf(i * 7919L), Long.valueOf(i));
+      sum= 0;
+      for (int i=0; i<n; i++) sum+= ((Long) boxed.get(Long.valueOf(i * 7919L))).longValue();
+      System.out.println("HashMap<Long, Long>: " + (System.currentTimeMillis() - start) + "ms " + sum);
+    }
+  }  // main
+
+}  // LongLongMap
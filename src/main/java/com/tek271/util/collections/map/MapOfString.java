@@ -23,10 +23,7 @@ You can contact the author at ahabra@yahoo.com
 package com.tek271.util.collections.map;
 
 import java.util.*;
-import com.tek271.util.*;
-import com.tek271.util.collections.*;
 import com.tek271.util.collections.list.*;
-import com.tek271.util.collections.set.*;
 import com.tek271.util.string.StringUtility;
 
 /**
@@ -36,6 +33,10 @@ import com.tek271.util.string.StringUtility;
  * Using the case insensetive option will not change the case of either keys or values.
  * Additionally, using the setListOrder() method you can have the class keep track of
  * the order in which items where added to the map.
+ * <p>In case insensitive mode keys are stored as CaseInsensitiveKey objects, which hash
+ * and compare the original key ignoring case; lookups do not create lower case copies of
+ * the key. entrySet(), keySet() and values() are live views of the map, they are not
+ * copies.
  * <p>Copyright (c) 2005 Technology Exponent</p>
  * @author Abdul Habra
  * @version 1.0
@@ -44,10 +45,9 @@ public class MapOfString extends HashMap {
   private static final long serialVersionUID = 1;
   protected boolean pIsCaseSensetive;
   protected boolean pIsListOrder= false;
-  private boolean pIsRemovingValue= false;
-  private NotifyingSet pEntrySet;
-  private NotifyingSet pKeySet;
-  private NotifyingCollection pValues;
+  private transient Set pEntrySet;
+  private transient Set pKeySet;
+  private transient Collection pValues;
   protected ListOfString pOrderedKeys;
 
   public MapOfString() {
@@ -170,16 +170,44 @@ public class MapOfString extends HashMap {
     return pIsCaseSensetive? aString : aString.toLowerCase();
   }
 
+/** The key to look up the underlying HashMap, a reused probe in case insensitive mode */
+  private Object lookupKey(final String aKey) {
+    return pIsCaseSensetive? (Object) aKey : CaseInsensitiveKey.probe(aKey);
+  }
+
+/** The key to store in the underlying HashMap */
+  private Object storeKey(final String aKey) {
+    return pIsCaseSensetive? (Object) aKey : new CaseInsensitiveKey(aKey);
+  }
+
+/** The original key of a key of the underlying HashMap */
+  private static String orgKey(final Object aStoredKey) {
+    if (aStoredKey instanceof CaseInsensitiveKey) return ((CaseInsensitiveKey) aStoredKey).getKey();
+    return (String) aStoredKey;
+  }
+
+/** The string value of a value of the underlying HashMap */
+  protected String valueAsString(final Object aStoredValue) {
+    if (aStoredValue instanceof MapValue) return ((MapValue) aStoredValue).getValueAsString();
+    return (String) aStoredValue;
+  }
+
+/**
+ * The value to store in the underlying HashMap for the given string value.
+ * @param aStoredValue the value stored before, which a subclass may update in place.
+ */
+  protected Object toMapValue(final Object aStoredValue, final String aValue) {
+    return aValue;
+  }
+
+/** Get the stored value of the given key: a String, or a MapValue put by subclasses */
   protected Object getMapValue(final String aKey) {
-    String k= caseIt(aKey);
-    return super.get(k);
+    return super.get(lookupKey(aKey));
   }
 
 /** Get the value of the given key as a string*/
   public String get(final String aKey) {
-    MapValue v= (MapValue) getMapValue(aKey);
-    if (v==null) return null;
-    return v.getValueAsString();
+    return valueAsString(getMapValue(aKey));
   }
 
 /** Get the value of the given key as an Object that is a String */
@@ -187,16 +215,24 @@ public class MapOfString extends HashMap {
     return get((String) aKey);
   }
 
-  protected Object putMapValue(final String aKey, final MapValue aMapValue) {
-    return super.put(aKey, aMapValue);
-  }
+/**
+ * Store a value under the given original key, replacing an existing value. In case
+ * insensitive mode the key keeps the case it was last put with.
+ * @return the old stored value, null if none.
+ */
+  protected Object putMapValue(final String aKey, final Object aMapValue) {
+    if (pIsCaseSensetive) return super.put(aKey, aMapValue);
+    Object old= super.remove(lookupKey(aKey));
+    super.put(storeKey(aKey), aMapValue);
+    return old;
+  }  // putMapValue
 
-  protected void addToBackers(final String aKey,
-                              final MapValue aMapValue,
-                              final String aStringValue) {
-    if (pEntrySet!=null) pEntrySet.add(aMapValue);
-    if (pKeySet!=null) pKeySet.add(aKey);
-    if (pValues!=null) pValues.add(aStringValue);
+/**
+ * Replace the stored value of an existing key, keeping the key as it was put.
+ * @return the old stored value, null if the key does not exist.
+ */
+  protected Object replaceMapValue(final String aKey, final Object aMapValue) {
+    return super.replace(lookupKey(aKey), aMapValue);
   }
 
 /**
@@ -210,13 +246,7 @@ public class MapOfString extends HashMap {
     if ( pIsListOrder && !containsKey(aKey) ) {
       pOrderedKeys.add(aKey);
     }
-
-    String k= caseIt(aKey);
-    MapValue v= new MapValue(pIsCaseSensetive, aKey, aValue);
-    addToBackers(k, v, aValue);
-    v= (MapValue) putMapValue(k, v);
-    if (v==null) return null;
-    return v.getValueAsString();
+    return valueAsString(putMapValue(aKey, aValue));
   }  // putString
 
 /** Put a key/value into the map */
@@ -255,6 +285,14 @@ public class MapOfString extends HashMap {
     return putItem(aKeyEqualValue, null);
   }
 
+/** Put all the String keys/values of aMap into this map */
+  public void putAll(final Map aMap) {
+    for (Iterator i= aMap.entrySet().iterator(); i.hasNext(); ) {
+      Map.Entry e= (Map.Entry) i.next();
+      put((String) e.getKey(), (String) e.getValue());
+    }
+  }  // putAll
+
 /**
  * Read items from the given list that are formatted as name=value and put them into
  * this map as key/value entries.
@@ -275,8 +313,7 @@ public class MapOfString extends HashMap {
  * @return boolean true if found, false if not.
  */
   public boolean containsKey(String aKey) {
-    String k= caseIt(aKey);
-    return super.containsKey(k);
+    return super.containsKey(lookupKey(aKey));
   }
 
 /**
@@ -294,11 +331,8 @@ public class MapOfString extends HashMap {
  * @return boolean true if found, false if not.
  */
   public boolean containsValue(final String aValue) {
-    Set set= super.entrySet();
-    for (Iterator i= set.iterator(); i.hasNext(); ) {
-      Entry e= (Entry) i.next();
-      MapValue v= (MapValue) e.getValue();
-      if (v.isEqualValue(aValue)) return true;
+    for (Iterator i= super.values().iterator(); i.hasNext(); ) {
+      if (StringUtility.equals(valueAsString(i.next()), aValue, pIsCaseSensetive)) return true;
     }
     return false;
   }
@@ -312,6 +346,42 @@ public class MapOfString extends HashMap {
     return containsValue((String) aValue);
   }
 
+/** Iterates the entries of the underlying HashMap, keeping the ordered keys up to date */
+  private abstract class MapIterator implements Iterator {
+    private final Iterator pIterator= MapOfString.super.entrySet().iterator();
+    private Map.Entry pLast;
+
+    public boolean hasNext() {
+      return pIterator.hasNext();
+    }
+
+    public Object next() {
+      pLast= (Map.Entry) pIterator.next();
+      return next(pLast);
+    }
+
+    abstract Object next(Map.Entry aEntry);
+
+    public void remove() {
+      pIterator.remove();
+      if (pIsListOrder) pOrderedKeys.remove(orgKey(pLast.getKey()));
+    }
+  }  // MapIterator
+
+/** An entry of the map as a MapValue, setValue() writes through to the map */
+  private class EntryView extends MapValue {
+    private final Map.Entry pEntry;
+
+    EntryView(final Map.Entry aEntry) {
+      super(pIsCaseSensetive, orgKey(aEntry.getKey()), valueAsString(aEntry.getValue()));
+      pEntry= aEntry;
+    }
+
+    public Object setValue(final Object aValue) {
+      pEntry.setValue(toMapValue(pEntry.getValue(), (String) aValue));
+      return super.setValue(aValue);
+    }
+  }  // EntryView
 
 /**
  * <i>The following description is copied verbatim from Sun's documentation of the
@@ -328,35 +398,43 @@ public class MapOfString extends HashMap {
  * map was created.
  */
   public Set entrySet() {
-    if (pEntrySet != null) return pEntrySet;
-
-    Set s= super.entrySet();
-    Set r= new HashSet(s.size());
-    for (Iterator i= s.iterator(); i.hasNext();) {
-      Entry e= (Entry) i.next();
-      MapValue v= (MapValue) e.getValue();  // Note that Value implements Map.Entry
-      r.add(v);
-    }
-    pEntrySet= new NotifyingSet( r, new EntrySetAdd(), new EntrySetRemove() );
+    if (pEntrySet == null) pEntrySet= new EntrySet();
     return pEntrySet;
   }  // entrySet
 
-/** Refuse to allow caller to add to the entries set */
-  private static class EntrySetAdd implements ICallback {
-    public Object call(final Object o) {
-      return null;  // cannot add to entry set, per Set specs.
+  private class EntrySet extends AbstractSet {
+    public int size() {
+      return MapOfString.this.size();
+    }
+
+    public Iterator iterator() {
+      return new MapIterator() {
+        Object next(final Map.Entry aEntry) {
+          Object v= aEntry.getValue();
+          if (v instanceof MapValue) return v;
+          return new EntryView(aEntry);
+        }
+      };
     }
-  }
 
-/** If an entry is removed from the entrySet, remove it from this map as well */
-  private class EntrySetRemove implements ICallback {
-    public Object call(final Object aEntry) {
-      MapValue v= (MapValue) aEntry;
-      String k= caseIt(v.orgKey);
-      remove(k, false, true, true);
-      return this;
+    public boolean contains(final Object aEntry) {
+      if (!(aEntry instanceof Map.Entry)) return false;
+      Map.Entry e= (Map.Entry) aEntry;
+      String k= (String) e.getKey();
+      if (!containsKey(k)) return false;
+      return StringUtility.equals(get(k), (String) e.getValue(), pIsCaseSensetive);
+    }
+
+    public boolean remove(final Object aEntry) {
+      if (!contains(aEntry)) return false;
+      MapOfString.this.remove((String) ((Map.Entry) aEntry).getKey());
+      return true;
     }
-  }
+
+    public void clear() {
+      MapOfString.this.clear();
+    }
+  }  // EntrySet
 
 /**
  * <i>The following description is copied verbatim from Sun's documentation of the
@@ -372,51 +450,37 @@ public class MapOfString extends HashMap {
  * map was created.
  */
   public Set keySet() {
-    if (pKeySet != null) return pKeySet;
-
-    Set s= super.entrySet();
-    Set r= new HashSet(s.size());
-    for (Iterator i= s.iterator(); i.hasNext();) {
-      Entry e= (Entry) i.next();
-      MapValue v= (MapValue) e.getValue();  // Note that Value implements Map.Entry
-      r.add(v.orgKey);
-    }
-    pKeySet= new NotifyingSet(r, new KeySetAdd(), new KeySetRemove());
+    if (pKeySet == null) pKeySet= new KeySet();
     return pKeySet;
   }  // keySet
 
-/** Refuse to allow caller to add to the keys set */
-  private static class KeySetAdd implements ICallback {
-    public Object call(final Object o) {
-      return null;  // cannot add to entry set, per Set specs.
+  private class KeySet extends AbstractSet {
+    public int size() {
+      return MapOfString.this.size();
     }
-  }
 
-/** If a key is removed from the keySet, remove it from this map as well */
-  private class KeySetRemove implements ICallback {
-    public Object call(final Object aKey) {
-      remove((String) aKey, true, false, true);
-      return this;
+    public Iterator iterator() {
+      return new MapIterator() {
+        Object next(final Map.Entry aEntry) {
+          return orgKey(aEntry.getKey());
+        }
+      };
     }
-  }
 
-  private String remove(final String aKey,
-                        final boolean aIsRemoveEntry,
-                        final boolean aIsRemoveKey,
-                        final boolean aIsRemoveValue) {
-    if (pIsListOrder) pOrderedKeys.remove(aKey);
+    public boolean contains(final Object aKey) {
+      return containsKey(aKey);
+    }
 
-    String k= caseIt(aKey);
-    MapValue v= (MapValue) super.remove(k);
-    if (aIsRemoveKey && pKeySet!=null) pKeySet.remove(k, false);
-    if (v==null) return null;
+    public boolean remove(final Object aKey) {
+      if (!containsKey(aKey)) return false;
+      MapOfString.this.remove(aKey);
+      return true;
+    }
 
-    if (aIsRemoveEntry && pEntrySet!=null) pEntrySet.remove(v, false);
-    if (!pIsRemovingValue) {
-      if (aIsRemoveValue && pValues!=null) pValues.remove(v.value, false);
+    public void clear() {
+      MapOfString.this.clear();
     }
-    return v.value;
-  }
+  }  // KeySet
 
 /**
  * Remove the entry with the given key.
@@ -424,7 +488,8 @@ public class MapOfString extends HashMap {
  * @return String the value of the removed key if found.
  */
   public String remove(String aKey) {
-    return remove(aKey, true, true, true);
+    if (pIsListOrder) pOrderedKeys.remove(aKey);
+    return valueAsString(super.remove(lookupKey(aKey)));
   }
 
 /**
@@ -436,61 +501,78 @@ public class MapOfString extends HashMap {
     return remove((String) aKey);
   }
 
-  private void nullBackers() {
-    pEntrySet=null;
-    pKeySet= null;
-    pValues= null;
-  }
-
 /** Clear the contents of this map */
   public void clear() {
     super.clear();
-    if (pEntrySet != null)     pEntrySet.clear();
-    if (pKeySet != null)       pKeySet.clear();
-    if (pValues != null)       pValues.clear();
-    nullBackers();
+    if (pIsListOrder) pOrderedKeys.clear();
   }  // clear
 
 /** A collection of the values that exist in this map */
   public Collection values() {
-    if (pValues!=null) return pValues;
-
-    Collection c= super.values();
-    List r= new ArrayList(c.size());
-    for (Iterator i= c.iterator(); i.hasNext(); ) {
-      MapValue v= (MapValue) i.next();
-      r.add( v.getValue() );
-    }
-    pValues= new NotifyingCollection(r, new ValuesAdd(), new ValuesRemove() );
+    if (pValues == null) pValues= new Values();
     return pValues;
   }  // values
 
-/** Refuse to allow caller to add to the values collection */
-  private static class ValuesAdd implements ICallback {
-    public Object call(final Object o) {
-      return null;  // cannot add to entry set, per Set specs.
+  private class Values extends AbstractCollection {
+    public int size() {
+      return MapOfString.this.size();
+    }
+
+    public Iterator iterator() {
+      return new MapIterator() {
+        Object next(final Map.Entry aEntry) {
+          return valueAsString(aEntry.getValue());
+        }
+      };
+    }
+
+    public boolean contains(final Object aValue) {
+      return containsValue(aValue);
     }
-  }
 
 /**
  * If a value is removed from the values collection, remove it from this map as well.
  * This will remove all entries with this value
  */
-  private class ValuesRemove implements ICallback {
-    public Object call(final Object aValueToRemove) {
-      Set set= entrySet();
-      String vs= (String) aValueToRemove;
-      for (Iterator i= set.iterator(); i.hasNext(); ) {
-        MapValue v= (MapValue) i.next();
-        if (v.isEqualValue(vs)) {
-          pIsRemovingValue= true;
+    public boolean remove(final Object aValue) {
+      boolean r= false;
+      for (Iterator i= iterator(); i.hasNext(); ) {
+        if (StringUtility.equals((String) i.next(), (String) aValue, pIsCaseSensetive)) {
           i.remove();
-          pIsRemovingValue= false;
+          r= true;
         }
       }
-      return this;
+      return r;
     }
-  }  // class ValuesRemove
+
+    public void clear() {
+      MapOfString.this.clear();
+    }
+  }  // Values
+
+/** Copy this map, the copy has its own views and ordered keys */
+  public Object clone() {
+    MapOfString r= (MapOfString) super.clone();
+    r.pEntrySet= null;
+    r.pKeySet= null;
+    r.pValues= null;
+    if (pOrderedKeys != null) r.pOrderedKeys= pOrderedKeys.copy();
+    // HashMap.clone() copies through entrySet(), which returns the original keys
+    r.clearEntries();
+    for (Iterator i= super.entrySet().iterator(); i.hasNext(); ) {
+      Map.Entry e= (Map.Entry) i.next();
+      r.putEntry(e.getKey(), e.getValue());
+    }
+    return r;
+  }  // clone
+
+  private void clearEntries() {
+    super.clear();
+  }
+
+  private void putEntry(final Object aStoredKey, final Object aStoredValue) {
+    super.put(aStoredKey, aStoredValue);
+  }
 
   public ListOfString toListOfString() {
     ListOfString r= new ListOfString();
@@ -503,10 +585,9 @@ public class MapOfString extends HashMap {
       return r;
     }
 
-    Set es= entrySet();
-    for (Iterator i= es.iterator(); i.hasNext();) {
-      MapValue mv= (MapValue) i.next();
-      r.add(mv.orgKey, mv.value );
+    for (Iterator i= super.entrySet().iterator(); i.hasNext();) {
+      Map.Entry e= (Map.Entry) i.next();
+      r.add(orgKey(e.getKey()), valueAsString(e.getValue()));
     }
     return r;
   }  // toListOfString()
@@ -28,6 +28,11 @@ import com.tek271.util.string.StringUtility;
 
 /**
  * A map of string which can have multiple values for the same key.
+ * <p>Call setCompact(true) on an empty map to store the values compactly: a single value
+ * is stored as a String, and multiple values as a String array that is replaced when
+ * values are appended, instead of a ListOfString per key. The API is the same in both
+ * modes: getAsList() and put() return the map's own list of the key, so in compact mode
+ * such a key keeps its values in that ListOfString from then on.
  * <p>Copyright (c) 2005 Technology Exponent</p>
  * @author Abdul Habra
  * @version 1.0
@@ -36,6 +41,12 @@ public class MapOfStringMV extends MapOfString {
 /** The string used to separate values for multivalue strings, the defualt is comma */
   public String valueSeparator= StringUtility.COMMA;
 
+  private static final String[] pNO_VALUES= new String[0];
+  private static final String pERR_NOT_EMPTY=
+      "MapOfStringMV must be empty when you call setCompact().";
+
+  private boolean pIsCompact;
+
   public MapOfStringMV() {
     super();
   }
@@ -99,6 +110,167 @@ public class MapOfStringMV extends MapOfString {
   }
 
 
+/**
+ * Store values compactly, see the class description. This method must be called when
+ * the map is empty.
+ * @throws IllegalStateException if this map has a size > 0 when this method is called.
+ */
+  public void setCompact(final boolean aIsCompact) {
+    if (size() > 0) throw new IllegalStateException(pERR_NOT_EMPTY);
+    pIsCompact= aIsCompact;
+  }
+
+/** Check if values are stored compactly */
+  public boolean isCompact() {
+    return pIsCompact;
+  }
+
+/** Split a list of values separated by valueSeparator, the same way ListOfString does */
+  private String[] split(final String aValueList) {
+    if (aValueList==null || aValueList.length()==0) return pNO_VALUES;
+    int n= valueSeparator.length();
+    if (n==0) return new String[] {aValueList};
+    int count= 0;
+    for (int i= 0; i < aValueList.length(); count++) {
+      int e= aValueList.indexOf(valueSeparator, i);
+      if (e<0) { count++; break; }
+      i= e + n;
+    }
+    String[] r= new String[count];
+    int k= 0;
+    for (int i= 0; k < count; k++) {
+      int e= aValueList.indexOf(valueSeparator, i);
+      if (e<0) e= aValueList.length();
+      r[k]= aValueList.substring(i, e);
+      i= e + n;
+    }
+    return r;
+  }  // split
+
+/** The values of a compact stored value */
+  private static String[] valuesOf(final Object aStoredValue) {
+    if (aStoredValue instanceof String) return new String[] {(String) aStoredValue};
+    if (aStoredValue instanceof ListOfString) return ((ListOfString) aStoredValue).getArray();
+    return (String[]) aStoredValue;
+  }
+
+/** The compact stored value of the given values */
+  private static Object compact(final String[] aValues) {
+    if (aValues.length==1) return aValues[0];
+    if (aValues.length==0) return pNO_VALUES;
+    return aValues;
+  }
+
+  private static String[] concat(final String[] aValues1, final String[] aValues2) {
+    if (aValues2.length==0) return aValues1;
+    if (aValues1.length==0) return aValues2;
+    String[] r= new String[aValues1.length + aValues2.length];
+    System.arraycopy(aValues1, 0, r, 0, aValues1.length);
+    System.arraycopy(aValues2, 0, r, aValues1.length, aValues2.length);
+    return r;
+  }  // concat
+
+  private String join(final Object aStoredValue) {
+    if (aStoredValue instanceof String) return (String) aStoredValue;
+    String[] values= valuesOf(aStoredValue);
+    if (values.length==0) return StringUtility.EMPTY;
+    StringBuilder b= new StringBuilder(values.length * 8);
+    for (int i=0; i<values.length; i++) {
+      if (i>0) b.append(valueSeparator);
+      b.append(values[i]);
+    }
+    return b.toString();
+  }  // join
+
+  private ListOfString toList(final String[] aValues) {
+    ListOfString r= new ListOfString(aValues.length);
+    r.isCaseSensitive= pIsCaseSensetive;
+    r.lineSeparator= valueSeparator;
+    for (int i=0; i<aValues.length; i++) r.add(aValues[i]);
+    return r;
+  }  // toList
+
+/**
+ * The map's own list of an existing key in compact mode. A String or String[] value is
+ * replaced by a list, so that changes to the returned list are changes to the map.
+ */
+  private ListOfString expand(final String aKey, final Object aStoredValue) {
+    if (aStoredValue instanceof ListOfString) return (ListOfString) aStoredValue;
+    ListOfString r= toList(valuesOf(aStoredValue));
+    replaceMapValue(aKey, r);
+    return r;
+  }  // expand
+
+  protected String valueAsString(final Object aStoredValue) {
+    if (aStoredValue==null || aStoredValue instanceof MapValue) {
+      return super.valueAsString(aStoredValue);
+    }
+    return join(aStoredValue);
+  }
+
+/** Only compact values are set through entrySet(), MapValueMV entries set themselves */
+  protected Object toMapValue(final Object aStoredValue, final String aValue) {
+    if (!(aStoredValue instanceof ListOfString)) return compact(split(aValue));
+    ListOfString list= (ListOfString) aStoredValue;
+    list.clear();
+    list.addAll(Arrays.asList(split(aValue)));
+    return list;
+  }  // toMapValue
+
+/**
+ * Put the given values of a key into this map, without intermediate lists in compact
+ * mode.
+ * @param aKey String
+ * @param aValues String[] Multiple values
+ * @param aIsAppend boolean Should append values if key alread exist, or replace.
+ * @return String[] The values of the key after the put if it already existed, otherwise
+ * null.
+ */
+  public String[] putAll(final String aKey, final String[] aValues, final boolean aIsAppend) {
+    if (!pIsCompact) {
+      ListOfString r= put(aKey, new ListOfString(aValues), aIsAppend);
+      return r==null ? null : r.getArray();
+    }
+    Object old= getMapValue(aKey);
+    if (old==null) {
+      if (pIsListOrder) pOrderedKeys.add(aKey);
+      putMapValue(aKey, compact((String[]) aValues.clone()));
+      return null;
+    }
+    if (old instanceof ListOfString) {
+      ListOfString list= (ListOfString) old;
+      if (!aIsAppend) list.clear();
+      list.addAll(Arrays.asList(aValues));
+      return list.getArray();
+    }
+    String[] values= aIsAppend ? concat(valuesOf(old), aValues) : (String[]) aValues.clone();
+    replaceMapValue(aKey, compact(values));
+    return (String[]) values.clone();
+  }  // putAll
+
+/** Append a single value to the values of the given key */
+  public void addValue(final String aKey, final String aValue) {
+    putAll(aKey, new String[] {aValue}, true);
+  }
+
+/** Get the values of the given key, null if not found */
+  public String[] getValues(final String aKey) {
+    Object v= getMapValue(aKey);
+    if (v==null) return null;
+    if (v instanceof MapValueMV) return ((MapValueMV) v).getValueList().getArray();
+    return (String[]) valuesOf(v).clone();
+  }  // getValues
+
+/** Get the number of values of the given key, 0 if not found */
+  public int getValueCount(final String aKey) {
+    Object v= getMapValue(aKey);
+    if (v==null) return 0;
+    if (v instanceof MapValueMV) return ((MapValueMV) v).getValueList().size();
+    if (v instanceof String) return 1;
+    if (v instanceof ListOfString) return ((ListOfString) v).size();
+    return ((String[]) v).length;
+  }  // getValueCount
+
 /**
  * Put the given name/valueList pair into this map.
  * @param aKey String
@@ -109,14 +281,26 @@ public class MapOfStringMV extends MapOfString {
   public ListOfString put(final String aKey,
                           final ListOfString aValueList,
                           final boolean aIsAppend) {
+    if (pIsCompact) {
+      Object old= getMapValue(aKey);
+      if (old==null) {
+        putAll(aKey, aValueList.getArray(), aIsAppend);
+        return null;
+      }
+      if (!aIsAppend) {
+        replaceMapValue(aKey, aValueList);
+        return aValueList;
+      }
+      ListOfString r= expand(aKey, old);
+      r.addAll(aValueList);
+      return r;
+    }
     boolean isNewKey= !containsKey(aKey);
     if ( pIsListOrder && isNewKey ) pOrderedKeys.add(aKey);
 
     if (isNewKey) {
-      String k=caseIt(aKey);
       MapValueMV v=new MapValueMV(pIsCaseSensetive, aKey, aValueList, valueSeparator);
-      addToBackers(k, v, aValueList.toString());
-      putMapValue(k, v);
+      putMapValue(aKey, v);
       return null;
     }
 
@@ -148,6 +332,10 @@ public class MapOfStringMV extends MapOfString {
   public String put(final String aKey,
                     final String aValueList,
                     final boolean aIsAppend) {
+    if (pIsCompact) {
+      String[] r= putAll(aKey, split(aValueList), aIsAppend);
+      return r==null ? null : join(compact(r));
+    }
     ListOfString list= new ListOfString(aValueList, valueSeparator);
     ListOfString r= put(aKey, list, aIsAppend);
     if (r==null) return null;
@@ -201,9 +389,10 @@ public class MapOfStringMV extends MapOfString {
 
 /** Get the value for the given key as a ListOfString, null if not found */
   public ListOfString getAsList(final String aKey) {
-    MapValueMV v= (MapValueMV) getMapValue(aKey);
+    Object v= getMapValue(aKey);
     if (v==null) return null;
-    return v.getValueList();
+    if (v instanceof MapValueMV) return ((MapValueMV) v).getValueList();
+    return expand(aKey, v);
   }  // getAsList()
 
   /** for testing */
@@ -222,6 +411,30 @@ public class MapOfStringMV extends MapOfString {
       ListOfString b= ms.getAsList("bush");
       System.out.println(b.size() + " " + b.toString());
       System.out.println("Map:    " + ms.toString());
+
+      for (int round=0; round<2; round++) {
+        System.out.println("MapOfStringMV:         " + heapOfMillionKeys(false) / 1024 + "KB");
+        System.out.println("MapOfStringMV compact: " + heapOfMillionKeys(true) / 1024 + "KB");
+      }
+    }
+
+  /** For testing: heap used by 1M keys, every 5th key has 3 values, the others one */
+  private static long heapOfMillionKeys(final boolean aIsCompact) {
+    long before= usedHeap();
+    MapOfStringMV m= new MapOfStringMV(false);
+    m.setCompact(aIsCompact);
+    for (int i=0; i<1000000; i++) {
+      m.put("Header-" + i, i % 5 == 0 ? "a" + i + ",b,c" : "v" + i);
     }
+    long r= usedHeap() - before;
+    if (m.getValueCount("header-5") != 3) throw new IllegalStateException();
+    return r;
+  }
+
+  private static long usedHeap() {
+    Runtime rt= Runtime.getRuntime();
+    for (int i=0; i<3; i++) System.gc();
+    return rt.totalMemory() - rt.freeMemory();
+  }
 
 }  // MapOfStringMV
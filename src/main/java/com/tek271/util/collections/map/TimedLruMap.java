@@ -22,6 +22,7 @@ You can contact the author at ahabra@yahoo.com
 */
 package com.tek271.util.collections.map;
 
+import java.io.*;
 import java.util.*;
 
 /**
@@ -42,8 +43,24 @@ public class TimedLruMap extends LinkedHashMap {
 
   private long pTimeToLive;
   private int pMaxSize;
-  private OrderedMapOfTimestamp pTimeStamps= new OrderedMapOfTimestamp();
+  private TimestampRing pTimeStamps= new TimestampRing();
+  private transient TimestampRing.ITimestampVisitor pRemover= createRemover();
 
+  /** Removes the expired keys visited in pTimeStamps from the map */
+  private TimestampRing.ITimestampVisitor createRemover() {
+    return new TimestampRing.ITimestampVisitor() {
+      public boolean visit(final Object aKey, final long aTimestamp) {
+        TimedLruMap.super.remove(aKey);
+        return true;
+      }
+    };
+  }
+
+  private void readObject(final ObjectInputStream aIn)
+         throws IOException, ClassNotFoundException {
+    aIn.defaultReadObject();
+    pRemover= createRemover();
+  }
 
   /**
    * Create a TimedLruMap with a default initial capacity of 16 and load factor of 0.75.
@@ -103,7 +120,9 @@ public class TimedLruMap extends LinkedHashMap {
 /** Returns true if this map should remove its eldest entry. */
   protected boolean removeEldestEntry(final Map.Entry eldest) {
     removeExpired();
-    return size() > pMaxSize;
+    if (size() <= pMaxSize) return false;
+    pTimeStamps.remove(eldest.getKey());
+    return true;
   }
 
   public long getTimeToLive() {
@@ -115,25 +134,17 @@ public class TimedLruMap extends LinkedHashMap {
   }
 
   private void touchTimeStamp(final Object key) {
-    pTimeStamps.put(key);
-  }
-
-  private boolean isExpired(final long now, final long timeStamp) {
-    return (now-timeStamp) > pTimeToLive;
+    // the clock may move backward, keep the time stamps ordered
+    long now= Math.max(System.currentTimeMillis(), pTimeStamps.getLastTimestamp());
+    pTimeStamps.put(key, now);
   }
 
 /** Remove expired entries from the map */
   public int removeExpired() {
-    int removedCount=0;
+    if (pTimeStamps.isEmpty()) return 0;
     long now= System.currentTimeMillis();
-    while (! pTimeStamps.isEmpty()) {
-      if (! isExpired(now, pTimeStamps.getFirstValue()) ) break;
-      Object key= pTimeStamps.firstKey();
-      pTimeStamps.removeFirst();
-      super.remove(key);
-      removedCount++;
-    }
-    return removedCount;
+    // entries older than now-pTimeToLive are expired
+    return pTimeStamps.removeBefore(now - pTimeToLive, false, pRemover);
   }
 
   public Object put(final Object key, final Object value) {
@@ -144,7 +155,7 @@ public class TimedLruMap extends LinkedHashMap {
 
   public Object get(final Object key) {
     removeExpired();
-    touchTimeStamp(key);
+    if (super.containsKey(key)) touchTimeStamp(key);
     return super.get(key);
   }
 
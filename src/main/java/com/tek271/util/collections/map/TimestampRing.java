@@ -0,0 +1,448 @@
+/*
+Technology Exponent Common Utilities For Java (TECUJ)
+Copyright (C) 2003,2008  Abdul Habra.
+www.tek271.com
+
+This file is part of TECUJ.
+
+TECUJ is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published
+by the Free Software Foundation; version 2.
+
+TECUJ is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with TECUJ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+You can contact the author at ahabra@yahoo.com
+*/
+package com.tek271.util.collections.map;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * A time ordered set of keys, each with a <code>long</code> time stamp, for expiring
+ * entries by age. The time stamps and keys are kept in parallel <code>long[]</code> and
+ * <code>Object[]</code> ring arrays ordered by time, and a hash map from each key to its
+ * position. Time stamps must be added in non decreasing order.
+ * <p>Putting a key again moves it to the end: its old position is left empty and the
+ * key is appended, with no shifting. Empty positions are reclaimed when they are more than
+ * half the ring. Queries by time use binary search on the time stamps; removeBefore() and
+ * removeAfter() find the cut with binary search and move the end of the ring in one step,
+ * then remove the cut keys from the hash map. visit() iterates a time window without
+ * boxing.
+ * <p>This replaces <code>OrderedMapOfTimestamp</code> for large sets, which keeps boxed
+ * Long values in a linked map and removes entries one at a time.
+ * <p>Keys can be null. The ring is serializable if its keys are.
+ * <p>Note that this implementation is not synchronized.
+ * <p>Copyright (c) 2008 Technology Exponent</p>
+ * @author Abdul Habra
+ * @version 1.0
+ */
+public class TimestampRing implements Serializable {
+  private static final long serialVersionUID = 1;
+
+  /** Returned for the time stamp of a missing key */
+  public static final long NO_TIMESTAMP= Long.MIN_VALUE;
+
+  private static final String pERR_SMALL_VALUE=
+                       "time stamp cannot be less than the last time stamp in the ring";
+
+  /** Receives the entries of a time window */
+  public interface ITimestampVisitor {
+/** @return true to continue, false to stop */
+    boolean visit(Object aKey, long aTimestamp);
+  }
+
+  /** Position of a key in the ring, updated in place to avoid boxing */
+  private static final class Position implements Serializable {
+    private static final long serialVersionUID = 1;
+
+    long seq;  // sequence # of the key's slot, see pHeadSeq
+  }
+
+  /** Stands for the null key in pKeys and pPositions, where null marks an empty slot */
+  private static final class NullKey implements Serializable {
+    private static final long serialVersionUID = 1;
+
+    private Object readResolve() {
+      return pNULL_KEY;
+    }
+  }
+
+  private static final NullKey pNULL_KEY= new NullKey();
+
+  private long[] pTimes;
+  private Object[] pKeys;       // null in empty positions, pNULL_KEY for the null key
+  private int pMask;
+  private int pHead;            // physical index of the first slot
+  private long pHeadSeq;        // sequence # of the first slot
+  private int pCount;           // # of slots from head to tail, including empty ones
+  private final Map pPositions; // key -> Position
+
+/** Create an empty ring for 16 keys */
+  public TimestampRing() {
+    this(16);
+  }
+
+/** Create an empty ring for aExpectedSize keys */
+  public TimestampRing(final int aExpectedSize) {
+    if (aExpectedSize<0) throw new IllegalArgumentException("aExpectedSize < 0");
+    int capacity= Integer.highestOneBit(Math.max(aExpectedSize, 8) * 2 - 1);
+    pTimes= new long[capacity];
+    pKeys= new Object[capacity];
+    pMask= capacity - 1;
+    pPositions= new HashMap(Math.max(16, (int) (aExpectedSize / 0.75f) + 1));
+  }
+
+/** # of keys */
+  public int size() {
+    return pPositions.size();
+  }
+
+  public boolean isEmpty() {
+    return pPositions.isEmpty();
+  }
+
+  public boolean containsKey(final Object aKey) {
+    return pPositions.containsKey(mask(aKey));
+  }
+
+  private static Object mask(final Object aKey) {
+    return aKey==null ? pNULL_KEY : aKey;
+  }
+
+  private static Object unmask(final Object aKey) {
+    return aKey==pNULL_KEY ? null : aKey;
+  }
+
+/** Remove all keys */
+  public void clear() {
+    Arrays.fill(pKeys, null);
+    pPositions.clear();
+    pHead= 0;
+    pHeadSeq= 0;
+    pCount= 0;
+  }
+
+  private int slot(final int aIndex) {
+    return (pHead + aIndex) & pMask;
+  }
+
+  private int indexOf(final Position aPosition) {
+    return (int) (aPosition.seq - pHeadSeq);
+  }
+
+/**
+ * Add a key with the given time stamp, or move an existing key to the end with the new
+ * time stamp.
+ * @param aTimestamp cannot be less than the last time stamp in the ring.
+ * @return the previous time stamp of the key, NO_TIMESTAMP if it is new.
+ */
+  public long put(final Object aKey, final long aTimestamp) {
+    if (pCount > 0 && aTimestamp < pTimes[slot(pCount-1)]) {
+      throw new IllegalArgumentException(pERR_SMALL_VALUE);
+    }
+    Object key= mask(aKey);
+    Position p= (Position) pPositions.get(key);
+    long old= NO_TIMESTAMP;
+    if (p != null) {
+      int i= indexOf(p);
+      if (i == pCount-1) {  // already last
+        old= pTimes[slot(i)];
+        pTimes[slot(i)]= aTimestamp;
+        return old;
+      }
+      old= pTimes[slot(i)];
+      pKeys[slot(i)]= null;
+      if (i==0) trimHead();
+    } else {
+      p= new Position();
+      pPositions.put(key, p);
+    }
+    if (pCount == pTimes.length) reallocate();
+    int s= slot(pCount);
+    pTimes[s]= aTimestamp;
+    pKeys[s]= key;
+    p.seq= pHeadSeq + pCount;
+    pCount++;
+    return old;
+  }  // put
+
+/** Add or move a key with System.currentTimeMillis() as its time stamp */
+  public long put(final Object aKey) {
+    return put(aKey, System.currentTimeMillis());
+  }
+
+/** Get the time stamp of a key, NO_TIMESTAMP if missing */
+  public long getTimestamp(final Object aKey) {
+    Position p= (Position) pPositions.get(mask(aKey));
+    if (p==null) return NO_TIMESTAMP;
+    return pTimes[slot(indexOf(p))];
+  }
+
+/**
+ * Remove a key.
+ * @return its time stamp, NO_TIMESTAMP if missing.
+ */
+  public long remove(final Object aKey) {
+    Position p= (Position) pPositions.remove(mask(aKey));
+    if (p==null) return NO_TIMESTAMP;
+    int i= indexOf(p);
+    int s= slot(i);
+    pKeys[s]= null;
+    if (i==0) trimHead();
+    else if (i==pCount-1) trimTail();
+    return pTimes[s];
+  }  // remove
+
+  /** Drop empty slots at the start */
+  private void trimHead() {
+    while (pCount > 0 && pKeys[pHead]==null) {
+      pHead= (pHead + 1) & pMask;
+      pHeadSeq++;
+      pCount--;
+    }
+  }
+
+  /** Drop empty slots at the end */
+  private void trimTail() {
+    while (pCount > 0 && pKeys[slot(pCount-1)]==null) pCount--;
+  }
+
+  /** Called when the ring is full: squeeze out empty slots, or double the arrays */
+  private void reallocate() {
+    int live= pPositions.size();
+    int capacity= live > pCount / 2 ? pTimes.length * 2 : pTimes.length;
+    long[] times= new long[capacity];
+    Object[] keys= new Object[capacity];
+    int n= 0;
+    for (int i=0; i<pCount; i++) {
+      int s= slot(i);
+      Object key= pKeys[s];
+      if (key==null) continue;
+      times[n]= pTimes[s];
+      keys[n]= key;
+      ((Position) pPositions.get(key)).seq= n;
+      n++;
+    }
+    pTimes= times;
+    pKeys= keys;
+    pMask= capacity - 1;
+    pHead= 0;
+    pHeadSeq= 0;
+    pCount= n;
+  }  // reallocate
+
+/** Get the first (oldest) time stamp, zero if the ring is empty */
+  public long getFirstTimestamp() {
+    return pCount==0 ? 0 : pTimes[pHead];
+  }
+
+/** Get the last (newest) time stamp, zero if the ring is empty */
+  public long getLastTimestamp() {
+    return pCount==0 ? 0 : pTimes[slot(pCount-1)];
+  }
+
+/** Get the key with the oldest time stamp, null if the ring is empty */
+  public Object firstKey() {
+    return pCount==0 ? null : unmask(pKeys[pHead]);
+  }
+
+/** Get the key with the newest time stamp, null if the ring is empty */
+  public Object lastKey() {
+    return pCount==0 ? null : unmask(pKeys[slot(pCount-1)]);
+  }
+
+/**
+ * Remove the oldest key
+ * @return its time stamp, zero if the ring is empty.
+ */
+  public long removeFirst() {
+    if (pCount==0) return 0;
+    long r= pTimes[pHead];
+    remove(pKeys[pHead]);
+    return r;
+  }
+
+/**
+ * Remove the newest key
+ * @return its time stamp, zero if the ring is empty.
+ */
+  public long removeLast() {
+    if (pCount==0) return 0;
+    int s= slot(pCount-1);
+    long r= pTimes[s];
+    remove(pKeys[s]);
+    return r;
+  }
+
+  /** Index of the first slot whose time stamp is > aTimestamp, or >= if aIsIncluding */
+  private int search(final long aTimestamp, final boolean aIsIncluding) {
+    int lo= 0;
+    int hi= pCount;
+    while (lo < hi) {
+      int mid= (lo + hi) >>> 1;
+      long t= pTimes[slot(mid)];
+      if (t < aTimestamp || (!aIsIncluding && t == aTimestamp)) lo= mid + 1;
+      else hi= mid;
+    }
+    return lo;
+  }  // search
+
+/**
+ * Remove all keys whose time stamp is before the given time stamp.
+ * @param aIncluding when true, keys with a time stamp equal to aTimestamp are removed too.
+ * @param aRemoved if not null, called for each removed key, oldest first.
+ * @return # of removed keys.
+ */
+  public int removeBefore(final long aTimestamp, final boolean aIncluding,
+                          final ITimestampVisitor aRemoved) {
+    int cut= search(aTimestamp, !aIncluding);
+    int removed= 0;
+    for (int i=0; i<cut; i++) {
+      int s= slot(i);
+      Object key= pKeys[s];
+      if (key==null) continue;
+      pPositions.remove(key);
+      pKeys[s]= null;
+      removed++;
+      if (aRemoved != null) aRemoved.visit(unmask(key), pTimes[s]);
+    }
+    pHead= slot(cut);
+    pHeadSeq += cut;
+    pCount -= cut;
+    trimHead();
+    return removed;
+  }  // removeBefore
+
+/** Same as removeBefore(aTimestamp, aIncluding, null) */
+  public int removeBefore(final long aTimestamp, final boolean aIncluding) {
+    return removeBefore(aTimestamp, aIncluding, null);
+  }
+
+/**
+ * Remove all keys whose time stamp is after the given time stamp.
+ * @param aIncluding when true, keys with a time stamp equal to aTimestamp are removed too.
+ * @return # of removed keys.
+ */
+  public int removeAfter(final long aTimestamp, final boolean aIncluding) {
+    int cut= search(aTimestamp, aIncluding);
+    int removed= 0;
+    for (int i=cut; i<pCount; i++) {
+      int s= slot(i);
+      Object key= pKeys[s];
+      if (key==null) continue;
+      pPositions.remove(key);
+      pKeys[s]= null;
+      removed++;
+    }
+    pCount= cut;
+    trimTail();
+    return removed;
+  }  // removeAfter
+
+/**
+ * Visit the keys whose time stamps are in [aFrom, aTo], oldest first.
+ * @return false if the visitor stopped.
+ */
+  public boolean visit(final long aFrom, final long aTo, final ITimestampVisitor aVisitor) {
+    for (int i=search(aFrom, true); i<pCount; i++) {
+      int s= slot(i);
+      long t= pTimes[s];
+      if (t > aTo) break;
+      Object key= pKeys[s];
+      if (key != null && !aVisitor.visit(unmask(key), t)) return false;
+    }
+    return true;
+  }  // visit
+
+/** # of keys whose time stamps are in [aFrom, aTo] */
+  public int count(final long aFrom, final long aTo) {
+    int r= 0;
+    for (int i=search(aFrom, true); i<pCount; i++) {
+      int s= slot(i);
+      if (pTimes[s] > aTo) break;
+      if (pKeys[s] != null) r++;
+    }
+    return r;
+  }  // count
+
+/** Get the keys from oldest to newest */
+  public List keys() {
+    List r= new ArrayList(size());
+    for (int i=0; i<pCount; i++) {
+      Object key= pKeys[slot(i)];
+      if (key != null) r.add(unmask(key));
+    }
+    return r;
+  }  // keys
+
+  public String toString() {
+    StringBuilder buf= new StringBuilder(size() * 16 + 2);
+    buf.append('{');
+    for (int i=0; i<pCount; i++) {
+      int s= slot(i);
+      if (pKeys[s]==null) continue;
+      if (buf.length() > 1) buf.append(", ");
+      buf.append(unmask(pKeys[s])).append('=').append(pTimes[s]);
+    }
+    return buf.append('}').toString();
+  }  // toString
+
+  /** For testing */
+  public static void main(String[] args) {
+    int n= args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    Integer[] keys= new Integer[n];
+    for (int i=0; i<n; i++) keys[i]= Integer.valueOf(i);
+    final long[] sum= new long[1];
+    ITimestampVisitor adder= new ITimestampVisitor() {
+      public boolean visit(final Object aKey, final long aTimestamp) {
+        sum[0] += aTimestamp;
+        return true;
+      }
+    };
+
+    for (int round=0; round<3; round++) {
+      long t= System.currentTimeMillis();
+      OrderedMapOfTimestamp map= new OrderedMapOfTimestamp(n);
+      for (int i=0; i<n; i++) map.putLong(keys[i], i);
+      for (int i=0; i<n; i+=10) map.putLong(keys[i], n + i);   // touch 10%
+      long tPut= System.currentTimeMillis() - t;
+      t= System.currentTimeMillis();
+      long total= 0;
+      for (Iterator it= map.values().iterator(); it.hasNext();) {
+        long v= ((Long) it.next()).longValue();
+        if (v >= n/4 && v <= n/2) total += v;
+      }
+      long tWindow= System.currentTimeMillis() - t;
+      t= System.currentTimeMillis();
+      for (int k=1; k<=10; k++) map.removeBefore(k * (long) n / 10, false);
+      long tRemove= System.currentTimeMillis() - t;
+      System.out.println("OrderedMapOfTimestamp: put " + tPut + "ms, window " + tWindow +
+                         "ms, removeBefore " + tRemove + "ms, left " + map.size() + ", sum " + total);
+      map= null;
+
+      t= System.currentTimeMillis();
+      TimestampRing ring= new TimestampRing(n);
+      for (int i=0; i<n; i++) ring.put(keys[i], i);
+      for (int i=0; i<n; i+=10) ring.put(keys[i], n + i);
+      tPut= System.currentTimeMillis() - t;
+      t= System.currentTimeMillis();
+      sum[0]= 0;
+      ring.visit(n/4, n/2, adder);
+      tWindow= System.currentTimeMillis() - t;
+      t= System.currentTimeMillis();
+      for (int k=1; k<=10; k++) ring.removeBefore(k * (long) n / 10, false);
+      tRemove= System.currentTimeMillis() - t;
+      System.out.println("TimestampRing:         put " + tPut + "ms, window " + tWindow +
+                         "ms, removeBefore " + tRemove + "ms, left " + ring.size() + ", sum " + sum[0]);
+    }
+  }  // main
+
+}  // TimestampRing
@@ -0,0 +1,268 @@
+/*
+Technology Exponent Common Utilities For Java (TECUJ)
+Copyright (C) 2003,2008  Abdul Habra.
+www.tek271.com
+
+This file is part of TECUJ.
+
+TECUJ is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published
+by the Free Software Foundation; version 2.
+
+TECUJ is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with TECUJ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+You can contact the author at ahabra@yahoo.com
+*/
+package com.tek271.util.collections.set;
+
+import java.util.*;
+import com.tek271.util.collections.iterator.ILongIterator;
+import com.tek271.util.collections.map.HashUtil;
+
+/**
+ * A hash set of primitive long values, without boxing. Uses open addressing with
+ * linear probing and backward shift deletion, like
+ * <code>com.tek271.util.collections.map.LongLongMap</code>. The value 0 is stored
+ * outside the array because 0 marks a free slot.
+ * <p>Note that this implementation is not synchronized.
+ * <p>Copyright (c) 2008 Technology Exponent</p>
+ * @author Abdul Habra
+ * @version 1.0
+ */
+public class LongSet {
+  private static final long pFREE= 0;
+  private static final float pDEFAULT_LOAD_FACTOR= 0.6f;
+
+  private final float pLoadFactor;
+  private long[] pKeys;
+  private int pMask;
+  private int pThreshold;
+  private int pSize= 0;  // not counting zero
+  private boolean pHasZero= false;
+
+/** Create an empty set for 16 values */
+  public LongSet() {
+    this(16);
+  }
+
+/** Create an empty set that can hold aExpectedSize values without rehashing */
+  public LongSet(final int aExpectedSize) {
+    this(aExpectedSize, pDEFAULT_LOAD_FACTOR);
+  }
+
+/**
+ * Create an empty set.
+ * @param aExpectedSize int number of values the set can hold without rehashing.
+ * @param aLoadFactor float between 0 and 1, exclusive, how full the array can get.
+ */
+  public LongSet(final int aExpectedSize, final float aLoadFactor) {
+    if (aExpectedSize<0) throw new IllegalArgumentException("aExpectedSize < 0");
+    if (aLoadFactor<=0 || aLoadFactor>=1) {
+      throw new IllegalArgumentException("aLoadFactor must be between 0 and 1");
+    }
+    pLoadFactor= aLoadFactor;
+    allocate(HashUtil.arraySize(aExpectedSize, aLoadFactor));
+  }
+
+/** Create a set of the given values */
+  public LongSet(final long[] aValues) {
+    this(aValues.length);
+    for (int i=0; i<aValues.length; i++) add(aValues[i]);
+  }
+
+  private void allocate(final int aCapacity) {
+    pKeys= new long[aCapacity];
+    pMask= aCapacity - 1;
+    pThreshold= Math.min(aCapacity - 1, (int) Math.ceil(aCapacity * pLoadFactor));
+  }
+
+  public int size() {
+    return pHasZero ? pSize + 1 : pSize;
+  }
+
+  public boolean isEmpty() {
+    return size()==0;
+  }
+
+  public void clear() {
+    Arrays.fill(pKeys, pFREE);
+    pSize= 0;
+    pHasZero= false;
+  }
+
+  private int slot(final long aValue) {
+    int i= HashUtil.mix(aValue) & pMask;
+    long k;
+    while ((k= pKeys[i]) != pFREE) {
+      if (k==aValue) return i;
+      i= (i + 1) & pMask;
+    }
+    return i;
+  }
+
+  public boolean contains(final long aValue) {
+    if (aValue==pFREE) return pHasZero;
+    return pKeys[slot(aValue)] != pFREE;
+  }
+
+/** Add a value, returns true if it was not in the set */
+  public boolean add(final long aValue) {
+    if (aValue==pFREE) {
+      if (pHasZero) return false;
+      pHasZero= true;
+      return true;
+    }
+    int i= slot(aValue);
+    if (pKeys[i] != pFREE) return false;
+    pKeys[i]= aValue;
+    if (++pSize > pThreshold) rehash(pKeys.length * 2);
+    return true;
+  }  // add
+
+/** Remove a value, returns true if it was in the set */
+  public boolean remove(final long aValue) {
+    if (aValue==pFREE) {
+      if (!pHasZero) return false;
+      pHasZero= false;
+      return true;
+    }
+    int i= slot(aValue);
+    if (pKeys[i]==pFREE) return false;
+    shiftKeys(i);
+    pSize--;
+    return true;
+  }  // remove
+
+/** Backward shift deletion, see LongLongMap */
+  private void shiftKeys(int aGap) {
+    int j= aGap;
+    while (true) {
+      j= (j + 1) & pMask;
+      long k= pKeys[j];
+      if (k==pFREE) break;
+      int home= HashUtil.mix(k) & pMask;
+      if (aGap <= j ? (aGap >= home || home > j) : (aGap >= home && home > j)) {
+        pKeys[aGap]= k;
+        aGap= j;
+      }
+    }
+    pKeys[aGap]= pFREE;
+  }  // shiftKeys
+
+  private void rehash(final int aCapacity) {
+    long[] keys= pKeys;
+    allocate(aCapacity);
+    for (int j=0; j<keys.length; j++) {
+      long k= keys[j];
+      if (k==pFREE) continue;
+      int i= HashUtil.mix(k) & pMask;
+      while (pKeys[i] != pFREE) i= (i + 1) & pMask;
+      pKeys[i]= k;
+    }
+  }  // rehash
+
+/** A copy of the values, in no particular order */
+  public long[] toArray() {
+    long[] r= new long[size()];
+    int n= 0;
+    if (pHasZero) r[n++]= 0;
+    for (int i=0; i<pKeys.length; i++) {
+      if (pKeys[i] != pFREE) r[n++]= pKeys[i];
+    }
+    return r;
+  }
+
+/** Iterate the values in no particular order. The iterator does not support remove(). */
+  public ILongIterator iterator() {
+    return new ILongIterator() {
+      private boolean isZeroPending= pHasZero;
+      private int index= nextSlot(0);
+
+      private int nextSlot(int aFrom) {
+        while (aFrom < pKeys.length && pKeys[aFrom]==pFREE) aFrom++;
+        return aFrom;
+      }
+
+      public boolean hasNext() {
+        return isZeroPending || index < pKeys.length;
+      }
+
+      public long nextLong() {
+        if (isZeroPending) {
+          isZeroPending= false;
+          return 0;
+        }
+        if (index >= pKeys.length) throw new NoSuchElementException();
+        long r= pKeys[index];
+        index= nextSlot(index + 1);
+        return r;
+      }
+
+      public Object next() {
+        return Long.valueOf(nextLong());
+      }
+
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }  // iterator
+
+  public boolean equals(final Object aObject) {
+    if (this==aObject) return true;
+    if (!(aObject instanceof LongSet)) return false;
+    LongSet other= (LongSet) aObject;
+    if (size() != other.size() || pHasZero != other.pHasZero) return false;
+    for (int i=0; i<pKeys.length; i++) {
+      if (pKeys[i] != pFREE && !other.contains(pKeys[i])) return false;
+    }
+    return true;
+  }
+
+  public int hashCode() {
+    int r= 0;
+    for (int i=0; i<pKeys.length; i++) {
+      long k= pKeys[i];
+      r+= (int) (k ^ (k >>> 32));
+    }
+    return r;
+  }
+
+  public String toString() {
+    StringBuilder b= new StringBuilder(size() * 4 + 2);
+    b.append('[');
+    for (ILongIterator it=iterator(); it.hasNext(); ) {
+      if (b.length()>1) b.append(", ");
+      b.append(it.nextLong());
+    }
+    return b.append(']').toString();
+  }
+
+/** For testing: compare with HashSet of Long */
+  public static void main(String[] args) {
+    int n= args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+    for (int round=0; round<3; round++) {
+      long start= System.currentTimeMillis();
+      LongSet set= new LongSet();
+      for (int i=0; i<n; i++) set.add(i * 31L);
+      int found= 0;
+      for (int i=0; i<n; i++) if (set.contains(i * 17L)) found++;
+      System.out.println("LongSet:       " + (System.currentTimeMillis() - start) + "ms " + found);
+
+      start= System.currentTimeMillis();
+      Set boxed= new HashSet();
+      for (int i=0; i<n; i++) boxed.add(Long.valueOf(i * 31L));
+      found= 0;
+      for (int i=0; i<n; i++) if (boxed.contains(Long.valueOf(i * 17L))) found++;
+      System.out.println("HashSet<Long>: " + (System.currentTimeMillis() - start) + "ms " + found);
+    }
+  }  // main
+
+}  // LongSet
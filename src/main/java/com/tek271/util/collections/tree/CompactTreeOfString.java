@@ -0,0 +1,515 @@
+/*
+Technology Exponent Common Utilities For Java (TECUJ)
+Copyright (C) 2003,2008  Abdul Habra.
+www.tek271.com
+
+This file is part of TECUJ.
+
+TECUJ is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published
+by the Free Software Foundation; version 2.
+
+TECUJ is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with TECUJ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+You can contact the author at ahabra@yahoo.com
+*/
+package com.tek271.util.collections.tree;
+
+import java.util.*;
+
+import com.tek271.util.collections.list.ListOfString;
+
+/**
+ * A memory compact tree of path segments, for large trees of paths such as URLs or
+ * permissions. Where <code>TreeOfString</code> keeps an object with a parent list and a
+ * children list per node, this tree keeps its nodes in arrays indexed by an int node id.
+ * Each node has a segment, its parent, and its children sorted by segment. Equal segments
+ * are kept as one interned String.
+ * <p>Paths are separated by a separator char, / by default, and empty segments are
+ * ignored, so "/a//b/" is the same as "a/b". The root has node id 0 and no segment.
+ * Lookups with indexOf(), contains(), get() and longestPrefix() walk the given path string
+ * and do not allocate objects. Paths added in sorted order are appended without searching
+ * the children, which makes building from a sorted list of paths linear.
+ * <p>A node is a <i>path</i> if it was added with add() or put(), its parents are created
+ * as needed but are not paths unless added too. A path may have a value.
+ * <p>This class is not synchronized.
+ * <p>Copyright (c) 2008 Technology Exponent</p>
+ * @author Abdul Habra
+ * @version 1.0
+ */
+public class CompactTreeOfString {
+  /** Node id of the root */
+  public static final int ROOT= 0;
+
+  private static final int pDEFAULT_NODES= 16;
+
+  private final char pSeparator;
+  private String[] pSegments;   // node -> interned segment, null for the root
+  private int[] pParents;       // node -> parent node, -1 for the root
+  private int[][] pChildren;    // node -> children sorted by segment, null if none
+  private int[] pChildCounts;   // node -> # of used entries in pChildren[node]
+  private final BitSet pIsPath= new BitSet();
+  private Object[] pValues;     // node -> value, null until a value is put
+  private int pSize;            // # of nodes including the root
+  private int pPathCount;
+  private final Map pSegmentPool= new HashMap();  // interned segments
+
+/** Create a tree with / as the separator */
+  public CompactTreeOfString() {
+    this('/');
+  }
+
+/** Create a tree with the given separator */
+  public CompactTreeOfString(final char aSeparator) {
+    pSeparator= aSeparator;
+    pSegments= new String[pDEFAULT_NODES];
+    pParents= new int[pDEFAULT_NODES];
+    pChildren= new int[pDEFAULT_NODES][];
+    pChildCounts= new int[pDEFAULT_NODES];
+    pParents[ROOT]= -1;
+    pSize= 1;
+  }
+
+/**
+ * Create a tree from the given paths. Any order works, sorted paths are added faster.
+ * @param aPaths Iterator of String paths.
+ */
+  public static CompactTreeOfString fromSortedPaths(final Iterator aPaths) {
+    CompactTreeOfString r= new CompactTreeOfString();
+    while (aPaths.hasNext()) r.add((String) aPaths.next());
+    r.trimToSize();
+    return r;
+  }  // fromSortedPaths
+
+/**
+ * Create a tree from the descendants of aRoot, every descendant becomes a path. The key
+ * of aRoot is not part of the paths, as with getDescendant(String).
+ */
+  public static CompactTreeOfString fromTree(final ITree aRoot) {
+    CompactTreeOfString r= new CompactTreeOfString();
+    List nodes= new ArrayList();
+    int[] ids= new int[16];
+    nodes.add(aRoot);
+    ids[0]= ROOT;
+    while (!nodes.isEmpty()) {
+      int top= nodes.size()-1;
+      ITree node= (ITree) nodes.remove(top);
+      int id= ids[top];
+      for (int i=0, n=node.childrenCount(); i<n; i++) {
+        ITree child= (ITree) node.getChild(i);
+        String key= String.valueOf(child.getKey());
+        int childId= r.addChild(id, key, 0, key.length());
+        r.markPath(childId);
+        if (nodes.size() == ids.length) ids= Arrays.copyOf(ids, ids.length * 2);
+        ids[nodes.size()]= childId;
+        nodes.add(child);
+      }
+    }
+    return r;
+  }  // fromTree
+
+/** The separator of segments in paths */
+  public char getSeparator() {
+    return pSeparator;
+  }
+
+/** # of nodes, including the root */
+  public int size() {
+    return pSize;
+  }
+
+/** # of paths added */
+  public int getPathCount() {
+    return pPathCount;
+  }
+
+/**
+ * Add a path, creating its parents as needed.
+ * @return the node id of the path.
+ */
+  public int add(final String aPath) {
+    int node= ROOT;
+    int n= aPath.length();
+    for (int start=0; start<n;) {
+      int end= segmentEnd(aPath, start);
+      if (end > start) node= addChild(node, aPath, start, end);
+      start= end + 1;
+    }
+    markPath(node);
+    return node;
+  }  // add
+
+/**
+ * Add a path with a value.
+ * @return the node id of the path.
+ */
+  public int put(final String aPath, final Object aValue) {
+    int node= add(aPath);
+    if (pValues==null) pValues= new Object[pSegments.length];
+    pValues[node]= aValue;
+    return node;
+  }  // put
+
+  private void markPath(final int aNode) {
+    if (pIsPath.get(aNode)) return;
+    pIsPath.set(aNode);
+    pPathCount++;
+  }
+
+  private int segmentEnd(final String aPath, final int aStart) {
+    int end= aPath.indexOf(pSeparator, aStart);
+    return end < 0 ? aPath.length() : end;
+  }
+
+/**
+ * Find the node of the given path.
+ * @return the node id, -1 if not found. The node is not necessarily a path, see isPath().
+ */
+  public int indexOf(final String aPath) {
+    return indexOf(aPath, 0, aPath.length());
+  }
+
+/** Find the node of the path at aPath[aStart, aEnd), -1 if not found. */
+  public int indexOf(final String aPath, final int aStart, final int aEnd) {
+    int node= ROOT;
+    for (int start=aStart; start<aEnd;) {
+      int end= Math.min(segmentEnd(aPath, start), aEnd);
+      if (end > start) {
+        int i= searchChild(node, aPath, start, end);
+        if (i < 0) return -1;
+        node= pChildren[node][i];
+      }
+      start= end + 1;
+    }
+    return node;
+  }  // indexOf
+
+/** Check if the given path was added */
+  public boolean contains(final String aPath) {
+    int node= indexOf(aPath);
+    return node >= 0 && pIsPath.get(node);
+  }
+
+/** Get the value of the given path, null if none */
+  public Object get(final String aPath) {
+    int node= indexOf(aPath);
+    return node < 0 ? null : getValue(node);
+  }
+
+/**
+ * Find the longest path that was added and is a prefix of aPath, in whole segments.
+ * For example, if "a/b" was added, it is the longest prefix of "a/b/c" but not of "a/bc".
+ * @return the node id of the prefix, -1 if none.
+ */
+  public int longestPrefix(final String aPath) {
+    int node= ROOT;
+    int found= pIsPath.get(ROOT) ? ROOT : -1;
+    int n= aPath.length();
+    for (int start=0; start<n;) {
+      int end= segmentEnd(aPath, start);
+      if (end > start) {
+        int i= searchChild(node, aPath, start, end);
+        if (i < 0) break;
+        node= pChildren[node][i];
+        if (pIsPath.get(node)) found= node;
+      }
+      start= end + 1;
+    }
+    return found;
+  }  // longestPrefix
+
+/** Get the value of the longest prefix of aPath, null if none */
+  public Object getLongestPrefixValue(final String aPath) {
+    int node= longestPrefix(aPath);
+    return node < 0 ? null : getValue(node);
+  }
+
+/** Was the given node added as a path */
+  public boolean isPath(final int aNode) {
+    return pIsPath.get(aNode);
+  }
+
+/** Get the value of the given node, null if none */
+  public Object getValue(final int aNode) {
+    if (pValues==null) return null;
+    return pValues[aNode];
+  }
+
+/** Get the segment of the given node, null for the root */
+  public String getSegment(final int aNode) {
+    return pSegments[aNode];
+  }
+
+/** Get the parent of the given node, -1 for the root */
+  public int getParent(final int aNode) {
+    return pParents[aNode];
+  }
+
+/** # of children of the given node */
+  public int getChildCount(final int aNode) {
+    return pChildCounts[aNode];
+  }
+
+/** Get the child at aIndex of the given node, children are sorted by segment */
+  public int getChild(final int aNode, final int aIndex) {
+    if (aIndex<0 || aIndex>=pChildCounts[aNode]) {
+      throw new IndexOutOfBoundsException("Index: " + aIndex + ", children: " + pChildCounts[aNode]);
+    }
+    return pChildren[aNode][aIndex];
+  }  // getChild
+
+/** Get the child of aNode with the given segment, -1 if not found */
+  public int getChild(final int aNode, final String aSegment) {
+    int i= searchChild(aNode, aSegment, 0, aSegment.length());
+    return i < 0 ? -1 : pChildren[aNode][i];
+  }
+
+/** Get the path of the given node, the root's path is an empty string */
+  public String getPath(final int aNode) {
+    if (aNode==ROOT) return "";
+    int length= -1;
+    for (int n=aNode; n != ROOT; n= pParents[n]) {
+      length += pSegments[n].length() + 1;
+    }
+    char[] buf= new char[length];
+    int end= length;
+    for (int n=aNode; n != ROOT; n= pParents[n]) {
+      String seg= pSegments[n];
+      end -= seg.length();
+      seg.getChars(0, seg.length(), buf, end);
+      if (end > 0) buf[--end]= pSeparator;
+    }
+    return new String(buf);
+  }  // getPath
+
+/** Get all paths, sorted by segment */
+  public ListOfString toListOfString() {
+    ListOfString r= new ListOfString();
+    r.ensureCapacity(pPathCount);
+    if (pIsPath.get(ROOT)) r.add("");
+    int[] stack= new int[16];
+    int top= 0;
+    stack[0]= ROOT;
+    while (top >= 0) {
+      int node= stack[top--];
+      for (int i=pChildCounts[node]-1; i>=0; i--) {
+        if (++top == stack.length) stack= Arrays.copyOf(stack, top * 2);
+        stack[top]= pChildren[node][i];
+      }
+      if (node != ROOT && pIsPath.get(node)) r.add(getPath(node));
+    }
+    return r;
+  }  // toListOfString
+
+/**
+ * Convert to a TreeOfString whose root has the given key. The nodes of the new tree have
+ * their children indexed.
+ */
+  public TreeOfString toTreeOfString(final String aRootKey) {
+    TreeOfString root= new TreeOfString(null, aRootKey);
+    root.setChildIndexed(true);
+    TreeOfString[] trees= new TreeOfString[pSize];
+    trees[ROOT]= root;
+    int[] stack= new int[16];
+    int top= 0;
+    stack[0]= ROOT;
+    while (top >= 0) {
+      int node= stack[top--];
+      for (int i=0, n=pChildCounts[node]; i<n; i++) {
+        int child= pChildren[node][i];
+        TreeOfString tree= new TreeOfString(null, pSegments[child]);
+        tree.setChildIndexed(true);
+        trees[node].addChild(tree);
+        trees[child]= tree;
+        if (++top == stack.length) stack= Arrays.copyOf(stack, top * 2);
+        stack[top]= child;
+      }
+    }
+    return root;
+  }  // toTreeOfString
+
+/** Release unused capacity */
+  public void trimToSize() {
+    resize(pSize);
+    for (int i=0; i<pSize; i++) {
+      int[] ch= pChildren[i];
+      if (ch != null && ch.length > pChildCounts[i]) pChildren[i]= Arrays.copyOf(ch, pChildCounts[i]);
+    }
+  }  // trimToSize
+
+  /** Compare aSegment with aPath[aStart, aEnd) as String.compareTo() does */
+  private static int compare(final String aSegment, final String aPath,
+                             final int aStart, final int aEnd) {
+    int n1= aSegment.length();
+    int n2= aEnd - aStart;
+    for (int i=0, n=Math.min(n1, n2); i<n; i++) {
+      char c1= aSegment.charAt(i);
+      char c2= aPath.charAt(aStart + i);
+      if (c1 != c2) return c1 - c2;
+    }
+    return n1 - n2;
+  }  // compare
+
+  /**
+   * Binary search the children of aNode for aPath[aStart, aEnd).
+   * @return index in the children, or -(insertion point + 1) if not found.
+   */
+  private int searchChild(final int aNode, final String aPath, final int aStart, final int aEnd) {
+    int[] ch= pChildren[aNode];
+    int lo= 0;
+    int hi= pChildCounts[aNode] - 1;
+    while (lo <= hi) {
+      int mid= (lo + hi) >>> 1;
+      int c= compare(pSegments[ch[mid]], aPath, aStart, aEnd);
+      if (c < 0) lo= mid + 1;
+      else if (c > 0) hi= mid - 1;
+      else return mid;
+    }
+    return -(lo + 1);
+  }  // searchChild
+
+  /** Get or create the child of aNode for the segment aPath[aStart, aEnd) */
+  private int addChild(final int aNode, final String aPath, final int aStart, final int aEnd) {
+    int count= pChildCounts[aNode];
+    int pos;
+    if (count==0) {
+      pos= 0;
+    } else {
+      // sorted input adds after, or to, the last child
+      int last= pChildren[aNode][count-1];
+      int c= compare(pSegments[last], aPath, aStart, aEnd);
+      if (c==0) return last;
+      if (c < 0) {
+        pos= count;
+      } else {
+        int i= searchChild(aNode, aPath, aStart, aEnd);
+        if (i >= 0) return pChildren[aNode][i];
+        pos= -(i + 1);
+      }
+    }
+
+    int node= newNode(aNode, intern(aPath.substring(aStart, aEnd)));
+    int[] ch= pChildren[aNode];
+    if (ch==null) {
+      ch= new int[2];
+    } else if (count == ch.length) {
+      ch= Arrays.copyOf(ch, count + (count >> 1) + 1);
+    }
+    System.arraycopy(ch, pos, ch, pos + 1, count - pos);
+    ch[pos]= node;
+    pChildren[aNode]= ch;
+    pChildCounts[aNode]= count + 1;
+    return node;
+  }  // addChild
+
+  private String intern(final String aSegment) {
+    String r= (String) pSegmentPool.get(aSegment);
+    if (r != null) return r;
+    pSegmentPool.put(aSegment, aSegment);
+    return aSegment;
+  }
+
+  private int newNode(final int aParent, final String aSegment) {
+    if (pSize == pSegments.length) resize(pSize + (pSize >> 1) + 1);
+    int node= pSize++;
+    pSegments[node]= aSegment;
+    pParents[node]= aParent;
+    return node;
+  }  // newNode
+
+  private void resize(final int aCapacity) {
+    pSegments= (String[]) Arrays.copyOf(pSegments, aCapacity);
+    pParents= Arrays.copyOf(pParents, aCapacity);
+    pChildren= (int[][]) Arrays.copyOf(pChildren, aCapacity);
+    pChildCounts= Arrays.copyOf(pChildCounts, aCapacity);
+    if (pValues != null) pValues= Arrays.copyOf(pValues, aCapacity);
+  }  // resize
+
+  /** For testing */
+  public static void main(String[] args) throws Exception {
+    int hosts= args.length > 0 ? Integer.parseInt(args[0]) : 200;
+    ListOfString paths= new ListOfString();
+    for (int h=0; h<hosts; h++) {
+      for (int d=0; d<100; d++) {
+        for (int f=0; f<20; f++) {
+          paths.add("host" + h + ".example.com/dir" + d + "/file" + f + ".html");
+        }
+      }
+    }
+    Collections.sort(paths);
+    String[] probes= new String[100000];
+    Random random= new Random(1);
+    for (int i=0; i<probes.length; i++) {
+      probes[i]= (String) paths.get(random.nextInt(paths.size())) + "/x";
+    }
+    System.out.println(paths.size() + " paths");
+
+    for (int round=0; round<2; round++) {
+      long before= usedHeap();
+      long start= System.currentTimeMillis();
+      TreeOfString tree= new TreeOfString(null, "root");
+      for (int i=0, n=paths.size(); i<n; i++) {
+        String path= (String) paths.get(i);
+        ITree node= tree;
+        int s= 0;
+        for (int e; s <= path.length(); s= e + 1) {
+          e= path.indexOf('/', s);
+          if (e < 0) e= path.length();
+          String seg= path.substring(s, e);
+          ITree child= (ITree) node.getChild(seg);
+          if (child==null) child= new TreeOfString(node, seg);
+          node= child;
+        }
+      }
+      long ms= System.currentTimeMillis() - start;
+      long used= usedHeap() - before;
+      start= System.currentTimeMillis();
+      int found= 0;
+      for (int i=0; i<probes.length; i++) {
+        String p= probes[i];
+        if (tree.getDescendant(p.substring(0, p.length() - 2)) != null) found++;
+      }
+      System.out.println("TreeOfString:        " + used / 1024 + "KB, build " + ms +
+                         "ms, lookups " + (System.currentTimeMillis() - start) + "ms, found " + found);
+      tree= null;
+
+      before= usedHeap();
+      start= System.currentTimeMillis();
+      CompactTreeOfString compact= fromSortedPaths(paths.iterator());
+      ms= System.currentTimeMillis() - start;
+      used= usedHeap() - before;
+      start= System.currentTimeMillis();
+      found= 0;
+      for (int i=0; i<probes.length; i++) {
+        if (compact.indexOf(probes[i], 0, probes[i].length() - 2) >= 0) found++;
+      }
+      long lookups= System.currentTimeMillis() - start;
+      start= System.currentTimeMillis();
+      int prefixes= 0;
+      for (int i=0; i<probes.length; i++) {
+        if (compact.longestPrefix(probes[i]) > 0) prefixes++;
+      }
+      System.out.println("CompactTreeOfString: " + used / 1024 + "KB, build " + ms +
+                         "ms, lookups " + lookups + "ms, found " + found + ", longest prefix " +
+                         (System.currentTimeMillis() - start) + "ms, found " + prefixes +
+                         ", nodes " + compact.size());
+    }
+  }  // main
+
+  private static long usedHeap() throws InterruptedException {
+    Runtime rt= Runtime.getRuntime();
+    for (int i=0; i<3; i++) {
+      System.gc();
+      Thread.sleep(100);
+    }
+    return rt.totalMemory() - rt.freeMemory();
+  }  // usedHeap
+
+}  // CompactTreeOfString
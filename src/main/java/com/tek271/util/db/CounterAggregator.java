@@ -0,0 +1,402 @@
+/*
+Technology Exponent Common Utilities For Java (TECUJ)
+Copyright (C) 2003,2008  Abdul Habra.
+www.tek271.com
+
+This file is part of TECUJ.
+
+TECUJ is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published
+by the Free Software Foundation; version 2.
+
+TECUJ is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with TECUJ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+You can contact the author at ahabra@yahoo.com
+*/
+package com.tek271.util.db;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import com.tek271.util.log.*;
+import com.tek271.util.string.StringUtility;
+import com.tek271.util.exception.ExceptionUtil;
+
+/**
+ * Write-behind aggregation of counter updates, an alternative to calling
+ * <code>DbUtil.incrementCell()</code> for every event on hot rows (e.g. page views or
+ * quotas). Calls to <code>increment()</code> only add to an in-memory striped
+ * accumulator keyed by (table, column, where). A background thread periodically
+ * writes the coalesced delta of each key as one <code>UPDATE ... SET c=c+n</code>
+ * statement, all in one JDBC batch and one transaction. A flush also happens when the
+ * number of pending increments reaches a threshold, and when the aggregator is shut down.
+ * <p>If a flush fails, the error is logged and the deltas stay pending for the next
+ * flush, so no increments are lost while the JVM is running. Increments that are
+ * pending when the JVM dies are lost, this is the price of write-behind.
+ * <p>A cell which was flushed and then had no increments for a whole flush interval is
+ * evicted from memory, so the number of cells kept is bounded by the recently active
+ * ones. An increment that is already in progress when its cell is evicted moves to a new
+ * cell and is not lost.
+ * <p>Every call to <code>increment()</code> either throws IllegalStateException because
+ * the aggregator was shut down, or is written by the flush at shutdown or before it.
+ * <p>The connection given to the constructor is used only by the aggregator's thread.
+ * <p>Copyright (c) 2008 Technology Exponent</p>
+ * @author Abdul Habra
+ * @version 1.0
+ */
+public class CounterAggregator {
+  private final static String pCLASS_NAME= "com.tek271.util.db.CounterAggregator";
+
+  /** Default time between flushes in milliseconds */
+  public static final long DEFAULT_FLUSH_INTERVAL_MILLIS= 1000;
+
+  /** Default number of pending increments that triggers a flush */
+  public static final int DEFAULT_FLUSH_THRESHOLD= 10000;
+
+  /** A cell with no delta for this number of flushes in a row is evicted */
+  private static final int pEVICT_IDLE_FLUSHES= 2;
+
+  private final Connection pConnection;
+  private final ILogger pLogger;
+  private final long pFlushIntervalMillis;
+  private final int pFlushThreshold;
+  private final ConcurrentHashMap pCounters= new ConcurrentHashMap();
+  private final LongAdder pIncrementCount= new LongAdder();
+  private final Object pLock= new Object();
+  private final Thread pThread;
+  /** Evicted counters which may still have increments in progress, flushing thread only */
+  private final List pRetired= new ArrayList();
+
+  private volatile boolean pIsShutdown= false;
+  private volatile boolean pIsFlushRequested= false;
+  private volatile long pFlushedIncrementCount;
+  private volatile long pFlushCount;
+  private volatile long pStatementCount;
+  private volatile long pFailedFlushCount;
+
+  /** The identity of a counter cell */
+  private static class Key {
+    final String table;
+    final String column;
+    final String where;
+    private final int pHashCode;
+
+    Key(final String aTable, final String aColumn, final String aWhere) {
+      table= aTable;
+      column= aColumn;
+      where= StringUtility.defaultString(aWhere).trim();
+      pHashCode= (table.hashCode()*31 + column.hashCode())*31 + where.hashCode();
+    }
+
+    public boolean equals(final Object aObject) {
+      if (this==aObject) return true;
+      if (!(aObject instanceof Key)) return false;
+      Key k= (Key) aObject;
+      return table.equals(k.table) && column.equals(k.column) && where.equals(k.where);
+    }
+
+    public int hashCode() {
+      return pHashCode;
+    }
+  }  // Key
+
+  /**
+   * A striped accumulator and the part of it already written to the db. Increments
+   * are bracketed by entered and exited, so the flushing thread can tell when no
+   * increment is in progress on an evicted counter.
+   */
+  private static class Counter {
+    final Key key;
+    final LongAdder total= new LongAdder();
+    final LongAdder entered= new LongAdder();
+    final LongAdder exited= new LongAdder();
+    volatile long flushed;  // only changed by the flushing thread
+    volatile boolean isRetired;
+    int idleFlushes;  // only accessed by the flushing thread
+
+    Counter(final Key aKey) {
+      key= aKey;
+    }
+
+    /** True if all increments that started on this counter are done */
+    boolean isQuiet() {
+      // read exited first, an increment seen in exited is also seen in entered
+      long exitedSum= exited.sum();
+      return exitedSum >= entered.sum();
+    }
+  }  // Counter
+
+/**
+ * Create an aggregator and start its flushing thread.
+ * @param aConnection Connection An active db connection, used only by this aggregator.
+ * @param aLogger ILogger A logger to log errors.
+ * @param aFlushIntervalMillis long time between flushes in milliseconds.
+ * @param aFlushThreshold int number of pending increments that triggers an early flush.
+ */
+  public CounterAggregator(final Connection aConnection,
+                           final ILogger aLogger,
+                           final long aFlushIntervalMillis,
+                           final int aFlushThreshold) {
+    if (aConnection==null) throw new NullPointerException("aConnection is null");
+    if (aFlushIntervalMillis<1) {
+      throw new IllegalArgumentException("aFlushIntervalMillis must be greater than 0");
+    }
+    pConnection= aConnection;
+    pLogger= aLogger;
+    pFlushIntervalMillis= aFlushIntervalMillis;
+    pFlushThreshold= Math.max(1, aFlushThreshold);
+
+    pThread= new Thread(new Runnable() {
+      public void run() {
+        runLoop();
+      }
+    }, "CounterAggregator");
+    pThread.setDaemon(true);
+    pThread.start();
+  }
+
+/** Create an aggregator with the default flush interval and threshold */
+  public CounterAggregator(final Connection aConnection, final ILogger aLogger) {
+    this(aConnection, aLogger, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_FLUSH_THRESHOLD);
+  }
+
+/** Put an error message on the log and on System.err */
+  private void error(final String aMethod, final String aMessage, final Exception aException) {
+    ExceptionUtil.error(pLogger, pCLASS_NAME, aMethod, aMessage, aException);
+  }
+
+/**
+ * Add aIncrement to the value of a column in a row in a db table. The change is
+ * written to the db by a later flush.
+ * @param aTableName Name of table.
+ * @param aColumnName Name of column.
+ * @param aWhere Where clause to reach the row.
+ * @param aIncrement How much to change the cell, can be +ve and -ve. If its value
+ * is zero, nothing will happen.
+ * @throws IllegalStateException if the aggregator was shut down.
+ */
+  public void increment(final String aTableName,
+                        final String aColumnName,
+                        final String aWhere,
+                        final long aIncrement) {
+    if (aIncrement==0) return;
+    if (pIsShutdown) throw new IllegalStateException("CounterAggregator is shut down");
+    if (StringUtility.isBlank(aTableName) || StringUtility.isBlank(aColumnName)) {
+      throw new IllegalArgumentException("Table name and column name are required");
+    }
+
+    add(new Key(aTableName, aColumnName, aWhere), aIncrement, true);
+    pIncrementCount.increment();
+
+    if (getPendingIncrementCount() >= pFlushThreshold && !pIsFlushRequested) {
+      requestFlush();
+    }
+  }  // increment
+
+/**
+ * Add to the live counter of aKey, moving to a new counter if the current one is
+ * evicted meanwhile.
+ * @param aIsCheckShutdown boolean if true, throw IllegalStateException instead of adding
+ * when the aggregator is shut down.
+ */
+  private void add(final Key aKey, final long aIncrement, final boolean aIsCheckShutdown) {
+    while (true) {
+      Counter c= (Counter) pCounters.get(aKey);
+      if (c==null) {
+        Counter newCounter= new Counter(aKey);
+        c= (Counter) pCounters.putIfAbsent(aKey, newCounter);
+        if (c==null) c= newCounter;
+      }
+      c.entered.increment();
+      try {
+        if (aIsCheckShutdown && pIsShutdown) {
+          throw new IllegalStateException("CounterAggregator is shut down");
+        }
+        if (!c.isRetired) {
+          c.total.add(aIncrement);
+          return;
+        }
+      } finally {
+        c.exited.increment();
+      }
+      pCounters.remove(aKey, c);
+    }
+  }  // add
+
+/** Ask the flushing thread to flush now, without waiting for it */
+  public void requestFlush() {
+    synchronized (pLock) {
+      pIsFlushRequested= true;
+      pLock.notifyAll();
+    }
+  }
+
+/**
+ * Stop accepting increments, flush the pending deltas, and wait for the flushing
+ * thread to finish. The connection is not closed.
+ */
+  public void shutdown() {
+    synchronized (pLock) {
+      pIsShutdown= true;
+      pLock.notifyAll();
+    }
+    try {
+      pThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public boolean isShutdown() {
+    return pIsShutdown;
+  }
+
+/** Number of increments not written to the db yet */
+  public long getPendingIncrementCount() {
+    return pIncrementCount.sum() - pFlushedIncrementCount;
+  }
+
+/** Number of (table, column, where) cells kept in memory */
+  int getCellCount() {
+    return pCounters.size();
+  }
+
+/** Number of (table, column, where) cells with a delta not written to the db yet */
+  public int getPendingCellCount() {
+    int r= 0;
+    for (Iterator it=pCounters.values().iterator(); it.hasNext(); ) {
+      Counter c= (Counter) it.next();
+      if (c.total.sum() != c.flushed) r++;
+    }
+    return r;
+  }
+
+/** Number of successful flushes that wrote at least one cell */
+  public long getFlushCount() { return pFlushCount; }
+
+/** Number of update statements written by all flushes */
+  public long getStatementCount() { return pStatementCount; }
+
+/** Number of flushes that failed */
+  public long getFailedFlushCount() { return pFailedFlushCount; }
+
+  private void runLoop() {
+    while (true) {
+      synchronized (pLock) {
+        if (!pIsShutdown && !pIsFlushRequested) {
+          try {
+            pLock.wait(pFlushIntervalMillis);
+          } catch (InterruptedException e) {
+            pIsShutdown= true;
+          }
+        }
+        pIsFlushRequested= false;
+      }
+      if (pIsShutdown) {
+        awaitQuiet();
+        flush();
+        break;
+      }
+      flush();
+    }
+  }  // runLoop
+
+/**
+ * Wait until the increments that started before shutdown are done, later ones will
+ * see the shutdown and throw.
+ */
+  private void awaitQuiet() {
+    List counters= new ArrayList(pCounters.values());
+    counters.addAll(pRetired);
+    for (int i=0, n=counters.size(); i<n; i++) {
+      Counter c= (Counter) counters.get(i);
+      while (!c.isQuiet()) Thread.yield();
+    }
+  }  // awaitQuiet
+
+/**
+ * Evict a counter which had no delta for a while. It is kept in pRetired until no
+ * increment is in progress on it.
+ */
+  private void retire(final Counter aCounter) {
+    aCounter.isRetired= true;
+    pCounters.remove(aCounter.key, aCounter);
+    pRetired.add(aCounter);
+  }
+
+/** Move what was added to quiet retired counters to live counters */
+  private void settleRetired() {
+    for (Iterator it=pRetired.iterator(); it.hasNext(); ) {
+      Counter c= (Counter) it.next();
+      if (!c.isQuiet()) continue;
+      it.remove();
+      long delta= c.total.sum() - c.flushed;
+      if (delta != 0) add(c.key, delta, false);
+    }
+  }  // settleRetired
+
+/** Write the pending deltas in one batch. Called only by the flushing thread. */
+  private void flush() {
+    long incrementCount= pIncrementCount.sum();
+    List counters= new ArrayList();
+    List deltas= new ArrayList();
+    Statement stm= DbUtil.getStatement(pLogger, pConnection);
+    if (stm==null) {
+      pFailedFlushCount++;
+      return;
+    }
+
+    settleRetired();
+    boolean orgAutoCommit= true;
+    try {
+      for (Iterator it=pCounters.values().iterator(); it.hasNext(); ) {
+        Counter c= (Counter) it.next();
+        Key k= c.key;
+        long delta= c.total.sum() - c.flushed;
+        if (delta==0) {
+          if (++c.idleFlushes >= pEVICT_IDLE_FLUSHES) retire(c);
+          continue;
+        }
+        c.idleFlushes= 0;
+        stm.addBatch(DbUtil.buildIncrementQuery(k.table, k.column, k.where, delta));
+        counters.add(c);
+        deltas.add(Long.valueOf(delta));
+      }
+      if (counters.isEmpty()) {
+        pFlushedIncrementCount= incrementCount;
+        return;
+      }
+
+      orgAutoCommit= pConnection.getAutoCommit();
+      pConnection.setAutoCommit(false);
+      stm.executeBatch();
+      pConnection.commit();
+      pConnection.setAutoCommit(orgAutoCommit);
+    } catch (SQLException e) {
+      error("flush", "Writing " + counters.size() + " counter updates failed.", e);
+      TransUtil.rollback(pLogger, pConnection);
+      TransUtil.setAutoCommit(pLogger, pConnection, orgAutoCommit);
+      pFailedFlushCount++;
+      return;
+    } finally {
+      DbUtil.close(pLogger, stm);
+    }
+
+    for (int i=0, n=counters.size(); i<n; i++) {
+      Counter c= (Counter) counters.get(i);
+      c.flushed+= ((Long) deltas.get(i)).longValue();
+    }
+    pFlushedIncrementCount= incrementCount;
+    pStatementCount+= counters.size();
+    pFlushCount++;
+  }  // flush
+
+}  // CounterAggregator
@@ -0,0 +1,69 @@
+/*
+Technology Exponent Common Utilities For Java (TECUJ)
+Copyright (C) 2003,2008  Abdul Habra.
+www.tek271.com
+
+This file is part of TECUJ.
+
+TECUJ is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published
+by the Free Software Foundation; version 2.
+
+TECUJ is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with TECUJ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+You can contact the author at ahabra@yahoo.com
+*/
+package com.tek271.util.db;
+
+import java.util.*;
+import com.tek271.util.collections.list.*;
+
+/**
+ * A <code>RowListCodec</code> that encodes and decodes <code>DBRowList</code> objects,
+ * including their table, schema, and database names.
+ * <p>Copyright (c) 2008 Technology Exponent</p>
+ * @author Abdul Habra
+ * @version 1.0
+ */
+public class DBRowListCodec extends RowListCodec {
+  /** A shared codec for DBRowList objects. This class is stateless. */
+  public static final DBRowListCodec CODEC= new DBRowListCodec();
+
+  private static final String pTABLE_NAME= "tableName";
+  private static final String pSCHEMA_NAME= "schemaName";
+  private static final String pDATABASE_NAME= "databaseName";
+
+  public DBRowListCodec() {}
+
+  protected RowList createRowList(final List aColumnNames) {
+    return new DBRowList(aColumnNames);
+  }
+
+  protected void getProperties(final RowList aRowList, final Map aProperties) {
+    if (!(aRowList instanceof DBRowList)) return;
+    DBRowList list= (DBRowList) aRowList;
+    putIfNotNull(aProperties, pTABLE_NAME, list.getTableName());
+    putIfNotNull(aProperties, pSCHEMA_NAME, list.getSchemaName());
+    putIfNotNull(aProperties, pDATABASE_NAME, list.getDatabaseName());
+  }
+
+  private static void putIfNotNull(final Map aMap, final String aKey, final String aValue) {
+    if (aValue != null) aMap.put(aKey, aValue);
+  }
+
+/** A name that was null when encoded, or a stream of a plain RowList, gives a null name */
+  protected void setProperties(final RowList aRowList, final Map aProperties) {
+    DBRowList list= (DBRowList) aRowList;
+    list.setTableName((String) aProperties.get(pTABLE_NAME));
+    list.setSchemaName((String) aProperties.get(pSCHEMA_NAME));
+    list.setDatabaseName((String) aProperties.get(pDATABASE_NAME));
+  }  // setProperties
+
+}  // DBRowListCodec
@@ -120,9 +120,34 @@ public class DbUtil {
   private final static String pSQL_UPDATE = "UPDATE ";
   private final static String pSQL_SET = " SET ";
 
+  private static volatile int pDefaultQueryTimeout= 0;
+
 /** Do not call this constructor. Allows extending the class. */
   public DbUtil() {}
 
+/**
+ * Set the query timeout in seconds given to the statements created by
+ * getStatement() and getPreparedStatement(), and so by all helpers that take a
+ * Connection. 0, the default, means no timeout. A QueryControl attached to the
+ * current thread overrides this value.
+ */
+  public static void setDefaultQueryTimeout(final int aSeconds) {
+    if (aSeconds<0) throw new IllegalArgumentException("aSeconds < 0");
+    pDefaultQueryTimeout= aSeconds;
+  }
+
+/** The default query timeout in seconds, 0 means no timeout. */
+  public static int getDefaultQueryTimeout() {
+    return pDefaultQueryTimeout;
+  }
+
+/** Apply the default query timeout to a new statement */
+  private static Statement applyDefaultTimeout(final Statement aStatement)
+          throws SQLException {
+    if (pDefaultQueryTimeout>0) aStatement.setQueryTimeout(pDefaultQueryTimeout);
+    return aStatement;
+  }
+
 // general methods
 
   /** Assert that aCondition is true **/
@@ -329,7 +354,7 @@ public class DbUtil {
                                        final Connection aConnection) {
     if (aConnection==null) return null;
     try {
-      return aConnection.createStatement();
+      return applyDefaultTimeout(aConnection.createStatement());
     }
     catch (SQLException ex) {
       error(aLogger, "getStatement", "Failed.", ex);
@@ -351,7 +376,7 @@ public class DbUtil {
                                                        final String aSql) {
     if (aConnection==null) return null;
     try {
-      return aConnection.prepareStatement(aSql);
+      return (PreparedStatement) applyDefaultTimeout(aConnection.prepareStatement(aSql));
     }
     catch (SQLException ex) {
       error(aLogger, "getPreparedStatement", "Failed.", ex);
@@ -509,13 +534,18 @@ public class DbUtil {
     if (aStatement == null) return false;
     if (StringUtility.isBlank(aSql)) return false;
     try {
+      QueryControl.beforeExecute(aStatement);
       aStatement.executeUpdate(aSql);
       return true;
     }
     catch (SQLException ex) {
+      QueryControl.executeFailed(ex);
       error(aLogger, "write", "Failed. Query=\n" + aSql, ex);
       return false;
     }
+    finally {
+      QueryControl.afterExecute(aStatement);
+    }
   }  // write
 
   /**
@@ -538,6 +568,28 @@ public class DbUtil {
     return r;
   } // write
 
+  /**
+   * Execute an SQL statement that does not return a value, under the timeout,
+   * deadline, and cancellation of aControl.
+   * @param aLogger A logger used when errors occur.
+   * @param aSql A valid SQL statement.
+   * @param aConnection An open connection.
+   * @param aControl Controls the query, may be null.
+   * @return true if success, false if not, or if the query timed out or was cancelled.
+   */
+  public static boolean write(final ILogger aLogger,
+                              final String aSql,
+                              final Connection aConnection,
+                              final QueryControl aControl) {
+    if (aControl==null) return write(aLogger, aSql, aConnection);
+    aControl.attach();
+    try {
+      return write(aLogger, aSql, aConnection);
+    } finally {
+      aControl.detach();
+    }
+  } // write
+
 /**
  * Executes a PreparedStatement.  All errors are logged.
  * <br>author: Doug Estep, Abdul Habra
@@ -548,10 +600,14 @@ public class DbUtil {
   public static int write(final ILogger aLogger, final PreparedStatement aStm) {
     String method= "write";
     try {
+      QueryControl.beforeExecute(aStm);
       return aStm.executeUpdate();
     } catch (Exception e) {
+      if (e instanceof SQLException) QueryControl.executeFailed((SQLException) e);
       error(aLogger, method, e.toString(), e);
       return -1;
+    } finally {
+      QueryControl.afterExecute(aStm);
     }
   } // write
 
@@ -594,12 +650,17 @@ public class DbUtil {
     if (aStatement == null) return -1;
     if (StringUtility.isBlank(aSql)) return -1;
     try {
+      QueryControl.beforeExecute(aStatement);
       return aStatement.executeUpdate(aSql);
     }
     catch (SQLException ex) {
+      QueryControl.executeFailed(ex);
       error(aLogger, "writeAndGetCount", "Failed. Query=\n" + aSql, ex);
       return -1;
     }
+    finally {
+      QueryControl.afterExecute(aStatement);
+    }
   }  // writeAndGetCount
 
 /**
@@ -622,6 +683,28 @@ public class DbUtil {
     return r;
   } // writeAndGetCount
 
+/**
+ * Execute an SQL statement that does not return a value, under the timeout,
+ * deadline, and cancellation of aControl, and return the number of effected rows.
+ * @param aLogger A logger used when errors occur.
+ * @param aSql A valid SQL statement.
+ * @param aConnection An open connection.
+ * @param aControl Controls the query, may be null.
+ * @return -1 if error, timeout, or cancel, or # of effected rows.
+ */
+  public static int writeAndGetCount(final ILogger aLogger,
+                                     final String aSql,
+                                     final Connection aConnection,
+                                     final QueryControl aControl) {
+    if (aControl==null) return writeAndGetCount(aLogger, aSql, aConnection);
+    aControl.attach();
+    try {
+      return writeAndGetCount(aLogger, aSql, aConnection);
+    } finally {
+      aControl.detach();
+    }
+  } // writeAndGetCount
+
 /**
  * Execute an SQL statement that does not return a value, typically insert, update
  * or delete.  This method uses a PreparedStatement to execute the SQL statement. All
@@ -709,6 +792,22 @@ public class DbUtil {
     if (aIncrement==0) return true;
     if (aStatement == null) return false;
 
+    String sql= buildIncrementQuery(aTableName, aColumnName, aWhere, aIncrement);
+    return write(aLogger, sql, aStatement);
+  }  // incrementCell
+
+  /**
+   * Build an Update sql query that increments the value of a column.
+   * @param aTableName Name of table.
+   * @param aColumnName Name of column.
+   * @param aWhere Where clause to reach the row.
+   * @param aIncrement How much to change the cell, can be +ve and -ve.
+   * @return The SQL update statement
+   */
+  static String buildIncrementQuery(final String aTableName,
+                                    final String aColumnName,
+                                    final String aWhere,
+                                    final long aIncrement) {
     StringBuffer b= new StringBuffer(64);
     b.append(pSQL_UPDATE).append(aTableName);
     b.append(pSQL_SET);
@@ -717,9 +816,8 @@ public class DbUtil {
     b.append(aIncrement>0 ? '+' : '-');
     b.append(Math.abs(aIncrement));
     appendWhere(b, aWhere);
-
-    return write(aLogger, b.toString(), aStatement);
-  }  // incrementCell
+    return b.toString();
+  }  // buildIncrementQuery
 
   /**
    * Increment the value of a column in a row in a db table.
@@ -951,10 +1049,14 @@ public class DbUtil {
  */
   public static ResultSet read(final ILogger aLogger, final PreparedStatement aStatement) {
     try {
+      QueryControl.beforeExecute(aStatement);
       return aStatement.executeQuery();
     } catch (SQLException ex) {
+      QueryControl.executeFailed(ex);
       error(aLogger, "read", "PreparedStatement read failed.", ex);
       return null;
+    } finally {
+      QueryControl.afterExecute(aStatement);
     }
   }
 
@@ -971,12 +1073,17 @@ public class DbUtil {
     if (aStatement == null) return null;
     if (StringUtility.isBlank(aSql)) return null;
     try {
+      QueryControl.beforeExecute(aStatement);
       return aStatement.executeQuery(aSql);
     }
     catch (SQLException ex) {
+      QueryControl.executeFailed(ex);
       error(aLogger, "read", "Query failed:\n" + aSql, ex);
       return null;
     }
+    finally {
+      QueryControl.afterExecute(aStatement);
+    }
   } // read
 
   /**
@@ -1048,6 +1155,29 @@ public class DbUtil {
     return r;
   } // readRowList
 
+  /**
+   * Run an Sql query that returns a ResultSet and convert it to a DBRowList, under
+   * the timeout, deadline, and cancellation of aControl.
+   * @param aLogger A logger used when errors occur.
+   * @param aSql An SQL statement, e.g. Select
+   * @param aConnection A connected Jdbc Connection.
+   * @param aControl Controls the query, may be null.
+   * @return The read DBRowList, null if an error occur, or if the query timed out or
+   * was cancelled.
+   */
+  public static DBRowList readRowList(final ILogger aLogger,
+                                      final String aSql,
+                                      final Connection aConnection,
+                                      final QueryControl aControl) {
+    if (aControl==null) return readRowList(aLogger, aSql, aConnection);
+    aControl.attach();
+    try {
+      return readRowList(aLogger, aSql, aConnection);
+    } finally {
+      aControl.detach();
+    }
+  } // readRowList
+
 /**
 * Run an Sql query formatted for a PreparedStatement, using the arguments
 * contained within aArgs, get a ResultSet, and convert it to a DBRowList.
@@ -1500,13 +1630,16 @@ public class DbUtil {
     try {
       Reader reader= new StringReader(aLongString);
       stm.setCharacterStream(aParamIndex, reader, aLongString.length());
+      QueryControl.beforeExecute(stm);
       stm.executeUpdate();
       return true;
     }
     catch (SQLException ex) {
+      QueryControl.executeFailed(ex);
       error(aLogger, "writeLongString", "Failed. Query=\n" + aPreparedSql , ex);
       return false;
     } finally {
+      QueryControl.afterExecute(stm);
       close(aLogger, stm);
     }
   } // writeLongString
@@ -0,0 +1,392 @@
+/*
+Technology Exponent Common Utilities For Java (TECUJ)
+Copyright (C) 2003,2008  Abdul Habra.
+www.tek271.com
+
+This file is part of TECUJ.
+
+TECUJ is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published
+by the Free Software Foundation; version 2.
+
+TECUJ is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with TECUJ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+You can contact the author at ahabra@yahoo.com
+*/
+package com.tek271.util.db;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import com.tek271.util.*;
+import com.tek271.util.log.*;
+import com.tek271.util.exception.ExceptionUtil;
+
+/**
+ * Runs many small units of work from many threads as few database transactions
+ * (group commit). Units are queued by <code>submit()</code> and executed by a single
+ * background thread on a shared connection. The thread runs queued units inside one
+ * transaction until <code>maxBatchSize</code> units were run or <code>maxWaitMillis</code>
+ * passed since the first unit of the batch, then commits once. This amortizes the
+ * commit latency (e.g. fsync) over the whole batch.
+ * <p>Each unit is run after a savepoint, which is released when the unit succeeds. If
+ * the unit's <code>execute()</code> returns false or throws, only its changes are rolled
+ * back to the savepoint, the other units of the batch are not affected. If rolling back
+ * to the savepoint fails, the whole batch is rolled back and the futures of all its units
+ * complete exceptionally. If the connection does not support
+ * savepoints, the executor commits after each unit, which is the same as calling
+ * <code>TransUtil.transaction()</code> for every unit.
+ * <p>The Future returned by <code>submit()</code> is completed after the batch is
+ * committed. Its value is a Boolean, the result of <code>execute()</code>. If the unit
+ * threw an exception, or if the commit failed, the Future completes exceptionally.
+ * Every accepted unit's Future is completed, even if the background thread dies.
+ * <p>Units must use the connection returned by <code>getConnection()</code>, and must
+ * not commit or rollback it themselves.
+ * <p>Example:<pre>
+final GroupCommitExecutor gce= new GroupCommitExecutor(connection, logger, 100, 5);
+Future done= gce.submit(new IExecutable() {
+  public boolean execute() {
+    return DbUtil.write(logger, "insert into audit ...", gce.getConnection());
+  }
+});
+...
+gce.shutdown();
+</pre>
+ * <p>Copyright (c) 2008 Technology Exponent</p>
+ * @author Abdul Habra
+ * @version 1.0
+ */
+public class GroupCommitExecutor {
+  private final static String pCLASS_NAME= "com.tek271.util.db.GroupCommitExecutor";
+
+  /** Default max number of units in one transaction */
+  public static final int DEFAULT_MAX_BATCH_SIZE= 100;
+
+  /** Default max time in milliseconds to wait for more units before committing */
+  public static final long DEFAULT_MAX_WAIT_MILLIS= 5;
+
+  private static final long pPOLL_MILLIS= 100;
+
+  private final Connection pConnection;
+  private final ILogger pLogger;
+  private final int pMaxBatchSize;
+  private final long pMaxWaitMillis;
+  private final BlockingQueue pQueue= new LinkedBlockingQueue();
+  private final Thread pThread;
+  /** Guards checking pIsShutdown and adding to pQueue as one step */
+  private final Object pSubmitLock= new Object();
+  private volatile boolean pIsShutdown= false;
+  private boolean pIsReleaseSavepoints= true;
+
+  private volatile long pBatchCount;
+  private volatile long pUnitCount;
+  private volatile long pFailedUnitCount;
+
+  /** A queued unit of work and the future of its caller */
+  private static class Unit {
+    final IExecutable executable;
+    final CompletableFuture future= new CompletableFuture();
+    Boolean result;
+    Throwable error;
+
+    Unit(final IExecutable aExecutable) {
+      executable= aExecutable;
+    }
+  }  // Unit
+
+/**
+ * Create an executor and start its background thread.
+ * @param aConnection Connection An active db connection, used only by this executor.
+ * @param aLogger ILogger A logger to log errors.
+ * @param aMaxBatchSize int max number of units in one transaction.
+ * @param aMaxWaitMillis long max time to wait for more units after the first unit of a
+ * batch arrives.
+ */
+  public GroupCommitExecutor(final Connection aConnection,
+                             final ILogger aLogger,
+                             final int aMaxBatchSize,
+                             final long aMaxWaitMillis) {
+    if (aConnection==null) throw new NullPointerException("aConnection is null");
+    if (aMaxBatchSize<1) throw new IllegalArgumentException("aMaxBatchSize must be greater than 0");
+    pConnection= aConnection;
+    pLogger= aLogger;
+    pMaxBatchSize= aMaxBatchSize;
+    pMaxWaitMillis= Math.max(0, aMaxWaitMillis);
+
+    pThread= new Thread(new Runnable() {
+      public void run() {
+        runLoop();
+      }
+    }, "GroupCommitExecutor");
+    pThread.setDaemon(true);
+    pThread.start();
+  }
+
+/** Create an executor with DEFAULT_MAX_BATCH_SIZE and DEFAULT_MAX_WAIT_MILLIS */
+  public GroupCommitExecutor(final Connection aConnection, final ILogger aLogger) {
+    this(aConnection, aLogger, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_WAIT_MILLIS);
+  }
+
+/** Put an error message on the log and on System.err */
+  private void error(final String aMethod, final String aMessage, final Throwable aException) {
+    ExceptionUtil.error(pLogger, pCLASS_NAME, aMethod, aMessage, aException);
+  }
+
+/** The shared connection which units must use */
+  public Connection getConnection() {
+    return pConnection;
+  }
+
+/**
+ * Queue a unit of work.
+ * @param aExecutable IExecutable the unit, return true to keep its changes, false to
+ * roll them back.
+ * @return Future completed with a Boolean after the unit's transaction is committed.
+ * @throws IllegalStateException if the executor was shut down.
+ */
+  public Future submit(final IExecutable aExecutable) {
+    if (aExecutable==null) throw new NullPointerException("aExecutable is null");
+    Unit unit= new Unit(aExecutable);
+    synchronized (pSubmitLock) {
+      if (pIsShutdown) throw new IllegalStateException("GroupCommitExecutor is shut down");
+      pQueue.add(unit);
+    }
+    return unit.future;
+  }
+
+/**
+ * Queue a unit of work and wait until it is committed.
+ * @return boolean the result of aExecutable.execute(), false if it failed or if the
+ * commit failed.
+ */
+  public boolean execute(final IExecutable aExecutable) {
+    try {
+      return ((Boolean) submit(aExecutable).get()).booleanValue();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (ExecutionException e) {
+      return false;
+    }
+  }  // execute
+
+/**
+ * Stop accepting new units, run the queued units, and wait for the background thread
+ * to finish. The connection is not closed.
+ */
+  public void shutdown() {
+    markShutdown();
+    try {
+      pThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public boolean isShutdown() {
+    return pIsShutdown;
+  }
+
+/** After this returns no unit can be added to the queue */
+  private void markShutdown() {
+    synchronized (pSubmitLock) {
+      pIsShutdown= true;
+    }
+  }
+
+/** Number of committed batches */
+  public long getBatchCount() { return pBatchCount; }
+
+/** Number of units that were run */
+  public long getUnitCount() { return pUnitCount; }
+
+/** Number of units that returned false, threw an exception, or whose commit failed */
+  public long getFailedUnitCount() { return pFailedUnitCount; }
+
+/** Number of units waiting in the queue */
+  public int getQueueSize() { return pQueue.size(); }
+
+  private void runLoop() {
+    boolean orgAutoCommit= true;
+    try {
+      orgAutoCommit= pConnection.getAutoCommit();
+      pConnection.setAutoCommit(false);
+    } catch (SQLException e) {
+      error("runLoop", "Setting AutoCommit to false failed.", e);
+    }
+
+    List batch= new ArrayList(pMaxBatchSize);
+    try {
+      while (true) {
+        Unit first;
+        try {
+          first= (Unit) pQueue.poll(pPOLL_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+          markShutdown();
+          first= (Unit) pQueue.poll();
+        }
+        if (first==null) {
+          if (pIsShutdown && pQueue.isEmpty()) break;
+          continue;
+        }
+        batch.add(first);
+        fillBatch(batch);
+        runBatch(batch);
+        batch.clear();
+      }
+    } catch (Throwable e) {
+      error("runLoop", "Group commit thread failed.", e);
+      TransUtil.rollback(pLogger, pConnection);
+      failUnits(batch, e);
+    } finally {
+      markShutdown();
+      failQueuedUnits();
+      TransUtil.setAutoCommit(pLogger, pConnection, orgAutoCommit);
+    }
+  }  // runLoop
+
+/** Complete units still in the queue when the background thread ends */
+  private void failQueuedUnits() {
+    List rest= new ArrayList();
+    pQueue.drainTo(rest);
+    if (rest.isEmpty()) return;
+    failUnits(rest, new IllegalStateException("GroupCommitExecutor is shut down"));
+  }
+
+/** Complete the futures of units which are not completed yet */
+  private void failUnits(final List aUnits, final Throwable aError) {
+    for (int i=0, n=aUnits.size(); i<n; i++) {
+      Unit u= (Unit) aUnits.get(i);
+      if (!u.future.completeExceptionally(aError)) continue;
+      boolean isCounted= u.error != null || Boolean.FALSE.equals(u.result);
+      if (!isCounted) pFailedUnitCount++;
+    }
+  }
+
+  private void fillBatch(final List aBatch) {
+    long deadline= System.currentTimeMillis() + pMaxWaitMillis;
+    while (aBatch.size() < pMaxBatchSize) {
+      Unit u= (Unit) pQueue.poll();
+      if (u==null) {
+        long wait= deadline - System.currentTimeMillis();
+        if (wait<=0 || pIsShutdown) return;
+        try {
+          u= (Unit) pQueue.poll(wait, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+          markShutdown();
+          return;
+        }
+        if (u==null) return;
+      }
+      aBatch.add(u);
+    }
+  }  // fillBatch
+
+  private void runBatch(final List aBatch) {
+    boolean isSavepoints= true;
+    List pending= new ArrayList(aBatch.size());
+    for (int i=0, n=aBatch.size(); i<n; i++) {
+      Unit u= (Unit) aBatch.get(i);
+      Savepoint sp= null;
+      if (isSavepoints) {
+        try {
+          sp= pConnection.setSavepoint();
+        } catch (SQLException e) {
+          isSavepoints= false;
+          if (!pending.isEmpty()) finishUnits(pending, true);
+          pending.clear();
+        }
+      }
+      pending.add(u);
+      SQLException rollbackFailure= runUnit(u, sp);
+      if (rollbackFailure != null) {
+        // the unit's changes could not be undone alone, undo the whole batch
+        TransUtil.rollback(pLogger, pConnection);
+        failUnits(pending, rollbackFailure);
+        pending.clear();
+        continue;
+      }
+      if (!isSavepoints) {
+        // no savepoints: each unit is its own transaction
+        finishUnits(pending, u.result != null && u.result.booleanValue());
+        pending.clear();
+      }
+    }
+    if (!pending.isEmpty()) finishUnits(pending, true);
+    pBatchCount++;
+  }  // runBatch
+
+/**
+ * Run a unit, and roll back to aSavepoint if it fails.
+ * @return SQLException null, or the error of rolling back to the savepoint.
+ */
+  private SQLException runUnit(final Unit aUnit, final Savepoint aSavepoint) {
+    pUnitCount++;
+    boolean r;
+    try {
+      r= aUnit.executable.execute();
+      aUnit.result= Boolean.valueOf(r);
+    } catch (Throwable e) {
+      error("runUnit", "Unit of work failed.", e);
+      aUnit.error= e;
+      r= false;
+    }
+    if (r) {
+      if (aSavepoint != null) releaseSavepoint(aSavepoint);
+      return null;
+    }
+
+    pFailedUnitCount++;
+    if (aSavepoint==null) return null;
+    try {
+      pConnection.rollback(aSavepoint);
+    } catch (SQLException e) {
+      error("runUnit", "Rolling back to savepoint failed.", e);
+      return e;
+    }
+    return null;
+  }  // runUnit
+
+/** Free the savepoint's resources, some drivers do not support it */
+  private void releaseSavepoint(final Savepoint aSavepoint) {
+    if (!pIsReleaseSavepoints) return;
+    try {
+      pConnection.releaseSavepoint(aSavepoint);
+    } catch (SQLException e) {
+      pIsReleaseSavepoints= false;
+    }
+  }
+
+  private void finishUnits(final List aUnits, final boolean aIsCommit) {
+    SQLException failure= null;
+    try {
+      if (aIsCommit) pConnection.commit();
+      else pConnection.rollback();
+    } catch (SQLException e) {
+      error("finishUnits", "Committing a group of " + aUnits.size() + " units failed.", e);
+      failure= e;
+      TransUtil.rollback(pLogger, pConnection);
+    }
+
+    if (failure != null) {
+      failUnits(aUnits, failure);
+      return;
+    }
+    for (int i=0, n=aUnits.size(); i<n; i++) {
+      Unit u= (Unit) aUnits.get(i);
+      if (u.error != null) {
+        u.future.completeExceptionally(u.error);
+      } else {
+        u.future.complete(u.result);
+      }
+    }
+  }  // finishUnits
+
+}  // GroupCommitExecutor
@@ -0,0 +1,191 @@
+/*
+Technology Exponent Common Utilities For Java (TECUJ)
+Copyright (C) 2003,2008  Abdul Habra.
+www.tek271.com
+
+This file is part of TECUJ.
+
+TECUJ is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published
+by the Free Software Foundation; version 2.
+
+TECUJ is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with TECUJ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+You can contact the author at ahabra@yahoo.com
+*/
+package com.tek271.util.db;
+
+import java.sql.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-call timeout, deadline, and cancellation handle for the <code>DbUtil</code>
+ * read and write helpers.
+ * <p>A QueryControl is attached to the current thread. While it is attached, every
+ * query run by a <code>DbUtil</code> helper on that thread gets a query timeout that
+ * is the smaller of the per-call timeout and the time left before the deadline. Helpers
+ * that run several queries share one deadline. After the deadline passes or
+ * <code>cancel()</code> is called, later queries fail at once without reaching the db.
+ * <code>cancel()</code> may be called from any other thread. It calls
+ * <code>Statement.cancel()</code> on the query that is running now.</p>
+ * Example:<pre>
+ * QueryControl qc= QueryControl.withDeadline(30000);
+ * qc.attach();
+ * try {
+ *   DBRowList orders= DbUtil.readRowList(log, sql1, con);
+ *   DBRowList items= DbUtil.readRowList(log, sql2, con);
+ * } finally {
+ *   qc.detach();
+ * }</pre>
+ * <p>The static counters count the timeouts and cancellations of all DbUtil queries.</p>
+ * <p>A QueryControl should be attached to one thread at a time.</p>
+ * <p>Copyright (c) 2008 Technology Exponent</p>
+ * @author Abdul Habra
+ * @version 1.0
+ */
+public class QueryControl {
+  private static final ThreadLocal pCURRENT= new ThreadLocal();
+  private static final AtomicLong pTIMEOUT_COUNT= new AtomicLong();
+  private static final AtomicLong pCANCEL_COUNT= new AtomicLong();
+
+  private final int pTimeoutSeconds;
+  private final long pDeadline;
+  private volatile boolean pIsCancelled;
+  private volatile Statement pRunning;
+  private QueryControl pPrevious;
+
+/**
+ * Create a control.
+ * @param aTimeoutSeconds Timeout of each query in seconds, 0 means no timeout.
+ * @param aDeadline Absolute time in milliseconds (as System.currentTimeMillis()) after
+ * which no query may run, 0 means no deadline.
+ */
+  public QueryControl(final int aTimeoutSeconds, final long aDeadline) {
+    if (aTimeoutSeconds<0) throw new IllegalArgumentException("aTimeoutSeconds < 0");
+    pTimeoutSeconds= aTimeoutSeconds;
+    pDeadline= aDeadline;
+  }
+
+/** Create a control where each query has the given timeout in seconds */
+  public static QueryControl withTimeout(final int aTimeoutSeconds) {
+    return new QueryControl(aTimeoutSeconds, 0);
+  }
+
+/** Create a control where all queries must finish within aMillis from now */
+  public static QueryControl withDeadline(final long aMillis) {
+    return new QueryControl(0, System.currentTimeMillis() + aMillis);
+  }
+
+  public int getTimeoutSeconds() { return pTimeoutSeconds; }
+  public long getDeadline() { return pDeadline; }
+  public boolean isCancelled() { return pIsCancelled; }
+
+/** Has the deadline passed? */
+  public boolean isExpired() {
+    return pDeadline > 0 && System.currentTimeMillis() >= pDeadline;
+  }
+
+/** Make this the control of the queries run on the current thread */
+  public void attach() {
+    pPrevious= (QueryControl) pCURRENT.get();
+    pCURRENT.set(this);
+  }
+
+/** Restore the control that was attached before this one */
+  public void detach() {
+    if (pCURRENT.get()!=this) return;
+    if (pPrevious==null) pCURRENT.remove();
+    else pCURRENT.set(pPrevious);
+    pPrevious= null;
+  }
+
+/** The control attached to the current thread, null if none */
+  public static QueryControl current() {
+    return (QueryControl) pCURRENT.get();
+  }
+
+/**
+ * Cancel the running query, if any, and make later queries fail. Can be called from
+ * any thread.
+ * @return true if a running query was cancelled.
+ */
+  public boolean cancel() {
+    pIsCancelled= true;
+    Statement stm= pRunning;
+    if (stm==null) return false;
+    try {
+      stm.cancel();
+      return true;
+    } catch (SQLException e) {
+      return false;
+    }
+  }  // cancel
+
+/** Query timeout in seconds for the next query, 0 means no limit */
+  int nextTimeoutSeconds() throws SQLException {
+    if (pIsCancelled) throw new SQLException("Query was cancelled");
+    if (pDeadline<=0) return pTimeoutSeconds;
+
+    long remaining= pDeadline - System.currentTimeMillis();
+    if (remaining<=0) throw new SQLTimeoutException("Query deadline has passed");
+    int seconds= (int) Math.min(Integer.MAX_VALUE, (remaining + 999) / 1000);
+    if (pTimeoutSeconds>0 && pTimeoutSeconds<seconds) return pTimeoutSeconds;
+    return seconds;
+  }  // nextTimeoutSeconds
+
+/**
+ * Called by DbUtil before executing a query on aStatement. Applies the timeout of
+ * the current control and registers the statement for cancellation.
+ * @throws SQLException if the current control was cancelled or its deadline passed.
+ */
+  static void beforeExecute(final Statement aStatement) throws SQLException {
+    QueryControl c= current();
+    if (c==null) return;
+    int seconds= c.nextTimeoutSeconds();
+    if (seconds>0) aStatement.setQueryTimeout(seconds);
+    c.pRunning= aStatement;
+    if (c.pIsCancelled) {  // cancel() was called before pRunning was set
+      c.pRunning= null;
+      throw new SQLException("Query was cancelled");
+    }
+  }  // beforeExecute
+
+/** Called by DbUtil after executing a query on aStatement, even if it failed */
+  static void afterExecute(final Statement aStatement) {
+    QueryControl c= current();
+    if (c!=null && c.pRunning==aStatement) c.pRunning= null;
+  }
+
+/**
+ * Called by DbUtil when executing a query failed, including failures thrown by
+ * beforeExecute(). Counts timeouts and cancellations.
+ */
+  static void executeFailed(final SQLException aException) {
+    QueryControl c= current();
+    if (c!=null && c.pIsCancelled) {
+      pCANCEL_COUNT.incrementAndGet();
+    } else if (aException instanceof SQLTimeoutException || (c!=null && c.isExpired())) {
+      pTIMEOUT_COUNT.incrementAndGet();
+    }
+  }  // executeFailed
+
+/** Number of DbUtil queries that timed out or were refused after their deadline */
+  public static long getTimeoutCount() { return pTIMEOUT_COUNT.get(); }
+
+/** Number of DbUtil queries that were cancelled or refused after cancellation */
+  public static long getCancelCount() { return pCANCEL_COUNT.get(); }
+
+/** Reset the timeout and cancel counters to zero */
+  public static void resetCounts() {
+    pTIMEOUT_COUNT.set(0);
+    pCANCEL_COUNT.set(0);
+  }
+
+}  // QueryControl
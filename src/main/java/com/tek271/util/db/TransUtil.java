@@ -32,6 +32,8 @@ import com.tek271.util.exception.ExceptionUtil;
  * Database transactions utilities, including static methods for commit, rollback,
  * setAutoCommit, and a method that executes several db operations as one
  * transaction.
+ * <p>To run many small transactions from many threads with one commit per group of
+ * transactions, use <code>GroupCommitExecutor</code>.
  * <p>Copyright (c) 2005 Technology Exponent</p>
  * @author Abdul Habra
  * @version 1.0
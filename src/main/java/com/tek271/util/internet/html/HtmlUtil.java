@@ -541,7 +541,8 @@ public static String shadowText(final String aText,
                                 final String aShadowColor,
                                 final String aBackgroundColor,
                                 final int aShadowShift) {
-  StringBuffer sb= new StringBuffer(64);
+  int n= StringUtility.length(aText) * 2 + 160;
+  StringBuffer sb= new StringBuffer(n);
   shadowText(sb, aText, aColor, aShadowColor, aBackgroundColor, aShadowShift);
   return sb.toString();
 }
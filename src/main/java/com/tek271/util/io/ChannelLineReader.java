@@ -0,0 +1,227 @@
+/*
+Technology Exponent Common Utilities For Java (TECUJ)
+Copyright (C) 2003,2008  Abdul Habra.
+www.tek271.com
+
+This file is part of TECUJ.
+
+TECUJ is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published
+by the Free Software Foundation; version 2.
+
+TECUJ is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with TECUJ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+You can contact the author at ahabra@yahoo.com
+*/
+package com.tek271.util.io;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * Read lines of text from a file or a channel with NIO, decoding the bytes with an explicit
+ * charset. Bytes are read into a large buffer and decoded into a char buffer, then split
+ * into lines that end with \n, \r, or \r\n, as <code>BufferedReader.readLine()</code>
+ * does. Malformed input is replaced, as InputStreamReader does. The byte buffer is a heap
+ * buffer: charset decoders have fast paths for array backed buffers, which makes decoding
+ * about twice as fast as from a direct buffer.
+ * <p>Lines can be read one at a time with readLine(), or iterated lazily with the
+ * Iterator methods, so a large file can be processed without keeping all its lines. The
+ * Iterator methods wrap an IOException in a RuntimeException. Close the reader when done;
+ * it is closed automatically when the iteration reaches the end.
+ * <p>This class is not synchronized.
+ * <p>Copyright (c) 2008 Technology Exponent</p>
+ * @author Abdul Habra
+ * @version 1.0
+ */
+public class ChannelLineReader implements Iterator, Closeable {
+  /** Default size of the byte and char buffers: 64KB */
+  public static final int DEFAULT_BUFFER_SIZE= 64 * 1024;
+
+  /** Smaller buffers may not hold a single encoded char */
+  private static final int pMIN_BUFFER_SIZE= 16;
+
+  private final ReadableByteChannel pChannel;
+  private final CharsetDecoder pDecoder;
+  private final ByteBuffer pBytes;
+  private final CharBuffer pChars;
+  private final StringBuilder pPending= new StringBuilder();
+  private boolean pIsLineOpen;   // pPending holds the start of a line
+  private boolean pIsSkipLf;     // last line ended with \r, skip a following \n
+  private boolean pIsEof;        // the channel has no more bytes
+  private boolean pIsDone;       // all chars were returned
+  private boolean pIsClosed;
+  private String pNext;          // read ahead by hasNext()
+
+/** Read from the given channel with the given charset and buffer size, at least 16 */
+  public ChannelLineReader(final ReadableByteChannel aChannel, final Charset aCharset,
+                           final int aBufferSize) {
+    pChannel= aChannel;
+    pDecoder= aCharset.newDecoder()
+                      .onMalformedInput(CodingErrorAction.REPLACE)
+                      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    int size= Math.max(aBufferSize, pMIN_BUFFER_SIZE);
+    pBytes= ByteBuffer.allocate(size);
+    pBytes.flip();  // empty, ready to decode
+    pChars= CharBuffer.allocate(size);
+    pChars.flip();  // empty, ready to scan
+  }
+
+/** Read from the given channel with the given charset */
+  public ChannelLineReader(final ReadableByteChannel aChannel, final Charset aCharset) {
+    this(aChannel, aCharset, DEFAULT_BUFFER_SIZE);
+  }
+
+/** Read from the given stream with the given charset */
+  public ChannelLineReader(final InputStream aStream, final Charset aCharset) {
+    this(Channels.newChannel(aStream), aCharset);
+  }
+
+/** Read the given file with the given charset */
+  public ChannelLineReader(final String aFileName, final Charset aCharset) throws IOException {
+    this(new FileInputStream(aFileName).getChannel(), aCharset);
+  }
+
+  /** Read and decode more chars into pChars. false when there are no more chars. */
+  private boolean fill() throws IOException {
+    if (pIsDone) return false;
+    pChars.clear();
+    while (true) {
+      if (!pIsEof) {
+        pBytes.compact();
+        int n= pChannel.read(pBytes);
+        pBytes.flip();
+        if (n<0) pIsEof= true;
+      }
+      pDecoder.decode(pBytes, pChars, pIsEof);
+      if (pIsEof) {
+        pDecoder.flush(pChars);
+        pIsDone= true;
+        break;
+      }
+      if (pChars.position() > 0) break;
+    }
+    pChars.flip();
+    return pChars.hasRemaining();
+  }  // fill
+
+/** Read the next line, null at the end of the input */
+  public String readLine() throws IOException {
+    while (true) {
+      if (!pChars.hasRemaining() && !fill()) {
+        if (!pIsLineOpen) return null;
+        return takePending();
+      }
+
+      char[] chars= pChars.array();
+      int start= pChars.position();
+      int end= pChars.limit();
+      if (pIsSkipLf) {
+        pIsSkipLf= false;
+        if (chars[start]=='\n') {
+          pChars.position(++start);
+          continue;
+        }
+      }
+      for (int i=start; i<end; i++) {
+        char c= chars[i];
+        if (c != '\n' && c != '\r') continue;
+        pChars.position(i + 1);
+        pIsSkipLf= c=='\r';
+        if (!pIsLineOpen) return new String(chars, start, i - start);
+        pPending.append(chars, start, i - start);
+        return takePending();
+      }
+      pPending.append(chars, start, end - start);
+      pIsLineOpen= true;
+      pChars.position(end);
+    }
+  }  // readLine
+
+  private String takePending() {
+    String r= pPending.toString();
+    pPending.setLength(0);
+    pIsLineOpen= false;
+    return r;
+  }
+
+  public boolean hasNext() {
+    if (pNext != null) return true;
+    if (pIsClosed) return false;
+    try {
+      pNext= readLine();
+      if (pNext==null) close();
+    } catch (IOException e) {
+      throw new RuntimeException("Cannot read line. " + e.getMessage(), e);
+    }
+    return pNext != null;
+  }  // hasNext
+
+/** The next line as a String */
+  public Object next() {
+    if (!hasNext()) throw new NoSuchElementException();
+    String r= pNext;
+    pNext= null;
+    return r;
+  }
+
+  public void remove() {
+    throw new UnsupportedOperationException();
+  }
+
+/** Close the channel */
+  public void close() throws IOException {
+    if (pIsClosed) return;
+    pIsClosed= true;
+    pChannel.close();
+  }
+
+/** For testing: compare the time to read a large file with BufferedReader and NIO */
+  public static void main(String[] args) throws Exception {
+    long megaBytes= args.length > 0 ? Long.parseLong(args[0]) : 1024;
+    File file= File.createTempFile("ChannelLineReader", ".txt");
+    file.deleteOnExit();
+    Writer w= new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+    long size= 0;
+    for (int i=0; size < megaBytes * 1024 * 1024; i++) {
+      String line= "line " + i + ", some text to fill the line and make it more realistic";
+      w.write(line);
+      w.write('\n');
+      size+= line.length() + 1;
+    }
+    w.close();
+    Charset utf8= Charset.forName("UTF-8");
+    System.out.println("File size: " + file.length() / (1024 * 1024) + "MB");
+
+    for (int round=0; round<3; round++) {
+      long start= System.currentTimeMillis();
+      BufferedReader in= new BufferedReader(new InputStreamReader(new FileInputStream(file), utf8));
+      long chars= 0;
+      for (String line= in.readLine(); line != null; line= in.readLine()) chars+= line.length();
+      in.close();
+      long ms= System.currentTimeMillis() - start;
+      System.out.println("BufferedReader:    " + ms + "ms, " + megaBytes * 1000 / Math.max(1, ms) +
+                         "MB/s, " + chars + " chars");
+
+      start= System.currentTimeMillis();
+      ChannelLineReader nio= new ChannelLineReader(file.getPath(), utf8);
+      chars= 0;
+      for (String line= nio.readLine(); line != null; line= nio.readLine()) chars+= line.length();
+      nio.close();
+      ms= System.currentTimeMillis() - start;
+      System.out.println("ChannelLineReader: " + ms + "ms, " + megaBytes * 1000 / Math.max(1, ms) +
+                         "MB/s, " + chars + " chars");
+    }
+  }  // main
+
+}  // ChannelLineReader
@@ -94,4 +94,60 @@ public class Compress {
     return bos.toByteArray();
   }
 
+  /**
+   * Wrap the given stream with a stream that compresses the data written to it.
+   * The output is compatible with <code>decompress(byte[])</code>.
+   * Call <code>finish()</code> or <code>close()</code> on the returned stream when done
+   * writing, this releases the native resources of the compressor.
+   * @param aOut the stream which will receive the compressed data.
+   * @param aLevel the compression level.  See the java.util.zip.Deflater class for possible levels.
+   * @return a stream that compresses its data into aOut.
+   */
+  public static DeflaterOutputStream compressStream(final OutputStream aOut, final int aLevel) {
+    return new EndingDeflaterOutputStream(aOut, aLevel);
+  }
+
+  /**
+   * Wrap the given stream with a stream that decompresses the data read from it.
+   * Accepts data created by <code>compress(byte[])</code> or <code>compressStream()</code>.
+   * Call <code>close()</code> on the returned stream when done to release the
+   * native resources of the decompressor.
+   * @param aIn the stream containing compressed data.
+   * @return a stream that reads decompressed data from aIn.
+   */
+  public static InflaterInputStream decompressStream(final InputStream aIn) {
+    return new EndingInflaterInputStream(aIn);
+  }
+
+  /** A DeflaterOutputStream that releases its Deflater when finished */
+  private static class EndingDeflaterOutputStream extends DeflaterOutputStream {
+    private boolean pIsEnded= false;
+
+    EndingDeflaterOutputStream(final OutputStream aOut, final int aLevel) {
+      super(aOut, new Deflater(aLevel), BUFFER_SIZE);
+    }
+
+    public void finish() throws IOException {
+      if (pIsEnded) return;
+      super.finish();
+      def.end();
+      pIsEnded= true;
+    }
+  }  // EndingDeflaterOutputStream
+
+  /** An InflaterInputStream that releases its Inflater when closed */
+  private static class EndingInflaterInputStream extends InflaterInputStream {
+    EndingInflaterInputStream(final InputStream aIn) {
+      super(aIn, new Inflater(), BUFFER_SIZE);
+    }
+
+    public void close() throws IOException {
+      try {
+        super.close();
+      } finally {
+        inf.end();
+      }
+    }
+  }  // EndingInflaterInputStream
+
 }
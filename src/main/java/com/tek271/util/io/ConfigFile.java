@@ -71,7 +71,7 @@ public class ConfigFile implements Cloneable {
 /** The chars that start a comment, any char will start a comment */
   private String pCommentChars= ";#";
 
-  private ListOfString pData= new ListOfString();
+  private ListOfString pData= indexed(new ListOfString());
   private String pFileName;
   private String pEqual= "=";    // caches the equal char
   private String pComment= ";";  // caches the comment char
@@ -79,12 +79,18 @@ public class ConfigFile implements Cloneable {
   private boolean isProcessTags;
   private boolean isProcessIncludeFile;
 
+/** Name lookups, including ${tag} processing, use an index instead of scanning lines */
+  private static ListOfString indexed(final ListOfString aData) {
+    aData.setNameIndexed(true);
+    return aData;
+  }
+
 /** Create an empty config file */
   public ConfigFile() {}
 
 /** Create a ConfigFile from a ListOfString */
   public ConfigFile(final ListOfString aData) {
-    pData= aData.copy();
+    pData= indexed(aData.copy());
   }
 
 /** Create a ConfigFile from the given file name */
@@ -370,7 +376,7 @@ public class ConfigFile implements Cloneable {
 /** Get a new ConfigFile object with names that start with the given prefix */
   public ConfigFile getSubset(final String aPrefix) {
     ConfigFile cf= new ConfigFile();
-    cf.pData= pData.subsetItemStart(aPrefix);
+    cf.pData= indexed(pData.subsetItemStart(aPrefix));
     cf.setCommentChars(pCommentChars);
     cf.setEqualChars(pEqualChars);
     return cf;
@@ -399,7 +405,7 @@ public class ConfigFile implements Cloneable {
       if (isCommentOrEmpty(i)) continue;
       data.add(getName(i), getValue(i));
     }
-    pData= data;
+    pData= indexed(data);
   }  // removeComments
 
 /** Remove the item at the given index */
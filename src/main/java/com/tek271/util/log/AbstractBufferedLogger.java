@@ -143,8 +143,10 @@ public abstract class AbstractBufferedLogger implements ILogger {
   }
 
 
-  private static final String pMSG_FIRST = "[First time in ? seconds?] ";
-  private static final String pMSG_COUNT = "[? times in the last ? seconds?] ";
+  private static final PrintfPattern pMSG_FIRST =
+                       PrintfPattern.compile("[First time in ? seconds?] ");
+  private static final PrintfPattern pMSG_COUNT =
+                       PrintfPattern.compile("[? times in the last ? seconds?] ");
 
 /** A data structure that store a log message and its stack trace(s) */
   private class BufferedLogEntry {
@@ -176,16 +178,22 @@ public abstract class AbstractBufferedLogger implements ILogger {
     }
 
     private String buildMsg() {
-      String thr= pIsListThreadName? ", thread="+pThreadName : StringUtility.EMPTY;
-      String msg;
+      StringBuilder b= StringBuilderPool.acquire(64 + StringUtility.length(pLogMessage));
+      int slot= 0;
+      PrintfPattern pattern;
       if (pCount==1) {
-        msg= Printf.p(pMSG_FIRST, pWaitPeriodAsString, thr);
+        pattern= pMSG_FIRST;
+        pattern.appendSegment(b, slot++).append(pWaitPeriodAsString);
       } else {
+        pattern= pMSG_COUNT;
         float d= (System.currentTimeMillis() - pCreateTime) / 1000.0f;
-        String ds= String.valueOf(d);
-        msg=Printf.p(pMSG_COUNT, String.valueOf(pCount), ds, thr);
+        pattern.appendSegment(b, slot++).append(pCount);
+        pattern.appendSegment(b, slot++).append(d);
       }
-      return msg + pLogMessage;
+      pattern.appendSegment(b, slot++);
+      if (pIsListThreadName) b.append(", thread=").append(pThreadName);
+      pattern.appendSegment(b, slot);
+      return StringBuilderPool.release( b.append(pLogMessage) );
     }
 
 /** log this message */
@@ -30,7 +30,7 @@ import com.tek271.util.string.*;
 import com.tek271.util.time.DateFormatUt;
 import com.tek271.util.io.FileIO;
 import com.tek271.util.collections.array.ArrayUtilities;
-import com.tek271.util.collections.CircularFifoOfLong;
+import com.tek271.util.collections.ConcurrentRingOfLong;
 
 /**
  * Log timing for different events in the JVM. The caller logs the
@@ -47,6 +47,9 @@ public class PerformanceLog {
 
   public static final int MAX_ENTRY_BUFFER_SIZE= 10;
 
+  /** seconds of rolling window statistics kept for each entry */
+  public static final int METER_WINDOW_SECONDS= 60;
+
 /**
  * Create a performance logger with a max size of MAX_SIZE.
  * This is the only way to get an object of PerformanceLog. This object
@@ -68,7 +71,8 @@ public class PerformanceLog {
     private int pCounter;      // # of times this operations was invoked
     private long pMinDelay;    // minimum delay on this operation
     private long pMaxDelay;    // maximum delay on this operation
-    private CircularFifoOfLong pQueue;  // queue of last 10 delays of this event
+    private ConcurrentRingOfLong pQueue;  // last 10 delays, readable without the log lock
+    private RollingMeter pMeter;  // rates and delays over the last minute
 
     private LogEntry(final long aDelay) {
       pCreateTime= System.currentTimeMillis();
@@ -77,8 +81,10 @@ public class PerformanceLog {
       pCounter=1;
       pMinDelay= aDelay;
       pMaxDelay= aDelay;
-      pQueue= new CircularFifoOfLong(MAX_ENTRY_BUFFER_SIZE);
+      pQueue= new ConcurrentRingOfLong(MAX_ENTRY_BUFFER_SIZE);
       pQueue.add(aDelay);
+      pMeter= new RollingMeter(METER_WINDOW_SECONDS, pCreateTime);
+      pMeter.update(aDelay, pCreateTime);
     }
 
     private void updateDelay(final long aDelay) {
@@ -88,6 +94,7 @@ public class PerformanceLog {
       if (aDelay<pMinDelay) pMinDelay= aDelay;
       if (aDelay>pMaxDelay) pMaxDelay= aDelay;
       pQueue.add(aDelay);
+      pMeter.update(aDelay, pModifyTime);
     }
 
 /** # of times this operations was invoked */
@@ -120,6 +127,9 @@ public class PerformanceLog {
 /** Last 10 delays */
     public long[] getHistory() { return pQueue.toArray(); }
 
+/** Rate, count, and max delay of this event over the last METER_WINDOW_SECONDS */
+    public RollingMeter getMeter() { return pMeter; }
+
 
     private static final String pCOUNTER= "Counter=";
     private static final String pAVERAGE = "Average Delay=";
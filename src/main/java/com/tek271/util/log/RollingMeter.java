@@ -0,0 +1,335 @@
+/*
+Technology Exponent Common Utilities For Java (TECUJ)
+Copyright (C) 2003,2008  Abdul Habra.
+www.tek271.com
+
+This file is part of TECUJ.
+
+TECUJ is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published
+by the Free Software Foundation; version 2.
+
+TECUJ is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with TECUJ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+You can contact the author at ahabra@yahoo.com
+*/
+package com.tek271.util.log;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * Rolling window statistics of an event, e.g. the delay of a query: the rate of the event
+ * and the count, sum and max of its values over the last seconds or minutes.
+ * <p>Values are kept in a ring of per-second buckets, in the same way
+ * <code>CircularFifoOfLong</code> keeps its last values. The bucket of a second is
+ * <code>second % windowSeconds</code>, and a bucket left from an older second is reset
+ * when reused. Window statistics are computed over the buckets of the requested last
+ * seconds.
+ * <p>The meter also keeps 1, 5, and 15 minute exponentially weighted moving average
+ * (EWMA) rates in events per second, the same rates shown by the unix load average. The
+ * averages are updated every 5 seconds, by the first update or read after the interval.
+ * <p>update() is O(1), does not allocate, and does not lock, so it can be called on a hot
+ * path by many threads: the buckets are atomic arrays, and the totals are striped
+ * counters. A bucket being reset for a new second is claimed by one thread, the others
+ * wait for the few stores of the reset. Only the EWMA tick, once every 5 seconds, takes
+ * the meter's lock. Readers see each bucket's statistics without locking, so a
+ * concurrent update may be partly visible. The methods that take a time in milliseconds
+ * are for callers that already have the current time, and for testing; an event older
+ * than the second of its bucket is counted only in the totals and rates.
+ * <p>Copyright (c) 2008 Technology Exponent</p>
+ * @author Abdul Habra
+ * @version 1.0
+ */
+public class RollingMeter {
+  /** Default window size, 5 minutes */
+  public static final int DEFAULT_WINDOW_SECONDS= 300;
+
+  private static final int pTICK_SECONDS= 5;
+  private static final long pTICK_MILLIS= pTICK_SECONDS * 1000L;
+  private static final double pALPHA_1= alpha(1);
+  private static final double pALPHA_5= alpha(5);
+  private static final double pALPHA_15= alpha(15);
+
+  /** The second of a bucket while it is being reset */
+  private static final long pRESETTING= -2;
+
+  private final int pWindowSeconds;
+  private final AtomicLongArray pSeconds;  // the epoch second of each bucket, -1 if never used
+  private final AtomicLongArray pCounts;
+  private final AtomicLongArray pSums;
+  private final AtomicLongArray pMaxes;
+
+  private final LongAdder pTotalCount= new LongAdder();
+  private final LongAdder pTotalSum= new LongAdder();
+
+  private volatile long pLastTick;  // time of the last EWMA tick, aligned to pTICK_MILLIS
+  // the fields below are guarded by this
+  private long pCountAtLastTick;    // pTotalCount at the last tick
+  private boolean pIsRateSet;
+  private double pRate1;
+  private double pRate5;
+  private double pRate15;
+
+  /** Create a meter with a window of DEFAULT_WINDOW_SECONDS */
+  public RollingMeter() {
+    this(DEFAULT_WINDOW_SECONDS);
+  }
+
+/**
+ * Create a meter that keeps per-second statistics for aWindowSeconds.
+ * @throws IllegalArgumentException if aWindowSeconds is less than 1
+ */
+  public RollingMeter(final int aWindowSeconds) {
+    this(aWindowSeconds, System.currentTimeMillis());
+  }
+
+  RollingMeter(final int aWindowSeconds, final long aNow) {
+    if (aWindowSeconds<=0) throw new IllegalArgumentException("The window must be at least one second");
+    pWindowSeconds= aWindowSeconds;
+    pSeconds= new AtomicLongArray(aWindowSeconds);
+    pCounts= new AtomicLongArray(aWindowSeconds);
+    pSums= new AtomicLongArray(aWindowSeconds);
+    pMaxes= new AtomicLongArray(aWindowSeconds);
+    for (int i=0; i<aWindowSeconds; i++) pSeconds.set(i, -1);
+    pLastTick= aNow - aNow % pTICK_MILLIS;
+  }
+
+  private static double alpha(final int aMinutes) {
+    return 1 - Math.exp(-pTICK_SECONDS / (60.0 * aMinutes));
+  }
+
+/** Number of seconds kept in the window */
+  public int getWindowSeconds() {
+    return pWindowSeconds;
+  }
+
+/** Record one event without a value */
+  public void mark() {
+    update(0, System.currentTimeMillis());
+  }
+
+/** Record one event with the given value, e.g. a delay in milliseconds */
+  public void update(final long aValue) {
+    update(aValue, System.currentTimeMillis());
+  }
+
+/** Record one event with the given value that happened at aNow milliseconds */
+  public void update(final long aValue, final long aNow) {
+    tick(aNow);
+    pTotalCount.increment();
+    pTotalSum.add(aValue);
+
+    long second= aNow / 1000;
+    int i= (int) (second % pWindowSeconds);
+    if (!claimBucket(i, second)) return;
+    long max= pMaxes.get(i);
+    while (aValue > max && !pMaxes.compareAndSet(i, max, aValue)) max= pMaxes.get(i);
+    pSums.addAndGet(i, aValue);
+    pCounts.incrementAndGet(i);
+  }  // update
+
+/**
+ * Make bucket aIndex hold aSecond, resetting it if it holds an older second.
+ * @return false if the bucket holds a newer second.
+ */
+  private boolean claimBucket(final int aIndex, final long aSecond) {
+    while (true) {
+      long second= pSeconds.get(aIndex);
+      if (second==aSecond) return true;
+      if (second==pRESETTING) {
+        Thread.yield();
+        continue;
+      }
+      if (second > aSecond) return false;
+      if (!pSeconds.compareAndSet(aIndex, second, pRESETTING)) continue;
+      pCounts.set(aIndex, 0);
+      pSums.set(aIndex, 0);
+      pMaxes.set(aIndex, Long.MIN_VALUE);
+      pSeconds.set(aIndex, aSecond);
+      return true;
+    }
+  }  // claimBucket
+
+  /** Update the EWMA rates for all the ticks elapsed until aNow */
+  private void tick(final long aNow) {
+    if (aNow - pLastTick < pTICK_MILLIS) return;
+    synchronized (this) {
+      long ticks= (aNow - pLastTick) / pTICK_MILLIS;
+      if (ticks <= 0) return;
+      pLastTick+= ticks * pTICK_MILLIS;
+      updateRates(ticks);
+    }
+  }  // tick
+
+  private void updateRates(final long aTicks) {
+    long count= pTotalCount.sum();
+    double instantRate= (double) (count - pCountAtLastTick) / pTICK_SECONDS;
+    pCountAtLastTick= count;
+    if (pIsRateSet) {
+      pRate1+= pALPHA_1 * (instantRate - pRate1);
+      pRate5+= pALPHA_5 * (instantRate - pRate5);
+      pRate15+= pALPHA_15 * (instantRate - pRate15);
+    } else {
+      pRate1= pRate5= pRate15= instantRate;
+      pIsRateSet= true;
+    }
+    if (aTicks > 1) {  // the remaining ticks had no events
+      pRate1*= Math.pow(1 - pALPHA_1, aTicks - 1);
+      pRate5*= Math.pow(1 - pALPHA_5, aTicks - 1);
+      pRate15*= Math.pow(1 - pALPHA_15, aTicks - 1);
+    }
+  }  // updateRates
+
+/** Number of events since this meter was created */
+  public long getTotalCount() {
+    return pTotalCount.sum();
+  }
+
+/** Sum of values since this meter was created */
+  public long getTotalSum() {
+    return pTotalSum.sum();
+  }
+
+/** EWMA rate of events per second over the last minute */
+  public double getOneMinuteRate() {
+    return getOneMinuteRate(System.currentTimeMillis());
+  }
+
+  public synchronized double getOneMinuteRate(final long aNow) {
+    tick(aNow);
+    return pRate1;
+  }
+
+/** EWMA rate of events per second over the last 5 minutes */
+  public double getFiveMinuteRate() {
+    return getFiveMinuteRate(System.currentTimeMillis());
+  }
+
+  public synchronized double getFiveMinuteRate(final long aNow) {
+    tick(aNow);
+    return pRate5;
+  }
+
+/** EWMA rate of events per second over the last 15 minutes */
+  public double getFifteenMinuteRate() {
+    return getFifteenMinuteRate(System.currentTimeMillis());
+  }
+
+  public synchronized double getFifteenMinuteRate(final long aNow) {
+    tick(aNow);
+    return pRate15;
+  }
+
+  private static final int pCOUNT= 0;
+  private static final int pSUM= 1;
+  private static final int pMAX= 2;
+
+  /** Combine the buckets of the last aSeconds, including the current second */
+  private long aggregate(final int aStat, final int aSeconds, final long aNow) {
+    if (aSeconds<=0 || aSeconds>pWindowSeconds) {
+      throw new IllegalArgumentException("Seconds must be between 1 and " + pWindowSeconds);
+    }
+    long now= aNow / 1000;
+    long from= now - aSeconds;
+    long r= 0;
+    boolean isFound= false;
+    for (int i=0; i<pWindowSeconds; i++) {
+      long second= pSeconds.get(i);
+      if (second <= from || second > now) continue;
+      switch (aStat) {
+        case pCOUNT: r+= pCounts.get(i); break;
+        case pSUM: r+= pSums.get(i); break;
+        default:
+          if (pCounts.get(i)==0) break;  // reset but no event yet
+          long max= pMaxes.get(i);
+          if (!isFound || max > r) r= max;
+          isFound= true;
+      }
+    }
+    return r;
+  }  // aggregate
+
+/** Number of events in the last aSeconds, 1 to getWindowSeconds() */
+  public long getCount(final int aSeconds) {
+    return getCount(aSeconds, System.currentTimeMillis());
+  }
+
+  public long getCount(final int aSeconds, final long aNow) {
+    return aggregate(pCOUNT, aSeconds, aNow);
+  }
+
+/** Sum of values in the last aSeconds, 1 to getWindowSeconds() */
+  public long getSum(final int aSeconds) {
+    return getSum(aSeconds, System.currentTimeMillis());
+  }
+
+  public long getSum(final int aSeconds, final long aNow) {
+    return aggregate(pSUM, aSeconds, aNow);
+  }
+
+/** Max value in the last aSeconds, 1 to getWindowSeconds(); 0 if there were no events */
+  public long getMax(final int aSeconds) {
+    return getMax(aSeconds, System.currentTimeMillis());
+  }
+
+  public long getMax(final int aSeconds, final long aNow) {
+    return aggregate(pMAX, aSeconds, aNow);
+  }
+
+/** Average value in the last aSeconds, 1 to getWindowSeconds(); 0 if there were no events */
+  public double getMean(final int aSeconds) {
+    return getMean(aSeconds, System.currentTimeMillis());
+  }
+
+  public double getMean(final int aSeconds, final long aNow) {
+    long count= aggregate(pCOUNT, aSeconds, aNow);
+    if (count==0) return 0;
+    return (double) aggregate(pSUM, aSeconds, aNow) / count;
+  }
+
+/** Events per second in the last aSeconds, 1 to getWindowSeconds() */
+  public double getRate(final int aSeconds) {
+    return getRate(aSeconds, System.currentTimeMillis());
+  }
+
+  public double getRate(final int aSeconds, final long aNow) {
+    return (double) aggregate(pCOUNT, aSeconds, aNow) / aSeconds;
+  }
+
+/**
+ * Number of events in each second of the window, oldest first. The last item is
+ * the current second.
+ */
+  public long[] getCountHistory() {
+    return getCountHistory(System.currentTimeMillis());
+  }
+
+  public long[] getCountHistory(final long aNow) {
+    long now= aNow / 1000;
+    long[] r= new long[pWindowSeconds];
+    for (int k=0; k<pWindowSeconds; k++) {
+      long second= now - pWindowSeconds + 1 + k;
+      int i= (int) (second % pWindowSeconds);
+      if (pSeconds.get(i)==second) r[k]= pCounts.get(i);
+    }
+    return r;
+  }  // getCountHistory
+
+  public String toString() {
+    long now= System.currentTimeMillis();
+    int minute= Math.min(60, pWindowSeconds);
+    return "count=" + getCount(minute, now) + " in last " + minute + "s" +
+           ", max=" + getMax(minute, now) +
+           ", 1m rate=" + getOneMinuteRate(now) +
+           ", 5m rate=" + getFiveMinuteRate(now) +
+           ", 15m rate=" + getFifteenMinuteRate(now);
+  }
+
+}  // RollingMeter
@@ -0,0 +1,467 @@
+/*
+Technology Exponent Common Utilities For Java (TECUJ)
+Copyright (C) 2003,2008  Abdul Habra.
+www.tek271.com
+
+This file is part of TECUJ.
+
+TECUJ is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published
+by the Free Software Foundation; version 2.
+
+TECUJ is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with TECUJ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+You can contact the author at ahabra@yahoo.com
+*/
+package com.tek271.util.string;
+
+import java.util.*;
+
+/**
+ * Finds any of a set of patterns in a text in one pass, with the Aho-Corasick algorithm.
+ * The patterns are compiled once into an automaton whose states are the prefixes of the
+ * patterns; each char of the text moves the automaton to the longest prefix that ends at
+ * that char, so the time of a search depends on the length of the text and the number of
+ * matches, not on the number of patterns.
+ * <p>Patterns are identified by their index in the list given to the constructor. Empty
+ * and null patterns never match; a pattern listed twice is reported for both indexes.
+ * Texts can be CharSequences or byte arrays; bytes are compared as unsigned values with
+ * the chars of the patterns.
+ * <p>A compiled object is immutable and can be shared by threads. It is used by
+ * <code>StringUtility.countMatches(String, ListOfString)</code>,
+ * <code>StringUtility.lastIndexOf(String, List, int[])</code> and
+ * <code>ArrayUtilities.indexOf(char[], ListOfString, int, int[])</code> for large inputs.
+ * <p>Copyright (c) 2008 Technology Exponent</p>
+ * @author Abdul Habra
+ * @version 1.0
+ */
+public class AhoCorasick {
+  /** Texts shorter than this are searched pattern by pattern by the callers */
+  public static final int MIN_TEXT_LENGTH= 1024;
+  /** Sets with fewer patterns than this are searched pattern by pattern by the callers */
+  public static final int MIN_PATTERNS= 8;
+
+  /** Receives the matches found by search() */
+  public interface IMatchHandler {
+/**
+ * Called for each match, in the order of the match's end in the text.
+ * @param aPatternIndex index of the matched pattern.
+ * @param aStart index of the match's first char in the text.
+ * @return true to continue searching, false to stop.
+ */
+    boolean match(int aPatternIndex, int aStart);
+  }
+
+  private static final int pROOT= 0;
+  private static final int pDENSE_CHARS= 128;   // the root has a table for ASCII chars
+  private static final char[] pNO_KEYS= new char[0];
+  private static final int[] pNO_TARGETS= new int[0];
+
+  private final String[] pPatterns;
+  private final int[] pLengths;
+  private int pMaxLength;
+  private int[] pRootTable;     // ASCII char -> child of the root, 0 if none
+  private char[][] pKeys;       // state -> sorted chars of its transitions
+  private int[][] pTargets;     // state -> target states, parallel to pKeys
+  private int[] pFail;          // state -> longest proper suffix that is a state
+  private int[][] pOutputs;     // state -> patterns ending at the state, null if none
+  private int[] pDictLink;      // state -> nearest suffix state with outputs, -1 if none
+  private volatile AhoCorasick pReversed;  // of the reversed patterns, for lastIndexOf()
+
+/**
+ * Compile the given patterns.
+ * @param aPatterns List of String patterns.
+ */
+  public AhoCorasick(final List aPatterns) {
+    this((String[]) aPatterns.toArray(new String[aPatterns.size()]));
+  }
+
+/** Compile the given patterns */
+  public AhoCorasick(final String[] aPatterns) {
+    pPatterns= (String[]) aPatterns.clone();
+    pLengths= new int[pPatterns.length];
+    build();
+  }
+
+/** Compile the given byte patterns, search them with the byte[] methods */
+  public AhoCorasick(final byte[][] aPatterns) {
+    this(toStrings(aPatterns));
+  }
+
+  private static String[] toStrings(final byte[][] aPatterns) {
+    String[] r= new String[aPatterns.length];
+    for (int i=0; i<r.length; i++) {
+      if (aPatterns[i]==null) continue;
+      char[] chars= new char[aPatterns[i].length];
+      for (int k=0; k<chars.length; k++) chars[k]= (char) (aPatterns[i][k] & 0xFF);
+      r[i]= new String(chars);
+    }
+    return r;
+  }  // toStrings
+
+/** # of patterns */
+  public int size() {
+    return pPatterns.length;
+  }
+
+/** Get the pattern at the given index */
+  public String getPattern(final int aIndex) {
+    return pPatterns[aIndex];
+  }
+
+  private void build() {
+    // the trie, the transitions of each state are kept sorted while building
+    int states= 1;
+    pKeys= new char[16][];
+    pTargets= new int[16][];
+    pOutputs= new int[16][];
+    pKeys[pROOT]= pNO_KEYS;
+    pTargets[pROOT]= pNO_TARGETS;
+    for (int k=0; k<pPatterns.length; k++) {
+      String p= pPatterns[k];
+      if (p==null || p.length()==0) continue;
+      pLengths[k]= p.length();
+      pMaxLength= Math.max(pMaxLength, p.length());
+      int state= pROOT;
+      for (int i=0, n=p.length(); i<n; i++) {
+        char c= p.charAt(i);
+        int at= Arrays.binarySearch(pKeys[state], c);
+        if (at >= 0) {
+          state= pTargets[state][at];
+          continue;
+        }
+        if (states==pKeys.length) {
+          pKeys= Arrays.copyOf(pKeys, states * 2);
+          pTargets= Arrays.copyOf(pTargets, states * 2);
+          pOutputs= Arrays.copyOf(pOutputs, states * 2);
+        }
+        at= -at - 1;
+        pKeys[state]= insertChar(pKeys[state], at, c);
+        pTargets[state]= insertInt(pTargets[state], at, states);
+        pKeys[states]= pNO_KEYS;
+        pTargets[states]= pNO_TARGETS;
+        state= states++;
+      }
+      pOutputs[state]= appendInt(pOutputs[state], k);
+    }
+    pKeys= Arrays.copyOf(pKeys, states);
+    pTargets= Arrays.copyOf(pTargets, states);
+    pOutputs= Arrays.copyOf(pOutputs, states);
+    pFail= new int[states];
+    pDictLink= new int[states];
+
+    pRootTable= new int[pDENSE_CHARS];
+    for (int i=0; i<pKeys[pROOT].length; i++) {
+      if (pKeys[pROOT][i] < pDENSE_CHARS) pRootTable[pKeys[pROOT][i]]= pTargets[pROOT][i];
+    }
+
+    // failure and dictionary links, breadth first so shorter states are done first
+    int[] queue= new int[states];
+    int head= 0, tail= 0;
+    pDictLink[pROOT]= -1;
+    for (int i=0; i<pTargets[pROOT].length; i++) {
+      int child= pTargets[pROOT][i];
+      pFail[child]= pROOT;
+      pDictLink[child]= -1;
+      queue[tail++]= child;
+    }
+    while (head < tail) {
+      int s= queue[head++];
+      for (int i=0; i<pKeys[s].length; i++) {
+        char c= pKeys[s][i];
+        int child= pTargets[s][i];
+        pFail[child]= next(pFail[s], c);
+        int f= pFail[child];
+        pDictLink[child]= pOutputs[f] != null ? f : pDictLink[f];
+        queue[tail++]= child;
+      }
+    }
+  }  // build
+
+  private static char[] insertChar(final char[] aArray, final int aIndex, final char aValue) {
+    char[] r= new char[aArray.length + 1];
+    System.arraycopy(aArray, 0, r, 0, aIndex);
+    r[aIndex]= aValue;
+    System.arraycopy(aArray, aIndex, r, aIndex + 1, aArray.length - aIndex);
+    return r;
+  }
+
+  private static int[] insertInt(final int[] aArray, final int aIndex, final int aValue) {
+    int[] r= new int[aArray.length + 1];
+    System.arraycopy(aArray, 0, r, 0, aIndex);
+    r[aIndex]= aValue;
+    System.arraycopy(aArray, aIndex, r, aIndex + 1, aArray.length - aIndex);
+    return r;
+  }
+
+  private static int[] appendInt(final int[] aArray, final int aValue) {
+    if (aArray==null) return new int[] {aValue};
+    int[] r= Arrays.copyOf(aArray, aArray.length + 1);
+    r[aArray.length]= aValue;
+    return r;
+  }
+
+  /** Get the transition of aState on aChar, -1 if none */
+  private int transition(final int aState, final char aChar) {
+    if (aState==pROOT && aChar < pDENSE_CHARS) {
+      int r= pRootTable[aChar];
+      return r==0 ? -1 : r;
+    }
+    char[] keys= pKeys[aState];
+    int n= keys.length;
+    if (n <= 8) {
+      for (int i=0; i<n; i++) {
+        if (keys[i]==aChar) return pTargets[aState][i];
+      }
+      return -1;
+    }
+    int i= Arrays.binarySearch(keys, aChar);
+    return i < 0 ? -1 : pTargets[aState][i];
+  }  // transition
+
+  /** Move from aState on aChar, following failure links */
+  private int next(int aState, final char aChar) {
+    while (true) {
+      int r= transition(aState, aChar);
+      if (r >= 0) return r;
+      if (aState==pROOT) return pROOT;
+      aState= pFail[aState];
+    }
+  }  // next
+
+  /** The first state with outputs among aState and its dictionary links, -1 if none */
+  private int firstOutput(final int aState) {
+    return pOutputs[aState] != null ? aState : pDictLink[aState];
+  }
+
+  /** Report the matches ending at aEnd-1 in state aState, false if the handler stopped */
+  private boolean report(final int aState, final int aEnd, final IMatchHandler aHandler) {
+    for (int s= firstOutput(aState); s >= 0; s= pDictLink[s]) {
+      int[] out= pOutputs[s];
+      for (int i=0; i<out.length; i++) {
+        if (!aHandler.match(out[i], aEnd - pLengths[out[i]])) return false;
+      }
+    }
+    return true;
+  }  // report
+
+/**
+ * Find all matches in aText starting at aStart, including overlapping ones.
+ * @return false if the handler stopped the search.
+ */
+  public boolean search(final CharSequence aText, final int aStart,
+                        final IMatchHandler aHandler) {
+    int state= pROOT;
+    for (int i=Math.max(aStart, 0), n=aText.length(); i<n; i++) {
+      state= next(state, aText.charAt(i));
+      if (firstOutput(state) >= 0 && !report(state, i + 1, aHandler)) return false;
+    }
+    return true;
+  }  // search
+
+/**
+ * Find all matches in aText[aStart, aEnd), including overlapping ones.
+ * @return false if the handler stopped the search.
+ */
+  public boolean search(final byte[] aText, final int aStart, final int aEnd,
+                        final IMatchHandler aHandler) {
+    int state= pROOT;
+    for (int i=Math.max(aStart, 0); i<aEnd; i++) {
+      state= next(state, (char) (aText[i] & 0xFF));
+      if (firstOutput(state) >= 0 && !report(state, i + 1, aHandler)) return false;
+    }
+    return true;
+  }  // search
+
+  /** Finds the leftmost match; ties go to the lower pattern index */
+  private class Leftmost implements IMatchHandler {
+    int start= -1;
+    int pattern= -1;
+
+    public boolean match(final int aPatternIndex, final int aStart) {
+      if (start < 0 || aStart < start || (aStart==start && aPatternIndex < pattern)) {
+        start= aStart;
+        pattern= aPatternIndex;
+      }
+      return true;
+    }
+
+    /** No later match can start before the best one */
+    boolean isDone(final int aEnd) {
+      return start >= 0 && aEnd - pMaxLength + 1 > start;
+    }
+  }  // Leftmost
+
+/**
+ * Find the leftmost match in aText starting at aStart. If more than one pattern matches
+ * at that index, the one with the lower index wins.
+ * @param aPatternIndex if not null, its first element is set to the index of the found
+ *        pattern, -1 if not found.
+ * @return index of the match in aText, -1 if not found.
+ */
+  public int indexOf(final CharSequence aText, final int aStart, final int[] aPatternIndex) {
+    Leftmost best= new Leftmost();
+    int state= pROOT;
+    for (int i=Math.max(aStart, 0), n=aText.length(); i<n; i++) {
+      state= next(state, aText.charAt(i));
+      if (firstOutput(state) >= 0) report(state, i + 1, best);
+      if (best.isDone(i + 1)) break;
+    }
+    if (aPatternIndex != null) aPatternIndex[0]= best.pattern;
+    return best.start;
+  }  // indexOf
+
+/** Same as indexOf(CharSequence, int, int[]) for aText[aStart, aEnd) */
+  public int indexOf(final byte[] aText, final int aStart, final int aEnd,
+                     final int[] aPatternIndex) {
+    Leftmost best= new Leftmost();
+    int state= pROOT;
+    for (int i=Math.max(aStart, 0); i<aEnd; i++) {
+      state= next(state, (char) (aText[i] & 0xFF));
+      if (firstOutput(state) >= 0) report(state, i + 1, best);
+      if (best.isDone(i + 1)) break;
+    }
+    if (aPatternIndex != null) aPatternIndex[0]= best.pattern;
+    return best.start;
+  }  // indexOf
+
+/**
+ * Find the pattern with the lowest index that occurs in aText starting at aStart. This is
+ * the result of searching for each pattern in turn until one is found.
+ * @param aPatternIndex if not null, its first element is set to the index of the found
+ *        pattern, -1 if not found.
+ * @return index of the first occurrence of that pattern, -1 if none found.
+ */
+  public int indexOfFirstPattern(final CharSequence aText, final int aStart,
+                                 final int[] aPatternIndex) {
+    final int[] firsts= new int[pPatterns.length];
+    Arrays.fill(firsts, -1);
+    final int[] best= {Integer.MAX_VALUE};
+    search(aText, aStart, new IMatchHandler() {
+      public boolean match(final int aIndex, final int aMatchStart) {
+        if (firsts[aIndex] < 0) firsts[aIndex]= aMatchStart;
+        if (aIndex < best[0]) best[0]= aIndex;
+        return best[0] > 0;   // nothing can beat the first pattern
+      }
+    });
+    int k= best[0]==Integer.MAX_VALUE ? -1 : best[0];
+    if (aPatternIndex != null) aPatternIndex[0]= k;
+    return k < 0 ? -1 : firsts[k];
+  }  // indexOfFirstPattern
+
+/**
+ * Count the matches of each pattern in aText. Matches of the same pattern do not overlap,
+ * as with <code>StringUtils.countMatches()</code>; matches of different patterns may.
+ * @return array of counts, indexed by pattern.
+ */
+  public int[] countMatches(final CharSequence aText) {
+    final int[] counts= new int[pPatterns.length];
+    final int[] nextStart= new int[pPatterns.length];
+    search(aText, 0, new IMatchHandler() {
+      public boolean match(final int aIndex, final int aStart) {
+        if (aStart >= nextStart[aIndex]) {
+          counts[aIndex]++;
+          nextStart[aIndex]= aStart + pLengths[aIndex];
+        }
+        return true;
+      }
+    });
+    return counts;
+  }  // countMatches
+
+/**
+ * Find the match that starts last in aText. If more than one pattern matches at that
+ * index, the one with the lower index wins. The text is scanned backward from its end.
+ * @param aPatternIndex if not null, its first element is set to the index of the found
+ *        pattern, -1 if not found.
+ * @return index of the match in aText, -1 if not found.
+ */
+  public int lastIndexOf(final CharSequence aText, final int[] aPatternIndex) {
+    AhoCorasick reversed= reversed();
+    int state= pROOT;
+    for (int i=aText.length()-1; i>=0; i--) {
+      state= reversed.next(state, aText.charAt(i));
+      int s= reversed.firstOutput(state);
+      if (s < 0) continue;
+      int min= Integer.MAX_VALUE;
+      for (; s >= 0; s= reversed.pDictLink[s]) {
+        int[] out= reversed.pOutputs[s];
+        for (int k=0; k<out.length; k++) min= Math.min(min, out[k]);
+      }
+      if (aPatternIndex != null) aPatternIndex[0]= min;
+      return i;
+    }
+    if (aPatternIndex != null) aPatternIndex[0]= -1;
+    return -1;
+  }  // lastIndexOf
+
+  private AhoCorasick reversed() {
+    AhoCorasick r= pReversed;
+    if (r != null) return r;
+    String[] patterns= new String[pPatterns.length];
+    for (int i=0; i<patterns.length; i++) {
+      if (pPatterns[i]==null) continue;
+      char[] chars= pPatterns[i].toCharArray();  // not StringBuffer.reverse(), it keeps surrogate pairs
+      for (int a=0, b=chars.length-1; a<b; a++, b--) {
+        char c= chars[a];
+        chars[a]= chars[b];
+        chars[b]= c;
+      }
+      patterns[i]= new String(chars);
+    }
+    r= new AhoCorasick(patterns);
+    pReversed= r;
+    return r;
+  }  // reversed
+
+  /** For testing */
+  public static void main(String[] args) {
+    int size= args.length > 0 ? Integer.parseInt(args[0]) : 4 * 1024 * 1024;
+    int count= args.length > 1 ? Integer.parseInt(args[1]) : 50;
+    Random random= new Random(1);
+    char[] chars= new char[size];
+    for (int i=0; i<size; i++) {
+      chars[i]= random.nextInt(6)==0 ? ' ' : (char) ('a' + random.nextInt(26));
+    }
+    String text= new String(chars);
+    List patterns= new ArrayList();
+    for (int k=0; k<count; k++) {
+      int start= random.nextInt(size - 10);
+      patterns.add(text.substring(start, start + 4 + random.nextInt(5)));
+    }
+
+    for (int round=0; round<3; round++) {
+      long t= System.currentTimeMillis();
+      int simple= 0;
+      for (int k=0; k<count; k++) simple += StringUtility.countMatches(text, (String) patterns.get(k));
+      long tSimple= System.currentTimeMillis() - t;
+      t= System.currentTimeMillis();
+      AhoCorasick ac= new AhoCorasick(patterns);
+      long tBuild= System.currentTimeMillis() - t;
+      int[] counts= ac.countMatches(text);
+      int sum= 0;
+      for (int k=0; k<count; k++) sum += counts[k];
+      long tAc= System.currentTimeMillis() - t;
+
+      t= System.currentTimeMillis();
+      int last= -1;
+      for (int k=0; k<count; k++) last= Math.max(last, text.lastIndexOf((String) patterns.get(k)));
+      long tLastSimple= System.currentTimeMillis() - t;
+      t= System.currentTimeMillis();
+      int acLast= ac.lastIndexOf(text, null);
+      long tLastAc= System.currentTimeMillis() - t;
+      System.out.println(size / (1024 * 1024) + "MB, " + count + " patterns: countMatches " +
+                         "per pattern=" + tSimple + "ms, AhoCorasick=" + tAc + "ms (build " +
+                         tBuild + "ms), counts " + simple + "/" + sum + "; lastIndexOf per pattern=" +
+                         tLastSimple + "ms, AhoCorasick=" + tLastAc + "ms, at " + last + "/" + acLast);
+    }
+  }  // main
+
+}  // AhoCorasick
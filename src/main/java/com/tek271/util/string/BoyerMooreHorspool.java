@@ -0,0 +1,246 @@
+/*
+Technology Exponent Common Utilities For Java (TECUJ)
+Copyright (C) 2003,2008  Abdul Habra.
+www.tek271.com
+
+This file is part of TECUJ.
+
+TECUJ is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published
+by the Free Software Foundation; version 2.
+
+TECUJ is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with TECUJ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+You can contact the author at ahabra@yahoo.com
+*/
+package com.tek271.util.string;
+
+/**
+ * Finds a pattern in a text with the Boyer-Moore-Horspool algorithm. The pattern is
+ * compiled once, and can then be searched for in char arrays, CharSequences, or byte
+ * arrays. After a mismatch the search skips ahead by a distance taken from a table of the
+ * last occurrence of each char in the pattern, so long patterns are found by looking at a
+ * fraction of the text.
+ * <p>A compiled object is immutable and can be shared by threads. The static indexOf()
+ * methods choose between this algorithm and a simple scan depending on the sizes of the
+ * text and the pattern; they are used by <code>ArrayUtilities.indexOf()</code>.
+ * <p>Copyright (c) 2008 Technology Exponent</p>
+ * @author Abdul Habra
+ * @version 1.0
+ */
+public class BoyerMooreHorspool {
+  /** Patterns shorter than this are searched for with a simple scan */
+  public static final int MIN_PATTERN_LENGTH= 3;
+  /** Texts shorter than this are searched with a simple scan */
+  public static final int MIN_TEXT_LENGTH= 256;
+
+  private static final int pTABLE_SIZE= 256;  // chars are hashed by their low byte
+
+  private final char[] pChars;   // the pattern as chars, bytes are widened
+  private final int[] pShift;    // distance from last occurrence to the pattern's end
+
+/** Compile the given pattern */
+  public BoyerMooreHorspool(final char[] aPattern) {
+    pChars= (char[]) aPattern.clone();
+    pShift= shiftTable(pChars);
+  }
+
+/** Compile the given pattern */
+  public BoyerMooreHorspool(final String aPattern) {
+    this(aPattern.toCharArray());
+  }
+
+/** Compile the given pattern of bytes, search it with indexOf(byte[], int, int) */
+  public BoyerMooreHorspool(final byte[] aPattern) {
+    pChars= new char[aPattern.length];
+    for (int i=0; i<aPattern.length; i++) pChars[i]= (char) (aPattern[i] & 0xFF);
+    pShift= shiftTable(pChars);
+  }
+
+  private static int[] shiftTable(final char[] aPattern) {
+    int m= aPattern.length;
+    int[] r= new int[pTABLE_SIZE];
+    java.util.Arrays.fill(r, Math.max(m, 1));
+    // chars hashed to the same entry keep the smallest distance, which is always safe
+    for (int i=0; i<m-1; i++) r[aPattern[i] & 0xFF]= m - 1 - i;
+    return r;
+  }  // shiftTable
+
+/** Length of the pattern */
+  public int length() {
+    return pChars.length;
+  }
+
+/**
+ * Find the pattern in aText[aStart, aEnd).
+ * @return index of the first occurrence, -1 if not found.
+ */
+  public int indexOf(final char[] aText, final int aStart, final int aEnd) {
+    int m= pChars.length;
+    int from= Math.max(aStart, 0);
+    if (m==0) return from <= aEnd ? from : -1;
+    char[] p= pChars;
+    int[] shift= pShift;
+    char last= p[m-1];
+    for (int i= from + m - 1; i < aEnd; ) {
+      char c= aText[i];
+      if (c==last) {
+        int s= i - m + 1;
+        int j= m - 2;
+        while (j >= 0 && aText[s + j]==p[j]) j--;
+        if (j < 0) return s;
+      }
+      i += shift[c & 0xFF];
+    }
+    return -1;
+  }  // indexOf
+
+/** Find the pattern in aText starting at aStart, -1 if not found */
+  public int indexOf(final char[] aText, final int aStart) {
+    return indexOf(aText, aStart, aText.length);
+  }
+
+/** Find the pattern in aText starting at aStart, -1 if not found */
+  public int indexOf(final CharSequence aText, final int aStart) {
+    int m= pChars.length;
+    int n= aText.length();
+    int from= Math.max(aStart, 0);
+    if (m==0) return from <= n ? from : -1;
+    char[] p= pChars;
+    int[] shift= pShift;
+    char last= p[m-1];
+    for (int i= from + m - 1; i < n; ) {
+      char c= aText.charAt(i);
+      if (c==last) {
+        int s= i - m + 1;
+        int j= m - 2;
+        while (j >= 0 && aText.charAt(s + j)==p[j]) j--;
+        if (j < 0) return s;
+      }
+      i += shift[c & 0xFF];
+    }
+    return -1;
+  }  // indexOf
+
+/**
+ * Find the pattern in aText[aStart, aEnd). Bytes are compared as unsigned values, so the
+ * pattern should have been compiled from bytes or from chars below 256.
+ * @return index of the first occurrence, -1 if not found.
+ */
+  public int indexOf(final byte[] aText, final int aStart, final int aEnd) {
+    int m= pChars.length;
+    int from= Math.max(aStart, 0);
+    if (m==0) return from <= aEnd ? from : -1;
+    char[] p= pChars;
+    int[] shift= pShift;
+    int last= p[m-1];
+    for (int i= from + m - 1; i < aEnd; ) {
+      int c= aText[i] & 0xFF;
+      if (c==last) {
+        int s= i - m + 1;
+        int j= m - 2;
+        while (j >= 0 && (aText[s + j] & 0xFF)==p[j]) j--;
+        if (j < 0) return s;
+      }
+      i += shift[c];
+    }
+    return -1;
+  }  // indexOf
+
+/** Find the pattern in aText starting at aStart, -1 if not found */
+  public int indexOf(final byte[] aText, final int aStart) {
+    return indexOf(aText, aStart, aText.length);
+  }
+
+  private static boolean isWorthCompiling(final int aTextLength, final int aStart,
+                                          final int aPatternLength) {
+    return aPatternLength >= MIN_PATTERN_LENGTH && aTextLength - aStart >= MIN_TEXT_LENGTH;
+  }
+
+/**
+ * Find aPattern in aText starting at aStart. Uses a compiled pattern for long texts and
+ * patterns, and a simple scan otherwise.
+ * @return index of the first occurrence, -1 if not found.
+ */
+  public static int indexOf(final char[] aText, final char[] aPattern, final int aStart) {
+    if (aStart >= aText.length) return -1;
+    if (isWorthCompiling(aText.length, aStart, aPattern.length)) {
+      return new BoyerMooreHorspool(aPattern).indexOf(aText, aStart);
+    }
+    int m= aPattern.length;
+    for (int i= Math.max(aStart, 0), n= aText.length - m; i <= n; i++) {
+      int j= 0;
+      while (j < m && aText[i + j]==aPattern[j]) j++;
+      if (j==m) return i;
+    }
+    return -1;
+  }  // indexOf
+
+/**
+ * Find aPattern in aText starting at aStart. Uses a compiled pattern for long texts and
+ * patterns, and a simple scan otherwise.
+ * @return index of the first occurrence, -1 if not found.
+ */
+  public static int indexOf(final byte[] aText, final byte[] aPattern, final int aStart) {
+    if (aStart >= aText.length) return -1;
+    if (isWorthCompiling(aText.length, aStart, aPattern.length)) {
+      return new BoyerMooreHorspool(aPattern).indexOf(aText, aStart);
+    }
+    int m= aPattern.length;
+    for (int i= Math.max(aStart, 0), n= aText.length - m; i <= n; i++) {
+      int j= 0;
+      while (j < m && aText[i + j]==aPattern[j]) j++;
+      if (j==m) return i;
+    }
+    return -1;
+  }  // indexOf
+
+  /** The scan used before, for comparison */
+  private static int simpleIndexOf(final char[] aText, final char[] aPattern, final int aStart) {
+    int m= aPattern.length;
+    for (int i=aStart, n=aText.length-m; i<=n; i++) {
+      int j= 0;
+      while (j < m && aText[i + j]==aPattern[j]) j++;
+      if (j==m) return i;
+    }
+    return -1;
+  }  // simpleIndexOf
+
+  /** For testing */
+  public static void main(String[] args) {
+    int size= args.length > 0 ? Integer.parseInt(args[0]) : 8 * 1024 * 1024;
+    java.util.Random random= new java.util.Random(1);
+    char[] text= new char[size];
+    byte[] bytes= new byte[size];
+    for (int i=0; i<size; i++) {
+      text[i]= (char) ('a' + random.nextInt(26));
+      bytes[i]= (byte) text[i];
+    }
+    String[] patterns= {"abcd", "needle in a haystack", "a pattern that is quite a bit longer than the others"};
+    for (int round=0; round<3; round++) {
+      for (int k=0; k<patterns.length; k++) {
+        char[] p= patterns[k].toCharArray();
+        long t= System.nanoTime();
+        int simple= simpleIndexOf(text, p, 0);
+        long tSimple= System.nanoTime() - t;
+        t= System.nanoTime();
+        int bmh= indexOf(text, p, 0);
+        long tBmh= System.nanoTime() - t;
+        t= System.nanoTime();
+        int bmhBytes= indexOf(bytes, patterns[k].getBytes(), 0);
+        long tBytes= System.nanoTime() - t;
+        System.out.println(size / (1024 * 1024) + "MB, pattern length " + p.length + ": simple=" +
+                           tSimple / 1000000 + "ms, char[]=" + tBmh / 1000000 + "ms, byte[]=" +
+                           tBytes / 1000000 + "ms, found " + simple + "/" + bmh + "/" + bmhBytes);
+      }
+    }
+  }  // main
+
+}  // BoyerMooreHorspool
@@ -0,0 +1,290 @@
+/*
+Technology Exponent Common Utilities For Java (TECUJ)
+Copyright (C) 2003,2008  Abdul Habra.
+www.tek271.com
+
+This file is part of TECUJ.
+
+TECUJ is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published
+by the Free Software Foundation; version 2.
+
+TECUJ is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with TECUJ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+You can contact the author at ahabra@yahoo.com
+*/
+package com.tek271.util.string;
+
+import java.io.*;
+
+/**
+ * Escapes the chars of a string using a lookup table indexed by char code. Each entry
+ * of the table is the replacement of its char, or null to keep the char. Chars beyond
+ * the table are kept, or escaped by a rule: RULE_URL (%hex), RULE_NUMERIC_ENTITY
+ * (&amp;#n;), or RULE_UNICODE (\\uXXXX).
+ * <p>escape() scans ahead for the first char to escape, and returns the same string if
+ * there is none. Otherwise the text between escaped chars is copied in runs. It can also
+ * write to an Appendable or Writer, without building the escaped string.</p>
+ * <p>The predefined escapers cover HTML, XML text and attributes, URL and Unicode
+ * escapes. Instances are immutable and thread safe.</p>
+ * <p>Copyright (c) 2008 Technology Exponent</p>
+ * @author Abdul Habra
+ * @version 1.0
+ */
+public final class CharEscaper {
+  /** Keep chars beyond the table */
+  public static final int RULE_PASS= 0;
+  /** Escape chars beyond the table as % followed by the hex code without leading zeros */
+  public static final int RULE_URL= 1;
+  /** Escape chars beyond the table as &amp;#n; where n is the decimal code */
+  public static final int RULE_NUMERIC_ENTITY= 2;
+  /** Escape chars beyond the table as \\u followed by 4 hex digits */
+  public static final int RULE_UNICODE= 3;
+
+  private static final int pASCII= 128;
+  private static final char[] pHEX= "0123456789ABCDEF".toCharArray();
+
+/** &amp; &lt; &gt; as entities, for XML/HTML text */
+  public static final CharEscaper XML_TEXT=
+    forChars("&<>", new String[] {"&amp;", "&lt;", "&gt;"});
+
+/** &amp; &lt; &gt; " ' tab, new line and carriage return as entities, for XML attributes */
+  public static final CharEscaper XML_ATTRIBUTE=
+    forChars("&<>\"'\t\n\r",
+             new String[] {"&amp;", "&lt;", "&gt;", "&quot;", "&apos;", "&#9;", "&#10;", "&#13;"});
+
+/** &amp; &lt; &gt; " ' as entities, for HTML text and attribute values */
+  public static final CharEscaper HTML=
+    forChars("&<>\"'", new String[] {"&amp;", "&lt;", "&gt;", "&quot;", "&#39;"});
+
+/** All chars as numeric entities, e.g. A becomes &amp;#65; */
+  public static final CharEscaper HTML_NUMERIC=
+    new CharEscaper(new String[0], RULE_NUMERIC_ENTITY);
+
+/** All chars but letters and digits as %hex, e.g. - becomes %2D */
+  public static final CharEscaper URL= except(StringUtility.ALPHA_NUMERIC, RULE_URL);
+
+/** All chars as %hex, e.g. A becomes %41 */
+  public static final CharEscaper URL_ALL= new CharEscaper(new String[0], RULE_URL);
+
+/** Control and non ASCII chars as \\uXXXX, e.g. for Java or JSON string literals */
+  public static final CharEscaper UNICODE= unicode();
+
+/** All chars as \\uXXXX */
+  public static final CharEscaper UNICODE_ALL= new CharEscaper(new String[0], RULE_UNICODE);
+
+  private final String[] pTable;  // replacement by char code, null to keep the char
+  private final int pRule;        // for chars beyond the table
+
+/**
+ * Create an escaper.
+ * @param aTable replacement of each char by its code, null to keep the char. The array
+ * is copied.
+ * @param aRule how to escape chars >= aTable.length: RULE_PASS, RULE_URL,
+ * RULE_NUMERIC_ENTITY, or RULE_UNICODE.
+ */
+  public CharEscaper(final String[] aTable, final int aRule) {
+    if (aRule < RULE_PASS || aRule > RULE_UNICODE) {
+      throw new IllegalArgumentException("bad rule: " + aRule);
+    }
+    pTable= (String[]) aTable.clone();
+    pRule= aRule;
+  }
+
+/**
+ * Create an escaper that replaces each char of aChars with the string at the same
+ * index of aReplacements, like StringUtility.replaceAll(): chars without a replacement,
+ * or with a null one, are deleted. Other chars are kept.
+ */
+  public static CharEscaper forChars(final String aChars, final String[] aReplacements) {
+    int max= -1;
+    for (int i=0, n=aChars.length(); i<n; i++) max= Math.max(max, aChars.charAt(i));
+    String[] table= new String[max + 1];
+    for (int i=aChars.length()-1; i>=0; i--) {  // the first occurance wins
+      String rep= i < aReplacements.length ? aReplacements[i] : null;
+      table[aChars.charAt(i)]= rep==null ? StringUtility.EMPTY : rep;
+    }
+    return new CharEscaper(table, RULE_PASS);
+  }  // forChars
+
+  /** Escape all chars by aRule except aKeep */
+  private static CharEscaper except(final String aKeep, final int aRule) {
+    String[] table= new String[pASCII];
+    StringBuilder b= new StringBuilder(8);
+    for (int c=0; c<pASCII; c++) {
+      if (aKeep.indexOf(c) >= 0) continue;
+      b.setLength(0);
+      try {
+        appendRule(b, aRule, (char) c);
+      } catch (IOException e) {  // cannot happen with StringBuilder
+        throw new IllegalStateException(e.getMessage());
+      }
+      table[c]= b.toString();
+    }
+    return new CharEscaper(table, aRule);
+  }  // except
+
+  private static CharEscaper unicode() {
+    StringBuilder keep= new StringBuilder(pASCII);
+    for (char c=32; c<127; c++) keep.append(c);
+    return except(keep.toString(), RULE_UNICODE);
+  }
+
+  /** Append the escape of aChar by aRule */
+  private static void appendRule(final Appendable aOut, final int aRule, final char aChar)
+                                 throws IOException {
+    switch (aRule) {
+      case RULE_URL:
+        aOut.append('%');
+        int shift= 12;
+        if (aChar != 0) {
+          while ((aChar >> shift) == 0) shift -= 4;  // skip leading zeros
+        }
+        for (; shift >= 0; shift -= 4) aOut.append(pHEX[(aChar >> shift) & 0xF]);
+        break;
+      case RULE_NUMERIC_ENTITY:
+        aOut.append('&').append('#');
+        int div= 10000;
+        while (div > 1 && aChar < div) div /= 10;
+        for (; div > 0; div /= 10) aOut.append((char) ('0' + aChar / div % 10));
+        aOut.append(';');
+        break;
+      case RULE_UNICODE:
+        aOut.append('\\').append('u');
+        for (int s=12; s >= 0; s -= 4) aOut.append(pHEX[(aChar >> s) & 0xF]);
+        break;
+      default:
+        aOut.append(aChar);
+    }
+  }  // appendRule
+
+/** Check if aChar is changed by this escaper */
+  public boolean isEscaped(final char aChar) {
+    if (aChar < pTable.length) return pTable[aChar] != null;
+    return pRule != RULE_PASS;
+  }
+
+/** Index of the first char at or after aFrom that is changed by this escaper, -1 if none */
+  public int indexOfEscaped(final CharSequence aText, final int aFrom) {
+    String[] table= pTable;
+    int tableLength= table.length;
+    boolean isRule= pRule != RULE_PASS;
+    for (int i=aFrom, n=aText.length(); i<n; i++) {
+      char c= aText.charAt(i);
+      if (c < tableLength ? table[c] != null : isRule) return i;
+    }
+    return -1;
+  }  // indexOfEscaped
+
+/**
+ * Escape aText.
+ * @return aText itself if nothing needs escaping, null if aText is null.
+ */
+  public String escape(final String aText) {
+    if (aText==null) return null;
+    int first= indexOfEscaped(aText, 0);
+    if (first < 0) return aText;
+
+    int n= aText.length();
+    StringBuilder b= StringBuilderPool.acquire(n + n/4 + 16);
+    try {
+      escape(aText, first, b);
+    } catch (IOException e) {  // cannot happen with StringBuilder
+      throw new IllegalStateException(e.getMessage());
+    }
+    return StringBuilderPool.release(b);
+  }  // escape
+
+/**
+ * Append aText to aOut, escaping its chars. Nothing is appended if aText is null.
+ * @return aOut
+ */
+  public Appendable escape(final CharSequence aText, final Appendable aOut) throws IOException {
+    if (aText==null) return aOut;
+    int first= indexOfEscaped(aText, 0);
+    if (first < 0) return append(aOut, aText, 0, aText.length());
+    return escape(aText, first, aOut);
+  }  // escape
+
+  /** Escape aText into aOut, where aFirst is the index of the first char to escape */
+  private Appendable escape(final CharSequence aText, final int aFirst, final Appendable aOut)
+                            throws IOException {
+    String[] table= pTable;
+    int tableLength= table.length;
+    int start= 0;  // start of the current run of kept chars
+    for (int i=aFirst, n=aText.length(); i<n; i++) {
+      char c= aText.charAt(i);
+      String rep;
+      if (c < tableLength) {
+        rep= table[c];
+        if (rep==null) continue;
+      } else if (pRule==RULE_PASS) {
+        continue;
+      } else {
+        rep= null;
+      }
+      if (start < i) append(aOut, aText, start, i);
+      if (rep==null) appendRule(aOut, pRule, c);
+      else aOut.append(rep);
+      start= i + 1;
+    }
+    return append(aOut, aText, start, aText.length());
+  }  // escape
+
+  /** Append a run of chars; a Writer writes a String run without copying it */
+  private static Appendable append(final Appendable aOut, final CharSequence aText,
+                                   final int aStart, final int aEnd) throws IOException {
+    if (aStart >= aEnd) return aOut;
+    if (aOut instanceof Writer && aText instanceof String) {
+      ((Writer) aOut).write((String) aText, aStart, aEnd - aStart);
+      return aOut;
+    }
+    return aOut.append(aText, aStart, aEnd);
+  }  // append
+
+  /** For testing: throughput of the escapers on clean and dirty text */
+  public static void main(String[] args) throws IOException {
+    StringBuilder clean= new StringBuilder();
+    StringBuilder dirty= new StringBuilder();
+    for (int i=0; i<1000; i++) {
+      clean.append("The quick brown fox jumps over the lazy dog ").append(i).append(". ");
+      dirty.append("<a href=\"x.html?a=1&b=").append(i).append("\">Tom's page</a> ");
+    }
+    String[] texts= {clean.toString(), dirty.toString()};
+    String[] names= {"clean", "dirty"};
+    CharEscaper[] escapers= {XML_TEXT, XML_ATTRIBUTE, HTML, URL, UNICODE};
+    String[] escaperNames= {"XML_TEXT", "XML_ATTRIBUTE", "HTML", "URL", "UNICODE"};
+    int rounds= 300;
+    for (int k=0; k<3; k++) {
+      for (int t=0; t<texts.length; t++) {
+        StringBuilder line= new StringBuilder(names[t]).append(" MB/s:");
+        for (int e=0; e<escapers.length; e++) {
+          long check= 0;
+          long start= System.nanoTime();
+          for (int r=0; r<rounds; r++) check += escapers[e].escape(texts[t]).length();
+          double seconds= (System.nanoTime() - start) / 1e9;
+          long mb= (long) (texts[t].length() * 2.0 * rounds / seconds / 1e6);
+          line.append(' ').append(escaperNames[e]).append('=').append(mb);
+          if (check==0) line.append('!');
+        }
+        StringWriter w= new StringWriter(texts[t].length() * 2);
+        long start= System.nanoTime();
+        for (int r=0; r<rounds; r++) {
+          w.getBuffer().setLength(0);
+          HTML.escape(texts[t], w);
+        }
+        double seconds= (System.nanoTime() - start) / 1e9;
+        line.append(" HTML-to-Writer=").append((long) (texts[t].length() * 2.0 * rounds / seconds / 1e6));
+        System.out.println(line);
+      }
+    }
+  }  // main
+
+}  // CharEscaper
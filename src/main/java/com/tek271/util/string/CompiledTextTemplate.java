@@ -0,0 +1,291 @@
+/*
+Technology Exponent Common Utilities For Java (TECUJ)
+Copyright (C) 2003,2008  Abdul Habra.
+www.tek271.com
+
+This file is part of TECUJ.
+
+TECUJ is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published
+by the Free Software Foundation; version 2.
+
+TECUJ is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with TECUJ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+You can contact the author at ahabra@yahoo.com
+*/
+package com.tek271.util.string;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * An immutable, parsed form of a TextTemplate that can be rendered many times, from
+ * many threads at once. The text is parsed once, with the same tag rules as
+ * TextTemplate, into literal segments and tag names. Each render looks up the tag
+ * values from a Map, an ITagLookup, or a TextTemplate.ITagTransformer, and appends
+ * the segments to an Appendable (a Writer, StringBuilder, ...). Nothing is copied or
+ * changed per render.
+ * <p>A tag without a value (missing, or null) is rendered as is, including its start/end
+ * markers, as TextTemplate does for tags that were not set.</p>
+ * <p>Create one with <code>new TextTemplate(text).compile()</code> or one of the
+ * constructors.</p>
+ * <p>Copyright (c) 2008 Technology Exponent</p>
+ * @author Abdul Habra
+ * @version 1.0
+ */
+public class CompiledTextTemplate {
+
+/** Gets the values of tags while rendering */
+  public interface ITagLookup {
+    /** @return the value of the tag, or null to leave the tag as is. */
+    String lookup(String aTagName);
+  }
+
+  private final String[] pParts;     // literal text, or the original text of a tag
+  private final String[] pTagNames;  // null for literal parts
+  private final String[] pTagKeys;   // tag names case folded if not case sensitive
+  private final boolean pIsCaseSensitive;
+  private final int pLiteralLength;  // total length of literal parts
+  private final String pTagStart;
+  private final String pTagEnd;
+
+/** Compile aText with the tag start marker ${ and tag end marker } */
+  public CompiledTextTemplate(final String aText) {
+    this(new TextTemplate(aText));
+  }
+
+/**
+ * Compile aText.
+ * @param aTagStart String The marker for the start of a tag, e.g. {
+ * @param aTagEnd String The marker for the end of a tag, e.g. }. If this end marker
+ * is null or zero-length then the first white-space character will mark the end of
+ * the tag.
+ */
+  public CompiledTextTemplate(final String aText,
+                              final String aTagStart,
+                              final String aTagEnd) {
+    this(new TextTemplate(aText, aTagStart, aTagEnd));
+  }
+
+/**
+ * Compile the text of the given template. Values already set on aTemplate are
+ * ignored, its tags and isCaseSensitive flag are used.
+ */
+  public CompiledTextTemplate(final TextTemplate aTemplate) {
+    List elements= aTemplate.getElements();
+    int n= elements.size();
+    pParts= new String[n];
+    pTagNames= new String[n];
+    pTagKeys= new String[n];
+    pIsCaseSensitive= aTemplate.isCaseSensitive;
+    pTagStart= aTemplate.getTagStart();
+    pTagEnd= aTemplate.getTagEnd();
+    int len= 0;
+    for (int i=0; i<n; i++) {
+      TextTemplate.Element e= (TextTemplate.Element) elements.get(i);
+      pParts[i]= e.text;
+      if (e.isTag()) {
+        pTagNames[i]= e.getTagName();
+        pTagKeys[i]= pIsCaseSensitive ? pTagNames[i] : StringUtility.foldCase(pTagNames[i]);
+      } else {
+        len += e.text.length();
+      }
+    }
+    pLiteralLength= len;
+  }  // CompiledTextTemplate
+
+/** Get the string that marks the start of a tag */
+  public String getTagStart() {
+    return pTagStart;
+  }
+
+/** Get the string that marks the end of a tag */
+  public String getTagEnd() {
+    return pTagEnd;
+  }
+
+  public boolean isCaseSensitive() {
+    return pIsCaseSensitive;
+  }
+
+/** Number of tags in the template */
+  public int getTagCount() {
+    int r= 0;
+    for (int i=0; i<pTagNames.length; i++) {
+      if (pTagNames[i] != null) r++;
+    }
+    return r;
+  }
+
+/** Get a list of all tag names in the template, in their order */
+  public List getAllTagNames() {
+    List r= new ArrayList();
+    for (int i=0; i<pTagNames.length; i++) {
+      if (pTagNames[i] != null) r.add(pTagNames[i]);
+    }
+    return r;
+  }
+
+  /** The non null values of aValues by case folded key */
+  private static Map foldKeys(final Map aValues) {
+    Map r= new HashMap(aValues.size() * 2 + 1);
+    for (Iterator i=aValues.entrySet().iterator(); i.hasNext(); ) {
+      Map.Entry entry= (Map.Entry) i.next();
+      if (entry.getKey()==null || entry.getValue()==null) continue;
+      r.put(StringUtility.foldCase((String) entry.getKey()), entry.getValue());
+    }
+    return r;
+  }  // foldKeys
+
+/**
+ * Render the template, taking tag values from aValues, whose keys are tag names.
+ * If the template is not case sensitive, the first tag that is not found by its name
+ * makes a case folded copy of aValues, once per render, to find it and the following
+ * tags regardless of case.
+ * @return aOut
+ */
+  public Appendable render(final Map aValues, final Appendable aOut) throws IOException {
+    Map folded= null;
+    for (int i=0, n=pParts.length; i<n; i++) {
+      String name= pTagNames[i];
+      String v= null;
+      if (name != null) {
+        v= (String) aValues.get(name);
+        if (v==null && !pIsCaseSensitive) {
+          if (folded==null) folded= foldKeys(aValues);
+          v= (String) folded.get(pTagKeys[i]);
+        }
+      }
+      aOut.append(v==null ? pParts[i] : v);
+    }
+    return aOut;
+  }  // render
+
+/**
+ * Render the template, taking tag values from aLookup.
+ * @return aOut
+ */
+  public Appendable render(final ITagLookup aLookup, final Appendable aOut) throws IOException {
+    for (int i=0, n=pParts.length; i<n; i++) {
+      String name= pTagNames[i];
+      String v= null;
+      if (name != null) v= aLookup.lookup(name);
+      aOut.append(v==null ? pParts[i] : v);
+    }
+    return aOut;
+  }  // render
+
+/**
+ * Render the template, transforming the tags that aTransformer matches. i.e.
+ * if aTransformer.isMatch(tag) then the tag is rendered as aTransformer.transform(tag)
+ * @return aOut
+ */
+  public Appendable render(final TextTemplate.ITagTransformer aTransformer,
+                           final Appendable aOut) throws IOException {
+    for (int i=0, n=pParts.length; i<n; i++) {
+      String name= pTagNames[i];
+      String v= null;
+      if (name != null && aTransformer.isMatch(name)) v= aTransformer.transform(name);
+      aOut.append(v==null ? pParts[i] : v);
+    }
+    return aOut;
+  }  // render
+
+  private StringBuilder newBuilder() {
+    return new StringBuilder(pLiteralLength + 16 * (pParts.length - 1) + 16);
+  }
+
+/** Render the template to a string, taking tag values from aValues */
+  public String render(final Map aValues) {
+    try {
+      return render(aValues, newBuilder()).toString();
+    } catch (IOException e) {  // cannot happen with StringBuilder
+      throw new IllegalStateException(e.getMessage());
+    }
+  }
+
+/** Render the template to a string, taking tag values from aLookup */
+  public String render(final ITagLookup aLookup) {
+    try {
+      return render(aLookup, newBuilder()).toString();
+    } catch (IOException e) {
+      throw new IllegalStateException(e.getMessage());
+    }
+  }
+
+/** Render the template to a string, transforming the tags aTransformer matches */
+  public String render(final TextTemplate.ITagTransformer aTransformer) {
+    try {
+      return render(aTransformer, newBuilder()).toString();
+    } catch (IOException e) {
+      throw new IllegalStateException(e.getMessage());
+    }
+  }
+
+/** Render the template with all tags as is */
+  public String toString() {
+    return render(Collections.EMPTY_MAP);
+  }
+
+  /** For testing */
+  public static void main(String[] args) throws Exception {
+    String text= "Dear ${title} ${name},\n<p>Your order ${order} of ${date} has shipped to " +
+                 "${address}. Track it at <a href='${url}'>${url}</a>.</p>\nThanks, ${from}";
+    final Map values= new HashMap();
+    values.put("title", "Dr.");
+    values.put("name", "Smith");
+    values.put("order", "A-12345");
+    values.put("date", "2008-02-03");
+    values.put("address", "1 Main St, Springfield");
+    values.put("url", "http://www.tek271.com/track?id=A-12345");
+    values.put("from", "tek271");
+    final int n= 200000;
+    final int threads= 4;
+
+    final TextTemplate tt= new TextTemplate(text);
+    final CompiledTextTemplate ct= tt.compile();
+    for (int round=0; round<3; round++) {
+      long t= System.currentTimeMillis();
+      long total= 0;
+      for (int i=0; i<n; i++) {
+        TextTemplate c= tt.copy();
+        c.setAll(values);
+        total += c.getText().length();
+      }
+      long tOld= System.currentTimeMillis() - t;
+
+      t= System.currentTimeMillis();
+      StringBuilder buf= new StringBuilder(256);
+      for (int i=0; i<n; i++) {
+        buf.setLength(0);
+        ct.render(values, buf);
+        total -= buf.length();
+      }
+      long tNew= System.currentTimeMillis() - t;
+
+      t= System.currentTimeMillis();
+      Thread[] ths= new Thread[threads];
+      for (int k=0; k<threads; k++) {
+        ths[k]= new Thread() {
+          public void run() {
+            for (int i=0; i<n/threads; i++) ct.render(values);
+          }
+        };
+        ths[k].start();
+      }
+      for (int k=0; k<threads; k++) ths[k].join();
+      long tThreads= System.currentTimeMillis() - t;
+      System.out.println(n + " renders: copy+setAll+getText " + tOld + "ms, compiled " + tNew +
+                         "ms, compiled on " + threads + " threads " + tThreads +
+                         "ms, check " + total);
+    }
+  }  // main
+
+}  // CompiledTextTemplate
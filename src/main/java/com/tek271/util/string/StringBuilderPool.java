@@ -0,0 +1,145 @@
+/*
+Technology Exponent Common Utilities For Java (TECUJ)
+Copyright (C) 2003,2008  Abdul Habra.
+www.tek271.com
+
+This file is part of TECUJ.
+
+TECUJ is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published
+by the Free Software Foundation; version 2.
+
+TECUJ is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with TECUJ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+You can contact the author at ahabra@yahoo.com
+*/
+package com.tek271.util.string;
+
+import java.lang.management.*;
+
+/**
+ * Per thread pool of reusable StringBuilder objects, for utility methods that build a
+ * string and return it. Instead of allocating a new buffer on each call, use:
+ * <pre>
+ *   StringBuilder b= StringBuilderPool.acquire(sizeHint);
+ *   ... append to b ...
+ *   return StringBuilderPool.release(b);
+ * </pre>
+ * release() returns the string and gives the builder back to the current thread's pool.
+ * The builder must not be used after it is released.
+ * <p>A thread keeps at most MAX_POOLED builders, so nested calls (a pooled method that
+ * calls another pooled method) each get their own builder. Builders that grew beyond
+ * MAX_POOLED_CAPACITY chars are not kept, so one large string does not pin memory for
+ * the life of the thread. A builder that is never released (e.g. an exception was thrown)
+ * is simply garbage collected; it is never handed out twice.
+ * <p>Copyright (c) 2008 Technology Exponent</p>
+ * @author Abdul Habra
+ * @version 1.0
+ */
+public final class StringBuilderPool {
+  /** Max # of builders kept per thread */
+  public static final int MAX_POOLED= 4;
+  /** Builders with a larger capacity are not kept */
+  public static final int MAX_POOLED_CAPACITY= 8 * 1024;
+
+  private static final int pMIN_CAPACITY= 16;
+
+  /** The free builders of a thread */
+  private static final class Free {
+    final StringBuilder[] builders= new StringBuilder[MAX_POOLED];
+    int count;
+  }
+
+  private static final ThreadLocal pFree= new ThreadLocal() {
+    protected Object initialValue() {
+      return new Free();
+    }
+  };
+
+  private StringBuilderPool() {}
+
+/**
+ * Get an empty builder with a capacity of at least aSizeHint chars. Give it back with
+ * release() or recycle().
+ */
+  public static StringBuilder acquire(final int aSizeHint) {
+    Free free= (Free) pFree.get();
+    if (free.count==0) return new StringBuilder(Math.max(aSizeHint, pMIN_CAPACITY));
+
+    StringBuilder r= free.builders[--free.count];
+    free.builders[free.count]= null;  // owned by the caller now
+    r.ensureCapacity(aSizeHint);
+    return r;
+  }  // acquire
+
+/** Get an empty builder with a default capacity */
+  public static StringBuilder acquire() {
+    return acquire(pMIN_CAPACITY);
+  }
+
+/** Give back aBuilder to the pool of the current thread. aBuilder must not be used after */
+  public static void recycle(final StringBuilder aBuilder) {
+    if (aBuilder==null || aBuilder.capacity() > MAX_POOLED_CAPACITY) return;
+    Free free= (Free) pFree.get();
+    if (free.count == MAX_POOLED) return;
+    aBuilder.setLength(0);
+    free.builders[free.count++]= aBuilder;
+  }  // recycle
+
+/**
+ * Get the contents of aBuilder, and give it back to the pool of the current thread.
+ * aBuilder must not be used after.
+ */
+  public static String release(final StringBuilder aBuilder) {
+    String r= aBuilder.toString();
+    recycle(aBuilder);
+    return r;
+  }  // release
+
+  /** Bytes allocated by the current thread, -1 if not supported by the JVM */
+  private static long allocatedBytes() {
+    ThreadMXBean bean= ManagementFactory.getThreadMXBean();
+    if (!(bean instanceof com.sun.management.ThreadMXBean)) return -1;
+    return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(
+                                                     Thread.currentThread().getId());
+  }
+
+  /** For testing: print the bytes allocated per call of the pooled utilities */
+  public static void main(String[] args) {
+    final int n= 200000;
+    String sql= "select * from t where a=? and b=? and c like ? order by ?";
+    String url= "http://www.tek271.com/search?q=string builder pool&lang=en";
+    String xml= "<a href=\"x.html?a=1&b=2\">Tom's page</a>";
+    String[] fillers= {"12", "'abc'", "'%x%'", "name"};
+    for (int round=0; round<3; round++) {
+      long check= 0;
+      long b= allocatedBytes();
+      for (int i=0; i<n; i++) check += com.tek271.util.Printf.p(sql, fillers).length();
+      long printf= (allocatedBytes() - b) / n;
+
+      b= allocatedBytes();
+      for (int i=0; i<n; i++) check += StringEscapeUtility.escapeUrl(url).length();
+      long escape= (allocatedBytes() - b) / n;
+
+      b= allocatedBytes();
+      for (int i=0; i<n; i++) check += com.tek271.util.xml.XmlUtil.replaceXMLEntities(xml, true).length();
+      long entities= (allocatedBytes() - b) / n;
+
+      b= allocatedBytes();
+      for (int i=0; i<n; i++) check += StringUtility.replaceBetween(sql, "X", "?", " ", 0, -1, true, true).length();
+      long between= (allocatedBytes() - b) / n;
+
+      System.out.println("bytes/call: Printf.p " + printf + ", escapeUrl " + escape +
+                         ", replaceXMLEntities " + entities + ", replaceBetween " + between +
+                         " (check " + check + ")");
+    }
+  }  // main
+
+}  // StringBuilderPool
@@ -22,6 +22,7 @@ You can contact the author at ahabra@yahoo.com
 */
 package com.tek271.util.string;
 
+import java.io.*;
 import org.apache.commons.lang3.StringEscapeUtils;
 
 /**
@@ -35,27 +36,22 @@ public class StringEscapeUtility extends StringEscapeUtils {
 /**
  * Url Escape the given char, appending it to the given string buffer, for example
  * the char - becomes %2D
- * @param aBuf StringBuffer to append to
+ * @param aBuf StringBuilder to append to
  * @param aChar char char to url-encode
  * @param aIsEscapeAll boolean should all chars be encoded, if false, alph-numerics will
  *        not be encoded.
- * @return StringBuffer the string buffer which was appended to.
+ * @return StringBuilder the string buffer which was appended to.
  */
-  private static StringBuffer escapeUrlToBuffer(final StringBuffer aBuf,
-                                                final char aChar,
-                                                final boolean aIsEscapeAll) {
-    if (aIsEscapeAll)  {
-      aBuf.append('%').append(StringUtility.toHex(aChar, true));
-      return aBuf;
-    }
-
-    if (StringUtility.ALPHA_NUMERIC.indexOf(aChar) >= 0) {
+  private static StringBuilder escapeUrlToBuffer(final StringBuilder aBuf,
+                                                 final char aChar,
+                                                 final boolean aIsEscapeAll) {
+    if (!aIsEscapeAll && StringUtility.ALPHA_NUMERIC.indexOf(aChar) >= 0) {
       aBuf.append(aChar);
       return aBuf;
     }
 
-    aBuf.append('%').append(StringUtility.toHex(aChar, true));
-    return aBuf;
+    aBuf.append('%');
+    return StringUtility.appendHex(aBuf, aChar, true);
   }   // escapeUrlToBuffer
 
 /**
@@ -66,8 +62,8 @@ public class StringEscapeUtility extends StringEscapeUtils {
  * @return String the url encode of the given char
  */
   public static String escapeUrl(final char aChar, final boolean aIsEscapeAll) {
-    StringBuffer buf= new StringBuffer(4);
-    return escapeUrlToBuffer(buf, aChar, aIsEscapeAll).toString();
+    StringBuilder buf= StringBuilderPool.acquire(5);
+    return StringBuilderPool.release( escapeUrlToBuffer(buf, aChar, aIsEscapeAll) );
   }  // escapeUrl
 
 /**
@@ -90,13 +86,16 @@ public class StringEscapeUtility extends StringEscapeUtils {
  */
   public static String escapeUrl(final String aString, final boolean aIsEscapeAll) {
     if (StringUtility.isEmpty(aString)) return StringUtility.EMPTY;
+    return (aIsEscapeAll ? CharEscaper.URL_ALL : CharEscaper.URL).escape(aString);
+  } // escapeUrl
 
-    StringBuffer buf= new StringBuffer();
-    for (int i=0, n= aString.length(); i<n; i++) {
-      char c= aString.charAt(i);
-      escapeUrlToBuffer(buf, c, aIsEscapeAll);
-    }
-    return buf.toString();
+/**
+ * Url escape aString into aOut, e.g. a Writer, see escapeUrl(String, boolean).
+ * @return aOut
+ */
+  public static Appendable escapeUrl(final String aString, final boolean aIsEscapeAll,
+                                     final Appendable aOut) throws IOException {
+    return (aIsEscapeAll ? CharEscaper.URL_ALL : CharEscaper.URL).escape(aString, aOut);
   } // escapeUrl
 
   public static String escapeUrl(final String aString) {
@@ -106,12 +105,12 @@ public class StringEscapeUtility extends StringEscapeUtils {
 /**
  * Html escape the given char, appending it to the given string buffer. For example
  * A becomes &amp;#65;
- * @param aBuf StringBuffer
+ * @param aBuf StringBuilder
  * @param aChar char to encode
- * @return StringBuffer the string buffer which was appended to.
+ * @return StringBuilder the string buffer which was appended to.
  */
-  private static StringBuffer escapeHtmlToBuffer(final StringBuffer aBuf,
-                                                 final char aChar) {
+  private static StringBuilder escapeHtmlToBuffer(final StringBuilder aBuf,
+                                                  final char aChar) {
     aBuf.append('&').append('#').append((int)aChar).append(';');
     return aBuf;
   }
@@ -123,8 +122,8 @@ public class StringEscapeUtility extends StringEscapeUtils {
  * quote character " will be returned as &amp;#34; and not &amp;quot;
  */
   public static String escapeHtml(final char aChar) {
-    StringBuffer buf= new StringBuffer();
-    return escapeHtmlToBuffer(buf, aChar).toString();
+    StringBuilder buf= StringBuilderPool.acquire(8);
+    return StringBuilderPool.release( escapeHtmlToBuffer(buf, aChar) );
   }
 
 /**
@@ -143,11 +142,22 @@ public class StringEscapeUtility extends StringEscapeUtils {
       return StringEscapeUtils.escapeHtml4(aString);
     }
 
-    StringBuffer buf= new StringBuffer(n*6);
-    for (int i=0; i<n; i++) {
-      escapeHtmlToBuffer(buf, aString.charAt(i));
+    return CharEscaper.HTML_NUMERIC.escape(aString);
+  }  // escapeHtml
+
+/**
+ * Html escape aString into aOut, e.g. a Writer, see escapeHtml(String, boolean).
+ * @return aOut
+ */
+  public static Appendable escapeHtml(final String aString, final boolean aIsEscapeAll,
+                                      final Appendable aOut) throws IOException {
+    if (aIsEscapeAll) return CharEscaper.HTML_NUMERIC.escape(aString, aOut);
+    if (StringUtility.isEmpty(aString)) return aOut;
+    if (aOut instanceof Writer) {
+      ESCAPE_HTML4.translate(aString, (Writer) aOut);
+      return aOut;
     }
-    return buf.toString();
+    return aOut.append(escapeHtml4(aString));
   }  // escapeHtml
 
   public static void main(String[] a) {
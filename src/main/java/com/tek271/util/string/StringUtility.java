@@ -253,26 +253,25 @@ public class StringUtility extends StringUtils {
 
   /** the hex representation for a character, can trim leading zeros */
   public static String toHex(char aChar, final boolean aIsTrim) {
-    StringBuffer buf = new StringBuffer(4);
-    int digit;
+    return StringBuilderPool.release( appendHex(StringBuilderPool.acquire(4), aChar, aIsTrim) );
+  } // toHex
 
-    for (int i=0; i < 4; i++) {
-      digit = aChar % 16;
-      buf.append(toHex((byte)digit) );
-      aChar /= 16;
+/**
+ * Append the 4 hex digits of a char to aBuf, same as aBuf.append(toHex(aChar, aIsTrim))
+ * without creating a string.
+ * @return aBuf
+ */
+  public static StringBuilder appendHex(final StringBuilder aBuf, final char aChar,
+                                        final boolean aIsTrim) {
+    int shift= 12;
+    if (aIsTrim && aChar != 0) {
+      while ((aChar >> shift) == 0) shift -= 4;  // skip leading zeros
     }
-    buf.reverse();
-
-    if (!aIsTrim)  return buf.toString();
-
-    for (int i=0; i<4; i++) {
-      char ch= buf.charAt(i);
-      if (ch != '0') {
-        return buf.substring(i);
-      }
+    for (; shift >= 0; shift -= 4) {
+      aBuf.append( toHex((byte) ((aChar >> shift) & 0xF)) );
     }
-    return buf.toString();
-  } // toHex
+    return aBuf;
+  } // appendHex
 
 
 /**
@@ -314,11 +313,7 @@ public class StringUtility extends StringUtils {
 
 /** The Unicode representation for a string. */
   public static String toUnicode(final String aString) {
-    StringBuffer buf = new StringBuffer();
-    for (int i=0; i<aString.length(); i++) {
-      buf.append( toUnicode(aString.charAt(i)) );
-    }
-    return buf.toString();
+    return CharEscaper.UNICODE_ALL.escape(aString);
   } // toUnicode
 
 /**
@@ -439,11 +434,15 @@ public class StringUtility extends StringUtils {
    *   < replaced with &amp;lt;
    */
   public static String replaceHtmlTags(final String aStr) {
-    String search= "&<";
-    String[] rep= {"&#38;", "&lt;"};
-    return replaceAll(aStr, search, rep);
+    if (isEmpty(aStr)) return aStr;
+    return pHTML_TAGS.escape(aStr);
   }
 
+  private static final CharEscaper pHTML_TAGS=
+    CharEscaper.forChars("&<", new String[] {"&#38;", "&lt;"});
+  private static final CharEscaper pHTML_TAGS_AND_QUOTE=
+    CharEscaper.forChars("&<'", new String[] {"&#38;", "&lt;", "''"});
+
 /**
  * Replaces the following: <pre>
  * &   =>  &amp;#38;
@@ -455,9 +454,8 @@ public class StringUtility extends StringUtils {
  * @return String The string with all & < ' replaced.
  */
   public static String replaceHtmlTagsAndQuote(final String aStr) {
-    String search= "&<'";
-    String[] rep= {"&#38;", "&lt;", "''"};
-    return replaceAll(aStr, search, rep);
+    if (isEmpty(aStr)) return aStr;
+    return pHTML_TAGS_AND_QUOTE.escape(aStr);
   }
 
 
@@ -548,6 +546,24 @@ public class StringUtility extends StringUtils {
     return equalsIgnoreCase(aStr1, aStr2);
   } // equals
 
+  /**
+   * Fold the case of aText the same way String.equalsIgnoreCase() compares chars, so
+   * that two strings are equal ignoring case if and only if their folded forms are equal.
+   * Useful for hash keys of case insensitive lookups.
+   * @return aText if it is already folded.
+   */
+  public static String foldCase(final String aText) {
+    char[] chars= null;
+    for (int i=0, n=aText.length(); i<n; i++) {
+      char c= aText.charAt(i);
+      char f= Character.toLowerCase(Character.toUpperCase(c));
+      if (f==c) continue;
+      if (chars==null) chars= aText.toCharArray();
+      chars[i]= f;
+    }
+    return chars==null ? aText : new String(chars);
+  }  // foldCase
+
   /**
    * Check if a one-character string is a member of the given set of characters.
    * @param aOneChar A string of one char.
@@ -679,23 +695,42 @@ public class StringUtility extends StringUtils {
   } // createInstance
 
 /**
- * Counts how many times the substring list items appears in the source String.
+ * Counts how many times the substring list items appears in the source String. Large
+ * strings are searched for all the items at once with AhoCorasick.
  * @param aSource String The string to inspect.
  * @param aSubList ListOfString items of this list are counted in the source.
  * @return int
  */
   public static int countMatches(final String aSource, final ListOfString aSubList) {
+    if (isEmpty(aSource)) return 0;
+    int n= aSubList.size();
     int r=0;
-    for (int i=0, n=aSubList.size(); i<n; i++) {
-      i += countMatches(aSource, aSubList.getItem(i));
+    if (aSource.length() >= AhoCorasick.MIN_TEXT_LENGTH && n >= AhoCorasick.MIN_PATTERNS) {
+      int[] counts= new AhoCorasick(aSubList).countMatches(aSource);
+      for (int i=0; i<n; i++) r += counts[i];
+      return r;
+    }
+    for (int i=0; i<n; i++) {
+      r += countMatches(aSource, aSubList.getItem(i));
     }
     return r;
   }
 
 /**
-* The last index in aSource for any item in aTarget.
+* The last index in aSource for any item in aTarget. Large strings are searched for all
+* the items at once with AhoCorasick, scanning backward from the end.
 */
   public static int lastIndexOf(String aSource, List aTarget, int[] aListIndex) {
+    if (aSource.length() >= AhoCorasick.MIN_TEXT_LENGTH &&
+        aTarget.size() >= AhoCorasick.MIN_PATTERNS) {
+      int empty= aTarget.indexOf("");
+      if (empty >= 0) {   // an empty item is found at the end
+        aListIndex[0]= empty;
+        return aSource.length();
+      }
+      return new AhoCorasick(aTarget).lastIndexOf(aSource, aListIndex);
+    }
+
     ListIterator it = aTarget.listIterator();
     String item;
     int maxIndex=-1;
@@ -849,7 +884,7 @@ public class StringUtility extends StringUtils {
     boolean isModified = false;
     int n= aString.length();
     int replaceSize= aReplaceStrings.length;
-    StringBuffer buf = new StringBuffer(n);
+    StringBuilder buf = StringBuilderPool.acquire(n + 16);
     for (int i=0; i<n; i++) {
       char ch=aString.charAt(i);
       int index=aSearchChars.indexOf(ch);
@@ -865,7 +900,8 @@ public class StringUtility extends StringUtils {
       buf.append(rep);
     }  // for
 
-    if (isModified) return buf.toString();
+    if (isModified) return StringBuilderPool.release(buf);
+    StringBuilderPool.recycle(buf);
     return aString;
   }  // replaceAll
 
@@ -931,32 +967,32 @@ public class StringUtility extends StringUtils {
     if (startingAt < 0) startingAt = 0;
     if (with == null) with = StringUtility.EMPTY;
     
-    StringBuffer sb= new StringBuffer(sourceLen);
-    sb.append( StringUtility.left(source, startingAt) );
+    StringBuilder sb= StringBuilderPool.acquire(sourceLen + 16);
+    sb.append(source, 0, startingAt);
     int replacementsCount= 0;
     while (true) {
       if (maxReplacements>0 && replacementsCount>=maxReplacements) {
-        sb.append( StringUtility.substring(source, startingAt) );
+        sb.append(source, startingAt, sourceLen);
         break;
       }
       int p1= StringUtility.indexOf(source, start, startingAt, isCaseSensetive);
       if (p1<0) {
-        sb.append( StringUtility.substring(source, startingAt) );
+        sb.append(source, startingAt, sourceLen);
         break;
       }
       int p2= StringUtility.indexOf(source, end, p1+startLen, isCaseSensetive);
       if (p2<0) {
-        sb.append( StringUtility.substring(source, startingAt) );
+        sb.append(source, startingAt, sourceLen);
         break;
       }
-      sb.append( StringUtility.substring(source, startingAt, p1) );
+      sb.append(source, startingAt, p1);
       if (!isInclusive) sb.append(start);
       sb.append(with);
       if (!isInclusive) sb.append(end);
       startingAt= p2 + endLen;
       replacementsCount++;
     }
-    return sb.toString();
+    return StringBuilderPool.release(sb);
   }
   
 /**
@@ -36,6 +36,9 @@ import com.tek271.util.collections.list.*;
  * <p><b>History:</b></p><ol>
  * <li>2005.06.22: Added copy() method.</li>
  * <li>2006.01.30: Added ITagTransformer and transformTags()
+ * <li>2008.02.03: Added compile(), see CompiledTextTemplate for rendering the same
+ * template many times or from many threads.
+ * <li>2008.02.10: Tag lookups use a hashed index of tags, so setAll() is linear.
  * </ol>
  * @author Abdul Habra
  * @version 1.2
@@ -68,6 +71,8 @@ public class TextTemplate {
 
   private List pList;      // of Element items
   protected List pTagList;   // references to Element items
+  private HashMap pTagIndex;   // tag text -> IntList of its ascending indexes in pTagList
+  private boolean pTagIndexCaseSensitive;
 
   private TextTemplate() {}
 
@@ -261,6 +266,7 @@ public class TextTemplate {
   private void parseToList() {
     pList= new ArrayList();
     pTagList= new ArrayList();
+    pTagIndex= null;
 
     if (StringUtility.isBlank(pText)) return;
 
@@ -300,6 +306,34 @@ public class TextTemplate {
     return pTagList.size();
   }
 
+/** The index key of a tag text, folded if not case sensitive */
+  private String tagKey(final String aTagText) {
+    return isCaseSensitive ? aTagText : StringUtility.foldCase(aTagText);
+  }
+
+/**
+ * Get the indexes of the tag with the given text (including start/end markers),
+ * null if not found. The index is built on first use, and again if isCaseSensitive
+ * changes.
+ */
+  private IntList getTagIndexes(final String aTagText) {
+    if (pTagIndex==null || pTagIndexCaseSensitive != isCaseSensitive) {
+      pTagIndexCaseSensitive= isCaseSensitive;
+      HashMap index= new HashMap(pTagList.size() * 2 + 1);
+      for (int i=0, n=pTagList.size(); i<n; i++) {
+        String key= tagKey(getTag(i).text);
+        IntList indexes= (IntList) index.get(key);
+        if (indexes==null) {
+          indexes= new IntList(1);
+          index.put(key, indexes);
+        }
+        indexes.add(i);
+      }
+      pTagIndex= index;
+    }
+    return (IntList) pTagIndex.get(tagKey(aTagText));
+  }  // getTagIndexes
+
 /** get the tag at the given index */
   private Element getTag(final int aIndex) {
     return (Element) pTagList.get(aIndex);
@@ -316,10 +350,11 @@ public class TextTemplate {
  * @return int The index of the tag if found starting at 0. -1 if not found.
  */
   public int indexOfTag(final String aTag, final int aStartIndex) {
-    String tag= pTagStart + aTag + pTagEnd;
-    for (int i=aStartIndex, n=pTagList.size(); i<n; i++) {
-      Element e= getTag(i);
-      if ( StringUtility.equals(e.text, tag, isCaseSensitive) ) return i;
+    IntList indexes= getTagIndexes(pTagStart + aTag + pTagEnd);
+    if (indexes==null) return -1;
+    for (int i=0, n=indexes.size(); i<n; i++) {
+      int r= indexes.get(i);
+      if (r >= aStartIndex) return r;
     }
     return -1;
   }  // indexOfTag
@@ -339,12 +374,10 @@ public class TextTemplate {
 /** set the value of the given tag, if the tag appears multiple times, all are set */
   public void setTagValue(final String aTag,
                           final String aValue) {
-    String tag= pTagStart + aTag + pTagEnd;
-    for (int i=0, n=pTagList.size(); i<n; i++) {
-      Element e= getTag(i);
-      if ( StringUtility.equals(e.text, tag, isCaseSensitive) ) {
-        e.tagValue= aValue;
-      }
+    IntList indexes= getTagIndexes(pTagStart + aTag + pTagEnd);
+    if (indexes==null) return;
+    for (int i=0, n=indexes.size(); i<n; i++) {
+      getTag(indexes.get(i)).tagValue= aValue;
     }
   }  // setTagValue
 
@@ -501,6 +534,20 @@ public class TextTemplate {
     return b.toString();
   }  // getText
 
+/** The parsed elements, in text order */
+  List getElements() {
+    return pList;
+  }
+
+/**
+ * Get an immutable, thread safe form of this template which renders its tags from
+ * a Map, an ITagLookup, or an ITagTransformer without copying this object. Tag values
+ * set on this object are not carried over.
+ */
+  public CompiledTextTemplate compile() {
+    return new CompiledTextTemplate(this);
+  }
+
 /** Get a list of all elements in the text, useful for debugging */
   public ListOfString toListOfString() {
     int n= pList.size();
@@ -554,6 +601,8 @@ public class TextTemplate {
       to.pList.add(item);
       if (item.isTag()) to.pTagList.add(item);
     }
+    to.pTagIndex= from.pTagIndex;  // same tags in the same order, never modified
+    to.pTagIndexCaseSensitive= from.pTagIndexCaseSensitive;
   }
   
 /**
@@ -33,6 +33,7 @@ import org.xml.sax.InputSource;
 import org.apache.commons.lang3.StringEscapeUtils;
 import com.tek271.util.log.*;
 import com.tek271.util.collections.list.*;
+import com.tek271.util.string.CharEscaper;
 import com.tek271.util.string.StringUtility;
 
 /**
@@ -55,6 +56,12 @@ public class XmlUtil {
   public static final String DOUBLEQUOTE_NUM = "&#034;";
   public static final String APOS_NUM = "&#039;";
 
+  private static final String pENTITY_CHARS= "&\"<>'";
+  private static final CharEscaper pENTITIES_STR= CharEscaper.forChars(pENTITY_CHARS,
+    new String[] {AMP_STR, DOUBLEQUOTE_STR, LT_STR, GT_STR, APOS_STR});
+  private static final CharEscaper pENTITIES_NUM= CharEscaper.forChars(pENTITY_CHARS,
+    new String[] {AMP_NUM, DOUBLEQUOTE_NUM, LT_NUM, GT_NUM, APOS_NUM});
+
   private XmlUtil() {}
 
 ///**
@@ -316,13 +323,17 @@ public class XmlUtil {
     }
   }
 
+  private static void appendBlanks(final StringBuffer aBuffer, final int aCount) {
+    for (int i=0; i<aCount; i++) aBuffer.append(' ');
+  }
+
   private static StringBuffer buildTag(final StringBuffer aBuffer,
                                        final String aName,
                                        final ListOfString aAttributes,
                                        final int aIndentSize,
                                        final boolean aAppendNewLine,
                                        final String aCloseChar) {
-    if (aIndentSize>0) aBuffer.append(StringUtility.blanks(aIndentSize));
+    appendBlanks(aBuffer, aIndentSize);
     aBuffer.append('<').append(aName);
     appendAttributes(aBuffer, aAttributes);
     aBuffer.append(aCloseChar);
@@ -394,7 +405,7 @@ public class XmlUtil {
                                     final String aName,
                                     final int aIndentSize,
                                     final boolean aAppendNewLine) {
-    if (aIndentSize>0) aBuffer.append(StringUtility.blanks(aIndentSize));
+    appendBlanks(aBuffer, aIndentSize);
     aBuffer.append('<').append('/').append(aName).append('>');
     if (aAppendNewLine) aBuffer.append(StringUtility.NEW_LINE);
     return aBuffer;
@@ -465,7 +476,7 @@ public class XmlUtil {
   public static StringBuffer tagCData(final StringBuffer aBuffer,
                                       final String aCData,
                                       final int aIndentSize) {
-    if (aIndentSize>0) aBuffer.append(StringUtility.blanks(aIndentSize));
+    appendBlanks(aBuffer, aIndentSize);
     aBuffer.append("<![CDATA[");
     aBuffer.append(StringUtility.defaultString(aCData));
     aBuffer.append("]]>").append(StringUtility.NEW_LINE);
@@ -523,33 +534,17 @@ public class XmlUtil {
  */
   public static String replaceXMLEntities(final String aXml, boolean aIsUseStr) {
     if (StringUtility.isBlank(aXml)) return aXml;
+    return (aIsUseStr ? pENTITIES_STR : pENTITIES_NUM).escape(aXml);
+  }  // replaceXMLEntities
 
-    String amp, dq, lt, gt, ap;
-    if (aIsUseStr) {
-      amp= AMP_STR;
-      dq= DOUBLEQUOTE_STR;
-      lt= LT_STR;
-      gt= GT_STR;
-      ap= APOS_STR;
-    } else {
-      amp= AMP_NUM;
-      dq= DOUBLEQUOTE_NUM;
-      lt= LT_NUM;
-      gt= GT_NUM;
-      ap= APOS_NUM;
-    }
-    int n= aXml.length();
-    StringBuffer b= new StringBuffer( Math.min(16, n) );
-    for (int i=0; i<n; i++) {
-      char c= aXml.charAt(i);
-      if (c=='&') b.append(amp);
-      else if (c=='"') b.append(dq);
-      else if (c=='<') b.append(lt);
-      else if (c=='>') b.append(gt);
-      else if (c=='\'') b.append(ap);
-      else b.append(c);
-    }
-    return b.toString();
+/**
+ * Same as replaceXMLEntities(String, boolean), but appends the result to aOut, e.g.
+ * a Writer.
+ * @return aOut
+ */
+  public static Appendable replaceXMLEntities(final String aXml, boolean aIsUseStr,
+                                              final Appendable aOut) throws IOException {
+    return (aIsUseStr ? pENTITIES_STR : pENTITIES_NUM).escape(aXml, aOut);
   }  // replaceXMLEntities
 
 }  // XmlUtil
@@ -0,0 +1,58 @@
+package com.tek271.util;
+
+import java.io.*;
+import junit.framework.TestCase;
+
+public class PrintfPatternTest extends TestCase {
+  private static final String[] pPATTERNS= {
+    "one=?, two=?, three=?", "?", "??", "no slots", "a\\?b=?", "x=? y=\\? z=?\\",
+    "\\", "?\\?", "ends with ?", "\\\\?"
+  };
+  private static final String[] pFILLERS= {"1", "22", "333", "4444"};
+
+  private static String[] fillers(final int aCount) {
+    String[] r= new String[aCount];
+    System.arraycopy(pFILLERS, 0, r, 0, aCount);
+    return r;
+  }
+
+  public void testSameAsPrintf() throws IOException {
+    for (int i=0; i<pPATTERNS.length; i++) {
+      PrintfPattern p= PrintfPattern.compile(pPATTERNS[i]);
+      for (int k=0; k<=pFILLERS.length; k++) {
+        String expected= Printf.p(pPATTERNS[i], fillers(k));
+        assertEquals(pPATTERNS[i] + " " + k, expected, p.format(fillers(k)));
+        StringWriter w= new StringWriter();
+        p.format(w, fillers(k));
+        assertEquals(expected, w.toString());
+      }
+    }
+  }
+
+  public void testNumbers() throws IOException {
+    for (int i=0; i<pPATTERNS.length; i++) {
+      PrintfPattern p= PrintfPattern.compile(pPATTERNS[i]);
+      assertEquals(Printf.p(pPATTERNS[i], fillers(1)), p.format(1));
+      assertEquals(Printf.p(pPATTERNS[i], fillers(2)), p.format(1, 22));
+      assertEquals(Printf.p(pPATTERNS[i], fillers(3)), p.format(1, 22, 333));
+      StringWriter w= new StringWriter();
+      p.format(w, 1, 22, 333);
+      assertEquals(p.format(1, 22, 333), w.toString());
+    }
+    assertEquals("a=-5, b=9876543210", Printf.p("a=?, b=?", -5, 9876543210L));
+    assertEquals("Key parts can be in the range of 0 to 2. Index passed=7.",
+                 Printf.p("Key parts can be in the range of 0 to ?. Index passed=?.", 2, 7));
+  }
+
+  public void testSegments() {
+    PrintfPattern p= PrintfPattern.compile("[? times in \\? ?] ");
+    assertSame(p, PrintfPattern.compile("[? times in \\? ?] "));
+    assertEquals(2, p.getSlotCount());
+    StringBuilder b= new StringBuilder();
+    p.appendSegment(b, 0).append(3);
+    p.appendSegment(b, 1).append(1.5f);
+    p.appendSegment(b, 2);
+    assertEquals("[3 times in ? 1.5] ", b.toString());
+  }
+
+}
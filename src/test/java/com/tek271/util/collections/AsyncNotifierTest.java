@@ -0,0 +1,176 @@
+package com.tek271.util.collections;
+
+import java.util.*;
+import java.util.concurrent.*;
+import junit.framework.*;
+import com.tek271.util.ICallback;
+import com.tek271.util.collections.set.NotifyingSet;
+
+public class AsyncNotifierTest extends TestCase {
+
+  private static class Recorder implements ICallback {
+    final List calls= Collections.synchronizedList(new ArrayList());
+    final List threads= Collections.synchronizedList(new ArrayList());
+    volatile Thread thread;
+    /** counted down when a call starts */
+    final CountDownLatch entered= new CountDownLatch(1);
+    CountDownLatch gate;
+    private int pActive;
+    int maxActive;
+
+    public Object call(final Object aParam) {
+      thread= Thread.currentThread();
+      threads.add(thread);
+      synchronized (this) {
+        maxActive= Math.max(maxActive, ++pActive);
+      }
+      entered.countDown();
+      if (gate != null) {
+        try {
+          gate.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      calls.add(aParam);
+      synchronized (this) {
+        pActive--;
+      }
+      return null;
+    }
+  }  // Recorder
+
+  public void testSynchronousIsDefault() {
+    Recorder added= new Recorder();
+    Recorder removed= new Recorder();
+    NotifyingCollection c= new NotifyingSet(new HashSet(), added, removed);
+    assertNull(c.getAsyncNotifier());
+    assertTrue(c.addAll(Arrays.asList(new Object[] {"a", "b", "c"})));
+    assertEquals(3, c.size());
+    assertEquals(3, added.calls.size());
+    assertSame(Thread.currentThread(), added.thread);
+    c.clear();
+    assertEquals(3, removed.calls.size());
+  }
+
+  public void testAsyncInOrder() throws Exception {
+    AsyncNotifier notifier= new AsyncNotifier();
+    Recorder added= new Recorder();
+    Recorder removed= new Recorder();
+    NotifyingCollection c= new NotifyingCollection(new ArrayList(), added, removed);
+    c.setAsyncNotifier(notifier);
+    for (int i=0; i<1000; i++) c.add(new Integer(i));
+    c.remove(new Integer(5));
+    Iterator it= c.iterator();
+    it.next();
+    it.remove();
+    assertTrue(notifier.awaitIdle(5000));
+
+    assertEquals(1000, added.calls.size());
+    for (int i=0; i<1000; i++) assertEquals(new Integer(i), added.calls.get(i));
+    assertEquals(Arrays.asList(new Object[] {new Integer(5), new Integer(0)}), removed.calls);
+    assertNotSame(Thread.currentThread(), added.thread);
+    assertEquals(1002, notifier.getDeliveredCount());
+    assertEquals(1002, notifier.getCallbackCount());
+    assertEquals(1002, notifier.getLatencyMeter().getTotalCount());
+    assertTrue(notifier.shutdown(1000));
+    try {
+      c.add("x");
+      fail("Should not accept after shutdown");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+  }
+
+  public void testCoalescing() throws Exception {
+    ExecutorService executor= Executors.newSingleThreadExecutor();
+    try {
+      AsyncNotifier notifier= new AsyncNotifier(executor, 100, 100, AsyncNotifier.BLOCK, true);
+      Recorder added= new Recorder();
+      added.gate= new CountDownLatch(1);
+      NotifyingCollection c= new NotifyingCollection(new ArrayList(), added, null);
+      c.setAsyncNotifier(notifier);
+      c.add("first");           // holds the executor at the gate
+      assertTrue(added.entered.await(5, TimeUnit.SECONDS));
+      c.addAll(Arrays.asList(new Object[] {"a", "b", "c"}));
+      added.gate.countDown();
+      assertTrue(notifier.awaitIdle(5000));
+
+      assertEquals(2, added.calls.size());
+      assertEquals(Arrays.asList(new Object[] {"first"}), added.calls.get(0));
+      assertEquals(Arrays.asList(new Object[] {"a", "b", "c"}), added.calls.get(1));
+      assertEquals(4, notifier.getDeliveredCount());
+      assertEquals(2, notifier.getCallbackCount());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  public void testDropPolicy() throws Exception {
+    AsyncNotifier notifier= new AsyncNotifier(null, 2, 10, AsyncNotifier.DROP, false);
+    Recorder rec= new Recorder();
+    rec.gate= new CountDownLatch(1);
+    List listeners= Arrays.asList(new Object[] {rec});
+    assertTrue(notifier.notify(listeners, "1"));
+    assertTrue(rec.entered.await(5, TimeUnit.SECONDS));  // "1" is blocked in the listener
+    assertTrue(notifier.notify(listeners, "2"));
+    assertTrue(notifier.notify(listeners, "3"));
+    assertFalse(notifier.notify(listeners, "4"));
+    assertEquals(1, notifier.getDroppedCount());
+    rec.gate.countDown();
+    assertTrue(notifier.shutdown(5000));
+    assertEquals(Arrays.asList(new Object[] {"1", "2", "3"}), rec.calls);
+  }
+
+  public void testCallerRunsAndFailures() throws Exception {
+    final AsyncNotifier notifier= new AsyncNotifier(null, 1, 10, AsyncNotifier.CALLER_RUNS, false);
+    Recorder rec= new Recorder();
+    rec.gate= new CountDownLatch(1);
+    ICallback failing= new ICallback() {
+      public Object call(final Object aParam) {
+        throw new RuntimeException("fail");
+      }
+    };
+    final List listeners= Arrays.asList(new Object[] {failing, rec});
+    notifier.notify(listeners, "1");
+    assertTrue(rec.entered.await(5, TimeUnit.SECONDS));  // "1" is blocked in the listener
+    notifier.notify(listeners, "2");  // fills the queue
+    final CountDownLatch callerDone= new CountDownLatch(1);
+    Thread caller= new Thread() {
+      public void run() {
+        notifier.notify(listeners, "3");  // queue is full, runs in this thread
+        callerDone.countDown();
+      }
+    };
+    caller.start();
+    // the caller must wait for the delivery of "1" to finish
+    assertFalse(callerDone.await(50, TimeUnit.MILLISECONDS));
+    rec.gate.countDown();
+    caller.join(5000);
+    assertTrue(notifier.shutdown(5000));
+    assertEquals(3, rec.calls.size());
+    assertEquals(1, rec.maxActive);
+    assertSame(caller, rec.threads.get(rec.calls.indexOf("3")));
+    assertEquals(3, notifier.getFailedCallbackCount());
+    assertEquals(0, notifier.getDroppedCount());
+  }
+
+  public void testErrorInListener() throws Exception {
+    AsyncNotifier notifier= new AsyncNotifier(null, 10, 10, AsyncNotifier.BLOCK, false);
+    Recorder rec= new Recorder();
+    ICallback failing= new ICallback() {
+      public Object call(final Object aParam) {
+        throw new AssertionError("fail");
+      }
+    };
+    List listeners= Arrays.asList(new Object[] {failing, rec});
+    for (int i=0; i<5; i++) notifier.notify(listeners, new Integer(i));
+    assertTrue(notifier.awaitIdle(5000));
+    notifier.notify(listeners, "last");
+    assertTrue(notifier.shutdown(5000));
+    assertEquals(6, rec.calls.size());
+    assertEquals(6, notifier.getFailedCallbackCount());
+    assertEquals(6, notifier.getDeliveredCount());
+  }
+
+}
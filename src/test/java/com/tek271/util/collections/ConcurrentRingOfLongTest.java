@@ -0,0 +1,89 @@
+package com.tek271.util.collections;
+
+import junit.framework.*;
+import com.tek271.util.collections.iterator.ILongIterator;
+
+public class ConcurrentRingOfLongTest extends TestCase {
+
+  public void testSingleThread() {
+    ConcurrentRingOfLong r= new ConcurrentRingOfLong(3);
+    assertTrue(r.isEmpty());
+    assertEquals(0, r.toArray().length);
+    r.add(1);
+    r.add(2);
+    assertEquals(2, r.size());
+    assertEquals("[1, 2]", r.toString());
+    r.add(3);
+    r.add(4);
+    r.add(5);
+    assertEquals(3, r.size());
+    assertEquals(3, r.maxSize());
+    assertEquals(5, r.getCount());
+    assertEquals("[3, 4, 5]", r.toString());
+
+    ILongIterator i= r.iterator();
+    assertEquals(3, i.nextLong());
+    assertEquals(new Long(4), i.next());
+    assertEquals(5, i.nextLong());
+    assertFalse(i.hasNext());
+  }
+
+  public void testBadCapacity() {
+    try {
+      new ConcurrentRingOfLong(0);
+      fail();
+    } catch (IllegalArgumentException e) {}
+  }
+
+  public void testManyProducers() throws Exception {
+    final int threads= 8;
+    final int perThread= 200000;
+    final int capacity= 64;
+    final ConcurrentRingOfLong r= new ConcurrentRingOfLong(capacity);
+    final boolean[] isDone= {false};
+    final String[] error= {null};
+
+    Thread reader= new Thread() {
+      public void run() {
+        while (!isDone[0] && error[0]==null) {
+          error[0]= checkSnapshot(r.toArray(), threads, capacity);
+        }
+      }
+    };
+    Thread[] t= new Thread[threads];
+    for (int n=0; n<threads; n++) {
+      final long id= n;
+      t[n]= new Thread() {
+        public void run() {
+          for (int k=1; k<=perThread; k++) r.add(id * perThread * 10 + k);
+        }
+      };
+    }
+    reader.start();
+    for (int n=0; n<threads; n++) t[n].start();
+    for (int n=0; n<threads; n++) t[n].join();
+    isDone[0]= true;
+    reader.join();
+
+    assertNull(error[0]);
+    assertEquals((long) threads * perThread, r.getCount());
+    long[] last= r.toArray();
+    assertEquals(capacity, last.length);
+    assertNull(checkSnapshot(last, threads, capacity));
+  }
+
+  /** Values must be valid, and the values of each producer must be increasing */
+  private static String checkSnapshot(long[] aValues, int aThreads, int aCapacity) {
+    if (aValues.length > aCapacity) return "too many values: " + aValues.length;
+    long[] lastOfThread= new long[aThreads];
+    long range= 200000L * 10;
+    for (int i=0; i<aValues.length; i++) {
+      int id= (int) (aValues[i] / range);
+      if (id < 0 || id >= aThreads || aValues[i] % range == 0) return "bad value " + aValues[i];
+      if (aValues[i] <= lastOfThread[id]) return "out of order " + aValues[i];
+      lastOfThread[id]= aValues[i];
+    }
+    return null;
+  }
+
+}
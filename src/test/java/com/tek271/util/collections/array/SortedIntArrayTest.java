@@ -0,0 +1,52 @@
+package com.tek271.util.collections.array;
+
+import junit.framework.*;
+import com.tek271.util.collections.iterator.IIntIterator;
+
+public class SortedIntArrayTest extends TestCase {
+
+  public void testSortedIntArray() {
+    int[] values= {9, 3, 7, 3, -2, 7};
+    SortedIntArray a= new SortedIntArray(values);
+    assertEquals("[-2, 3, 3, 7, 7, 9]", a.toString());
+    assertEquals(9, values[0]);
+    assertTrue(a.contains(9));
+    assertFalse(a.contains(4));
+    assertEquals(-1, a.indexOf(4));
+    assertEquals(1, a.lowerBound(3));
+    assertEquals(3, a.upperBound(3));
+    assertEquals(0, a.lowerBound(Integer.MIN_VALUE));
+    assertEquals(6, a.upperBound(Integer.MAX_VALUE));
+    assertEquals(6, a.lowerBound(100));
+    assertEquals(4, a.countInRange(3, 7));
+    assertEquals(0, a.countInRange(10, 20));
+    assertEquals(0, a.countInRange(7, 3));
+
+    SortedIntArray d= new SortedIntArray(values, true);
+    assertEquals("[-2, 3, 7, 9]", d.toString());
+    assertEquals(2, d.indexOf(7));
+    assertEquals(-2, d.get(0));
+    assertTrue(d.equals(new SortedIntArray(new int[] {9, 7, 3, -2})));
+    assertEquals(d.hashCode(), new SortedIntArray(new int[] {9, 7, 3, -2}).hashCode());
+    assertFalse(d.equals(a));
+
+    int n= 0;
+    int previous= Integer.MIN_VALUE;
+    for (IIntIterator it=a.iterator(); it.hasNext(); n++) {
+      int v= it.nextInt();
+      assertTrue(v >= previous);
+      previous= v;
+    }
+    assertEquals(a.size(), n);
+  }
+
+  public void testEmpty() {
+    SortedIntArray a= new SortedIntArray(new int[0], true);
+    assertTrue(a.isEmpty());
+    assertEquals(0, a.lowerBound(5));
+    assertEquals(0, a.countInRange(0, 10));
+    assertFalse(a.iterator().hasNext());
+    assertEquals("[]", a.toString());
+  }
+
+}
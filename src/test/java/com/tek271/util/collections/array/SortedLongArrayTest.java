@@ -0,0 +1,25 @@
+package com.tek271.util.collections.array;
+
+import junit.framework.*;
+
+public class SortedLongArrayTest extends TestCase {
+
+  public void testSortedLongArray() {
+    SortedLongArray a= new SortedLongArray(new long[] {9, 3, 7, 3, -2, 7});
+    assertEquals("[-2, 3, 3, 7, 7, 9]", a.toString());
+    assertTrue(a.contains(9));
+    assertFalse(a.contains(4));
+    assertEquals(-1, a.indexOf(4));
+    assertEquals(1, a.lowerBound(3));
+    assertEquals(3, a.upperBound(3));
+    assertEquals(4, a.countInRange(3, 7));
+    assertEquals(0, a.countInRange(10, 20));
+    assertEquals(6, a.lowerBound(100));
+
+    SortedLongArray d= new SortedLongArray(new long[] {9, 3, 7, 3, -2, 7}, true);
+    assertEquals(4, d.size());
+    assertEquals(2, d.indexOf(7));
+    assertEquals(-2, d.iterator().nextLong());
+  }
+
+}
@@ -1,11 +1,15 @@
 package com.tek271.util.collections.graph;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.tek271.util.collections.graph.GssUtils.GraphEntry;
 import com.tek271.util.collections.graph.GssUtils.IGssNodeFactory;
+import com.tek271.util.collections.graph.GssUtils.IGssNodeVisitor;
 
 import junit.framework.TestCase;
 
@@ -69,4 +73,257 @@ public class GssUtilsTest extends TestCase {
 //    System.out.println(roots);
   }
 
+  public void testChildIndex() {
+    GraphStructuredStackNode p= new GraphStructuredStackNode("p", null);
+    p.setChildIndexed(true);
+    for (int i=0; i<10; i++) p.addChild(new GraphStructuredStackNode("c" + i, "v" + i));
+    assertEquals(10, p.childrenCount());
+    assertEquals(3, p.indexOfChild("c3"));
+    assertEquals(-1, p.indexOfChild("c3", 4));
+    assertEquals(-1, p.indexOfChild("x"));
+
+    // replacing a child with the same key keeps one child
+    p.addChild(new GraphStructuredStackNode("c3", "new"));
+    assertEquals(10, p.childrenCount());
+    assertEquals("new", p.getChild("c3").getContents());
+
+    p.removeChild(0);
+    assertEquals(2, p.indexOfChild("c3"));
+    assertNull(p.getChild("c0"));
+    p.removeChild("c5");
+    assertEquals(7, p.indexOfChild("c9"));
+
+    // changes made through the list of children are seen
+    Collections.reverse(p.getChildren());
+    assertEquals(0, p.indexOfChild("c9"));
+    p.getChildren().add(new GraphStructuredStackNode("z", null));
+    assertEquals(8, p.indexOfChild("z"));
+    assertEquals("c9", p.getDescendant("c9").getKey());
+  }
+
+  public void testSetChildren() {
+    GraphStructuredStackNode p= new GraphStructuredStackNode("p", null);
+    p.setChildIndexed(true);
+    GraphStructuredStackNode a= new GraphStructuredStackNode("a", null);
+    GraphStructuredStackNode b= new GraphStructuredStackNode("b", null);
+    GraphStructuredStackNode c= new GraphStructuredStackNode("c", null);
+    p.addChild(a);
+    p.addChild(b);
+    p.addChild(c);
+    List children= new ArrayList();
+    children.add(c);
+    children.add(a);
+    p.setChildren(children);
+    assertEquals(2, p.childrenCount());
+    assertEquals(0, p.indexOfChild("c"));
+    assertEquals(-1, p.indexOfChild("b"));
+    assertFalse(b.hasParent());
+    assertTrue(a.hasParent(p));
+
+    p.setChildren(p.getChildren());
+    assertEquals(2, p.childrenCount());
+  }
+
+  public void testParallelCreateGraph() {
+    int n= GssUtils.PARALLEL_THRESHOLD;
+    List list= new ArrayList(n + 1);
+    list.add(new GraphEntry("root", "root", null));
+    for (int i=0; i<n; i++) {
+      String key= "n" + i;
+      // the first entry of a key has no contents, so the second one supplies it
+      list.add(new GraphEntry(key, null, i<100? "root" : "n" + (i % 100)));
+      if (i < 100) list.add(new GraphEntry(key, "c" + i, "root"));
+    }
+    IGssNodeFactory fac= new IGssNodeFactory() {
+      public IGraphStructuredStackNode create() {
+        return new GraphStructuredStackNode();
+      }
+    };
+    List seq= GssUtils.createGraph(list, fac, false);
+    List par= GssUtils.createGraph(list, fac, true);
+    assertEquals(1, par.size());
+    IGraphStructuredStackNode root= (IGraphStructuredStackNode) par.get(0);
+    assertEquals(100, root.childrenCount());
+    assertEquals(n, root.descendantsCount());
+    assertEquals("c7", root.getChild("n7").getContents());
+    assertEquals("n7", root.getDescendant("n7/n1007").getParent(0).getKey());
+    assertTrue(root.isEqual((IGraphStructuredStackNode) seq.get(0)));
+  }
+
+  public void testCreateGraphIndexesWhileBuilding() {
+    List list= new ArrayList();
+    list.add(new GraphEntry("root", "root", null));
+    list.add(new GraphEntry("narrow", "narrow", "root"));
+    int wide= GssUtils.CHILD_INDEX_THRESHOLD * 10;
+    for (int i=0; i<wide; i++) {
+      list.add(new GraphEntry("c" + i, "c" + i, "root"));
+      list.add(new GraphEntry("c" + i, "c" + i, "root"));  // a repeated link is not added
+    }
+    list.add(new GraphEntry("leaf", "leaf", "narrow"));
+    List roots= GssUtils.createGraph(list, new IGssNodeFactory() {
+      public IGraphStructuredStackNode create() {
+        return new GraphStructuredStackNode();
+      }
+    });
+    assertEquals(1, roots.size());
+    GraphStructuredStackNode root= (GraphStructuredStackNode) roots.get(0);
+    assertEquals(wide + 1, root.childrenCount());
+    assertEquals(wide + 2, root.descendantsCount());
+    assertEquals(wide, root.indexOfChild("c" + (wide-1)));
+    assertFalse(root.isChildIndexed());
+    assertFalse(((GraphStructuredStackNode) root.getChild("narrow")).isChildIndexed());
+    assertFalse(((GraphStructuredStackNode) root.getChild("c0")).isChildIndexed());
+  }
+
+  private static class Recorder implements IGssNodeVisitor {
+    final StringBuffer keys= new StringBuffer();
+    final Object stopAt;
+
+    Recorder(final Object aStopAt) {
+      stopAt= aStopAt;
+    }
+
+    public boolean visit(final IGraphStructuredStackNode aNode, final int aDepth) {
+      keys.append(aNode.getKey()).append(aDepth);
+      return !aNode.isEqualKey(stopAt);
+    }
+  }  // Recorder
+
+  public void testVisitors() {
+    IGraphStructuredStackNode root= (IGraphStructuredStackNode) testGraph().get(0);
+    Recorder dfs= new Recorder(null);
+    assertTrue(GssUtils.visitDepthFirst(root, dfs));
+    assertEquals("1021523241225333", dfs.keys.toString());
+    Recorder bfs= new Recorder(null);
+    assertTrue(GssUtils.visitBreadthFirst(root, bfs));
+    assertEquals("1021415232225333", bfs.keys.toString());
+
+    Recorder stopped= new Recorder("4");
+    assertFalse(GssUtils.visitDepthFirst(root, stopped));
+    assertEquals("1021523241", stopped.keys.toString());
+    stopped= new Recorder("4");
+    assertFalse(GssUtils.visitBreadthFirst(root, stopped));
+    assertEquals("102141", stopped.keys.toString());
+    assertEquals(7, root.descendantsCount());
+  }
+
+  public void testVisitParallel() {
+    GraphStructuredStackNode root= new GraphStructuredStackNode("root", null);
+    for (int i=0; i<50; i++) {
+      GraphStructuredStackNode child= new GraphStructuredStackNode("c" + i, null);
+      root.addChild(child);
+      for (int k=0; k<1000; k++) {
+        child.addChild(new GraphStructuredStackNode("c" + i + "." + k, null));
+      }
+    }
+    final AtomicInteger count= new AtomicInteger();
+    final AtomicInteger depthSum= new AtomicInteger();
+    assertTrue(GssUtils.visitParallel(root, new IGssNodeVisitor() {
+      public boolean visit(final IGraphStructuredStackNode aNode, final int aDepth) {
+        count.incrementAndGet();
+        depthSum.addAndGet(aDepth);
+        return true;
+      }
+    }));
+    assertEquals(1 + 50 + 50000, count.get());
+    assertEquals(50 + 2 * 50000, depthSum.get());
+
+    assertFalse(GssUtils.visitParallel(root, new IGssNodeVisitor() {
+      public boolean visit(final IGraphStructuredStackNode aNode, final int aDepth) {
+        return aDepth < 2;
+      }
+    }));
+  }
+
+  public void testDeepGraph() {
+    int depth= 100000;
+    GraphStructuredStackNode root= new GraphStructuredStackNode("n0", null);
+    IGraphStructuredStackNode node= root;
+    for (int i=1; i<=depth; i++) {
+      GraphStructuredStackNode child= new GraphStructuredStackNode("n" + i, null);
+      node.addChild(child);
+      node= child;
+    }
+    assertEquals(depth, root.descendantsCount());
+    assertSame(node, root.findDescendant("n" + depth));
+    assertNull(root.findDescendant("x"));
+    final int[] max= {0};
+    GssUtils.visitDepthFirst(root, new IGssNodeVisitor() {
+      public boolean visit(final IGraphStructuredStackNode aNode, final int aDepth) {
+        max[0]= aDepth;
+        return true;
+      }
+    });
+    assertEquals(depth, max[0]);
+  }
+
+  public void testCountCached() {
+    List roots= testGraph();
+    IGraphStructuredStackNode root= (IGraphStructuredStackNode) roots.get(0);
+    GssUtils.setCountCached(roots, true);
+    assertEquals(7, root.descendantsCount());
+    assertEquals(7, root.descendantsCount());
+
+    // node 2 has two parents: 1 and 4, both must see the change
+    IGraphStructuredStackNode two= root.getChild("2");
+    IGraphStructuredStackNode four= root.getChild("4");
+    assertEquals(3, four.descendantsCount());
+    two.addChild(new GraphStructuredStackNode("6", null));
+    assertEquals(9, root.descendantsCount());
+    assertEquals(4, four.descendantsCount());
+    two.getChild("3").addChild(new GraphStructuredStackNode("7", null));
+    assertEquals(11, root.descendantsCount());
+    two.removeChild("5");
+    assertEquals(9, root.descendantsCount());
+    assertEquals(4, four.descendantsCount());
+
+    // direct change of the children list of the node itself
+    four.getChildren().clear();
+    assertEquals(0, four.descendantsCount());
+
+    GssUtils.setCountCached(roots, false);
+    assertFalse(((AbstractGraphStructuredStackNode) root).isCountCached());
+    assertEquals(5, root.descendantsCount());
+  }
+
+  public void testCountCachedWithNodesAddedLater() {
+    GraphStructuredStackNode root= new GraphStructuredStackNode("root", null);
+    GraphStructuredStackNode one= new GraphStructuredStackNode("one", null);
+    root.addChild(one);
+    GssUtils.setCountCached(Arrays.asList(new Object[] {root}), true);
+    assertEquals(1, root.descendantsCount());
+
+    // six is hooked in after caching was turned on, then gets a child of its own
+    GraphStructuredStackNode six= new GraphStructuredStackNode("six", null);
+    one.addChild(six);
+    assertTrue(six.isCountCached());
+    assertEquals(2, root.descendantsCount());
+    six.addChild(new GraphStructuredStackNode("x", null));
+    assertEquals(3, root.descendantsCount());
+    root.setCountCached(false);
+    assertEquals(3, root.descendantsCount());
+
+    // a node that does not cache, under nodes that do
+    GraphStructuredStackNode plain= new GraphStructuredStackNode("plain", null);
+    GraphStructuredStackNode grand= new GraphStructuredStackNode("grand", null);
+    plain.addChild(grand);
+    six.addChild(plain);
+    plain.setCountCached(false);
+    assertEquals(5, root.descendantsCount());
+    assertEquals(4, one.descendantsCount());
+    grand.addChild(new GraphStructuredStackNode("y", null));
+    assertEquals(6, root.descendantsCount());
+    assertEquals(5, one.descendantsCount());
+  }
+
+  public void testToString() {
+    IGraphStructuredStackNode root= (IGraphStructuredStackNode) testGraph().get(0);
+    String[] lines= root.toString().split("\\r?\\n");
+    assertEquals(8, lines.length);
+    assertEquals("(Key=1) (Contents=1), (Children count=2)", lines[0]);
+    assertEquals("  (Key=2) (Contents=2), (Children count=2)", lines[1]);
+    assertEquals("    (Key=5) (Contents=5)", lines[2]);
+    assertEquals("      (Key=3) (Contents=3)", lines[7]);
+  }
+
 }
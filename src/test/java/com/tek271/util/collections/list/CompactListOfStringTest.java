@@ -0,0 +1,81 @@
+package com.tek271.util.collections.list;
+
+import java.io.*;
+import junit.framework.*;
+
+public class CompactListOfStringTest extends TestCase {
+
+  private static CompactListOfString read(String aText) throws IOException {
+    CompactListOfString r= new CompactListOfString(1, 1);
+    r.readFromReader(new StringReader(aText));
+    return r;
+  }
+
+  public void testReadLikeBufferedReader() throws IOException {
+    String[] texts= {"", "a", "a\n", "a\r\nb", "a\r\rb\n\nc\r", "\n", "x=1\r\n\r\ny=2"};
+    for (int t=0; t<texts.length; t++) {
+      ListOfString expected= new ListOfString();
+      expected.readFromReader(new StringReader(texts[t]));
+      CompactListOfString c= read(texts[t]);
+      assertEquals(texts[t], expected.size(), c.size());
+      for (int i=0; i<c.size(); i++) assertEquals(expected.getItem(i), c.getItem(i));
+    }
+  }
+
+  public void testReadAcrossBuffers() throws IOException {
+    StringBuffer b= new StringBuffer();
+    for (int i=0; i<5000; i++) b.append("line ").append(i).append(i % 2 == 0 ? "\r\n" : "\n");
+    CompactListOfString c= read(b.toString());
+    assertEquals(5000, c.size());
+    assertEquals("line 4999", c.getItem(4999));
+    assertEquals(4321, c.indexOf("line 4321"));
+  }
+
+  public void testLookups() {
+    CompactListOfString c= new CompactListOfString();
+    c.add("Name=Bob");
+    c.add("city=Paris");
+    c.add(null);
+    c.add("name=Ali");
+    assertEquals(4, c.size());
+    assertEquals("", c.getItem(2));
+    assertEquals(0, c.indexOf("Name=Bob"));
+    assertEquals(-1, c.indexOf("name=bob"));
+    assertEquals(3, c.indexOfName("name"));
+    assertEquals("Paris", c.getValueOfName(" city "));
+    assertEquals(1, c.indexOfStart("ci"));
+
+    c.isCaseSensitive= false;
+    assertEquals(0, c.indexOf("name=bob"));
+    assertEquals(3, c.lastIndexOf("NAME=ALI"));
+    assertEquals("Bob", c.getValueOfName("NAME"));
+    assertEquals(3, c.indexOfName("name", 1));
+    assertEquals("Name=Bob\ncity=Paris\n\nname=Ali", c.getText());
+  }
+
+  public void testWidenAndViews() throws IOException {
+    CompactListOfString c= new CompactListOfString();
+    c.add("caf\u00e9");
+    assertTrue(c.isLatin1());
+    c.add("\u0633\u0644\u0627\u0645");
+    assertFalse(c.isLatin1());
+    assertEquals("caf\u00e9", c.getItem(0));
+    assertEquals("\u0633\u0644\u0627\u0645", c.getItem(1));
+
+    CharSequence line= c.get(0);
+    assertEquals(4, line.length());
+    assertEquals('\u00e9', line.charAt(3));
+    assertEquals("af", line.subSequence(1, 3).toString());
+    assertEquals('f', c.charAt(0, 2));
+
+    StringWriter w= new StringWriter();
+    c.lineSeparator= "|";
+    c.writeTo(w);
+    assertEquals("caf\u00e9|\u0633\u0644\u0627\u0645", w.toString());
+
+    ListOfString list= c.toListOfString();
+    assertEquals(2, list.size());
+    assertEquals(list.getText(), new CompactListOfString(list).getText());
+  }
+
+}
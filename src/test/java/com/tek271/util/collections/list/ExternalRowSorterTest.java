@@ -0,0 +1,110 @@
+package com.tek271.util.collections.list;
+
+import java.io.*;
+import java.util.*;
+import junit.framework.*;
+
+public class ExternalRowSorterTest extends TestCase {
+  private File pTempDir;
+
+  protected void setUp() throws IOException {
+    pTempDir= File.createTempFile("sorttest", "");
+    pTempDir.delete();
+    pTempDir.mkdir();
+  }
+
+  protected void tearDown() {
+    File[] files= pTempDir.listFiles();
+    for (int i=0; i<files.length; i++) files[i].delete();
+    pTempDir.delete();
+  }
+
+  private RowList createList(final int aRowCount) {
+    List names= new ArrayList();
+    names.add("ID");
+    names.add("NAME");
+    names.add("STATE");
+    names.add("AMOUNT");
+    RowList r= new RowList(names);
+    String[] states= {"IL", "IN", "WI", null};
+    Random random= new Random(7);
+    for (int i=0; i<aRowCount; i++) {
+      Long amount= i % 11 == 0 ? null : new Long(random.nextInt(50) - 25);
+      r.add(new Object[] { new Integer(i), "Name" + random.nextInt(100),
+                           states[i % states.length], amount });
+    }
+    return r;
+  }
+
+  private ExternalRowSorter createSorter(final RowList aList, final String aOrder) {
+    ExternalRowSorter r= new ExternalRowSorter(aList, aOrder);
+    r.setTempDirectory(pTempDir);
+    r.setMaxRowsInMemory(37);
+    r.setParallelism(3);
+    r.setMaxMergeFanIn(4);
+    return r;
+  }
+
+  private void assertSameRows(final RowList aExpected, final RowList aActual) {
+    assertEquals(aExpected.size(), aActual.size());
+    for (int i=0; i<aExpected.size(); i++) {
+      assertTrue("row " + i, Arrays.equals(aExpected.getRowData(i), aActual.getRowData(i)));
+    }
+  }
+
+  public void testSpilledSortMatchesOrderBy() throws IOException {
+    String order= "STATE ASC, 3 DESC";
+    RowList list= createList(1000);
+    ExternalRowSorter sorter= createSorter(list, order);
+    sorter.addAll(list);
+    assertTrue(sorter.getSpilledRunCount() > 4);
+    RowList sorted= sorter.sortToRowList();
+
+    list.orderBy(order);  // also stable, so the ID order of equal rows must match
+    assertSameRows(list, sorted);
+    assertEquals(0, pTempDir.listFiles().length);
+  }
+
+  public void testInMemory() throws IOException {
+    RowList list= createList(30);
+    ExternalRowSorter sorter= createSorter(list, "NAME DESC, ID");
+    sorter.addAll(list);
+    RowList sorted= sorter.sortToRowList();
+    assertEquals(0, sorter.getSpilledRunCount());
+    list.orderBy("NAME DESC, ID");
+    assertSameRows(list, sorted);
+  }
+
+  public void testSortToStream() throws IOException {
+    RowList list= createList(500);
+    ExternalRowSorter sorter= createSorter(list, "AMOUNT, ID DESC");
+    sorter.setCompress(true);
+    for (int i=0; i<list.size(); i++) sorter.add(list.getRowData(i));
+    ByteArrayOutputStream out= new ByteArrayOutputStream();
+    sorter.sortTo(out, true);
+    RowList sorted= RowListCodec.CODEC.fromBytes(out.toByteArray());
+
+    list.orderBy("AMOUNT, ID DESC");
+    assertEquals(list.getColumnNames(), sorted.getColumnNames());
+    assertSameRows(list, sorted);
+    assertEquals(0, pTempDir.listFiles().length);
+  }
+
+  public void testCloseDeletesRuns() throws IOException {
+    RowList list= createList(200);
+    ExternalRowSorter sorter= createSorter(list, "ID DESC");
+    sorter.addAll(list);
+    ExternalRowSorter.SortedRows rows= sorter.sort();
+    assertTrue(pTempDir.listFiles().length > 0);
+    assertEquals(new Integer(199), rows.next()[0]);
+    rows.close();
+    assertEquals(0, pTempDir.listFiles().length);
+    try {
+      sorter.add(list.getRowData(0));
+      fail("add after sort");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+  }
+
+}
@@ -0,0 +1,108 @@
+package com.tek271.util.collections.list;
+
+import java.util.*;
+import junit.framework.*;
+import com.tek271.util.collections.iterator.*;
+
+public class IntListTest extends TestCase {
+
+  public void testIntList() {
+    IntList list= new IntList(0);
+    for (int i=0; i<100; i++) list.add(i * 3);
+    assertEquals(100, list.size());
+    assertEquals(297, list.get(99));
+    list.add(0, -1);
+    assertEquals(-1, list.get(0));
+    assertEquals(0, list.removeAt(1));
+    assertEquals(2, list.indexOf(6));
+    assertTrue(list.removeValue(6));
+    assertFalse(list.contains(6));
+    assertFalse(list.removeValue(6));
+    assertEquals(-1, list.set(0, 1000));
+    list.sort();
+    assertEquals(1000, list.get(list.size() - 1));
+    assertEquals(0, list.binarySearch(3));
+    assertTrue(list.binarySearch(4) < 0);
+
+    int n= 0;
+    for (IIntIterator it=list.iterator(); it.hasNext(); ) {
+      if (it.nextInt() % 2 == 0) it.remove();
+      n++;
+    }
+    assertEquals(99, n);
+    for (int i=0; i<list.size(); i++) assertTrue(list.get(i) % 2 != 0);
+
+    IntList copy= new IntList(list.toArray());
+    assertEquals(list, copy);
+    assertEquals(list.hashCode(), copy.hashCode());
+    try {
+      list.get(list.size());
+      fail("IndexOutOfBoundsException expected");
+    } catch (IndexOutOfBoundsException e) {
+      // expected
+    }
+    try {
+      list.add(list.size() + 1, 5);
+      fail("IndexOutOfBoundsException expected");
+    } catch (IndexOutOfBoundsException e) {
+      // expected
+    }
+  }
+
+  public void testAddAllAndIterator() {
+    IntList list= new IntList();
+    list.addAll(new int[] {5, 1, 4});
+    list.add(1, 9);
+    assertEquals("[5, 9, 1, 4]", list.toString());
+    list.addAll(new IntList(new int[] {4, 0}));
+    assertEquals(4, list.lastIndexOf(4));
+    assertEquals(3, list.indexOf(4));
+    list.sort();
+    assertEquals("[0, 1, 4, 4, 5, 9]", list.toString());
+    IIntIterator it= list.iterator();
+    assertEquals(0, it.nextInt());
+    assertEquals(new Integer(1), it.next());
+    try {
+      list.iterator().remove();
+      fail("IllegalStateException expected");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    list.trimToSize();
+    assertEquals(6, list.toArray().length);
+    list.clear();
+    assertTrue(list.isEmpty());
+    assertFalse(list.iterator().hasNext());
+    try {
+      list.iterator().nextInt();
+      fail("NoSuchElementException expected");
+    } catch (NoSuchElementException e) {
+      // expected
+    }
+  }
+
+  public void testAgainstArrayList() {
+    IntList list= new IntList(1);
+    List expected= new ArrayList();
+    Random random= new Random(7);
+    for (int i=0; i<5000; i++) {
+      int v= random.nextInt(100) - 50;
+      int op= random.nextInt(4);
+      if (op<2 || expected.isEmpty()) {
+        int index= random.nextInt(expected.size() + 1);
+        expected.add(index, new Integer(v));
+        list.add(index, v);
+      } else if (op==2) {
+        int index= random.nextInt(expected.size());
+        assertEquals(((Integer) expected.remove(index)).intValue(), list.removeAt(index));
+      } else {
+        assertEquals(expected.remove(new Integer(v)), list.removeValue(v));
+      }
+      assertEquals(expected.size(), list.size());
+    }
+    for (int i=0; i<expected.size(); i++) {
+      assertEquals(((Integer) expected.get(i)).intValue(), list.get(i));
+    }
+  }
+
+}
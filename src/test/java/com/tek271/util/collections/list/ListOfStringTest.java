@@ -67,4 +67,57 @@ public class ListOfStringTest extends TestCase {
     assertEquals("v3", e.getValue());
   }
   
+
+  private static final String[] pNAMES= {"a", "A", "b", "c", "a=b", "x", " a ", "=", "ab", "d"};
+
+  private static void assertSameLookups(ListOfString aIndexed, ListOfString aScanned) {
+    for (int i=0; i<pNAMES.length; i++) {
+      for (int start=0; start<=aScanned.size(); start++) {
+        assertEquals(pNAMES[i] + "@" + start, aScanned.indexOfName(pNAMES[i], start),
+                     aIndexed.indexOfName(pNAMES[i], start));
+      }
+    }
+  }
+
+  public void testNameIndex() {
+    ListOfString scanned= ListOfString.createFromString(
+        "a=1\n;b=2\nb=3\na=b=4\nA=5\n=6\nx\nab=7\nb=8", "\n");
+    ListOfString indexed= scanned.copy();
+    indexed.setNameIndexed(true);
+    assertTrue(indexed.isNameIndexed());
+    assertSameLookups(indexed, scanned);
+    assertEquals("3", indexed.getValueOfName("b"));
+
+    indexed.isCaseSensitive= scanned.isCaseSensitive= false;
+    assertSameLookups(indexed, scanned);
+
+    indexed.setValueOfName("d", "9");
+    scanned.setValueOfName("d", "9");
+    indexed.setValueOfName("b", "10");
+    scanned.setValueOfName("b", "10");
+    indexed.set(0, "c=11");
+    scanned.set(0, "c=11");
+    assertSameLookups(indexed, scanned);
+
+    indexed.insert(1, "a=12");
+    scanned.insert(1, "a=12");
+    indexed.remove(3);
+    scanned.remove(3);
+    assertSameLookups(indexed, scanned);
+
+    indexed.valueEquator= scanned.valueEquator= "==";
+    indexed.add("a===13");
+    scanned.add("a===13");
+    indexed.add("a=b==14");
+    scanned.add("a=b==14");
+    assertSameLookups(indexed, scanned);
+    assertEquals(indexed.size()-2, indexed.indexOfName("a="));
+    assertEquals(indexed.size()-1, indexed.indexOfName("A=b"));
+
+    ListOfString copy= indexed.copy();
+    copy.setValueOfName("x", "15");
+    assertEquals(-1, indexed.indexOfName("x"));
+    assertEquals(copy.size()-1, copy.indexOfName("x"));
+  }
+
 }
@@ -0,0 +1,44 @@
+package com.tek271.util.collections.list;
+
+import junit.framework.*;
+import com.tek271.util.collections.iterator.*;
+
+public class LongListTest extends TestCase {
+
+  public void testLongList() {
+    LongList list= new LongList(0);
+    for (long i=0; i<100; i++) list.add(i * 3);
+    assertEquals(100, list.size());
+    assertEquals(297, list.get(99));
+    list.add(0, -1);
+    assertEquals(-1, list.get(0));
+    assertEquals(0, list.removeAt(1));
+    assertEquals(2, list.indexOf(6));
+    assertTrue(list.removeValue(6));
+    assertFalse(list.contains(6));
+    assertEquals(-1, list.set(0, 1000));
+    list.sort();
+    assertEquals(1000, list.get(list.size() - 1));
+    assertEquals(0, list.binarySearch(3));
+    assertTrue(list.binarySearch(4) < 0);
+
+    int n= 0;
+    for (ILongIterator it=list.iterator(); it.hasNext(); ) {
+      if (it.nextLong() % 2 == 0) it.remove();
+      n++;
+    }
+    assertEquals(99, n);
+    for (int i=0; i<list.size(); i++) assertTrue(list.get(i) % 2 != 0);
+
+    LongList copy= new LongList(list.toArray());
+    assertEquals(list, copy);
+    assertEquals(list.hashCode(), copy.hashCode());
+    try {
+      list.get(list.size());
+      fail("IndexOutOfBoundsException expected");
+    } catch (IndexOutOfBoundsException e) {
+      // expected
+    }
+  }
+
+}
@@ -0,0 +1,100 @@
+package com.tek271.util.collections.list;
+
+import java.math.*;
+import java.util.*;
+import junit.framework.*;
+
+public class RowCursorTest extends TestCase {
+
+  private RowList createList() {
+    List names= new ArrayList();
+    names.add("id");
+    names.add("amount");
+    names.add("flag");
+    RowList r= new RowList(names);
+    r.add(new Object[] {new Integer(1), new BigDecimal("12.50"), Boolean.TRUE});
+    r.add(new Object[] {new Long(2), new Float(0.1f), "true"});
+    r.add(new Object[] {"3", null, null});
+    r.add(new Object[] {new BigDecimal("4"), new Double(1.5), "no"});
+    return r;
+  }
+
+  public void testCursor() {
+    RowList list= createList();
+    RowCursor c= list.cursor();
+    int id= c.getColumnIndex("ID");
+    int amount= c.getColumnIndex("Amount");
+    int flag= c.getColumnIndex("flag");
+    assertEquals(-1, c.getColumnIndex("none"));
+
+    long ids= 0;
+    while (c.next()) {
+      ids+= c.getInt(id);
+      assertEquals(list.getDouble(c.getRowIndex(), amount), c.getDouble(amount), 0);
+    }
+    assertEquals(10, ids);
+    assertFalse(c.next());
+
+    c.moveTo(1);
+    assertEquals(0.1d, c.getDouble(amount), 0);
+    assertEquals(0.1f, c.getFloat(amount), 0);
+    assertTrue(c.getBoolean(flag));
+    assertEquals("2", c.getString(id));
+    c.moveTo(2);
+    assertTrue(c.isNull(amount));
+    assertEquals(0, c.getLong(amount));
+    assertFalse(c.getBoolean(flag));
+
+    c.reset();
+    try {
+      c.getObject(0);
+      fail("not on a row");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+  }
+
+  public void testTypedGetters() {
+    RowList list= createList();
+    assertEquals(4, list.getInt(3, "ID"));
+    assertEquals(2, list.getLong(1, 0));
+    assertEquals(12.5d, list.getDouble(0, "AMOUNT"), 0);
+    assertTrue(list.getBoolean(0, "flag"));
+    try {
+      list.getInt(0, "amount");  // 12.50 is not an int, as before
+      fail("NumberFormatException expected");
+    } catch (NumberFormatException e) {
+      // expected
+    }
+    assertEquals(1, list.getColumnIndex("amount"));
+  }
+
+  public void testAddAllAndSingleRow() {
+    RowList list= createList();
+    list.setIsUseRowCounter(true);
+
+    List names= new ArrayList();
+    names.add("FLAG");
+    names.add("ID");
+    names.add("AMOUNT");
+    RowList other= new RowList(names);
+    other.add(new Object[] {"x", new Integer(9), null});
+    list.addAll(other);
+    assertEquals(5, list.size());
+    assertEquals(9, list.getInt(4, "id"));
+    assertEquals("x", list.getString(4, "flag"));
+    assertEquals("5", list.getRowCounterAsString(4));
+
+    RowList copy= new RowList(list.getColumnNames());
+    copy.addAll(list);
+    assertEquals(list.size(), copy.size());
+    assertNotSame(list.getRowData(0), copy.getRowData(0));
+    assertTrue(Arrays.equals(list.getRowData(0), copy.getRowData(0)));
+
+    SingleRowList row= list.getRowAsSingleRowList(1);
+    assertEquals(2, row.getLong(0, "ID"));
+    assertEquals(2, row.getLong(0, 0));
+    assertEquals("2", row.getString(0, list.getRowCounterName()));
+  }
+
+}
@@ -0,0 +1,170 @@
+package com.tek271.util.collections.list;
+
+import java.io.*;
+import java.math.*;
+import java.util.*;
+import junit.framework.*;
+
+public class RowListCodecTest extends TestCase {
+
+  private RowList createList() {
+    List names= new ArrayList();
+    names.add("id");
+    names.add("name");
+    names.add("amount");
+    names.add("misc");
+    RowList r= new RowList(names);
+    r.add(new Object[] {new Integer(1), "abdul", new BigDecimal("12.50"), new Long(-5)});
+    r.add(new Object[] {new Integer(-2), "abdul", null, "text"});
+    r.add(new Object[] {null, "doug", new BigDecimal(new BigInteger("123456789012345678901234567890"), 3),
+                        new java.sql.Timestamp(1200000000123L)});
+    r.add(new Object[] {new Integer(Integer.MAX_VALUE), "", BigDecimal.ZERO, Boolean.TRUE});
+    r.getColumnHeaders().put("NAME", "Full Name");
+    return r;
+  }
+
+  private void assertSameRows(final RowList aExpected, final RowList aActual) {
+    assertEquals(aExpected.getColumnNames(), aActual.getColumnNames());
+    assertEquals(aExpected.size(), aActual.size());
+    for (int i=0; i<aExpected.size(); i++) {
+      assertTrue(Arrays.equals(aExpected.getRowData(i), aActual.getRowData(i)));
+    }
+  }
+
+  public void testRoundTrip() throws IOException {
+    RowList list= createList();
+    RowList copy= RowListCodec.CODEC.fromBytes(RowListCodec.CODEC.toBytes(list, false));
+    assertSameRows(list, copy);
+    assertEquals("Full Name", copy.getColumnHeaders().get("NAME"));
+    assertEquals(list.toString(), copy.toString());
+  }
+
+  public void testRoundTripCompressed() throws IOException {
+    RowList list= createList();
+    for (int i=0; i<1000; i++) {
+      list.add(new Object[] {new Integer(i), "name" + (i % 10), null, new Double(i / 3.0)});
+    }
+    byte[] plain= RowListCodec.CODEC.toBytes(list, false);
+    byte[] compressed= RowListCodec.CODEC.toBytes(list, true);
+    assertTrue(compressed.length < plain.length);
+    assertSameRows(list, RowListCodec.CODEC.fromBytes(compressed));
+  }
+
+  public void testSmallerThanSerialization() throws IOException {
+    RowList list= createList();
+    for (int i=0; i<1000; i++) {
+      list.add(new Object[] {new Integer(i), "name" + (i % 10), new BigDecimal(i), "x"});
+    }
+    ByteArrayOutputStream bos= new ByteArrayOutputStream();
+    ObjectOutputStream oos= new ObjectOutputStream(bos);
+    oos.writeObject(list);
+    oos.close();
+    assertTrue(RowListCodec.CODEC.toBytes(list, false).length < bos.size());
+  }
+
+  public void testRowCounter() throws IOException {
+    RowList list= createList();
+    list.setIsUseRowCounter(true, "#", 5);
+    list.delete(1);
+    RowList copy= RowListCodec.CODEC.fromBytes(RowListCodec.CODEC.toBytes(list, false));
+    assertTrue(copy.getIsUseRowCounter());
+    assertEquals("#", copy.getRowCounterName());
+    assertEquals(7, copy.getRowCounter(1));
+    assertEquals(list.toString(), copy.toString());
+  }
+
+  public void testStreaming() throws IOException {
+    RowList header= new RowList(2);
+    int[] types= {RowDataTypes.LONG, RowDataTypes.MIXED};
+    ByteArrayOutputStream bos= new ByteArrayOutputStream();
+    RowListCodec.Encoder encoder= RowListCodec.CODEC.createEncoder(bos, header, types, true);
+    for (int i=0; i<100; i++) {
+      encoder.writeRow(new Object[] {new Long(i * 1000L), i % 2==0 ? (Object) "even" : new Integer(i)});
+    }
+    encoder.finish();
+    assertEquals(100, encoder.getRowCount());
+
+    RowListCodec.Decoder decoder= RowListCodec.CODEC.createDecoder(new ByteArrayInputStream(bos.toByteArray()));
+    assertEquals(2, decoder.getHeader().getColumnCount());
+    int i=0;
+    while (decoder.hasNext()) {
+      Object[] row= decoder.next();
+      assertEquals(new Long(i * 1000L), row[0]);
+      assertEquals(i % 2==0 ? (Object) "even" : new Integer(i), row[1]);
+      i++;
+    }
+    assertEquals(100, i);
+  }
+
+  public void testHasNextIsIdempotent() throws IOException {
+    RowList list= createList();
+    RowListCodec.Decoder decoder= RowListCodec.CODEC.createDecoder(
+      new ByteArrayInputStream(RowListCodec.CODEC.toBytes(list, false)));
+    for (int i=0; i<list.size(); i++) {
+      assertTrue(decoder.hasNext());
+      assertTrue(decoder.hasNext());
+      assertTrue(Arrays.equals(list.getRowData(i), decoder.next()));
+    }
+    assertFalse(decoder.hasNext());
+    assertFalse(decoder.hasNext());
+    try {
+      decoder.next();
+      fail("next() after the last row");
+    } catch (NoSuchElementException e) {}
+  }
+
+  public void testNumberDoesNotFitColumn() throws IOException {
+    RowList header= new RowList(1);
+    int[] types= {RowDataTypes.INTEGER};
+    RowListCodec.Encoder encoder= RowListCodec.CODEC.createEncoder(
+      new ByteArrayOutputStream(), header, types, false);
+    encoder.writeRow(new Object[] {new Long(Integer.MAX_VALUE)});
+    encoder.writeRow(new Object[] {new Double(-3)});
+    try {
+      encoder.writeRow(new Object[] {new Long(Integer.MAX_VALUE + 1L)});
+      fail("Long out of int range");
+    } catch (IllegalArgumentException e) {}
+    try {
+      encoder.writeRow(new Object[] {new Double(1.5)});
+      fail("Fraction in an int column");
+    } catch (IllegalArgumentException e) {}
+
+    RowDataOutput out= new RowDataOutput(new ByteArrayOutputStream());
+    out.writeValue(RowDataTypes.BYTE, new Integer(-128));
+    try {
+      out.writeValue(RowDataTypes.BYTE, new Integer(128));
+      fail("Integer out of byte range");
+    } catch (IllegalArgumentException e) {}
+    try {
+      out.writeValue(RowDataTypes.LONG, new BigInteger("9223372036854775808"));
+      fail("BigInteger out of long range");
+    } catch (IllegalArgumentException e) {}
+  }
+
+  public void testDictionaryIsCapped() throws IOException {
+    ByteArrayOutputStream bos= new ByteArrayOutputStream();
+    RowDataOutput out= new RowDataOutput(bos);
+    StringBuffer buf= new StringBuffer();
+    for (int i=4; i<RowDataOutput.MAX_DICTIONARY_STRING_LENGTH; i++) buf.append('x');
+    String base= buf.toString();
+    int count= RowDataOutput.MAX_DICTIONARY_CHARS / RowDataOutput.dictionaryChars(base) + 10;
+    for (int i=0; i<count; i++) {
+      out.writeString(i + base);
+    }
+    int before= out.size();
+    out.writeString("0" + base);   // in the dictionary
+    assertTrue(out.size() - before < 4);
+    before= out.size();
+    out.writeString((count-1) + base);   // did not fit in the dictionary
+    assertTrue(out.size() - before > base.length());
+    out.flush();
+
+    RowDataInput in= new RowDataInput(new ByteArrayInputStream(bos.toByteArray()));
+    for (int i=0; i<count; i++) {
+      assertEquals(i + base, in.readString());
+    }
+    assertEquals("0" + base, in.readString());
+    assertEquals((count-1) + base, in.readString());
+  }
+
+}
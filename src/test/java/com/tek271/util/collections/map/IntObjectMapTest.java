@@ -0,0 +1,115 @@
+package com.tek271.util.collections.map;
+
+import java.util.*;
+import junit.framework.*;
+import com.tek271.util.collections.iterator.*;
+
+public class IntObjectMapTest extends TestCase {
+
+  public void testAgainstHashMap() {
+    IntObjectMap map= new IntObjectMap();
+    Map expected= new HashMap();
+    Random random= new Random(5);
+    for (int i=0; i<20000; i++) {
+      int key= random.nextInt(500) - 250;  // includes 0 and negative keys
+      Integer k= new Integer(key);
+      if (random.nextBoolean()) {
+        String v= "v" + i;
+        assertEquals(expected.put(k, v), map.put(key, v));
+      } else {
+        assertEquals(expected.remove(k), map.remove(key));
+      }
+      assertEquals(expected.size(), map.size());
+    }
+    for (IIntIterator it=map.keyIterator(); it.hasNext(); ) {
+      int key= it.nextInt();
+      assertEquals(expected.get(new Integer(key)), map.get(key));
+    }
+    assertEquals(expected.size(), map.keys().length);
+    assertNull(map.get(1000));
+    map.put(1000, null);
+    assertTrue(map.containsKey(1000));
+    map.clear();
+    assertTrue(map.isEmpty());
+  }
+
+  public void testZeroKey() {
+    IntObjectMap map= new IntObjectMap();
+    assertFalse(map.containsKey(0));
+    assertNull(map.put(0, "zero"));
+    map.put(1, "one");
+    assertTrue(map.containsKey(0));
+    assertEquals("zero", map.get(0));
+    assertEquals(2, map.size());
+    assertEquals("{0=zero, 1=one}", map.toString());
+    int[] keys= map.keys();
+    Arrays.sort(keys);
+    assertTrue(Arrays.equals(new int[] {0, 1}, keys));
+    IIntIterator it= map.keyIterator();
+    assertEquals(0, it.nextInt());
+    assertEquals(1, it.nextInt());
+    assertFalse(it.hasNext());
+
+    assertEquals("zero", map.put(0, null));
+    assertTrue(map.containsKey(0));
+    assertNull(map.remove(0));
+    assertFalse(map.containsKey(0));
+    assertEquals(1, map.size());
+    map.put(0, "again");
+    map.clear();
+    assertFalse(map.containsKey(0));
+    assertTrue(map.isEmpty());
+  }
+
+/** Keys whose home slot is aSlot in a table of 16 slots */
+  private static int[] keysAtHome(final int aSlot, final int aCount) {
+    int[] r= new int[aCount];
+    int n= 0;
+    for (int k=1; n<aCount; k++) {
+      if ((HashUtil.mix(k) & 15)==aSlot) r[n++]= k;
+    }
+    return r;
+  }
+
+  public void testRemoveAcrossWraparound() {
+    int[] last= keysAtHome(15, 3);
+    int first= keysAtHome(0, 1)[0];
+    int[] keys= {last[0], last[1], last[2], first};
+    // every order of removing two of the keys
+    for (int a=0; a<keys.length; a++) {
+      for (int b=0; b<keys.length; b++) {
+        if (a==b) continue;
+        IntObjectMap map= new IntObjectMap(8);
+        for (int i=0; i<keys.length; i++) map.put(keys[i], "v" + keys[i]);
+        if (a==0 && b==1) {
+          // the cluster starts in the last slot and wraps to slots 0, 1, and 2
+          assertEquals("{" + last[1] + "=v" + last[1] + ", " + last[2] + "=v" + last[2] +
+                       ", " + first + "=v" + first + ", " + last[0] + "=v" + last[0] + "}",
+                       map.toString());
+        }
+        assertEquals("v" + keys[a], map.remove(keys[a]));
+        assertEquals("v" + keys[b], map.remove(keys[b]));
+        assertEquals(2, map.size());
+        for (int i=0; i<keys.length; i++) {
+          boolean isRemoved= i==a || i==b;
+          assertEquals(!isRemoved, map.containsKey(keys[i]));
+          assertEquals(isRemoved ? null : "v" + keys[i], map.get(keys[i]));
+        }
+      }
+    }
+  }
+
+  public void testRehash() {
+    IntObjectMap map= new IntObjectMap(0);
+    for (int i=-5000; i<5000; i++) map.put(i * 7, new Integer(i));
+    assertEquals(10000, map.size());
+    for (int i=-5000; i<5000; i++) assertEquals(new Integer(i), map.get(i * 7));
+    for (int i=-5000; i<5000; i+=2) assertEquals(new Integer(i), map.remove(i * 7));
+    assertEquals(5000, map.size());
+    for (int i=-5000; i<5000; i++) {
+      assertEquals(i % 2 != 0, map.containsKey(i * 7));
+    }
+    assertEquals(5000, map.keys().length);
+  }
+
+}
@@ -0,0 +1,49 @@
+package com.tek271.util.collections.map;
+
+import java.util.*;
+import junit.framework.*;
+import com.tek271.util.collections.iterator.*;
+
+public class LongLongMapTest extends TestCase {
+
+  public void testAgainstHashMap() {
+    LongLongMap map= new LongLongMap(4);
+    map.setNoValue(-1);
+    Map expected= new HashMap();
+    Random random= new Random(3);
+    for (int i=0; i<50000; i++) {
+      long key= random.nextInt(2000) - 1000;  // includes 0 and negative keys
+      int op= random.nextInt(3);
+      Long k= new Long(key);
+      if (op==0) {
+        long v= random.nextLong();
+        Long old= (Long) expected.put(k, new Long(v));
+        assertEquals(old==null ? -1 : old.longValue(), map.put(key, v));
+      } else if (op==1) {
+        Long old= (Long) expected.remove(k);
+        assertEquals(old==null ? -1 : old.longValue(), map.remove(key));
+      } else {
+        Long old= (Long) expected.get(k);
+        long v= (old==null ? 0 : old.longValue()) + 5;
+        expected.put(k, new Long(v));
+        assertEquals(v, map.addTo(key, 5));
+      }
+      assertEquals(expected.size(), map.size());
+    }
+    for (Iterator it=expected.entrySet().iterator(); it.hasNext(); ) {
+      Map.Entry e= (Map.Entry) it.next();
+      long key= ((Long) e.getKey()).longValue();
+      assertTrue(map.containsKey(key));
+      assertEquals(((Long) e.getValue()).longValue(), map.get(key));
+    }
+    int n= 0;
+    for (ILongIterator it=map.keyIterator(); it.hasNext(); n++) {
+      assertTrue(expected.containsKey(new Long(it.nextLong())));
+    }
+    assertEquals(expected.size(), n);
+    assertEquals(expected.size(), map.keys().length);
+    assertEquals(-1, map.get(5000));
+    assertEquals(7, map.get(5000, 7));
+  }
+
+}
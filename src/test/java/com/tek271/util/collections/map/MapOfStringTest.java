@@ -0,0 +1,177 @@
+package com.tek271.util.collections.map;
+
+import java.util.*;
+import junit.framework.*;
+import com.tek271.util.collections.list.ListOfString;
+
+public class MapOfStringTest extends TestCase {
+
+  private static MapOfString create(boolean aIsCaseSensetive) {
+    MapOfString m= new MapOfString(aIsCaseSensetive);
+    m.setListOrder(true);
+    m.put("Carter", "39");
+    m.put("Reagan=40");
+    m.put("Bush", "41");
+    return m;
+  }
+
+  public void testCaseInsensitive() {
+    MapOfString m= create(false);
+    assertEquals("39", m.get("cARTER"));
+    assertTrue(m.containsKey("REAGAN"));
+    assertTrue(m.containsValue("41"));
+    assertNull(m.get("nobody"));
+
+    assertEquals("41", m.put("BUSH", "43"));
+    assertEquals(3, m.size());
+    assertEquals("43", m.get("bush"));
+    assertTrue(m.keySet().contains("BUSH"));
+    assertEquals("Carter, Reagan, Bush", m.getOrderedKeys().getText(", "));
+
+    assertEquals("40", m.remove("reagan"));
+    assertFalse(m.containsKey("Reagan"));
+    assertEquals("Carter, Bush", m.getOrderedKeys().getText(", "));
+  }
+
+  public void testCaseSensitive() {
+    MapOfString m= create(true);
+    assertNull(m.get("carter"));
+    assertEquals("39", m.get("Carter"));
+    m.put("carter", "0");
+    assertEquals(4, m.size());
+  }
+
+  public void testLiveViews() {
+    MapOfString m= create(false);
+    Set keys= m.keySet();
+    Collection values= m.values();
+    Set entries= m.entrySet();
+    assertEquals(3, keys.size());
+
+    m.put("Clinton", "42");
+    assertEquals(4, keys.size());
+    assertTrue(keys.contains("clinton"));
+    assertTrue(values.contains("42"));
+
+    keys.remove("CARTER");
+    assertFalse(m.containsKey("Carter"));
+    values.remove("40");
+    assertFalse(m.containsKey("Reagan"));
+    assertEquals("Bush, Clinton", m.getOrderedKeys().getText(", "));
+
+    for (Iterator i= entries.iterator(); i.hasNext(); ) {
+      Map.Entry e= (Map.Entry) i.next();
+      if (e.getKey().equals("Bush")) e.setValue("43");
+      else i.remove();
+    }
+    assertEquals(1, m.size());
+    assertEquals("43", m.get("BUSH"));
+    assertEquals("Bush", m.getOrderedKeys().getText(", "));
+    assertEquals("{Bush=43}", m.toString());
+
+    keys.clear();
+    assertTrue(m.isEmpty());
+    assertEquals(0, m.getOrderedKeys().size());
+  }
+
+  public void testPutAllAndClone() {
+    Map source= new HashMap();
+    source.put("One", "1");
+    source.put("Two", "2");
+    MapOfString m= new MapOfString(false, source);
+    assertEquals("1", m.get("ONE"));
+
+    MapOfString c= (MapOfString) m.clone();
+    c.put("three", "3");
+    c.keySet().remove("one");
+    assertEquals(2, m.size());
+    assertEquals(2, c.size());
+    assertEquals("3", c.get("THREE"));
+    assertFalse(m.containsKey("three"));
+  }
+
+  public void testMultiValue() {
+    MapOfStringMV m= new MapOfStringMV(false);
+    m.put("Bush=41,43");
+    m.put("bush=45");
+    assertEquals(1, m.size());
+    assertEquals("41,43,45", m.get("BUSH"));
+    assertEquals(3, m.getAsList("Bush").size());
+    assertEquals("[Bush]", m.keySet().toString());
+    assertTrue(m.containsValue("41,43,45"));
+  }
+
+  private static MapOfStringMV createMV(boolean aIsCompact) {
+    MapOfStringMV m= new MapOfStringMV(false);
+    m.setCompact(aIsCompact);
+    m.setListOrder(true);
+    assertNull(m.put("Bush=41,43"));
+    assertEquals("41,43,45", m.put("bush=45"));
+    assertNull(m.put("Carter", ""));
+    m.put("Carter", "39");
+    m.put("Obama", ",44,");
+    assertNull(m.put("Reagan", "50", false));
+    assertEquals("40", m.put("Reagan", "40", false));
+    m.addValue("Ford", "38");
+    m.putAll("Ford", new String[] {"x", "y"}, true);
+    return m;
+  }
+
+  public void testCompactMultiValue() {
+    MapOfStringMV expected= createMV(false);
+    MapOfStringMV m= createMV(true);
+    assertTrue(m.isCompact());
+    assertEquals(expected.toString(), m.toString());
+    assertEquals(expected.getOrderedKeys(), m.getOrderedKeys());
+
+    String[] keys= {"BUSH", "carter", "Obama", "reagan", "Ford", "none"};
+    for (int i=0; i<keys.length; i++) {
+      assertEquals(keys[i], expected.get(keys[i]), m.get(keys[i]));
+      assertEquals(keys[i], expected.getValueCount(keys[i]), m.getValueCount(keys[i]));
+      assertEquals(keys[i], expected.getAsList(keys[i]), m.getAsList(keys[i]));
+      if (expected.getValues(keys[i]) != null) {
+        assertEquals(Arrays.asList(expected.getValues(keys[i])), Arrays.asList(m.getValues(keys[i])));
+      }
+    }
+    assertEquals(3, m.getValueCount("bush"));
+    assertEquals(2, m.getValueCount("obama"));
+    assertEquals("38,x,y", m.get("ford"));
+    assertTrue(m.containsValue("41,43,45"));
+
+    for (Iterator i= m.entrySet().iterator(); i.hasNext(); ) {
+      Map.Entry e= (Map.Entry) i.next();
+      if (e.getKey().equals("Carter")) e.setValue("39,2024");
+    }
+    assertEquals(2, m.getValueCount("carter"));
+
+    try {
+      m.setCompact(false);
+      fail();
+    } catch (IllegalStateException e) {}
+  }
+
+  public void testCompactListsWriteThrough() {
+    MapOfStringMV m= createMV(true);
+    ListOfString bush= m.getAsList("bush");
+    bush.add("47");
+    assertEquals("41,43,45,47", m.get("Bush"));
+    assertSame(bush, m.getAsList("BUSH"));
+
+    m.addValue("bush", "48");
+    assertEquals(5, bush.size());
+    assertEquals("41,43,45,47,48", m.get("bush"));
+
+    for (Iterator i= m.entrySet().iterator(); i.hasNext(); ) {
+      Map.Entry e= (Map.Entry) i.next();
+      if (e.getKey().equals("Bush")) e.setValue("41,43");
+    }
+    assertEquals(2, bush.size());
+
+    ListOfString reagan= m.put("Reagan", new ListOfString(new String[] {"41"}));
+    reagan.remove("41");
+    assertEquals("40", m.get("reagan"));
+    assertEquals(1, m.getValueCount("reagan"));
+    assertEquals("Bush, Carter, Obama, Reagan, Ford", m.getOrderedKeys().getText(", "));
+  }
+
+}
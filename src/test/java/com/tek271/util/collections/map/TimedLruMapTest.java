@@ -1,5 +1,6 @@
 package com.tek271.util.collections.map;
 
+import java.io.*;
 import java.util.*;
 import junit.framework.*;
 import com.tek271.util.thread.ThreadUtility;
@@ -54,4 +55,43 @@ public class TimedLruMapTest extends TestCase {
     assertEquals(1, pMap.size());
   }
 
+  public void testSerialization() throws Exception {
+    pMap.get("1");
+    ByteArrayOutputStream bos= new ByteArrayOutputStream();
+    ObjectOutputStream out= new ObjectOutputStream(bos);
+    out.writeObject(pMap);
+    out.close();
+    ObjectInputStream in= new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()));
+    TimedLruMap copy= (TimedLruMap) in.readObject();
+
+    assertEquals(pTTL, copy.getTimeToLive());
+    assertEquals(pMAX_SIZE, copy.getMaxSize());
+    assertEquals(pMap, copy);
+    assertEquals(Arrays.asList(new Object[] {"2", "3", "4", "1"}), new ArrayList(copy.keySet()));
+    copy.put("5", "e");
+    assertEquals(pMAX_SIZE, copy.size());
+    assertNull(copy.get("2"));
+    ThreadUtility.sleepMillis(400);
+    assertEquals(pMAX_SIZE, copy.removeExpired());
+    assertTrue(copy.isEmpty());
+  }
+
+  public void testNullKey() throws Exception {
+    pMap.remove("4");
+    pMap.put(null, "x");
+    assertEquals("x", pMap.get(null));
+    ByteArrayOutputStream bos= new ByteArrayOutputStream();
+    ObjectOutputStream out= new ObjectOutputStream(bos);
+    out.writeObject(pMap);
+    out.close();
+    ObjectInputStream in= new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()));
+    TimedLruMap copy= (TimedLruMap) in.readObject();
+
+    ThreadUtility.sleepMillis(400);
+    assertEquals(pMAX_SIZE, pMap.removeExpired());
+    assertTrue(pMap.isEmpty());
+    assertEquals(pMAX_SIZE, copy.removeExpired());
+    assertTrue(copy.isEmpty());
+  }
+
 }
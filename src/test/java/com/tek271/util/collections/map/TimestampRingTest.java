@@ -0,0 +1,158 @@
+/*
+Technology Exponent Common Utilities For Java (TECUJ)
+Copyright (C) 2003,2008  Abdul Habra.
+www.tek271.com
+
+This file is part of TECUJ.
+
+TECUJ is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published
+by the Free Software Foundation; version 2.
+
+TECUJ is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with TECUJ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+You can contact the author at ahabra@yahoo.com
+*/
+package com.tek271.util.collections.map;
+
+import java.util.*;
+import junit.framework.*;
+
+public class TimestampRingTest extends TestCase {
+  private TimestampRing ring;
+
+  public void setUp() {
+    ring= new TimestampRing();
+    ring.put("1", 10);
+    ring.put("2", 20);
+    ring.put("3", 20);
+    ring.put("4", 40);
+  }
+
+  public void testPut() {
+    assertEquals(4, ring.size());
+    assertEquals(10, ring.getFirstTimestamp());
+    assertEquals(40, ring.getLastTimestamp());
+    assertEquals(TimestampRing.NO_TIMESTAMP, ring.put("5", 50));
+    assertEquals(10, ring.put("1", 60));
+    assertEquals("2", ring.firstKey());
+    assertEquals("1", ring.lastKey());
+    assertEquals(60, ring.getTimestamp("1"));
+    assertEquals(Arrays.asList(new Object[] {"2", "3", "4", "5", "1"}), ring.keys());
+    try {
+      ring.put("6", 59);
+      fail("smaller time stamp must fail");
+    } catch (IllegalArgumentException e) {}
+  }
+
+  public void testRemove() {
+    assertEquals(20, ring.remove("2"));
+    assertEquals(TimestampRing.NO_TIMESTAMP, ring.remove("2"));
+    assertFalse(ring.containsKey("2"));
+    assertEquals(10, ring.removeFirst());
+    assertEquals(40, ring.removeLast());
+    assertEquals(1, ring.size());
+    assertEquals("3", ring.firstKey());
+    assertEquals("3", ring.lastKey());
+    ring.remove("3");
+    assertTrue(ring.isEmpty());
+    assertEquals(0, ring.getFirstTimestamp());
+    assertNull(ring.firstKey());
+  }
+
+  public void testRemoveBefore() {
+    assertEquals(0, ring.removeBefore(10, false));
+    assertEquals(1, ring.removeBefore(10, true));
+    assertEquals(2, ring.removeBefore(20, true));
+    assertEquals("4", ring.firstKey());
+    setUp();
+    final List removed= new ArrayList();
+    ring.remove("2");
+    assertEquals(2, ring.removeBefore(30, false, new TimestampRing.ITimestampVisitor() {
+      public boolean visit(final Object aKey, final long aTimestamp) {
+        removed.add(aKey);
+        return true;
+      }
+    }));
+    assertEquals(Arrays.asList(new Object[] {"1", "3"}), removed);
+    assertEquals(1, ring.size());
+  }
+
+  public void testRemoveAfter() {
+    assertEquals(0, ring.removeAfter(40, false));
+    assertEquals(3, ring.removeAfter(20, true));
+    assertEquals("1", ring.lastKey());
+    setUp();
+    assertEquals(1, ring.removeAfter(20, false));
+    assertEquals(TimestampRing.NO_TIMESTAMP, ring.put("4", 40));  // removed key is new again
+  }
+
+  public void testVisit() {
+    final StringBuffer buf= new StringBuffer();
+    TimestampRing.ITimestampVisitor v= new TimestampRing.ITimestampVisitor() {
+      public boolean visit(final Object aKey, final long aTimestamp) {
+        buf.append(aKey).append(':').append(aTimestamp).append(' ');
+        return aTimestamp < 20;
+      }
+    };
+    assertFalse(ring.visit(10, 30, v));
+    assertEquals("1:10 2:20 ", buf.toString());
+    assertEquals(2, ring.count(15, 39));
+    assertEquals(4, ring.count(Long.MIN_VALUE, Long.MAX_VALUE));
+    assertEquals(0, ring.count(41, 50));
+  }
+
+  public void testGrowAndWrap() {
+    TimestampRing r= new TimestampRing(4);
+    Map expected= new HashMap();
+    for (int i=0; i<1000; i++) {
+      String key= String.valueOf(i % 37);
+      r.put(key, i);
+      expected.put(key, new Long(i));
+      if (i % 5 == 0) {
+        r.removeBefore(i - 50, false);
+        for (Iterator it= expected.values().iterator(); it.hasNext();) {
+          if (((Long) it.next()).longValue() < i - 50) it.remove();
+        }
+      }
+      assertEquals(expected.size(), r.size());
+    }
+    for (Iterator it= expected.entrySet().iterator(); it.hasNext();) {
+      Map.Entry e= (Map.Entry) it.next();
+      assertEquals(((Long) e.getValue()).longValue(), r.getTimestamp(e.getKey()));
+    }
+    r.clear();
+    assertTrue(r.isEmpty());
+    assertEquals("{}", r.toString());
+  }
+
+  public void testNullKey() {
+    TimestampRing r= new TimestampRing();
+    r.put(null, 10);
+    r.put("a", 20);
+    assertTrue(r.containsKey(null));
+    assertEquals(10, r.getTimestamp(null));
+    assertNull(r.firstKey());
+    assertEquals("{null=10, a=20}", r.toString());
+    assertEquals(Arrays.asList(new Object[] {null, "a"}), r.keys());
+
+    final List removed= new ArrayList();
+    assertEquals(1, r.removeBefore(15, false, new TimestampRing.ITimestampVisitor() {
+      public boolean visit(final Object aKey, final long aTimestamp) {
+        removed.add(aKey);
+        return true;
+      }
+    }));
+    assertEquals(Collections.singletonList(null), removed);
+    assertFalse(r.containsKey(null));
+    assertEquals(1, r.size());
+  }
+
+}
@@ -0,0 +1,29 @@
+package com.tek271.util.collections.set;
+
+import java.util.*;
+import junit.framework.*;
+import com.tek271.util.collections.iterator.ILongIterator;
+
+public class LongSetTest extends TestCase {
+
+  public void testAgainstHashSet() {
+    LongSet set= new LongSet(2);
+    Set expected= new HashSet();
+    Random random= new Random(11);
+    for (int i=0; i<50000; i++) {
+      long v= random.nextInt(3000) - 1500;
+      Long k= new Long(v);
+      if (random.nextInt(3) > 0) assertEquals(expected.add(k), set.add(v));
+      else assertEquals(expected.remove(k), set.remove(v));
+      assertEquals(expected.size(), set.size());
+    }
+    for (long v=-1500; v<1500; v++) {
+      assertEquals(expected.contains(new Long(v)), set.contains(v));
+    }
+    Set iterated= new HashSet();
+    for (ILongIterator it=set.iterator(); it.hasNext(); ) iterated.add(it.next());
+    assertEquals(expected, iterated);
+    assertEquals(set, new LongSet(set.toArray()));
+  }
+
+}
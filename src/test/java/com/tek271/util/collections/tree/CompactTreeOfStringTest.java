@@ -0,0 +1,108 @@
+package com.tek271.util.collections.tree;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.tek271.util.collections.list.ListOfString;
+
+import junit.framework.TestCase;
+
+public class CompactTreeOfStringTest extends TestCase {
+
+  public void testAddAndFind() {
+    CompactTreeOfString t= new CompactTreeOfString();
+    int usa= t.add("America/USA");
+    int canada= t.add("/America//Canada/");
+    assertEquals(4, t.size());
+    assertEquals(2, t.getPathCount());
+    assertEquals(usa, t.indexOf("America/USA"));
+    assertEquals(canada, t.indexOf("America/Canada"));
+    assertEquals(usa, t.add("America/USA"));
+    assertEquals(2, t.getPathCount());
+
+    int america= t.indexOf("America");
+    assertTrue(america > 0);
+    assertFalse(t.isPath(america));
+    assertFalse(t.contains("America"));
+    assertTrue(t.contains("America/USA"));
+    assertFalse(t.contains("America/US"));
+    assertEquals(-1, t.indexOf("Asia"));
+    assertEquals(CompactTreeOfString.ROOT, t.indexOf(""));
+
+    // children are sorted by segment, whatever the order of adding
+    assertEquals(2, t.getChildCount(america));
+    assertEquals(canada, t.getChild(america, 0));
+    assertEquals(usa, t.getChild(america, 1));
+    assertEquals(usa, t.getChild(america, "USA"));
+    assertEquals(-1, t.getChild(america, "Mexico"));
+    assertEquals(america, t.getParent(usa));
+    assertEquals("USA", t.getSegment(usa));
+    assertEquals("America/USA", t.getPath(usa));
+
+    assertEquals(usa, t.indexOf("xx/America/USA/yy", 3, 14));
+  }
+
+  public void testInternedSegments() {
+    CompactTreeOfString t= new CompactTreeOfString();
+    int a= t.add(new String("a/index.html"));
+    int b= t.add(new String("b/index.html"));
+    assertSame(t.getSegment(a), t.getSegment(b));
+  }
+
+  public void testLongestPrefix() {
+    CompactTreeOfString t= new CompactTreeOfString();
+    t.put("admin", "ADMIN");
+    t.put("admin/users/edit", "EDIT");
+    assertEquals(t.indexOf("admin"), t.longestPrefix("admin/users"));
+    assertEquals(t.indexOf("admin/users/edit"), t.longestPrefix("admin/users/edit/5"));
+    assertEquals("ADMIN", t.getLongestPrefixValue("admin/reports/x"));
+    assertEquals("EDIT", t.getLongestPrefixValue("/admin/users/edit"));
+    assertEquals(-1, t.longestPrefix("administrator"));
+    assertNull(t.getLongestPrefixValue("public/a"));
+    assertEquals("EDIT", t.get("admin/users/edit"));
+    assertNull(t.get("admin/users"));
+
+    t.add("");
+    assertEquals(CompactTreeOfString.ROOT, t.longestPrefix("public"));
+  }
+
+  public void testSortedPaths() {
+    List paths= Arrays.asList(new String[] {"a-c", "a/b", "a/b/c", "b", "b/a"});
+    CompactTreeOfString t= CompactTreeOfString.fromSortedPaths(paths.iterator());
+    assertEquals(5, t.getPathCount());
+    // "a" is added after "a-c", but sorts before it
+    assertEquals("a", t.getSegment(t.getChild(CompactTreeOfString.ROOT, 0)));
+    ListOfString list= t.toListOfString();
+    assertEquals(Arrays.asList(new String[] {"a/b", "a/b/c", "a-c", "b", "b/a"}), list);
+  }
+
+  public void testTreeOfString() {
+    ITree earth= new TreeOfString(null, "Earth");
+    ITree america= new TreeOfString(earth, "America");
+    new TreeOfString(earth, "Africa");
+    new TreeOfString(america, "USA");
+    new TreeOfString(america, "Canada");
+
+    CompactTreeOfString t= CompactTreeOfString.fromTree(earth);
+    assertEquals(4, t.getPathCount());
+    assertTrue(t.contains("America/Canada"));
+    assertTrue(t.contains("Africa"));
+
+    TreeOfString tree= t.toTreeOfString("Earth");
+    assertEquals(4, tree.descendantsCount());
+    assertEquals("USA", tree.getDescendant("America/USA").getKey());
+    assertSame(tree, ((ITree) tree.getDescendant("Africa")).getParent());
+    assertEquals("Africa", tree.getChild(0).getKey());
+  }
+
+  public void testSeparator() {
+    CompactTreeOfString t= new CompactTreeOfString('.');
+    t.add("com.tek271.util");
+    assertTrue(t.contains("com.tek271.util"));
+    assertEquals("com.tek271", t.getPath(t.indexOf("com.tek271")));
+    t.trimToSize();
+    t.add("com.tek271.io");
+    assertEquals(2, t.getChildCount(t.indexOf("com.tek271")));
+  }
+
+}
@@ -0,0 +1,144 @@
+package com.tek271.util.db;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import junit.framework.*;
+
+public class CounterAggregatorTest extends TestCase {
+
+  public void testCoalesce() {
+    FakeConnection fc= new FakeConnection();
+    CounterAggregator ca= new CounterAggregator(fc.connection, FakeConnection.LOGGER,
+                                                60000, 1000000);
+    for (int i=0; i<100; i++) {
+      ca.increment("pages", "views", "id=1", 1);
+      ca.increment("pages", "views", " id=1 ", 1);
+      ca.increment("pages", "views", "id=2", 2);
+    }
+    ca.increment("pages", "views", "id=3", 0);
+    assertEquals(300, ca.getPendingIncrementCount());
+    assertEquals(2, ca.getPendingCellCount());
+    ca.shutdown();
+
+    assertEquals(0, ca.getPendingIncrementCount());
+    assertEquals(0, ca.getPendingCellCount());
+    assertEquals(1, fc.batches);
+    assertEquals(1, fc.commits);
+    assertTrue(fc.autoCommit);
+    Set s= new HashSet(fc.sql);
+    assertEquals(2, s.size());
+    assertTrue(s.contains("UPDATE pages SET views=views+200 WHERE id=1"));
+    assertTrue(s.contains("UPDATE pages SET views=views+200 WHERE id=2"));
+    try {
+      ca.increment("pages", "views", "id=1", 1);
+      fail("increment after shutdown");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+  }
+
+  public void testFailedFlushKeepsDeltas() throws Exception {
+    FakeConnection fc= new FakeConnection();
+    fc.isFailBatch= true;
+    CounterAggregator ca= new CounterAggregator(fc.connection, FakeConnection.LOGGER,
+                                                20, 1000000);
+    ca.increment("t", "c", null, 5);
+    ca.increment("t", "c", null, -2);
+    long end= System.currentTimeMillis() + 5000;
+    while (ca.getFailedFlushCount()==0 && System.currentTimeMillis()<end) Thread.sleep(10);
+    assertTrue(ca.getFailedFlushCount() > 0);
+    assertTrue(fc.rollbacks > 0);
+    assertEquals(2, ca.getPendingIncrementCount());
+
+    fc.isFailBatch= false;
+    ca.shutdown();
+    assertEquals(0, ca.getPendingIncrementCount());
+    assertEquals(Arrays.asList(new String[] {"UPDATE t SET c=c+3"}), fc.sql);
+  }
+
+  public void testThresholdAndConcurrency() throws Exception {
+    final FakeConnection fc= new FakeConnection();
+    final CounterAggregator ca= new CounterAggregator(fc.connection,
+                                                      FakeConnection.LOGGER, 60000, 500);
+    Thread[] threads= new Thread[4];
+    for (int i=0; i<threads.length; i++) {
+      threads[i]= new Thread() {
+        public void run() {
+          for (int j=0; j<10000; j++) ca.increment("t", "c", "k=" + (j%3), 1);
+        }
+      };
+      threads[i].start();
+    }
+    for (int i=0; i<threads.length; i++) threads[i].join();
+    ca.shutdown();
+
+    assertTrue(ca.getFlushCount() > 1);
+    assertEquals(40000, sumOfIncrements(fc));
+    assertEquals(ca.getStatementCount(), fc.sql.size());
+  }
+
+  private static long sumOfIncrements(final FakeConnection aConnection) {
+    long total= 0;
+    synchronized (aConnection.sql) {
+      for (Iterator it=aConnection.sql.iterator(); it.hasNext(); ) {
+        String s= (String) it.next();
+        int plus= s.indexOf('+');
+        int end= s.indexOf(' ', plus);
+        total+= Long.parseLong(end<0 ? s.substring(plus+1) : s.substring(plus+1, end));
+      }
+    }
+    return total;
+  }
+
+  public void testIdleCellsAreEvicted() throws Exception {
+    FakeConnection fc= new FakeConnection();
+    CounterAggregator ca= new CounterAggregator(fc.connection, FakeConnection.LOGGER,
+                                                10, 1000000);
+    for (int i=0; i<50; i++) ca.increment("t", "c", "id=" + i, 1);
+    long end= System.currentTimeMillis() + 5000;
+    while (ca.getCellCount() > 0 && System.currentTimeMillis()<end) Thread.sleep(5);
+    assertEquals(0, ca.getCellCount());
+    assertEquals(50, sumOfIncrements(fc));
+
+    ca.increment("t", "c", "id=1", 7);
+    ca.shutdown();
+    assertEquals(57, sumOfIncrements(fc));
+    assertEquals("UPDATE t SET c=c+7 WHERE id=1", fc.sql.get(fc.sql.size()-1));
+  }
+
+  public void testNoIncrementLostAtShutdown() throws Exception {
+    final FakeConnection fc= new FakeConnection();
+    final CounterAggregator ca= new CounterAggregator(fc.connection,
+                                                      FakeConnection.LOGGER, 1, 100);
+    final long[] accepted= new long[4];
+    final CountDownLatch started= new CountDownLatch(accepted.length);
+    Thread[] threads= new Thread[accepted.length];
+    for (int i=0; i<threads.length; i++) {
+      final int index= i;
+      threads[i]= new Thread() {
+        public void run() {
+          started.countDown();
+          try {
+            for (int j=0; ; j++) {
+              ca.increment("t", "c", "k=" + (j%5), 1);
+              accepted[index]++;
+            }
+          } catch (IllegalStateException e) {
+            // shut down
+          }
+        }
+      };
+      threads[i].start();
+    }
+    started.await();
+    while (ca.getFlushCount() < 3) Thread.yield();
+    ca.shutdown();
+    long total= 0;
+    for (int i=0; i<threads.length; i++) {
+      threads[i].join();
+      total+= accepted[i];
+    }
+    assertEquals(total, sumOfIncrements(fc));
+  }
+
+}
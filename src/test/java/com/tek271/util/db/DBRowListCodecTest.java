@@ -0,0 +1,83 @@
+/*
+Technology Exponent Common Utilities For Java (TECUJ)
+Copyright (C) 2003,2008  Abdul Habra.
+www.tek271.com
+
+This file is part of TECUJ.
+
+TECUJ is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as published
+by the Free Software Foundation; version 2.
+
+TECUJ is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with TECUJ; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+You can contact the author at ahabra@yahoo.com
+*/
+package com.tek271.util.db;
+
+import java.io.*;
+import java.math.*;
+import java.util.*;
+import junit.framework.*;
+import com.tek271.util.collections.list.*;
+
+public class DBRowListCodecTest extends TestCase {
+
+  private DBRowList createList() {
+    List names= new ArrayList();
+    names.add("ID");
+    names.add("NAME");
+    names.add("AMOUNT");
+    names.add("CREATED");
+    DBRowList r= new DBRowList(names);
+    r.add(new Object[] {new Integer(1), "abdul", new BigDecimal("12.50"),
+                        new java.sql.Timestamp(1200000000123L)});
+    r.add(new Object[] {new Integer(2), null, new BigDecimal("-0.01"),
+                        new java.sql.Date(1200000000000L)});
+    r.setTableName("CUSTOMER");
+    r.setSchemaName("SALES");
+    r.setDatabaseName("ORCL");
+    return r;
+  }
+
+  public void testRoundTrip() throws IOException {
+    DBRowList list= createList();
+    RowList copy= DBRowListCodec.CODEC.fromBytes(DBRowListCodec.CODEC.toBytes(list, true));
+    assertTrue(copy instanceof DBRowList);
+    DBRowList dbCopy= (DBRowList) copy;
+    assertEquals("CUSTOMER", dbCopy.getTableName());
+    assertEquals("SALES", dbCopy.getSchemaName());
+    assertEquals("ORCL", dbCopy.getDatabaseName());
+    assertEquals(list.getColumnNames(), dbCopy.getColumnNames());
+    assertEquals(list.size(), dbCopy.size());
+    for (int i=0; i<list.size(); i++) {
+      assertTrue(Arrays.equals(list.getRowData(i), dbCopy.getRowData(i)));
+    }
+    assertEquals(new java.sql.Timestamp(1200000000123L), dbCopy.getTimestamp(0, "CREATED"));
+  }
+
+  public void testMissingNames() throws IOException {
+    DBRowList list= createList();
+    list.setSchemaName(null);
+    list.setDatabaseName(null);
+    DBRowList copy= (DBRowList) DBRowListCodec.CODEC.fromBytes(DBRowListCodec.CODEC.toBytes(list, false));
+    assertEquals("CUSTOMER", copy.getTableName());
+    assertNull(copy.getSchemaName());
+    assertNull(copy.getDatabaseName());
+  }
+
+  public void testPlainRowList() throws IOException {
+    DBRowList list= createList();
+    RowList plain= RowListCodec.CODEC.fromBytes(DBRowListCodec.CODEC.toBytes(list, false));
+    assertEquals(list.size(), plain.size());
+    assertTrue(Arrays.equals(list.getRowData(1), plain.getRowData(1)));
+  }
+
+}
@@ -0,0 +1,127 @@
+package com.tek271.util.db;
+
+import java.lang.reflect.*;
+import java.sql.*;
+import java.util.*;
+import com.tek271.util.log.ILogger;
+
+/** A java.sql.Connection proxy that records what was done on it, for testing */
+class FakeConnection implements InvocationHandler {
+  /** A logger that ignores everything */
+  static final ILogger LOGGER= new ILogger() {
+    public void log(int aLevel, String aMsg) {}
+    public void log(int aLevel, String aMsg, Throwable aThrowable) {}
+  };
+
+  final List sql= Collections.synchronizedList(new ArrayList());
+  int commits;
+  int rollbacks;
+  int savepoints;
+  int savepointRollbacks;
+  int savepointReleases;
+  /** when true, rollback(Savepoint) throws SQLException */
+  volatile boolean isFailSavepointRollback;
+  boolean autoCommit= true;
+  boolean isSupportSavepoints= true;
+  /** when true, executeBatch() throws SQLException */
+  volatile boolean isFailBatch;
+  int batches;
+  /** executeUpdate() and execute() block this long, or until cancelled */
+  volatile long executeMillis;
+
+  final Connection connection= (Connection) Proxy.newProxyInstance(
+      FakeConnection.class.getClassLoader(), new Class[] {Connection.class}, this);
+
+  public Object invoke(Object aProxy, Method aMethod, Object[] aArgs) throws Throwable {
+    String name= aMethod.getName();
+    if (name.equals("getAutoCommit")) return Boolean.valueOf(autoCommit);
+    if (name.equals("setAutoCommit")) {
+      autoCommit= ((Boolean) aArgs[0]).booleanValue();
+      return null;
+    }
+    if (name.equals("commit")) {
+      commits++;
+      return null;
+    }
+    if (name.equals("rollback")) {
+      if (aArgs==null || aArgs.length==0) {
+        rollbacks++;
+        return null;
+      }
+      if (isFailSavepointRollback) throw new SQLException("savepoint rollback failed");
+      savepointRollbacks++;
+      return null;
+    }
+    if (name.equals("setSavepoint")) {
+      if (!isSupportSavepoints) throw new SQLFeatureNotSupportedException("no savepoints");
+      savepoints++;
+      return Proxy.newProxyInstance(FakeConnection.class.getClassLoader(),
+                                    new Class[] {Savepoint.class}, this);
+    }
+    if (name.equals("createStatement")) return new FakeStatement(this).statement;
+    if (name.equals("releaseSavepoint")) {
+      savepointReleases++;
+      return null;
+    }
+    if (name.equals("close")) return null;
+    if (name.equals("isClosed")) return Boolean.FALSE;
+    if (name.equals("hashCode")) return new Integer(System.identityHashCode(aProxy));
+    if (name.equals("equals")) return Boolean.valueOf(aProxy==aArgs[0]);
+    if (name.equals("toString")) return "FakeConnection";
+    throw new UnsupportedOperationException(name);
+  }
+
+  /** A java.sql.Statement proxy that records executed sql */
+  static class FakeStatement implements InvocationHandler {
+    final FakeConnection owner;
+    int queryTimeout;
+    volatile boolean isCancelled;
+    final List batch= new ArrayList();
+    final Statement statement= (Statement) Proxy.newProxyInstance(
+        FakeConnection.class.getClassLoader(), new Class[] {Statement.class}, this);
+
+    FakeStatement(final FakeConnection aOwner) {
+      owner= aOwner;
+    }
+
+    public Object invoke(Object aProxy, Method aMethod, Object[] aArgs) throws Throwable {
+      String name= aMethod.getName();
+      if (name.equals("executeUpdate") || name.equals("execute")) {
+        long end= System.currentTimeMillis() + owner.executeMillis;
+        while (!isCancelled && System.currentTimeMillis()<end) Thread.sleep(5);
+        if (isCancelled) throw new SQLException("cancelled");
+        owner.sql.add(aArgs[0]);
+        return name.equals("execute") ? (Object) Boolean.FALSE : new Integer(1);
+      }
+      if (name.equals("addBatch")) {
+        batch.add(aArgs[0]);
+        return null;
+      }
+      if (name.equals("executeBatch")) {
+        if (owner.isFailBatch) throw new SQLException("batch failed");
+        owner.sql.addAll(batch);
+        owner.batches++;
+        int[] r= new int[batch.size()];
+        Arrays.fill(r, 1);
+        batch.clear();
+        return r;
+      }
+      if (name.equals("setQueryTimeout")) {
+        queryTimeout= ((Integer) aArgs[0]).intValue();
+        return null;
+      }
+      if (name.equals("getQueryTimeout")) return new Integer(queryTimeout);
+      if (name.equals("cancel")) {
+        isCancelled= true;
+        return null;
+      }
+      if (name.equals("getConnection")) return owner.connection;
+      if (name.equals("close")) return null;
+      if (name.equals("hashCode")) return new Integer(System.identityHashCode(aProxy));
+      if (name.equals("equals")) return Boolean.valueOf(aProxy==aArgs[0]);
+      if (name.equals("toString")) return "FakeStatement";
+      throw new UnsupportedOperationException(name);
+    }
+  }  // FakeStatement
+
+}
@@ -0,0 +1,155 @@
+package com.tek271.util.db;
+
+import java.util.*;
+import java.util.concurrent.*;
+import junit.framework.*;
+import com.tek271.util.IExecutable;
+
+public class GroupCommitExecutorTest extends TestCase {
+
+  private static IExecutable unit(final FakeConnection aCon, final String aSql,
+                                  final boolean aResult) {
+    return new IExecutable() {
+      public boolean execute() {
+        aCon.sql.add(aSql);
+        return aResult;
+      }
+    };
+  }
+
+  public void testOneCommitPerBatch() throws Exception {
+    FakeConnection con= new FakeConnection();
+    GroupCommitExecutor gce= new GroupCommitExecutor(con.connection, FakeConnection.LOGGER, 50, 200);
+    List futures= new ArrayList();
+    for (int i=0; i<50; i++) {
+      futures.add(gce.submit(unit(con, "q" + i, true)));
+    }
+    for (int i=0; i<50; i++) {
+      assertEquals(Boolean.TRUE, ((Future) futures.get(i)).get(5, TimeUnit.SECONDS));
+    }
+    gce.shutdown();
+    assertTrue(con.commits <= 2);
+    assertEquals(50, gce.getUnitCount());
+    assertEquals(0, gce.getFailedUnitCount());
+    assertTrue(con.autoCommit);
+  }
+
+  public void testFailedUnitIsIsolated() throws Exception {
+    FakeConnection con= new FakeConnection();
+    GroupCommitExecutor gce= new GroupCommitExecutor(con.connection, FakeConnection.LOGGER, 10, 200);
+    Future f1= gce.submit(unit(con, "ok1", true));
+    Future f2= gce.submit(unit(con, "bad", false));
+    Future f3= gce.submit(new IExecutable() {
+      public boolean execute() {
+        throw new IllegalStateException("boom");
+      }
+    });
+    Future f4= gce.submit(unit(con, "ok2", true));
+    assertEquals(Boolean.TRUE, f1.get(5, TimeUnit.SECONDS));
+    assertEquals(Boolean.FALSE, f2.get(5, TimeUnit.SECONDS));
+    try {
+      f3.get(5, TimeUnit.SECONDS);
+      fail("Expected ExecutionException");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+    assertEquals(Boolean.TRUE, f4.get(5, TimeUnit.SECONDS));
+    gce.shutdown();
+    assertEquals(2, con.savepointRollbacks);
+    assertEquals(2, con.savepointReleases);
+    assertEquals(0, con.rollbacks);
+    assertEquals(2, gce.getFailedUnitCount());
+  }
+
+  public void testErrorFailsOnlyItsUnit() throws Exception {
+    FakeConnection con= new FakeConnection();
+    GroupCommitExecutor gce= new GroupCommitExecutor(con.connection, FakeConnection.LOGGER, 10, 200);
+    Future f1= gce.submit(new IExecutable() {
+      public boolean execute() {
+        throw new AssertionError("boom");
+      }
+    });
+    Future f2= gce.submit(unit(con, "ok", true));
+    try {
+      f1.get(5, TimeUnit.SECONDS);
+      fail("Expected ExecutionException");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof AssertionError);
+    }
+    assertEquals(Boolean.TRUE, f2.get(5, TimeUnit.SECONDS));
+    assertTrue(gce.execute(unit(con, "after", true)));
+    gce.shutdown();
+    assertEquals(1, gce.getFailedUnitCount());
+  }
+
+  public void testSavepointRollbackFailureRollsBackBatch() throws Exception {
+    FakeConnection con= new FakeConnection();
+    con.isFailSavepointRollback= true;
+    GroupCommitExecutor gce= new GroupCommitExecutor(con.connection, FakeConnection.LOGGER, 10, 200);
+    Future f1= gce.submit(unit(con, "ok1", true));
+    Future f2= gce.submit(unit(con, "bad", false));
+    Future f3= gce.submit(unit(con, "ok2", true));
+    for (int i=0; i<2; i++) {
+      try {
+        (i==0 ? f1 : f2).get(5, TimeUnit.SECONDS);
+        fail("Expected ExecutionException");
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof java.sql.SQLException);
+      }
+    }
+    assertEquals(Boolean.TRUE, f3.get(5, TimeUnit.SECONDS));
+    gce.shutdown();
+    assertEquals(1, con.rollbacks);
+    assertEquals(2, gce.getFailedUnitCount());
+  }
+
+  public void testEverySubmittedUnitCompletes() throws Exception {
+    FakeConnection con= new FakeConnection();
+    final GroupCommitExecutor gce= new GroupCommitExecutor(con.connection, FakeConnection.LOGGER, 5, 1);
+    final List futures= Collections.synchronizedList(new ArrayList());
+    final IExecutable unit= unit(con, "q", true);
+    Thread[] threads= new Thread[4];
+    for (int t=0; t<threads.length; t++) {
+      threads[t]= new Thread() {
+        public void run() {
+          try {
+            while (true) futures.add(gce.submit(unit));
+          } catch (IllegalStateException e) {
+            // shut down
+          }
+        }
+      };
+      threads[t].start();
+    }
+    Thread.sleep(20);
+    gce.shutdown();
+    for (int t=0; t<threads.length; t++) threads[t].join();
+    for (int i=0; i<futures.size(); i++) {
+      assertEquals(Boolean.TRUE, ((Future) futures.get(i)).get(5, TimeUnit.SECONDS));
+    }
+  }
+
+  public void testWithoutSavepoints() throws Exception {
+    FakeConnection con= new FakeConnection();
+    con.isSupportSavepoints= false;
+    GroupCommitExecutor gce= new GroupCommitExecutor(con.connection, FakeConnection.LOGGER, 10, 100);
+    assertTrue(gce.execute(unit(con, "ok1", true)));
+    assertFalse(gce.execute(unit(con, "bad", false)));
+    gce.shutdown();
+    assertEquals(1, con.commits);
+    assertEquals(1, con.rollbacks);
+  }
+
+  public void testSubmitAfterShutdown() {
+    FakeConnection con= new FakeConnection();
+    GroupCommitExecutor gce= new GroupCommitExecutor(con.connection, FakeConnection.LOGGER);
+    gce.shutdown();
+    try {
+      gce.submit(unit(con, "q", true));
+      fail("Expected IllegalStateException");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+  }
+
+}
@@ -0,0 +1,79 @@
+package com.tek271.util.db;
+
+import java.sql.*;
+import junit.framework.*;
+
+public class QueryControlTest extends TestCase {
+
+  protected void tearDown() {
+    DbUtil.setDefaultQueryTimeout(0);
+  }
+
+  public void testDefaultTimeout() throws Exception {
+    FakeConnection fc= new FakeConnection();
+    assertEquals(0, DbUtil.getStatement(FakeConnection.LOGGER, fc.connection)
+                          .getQueryTimeout());
+    DbUtil.setDefaultQueryTimeout(7);
+    assertEquals(7, DbUtil.getStatement(FakeConnection.LOGGER, fc.connection)
+                          .getQueryTimeout());
+  }
+
+  public void testPerCallTimeout() throws Exception {
+    FakeConnection fc= new FakeConnection();
+    Statement stm= DbUtil.getStatement(FakeConnection.LOGGER, fc.connection);
+    QueryControl qc= QueryControl.withTimeout(3);
+    qc.attach();
+    try {
+      assertTrue(DbUtil.write(FakeConnection.LOGGER, "update t set a=1", stm));
+    } finally {
+      qc.detach();
+    }
+    assertEquals(3, stm.getQueryTimeout());
+    assertNull(QueryControl.current());
+  }
+
+  public void testDeadline() {
+    FakeConnection fc= new FakeConnection();
+    QueryControl.resetCounts();
+    QueryControl qc= new QueryControl(0, System.currentTimeMillis() - 1);
+    assertTrue(qc.isExpired());
+    assertEquals(-1, DbUtil.writeAndGetCount(FakeConnection.LOGGER, "update t set a=1",
+                                             fc.connection, qc));
+    assertFalse(DbUtil.write(FakeConnection.LOGGER, "update t set a=2",
+                             fc.connection, qc));
+    assertEquals(0, fc.sql.size());
+    assertEquals(2, QueryControl.getTimeoutCount());
+    assertEquals(0, QueryControl.getCancelCount());
+  }
+
+  public void testCancel() throws Exception {
+    final FakeConnection fc= new FakeConnection();
+    fc.executeMillis= 10000;
+    QueryControl.resetCounts();
+    final QueryControl qc= QueryControl.withTimeout(60);
+    final boolean[] result= {true};
+    Thread t= new Thread() {
+      public void run() {
+        result[0]= DbUtil.write(FakeConnection.LOGGER, "update t set a=1",
+                                fc.connection, qc);
+      }
+    };
+    long start= System.currentTimeMillis();
+    t.start();
+    Thread.sleep(50);
+    while (!qc.cancel() && t.isAlive()) Thread.sleep(5);
+    t.join();
+    assertTrue(System.currentTimeMillis() - start < 5000);
+    assertFalse(result[0]);
+    assertTrue(qc.isCancelled());
+    assertEquals(1, QueryControl.getCancelCount());
+
+    // later queries fail without reaching the db
+    fc.executeMillis= 0;
+    assertFalse(DbUtil.write(FakeConnection.LOGGER, "update t set a=2",
+                             fc.connection, qc));
+    assertEquals(0, fc.sql.size());
+    assertEquals(2, QueryControl.getCancelCount());
+  }
+
+}
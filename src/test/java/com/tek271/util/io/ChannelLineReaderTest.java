@@ -0,0 +1,87 @@
+package com.tek271.util.io;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.util.*;
+import junit.framework.*;
+
+import com.tek271.util.collections.list.ListOfString;
+
+public class ChannelLineReaderTest extends TestCase {
+  private static final Charset pUTF8= Charset.forName("UTF-8");
+
+  private static final String[] pTEXTS= {
+    "", "a", "a\n", "\n", "a\r\nb", "a\r\rb\n\nc\r", "0123456789abcde\r\nf", "x=1\r\n\r\ny=2\n",
+    "caf\u00e9\r\n\u0633\u0644\u0627\u0645\rend",
+    "caf\u00e9 \u0633\u0644\u0627\u0645 caf\u00e9 \u0633\u0644\u0627\u0645 caf\u00e9\r\n" +
+    "\u0633\u0644\u0627\u0645 \u0633\u0644\u0627\u0645 0123456789\r\n\r\u00e9\u00e9\u00e9"
+  };
+
+  private static List readLines(BufferedReader aReader) throws IOException {
+    List r= new ArrayList();
+    for (String line= aReader.readLine(); line != null; line= aReader.readLine()) r.add(line);
+    return r;
+  }
+
+  private static ChannelLineReader reader(String aText, int aBufferSize) {
+    ReadableByteChannel channel= Channels.newChannel(
+        new ByteArrayInputStream(aText.getBytes(pUTF8)));
+    return new ChannelLineReader(channel, pUTF8, aBufferSize);
+  }
+
+  public void testLikeBufferedReader() throws IOException {
+    for (int t=0; t<pTEXTS.length; t++) {
+      List expected= readLines(new BufferedReader(new StringReader(pTEXTS[t])));
+      for (int size=16; size<=24; size++) {
+        ChannelLineReader r= reader(pTEXTS[t], size);
+        List actual= new ArrayList();
+        for (String line= r.readLine(); line != null; line= r.readLine()) actual.add(line);
+        r.close();
+        assertEquals(pTEXTS[t] + " with buffer " + size, expected, actual);
+      }
+    }
+  }
+
+  public void testIterator() throws IOException {
+    ChannelLineReader r= reader("a\nb\r\nc", 2);
+    assertTrue(r.hasNext());
+    assertTrue(r.hasNext());
+    assertEquals("a", r.next());
+    assertEquals("b", r.next());
+    assertEquals("c", r.next());
+    assertFalse(r.hasNext());
+    try {
+      r.next();
+      fail();
+    } catch (NoSuchElementException e) {}
+  }
+
+  public void testListOfStringFileRoundTrip() throws IOException {
+    File file= File.createTempFile("ChannelLineReaderTest", ".txt");
+    try {
+      ListOfString list= new ListOfString();
+      for (int i=0; i<20000; i++) list.add("line " + i + " caf\u00e9 \u0633\u0644\u0627\u0645");
+      list.lineSeparator= "\r\n";
+      list.writeToTextFile(file.getPath(), pUTF8);
+
+      ListOfString read= new ListOfString();
+      read.readFromTextFile(file.getPath(), pUTF8);
+      assertEquals(list.getArray().length, read.size());
+      assertEquals(list.getText("\n"), read.getText("\n"));
+
+      int count= 0;
+      for (Iterator i= ListOfString.lineIterator(file.getPath(), pUTF8); i.hasNext(); count++) {
+        assertEquals(list.getItem(count), i.next());
+      }
+      assertEquals(20000, count);
+
+      StringWriter w= new StringWriter();
+      list.writeTo(w);
+      assertEquals(list.getText(), w.toString());
+    } finally {
+      file.delete();
+    }
+  }
+
+}
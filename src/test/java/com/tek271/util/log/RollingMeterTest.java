@@ -0,0 +1,93 @@
+package com.tek271.util.log;
+
+import junit.framework.*;
+
+public class RollingMeterTest extends TestCase {
+  private static final long T= 1000000000000L;  // a whole second, multiple of 5s
+
+  public void testWindow() {
+    RollingMeter m= new RollingMeter(10, T);
+    m.update(5, T);
+    m.update(7, T + 500);
+    m.update(3, T + 2000);
+    assertEquals(3, m.getCount(10, T + 2000));
+    assertEquals(15, m.getSum(10, T + 2000));
+    assertEquals(7, m.getMax(10, T + 2000));
+    assertEquals(5.0, m.getMean(10, T + 2000), 0.001);
+    assertEquals(1, m.getCount(1, T + 2000));
+    assertEquals(3, m.getMax(1, T + 2000));
+    assertEquals(0.3, m.getRate(10, T + 2000), 0.001);
+
+    long[] h= m.getCountHistory(T + 2000);
+    assertEquals(10, h.length);
+    assertEquals(2, h[7]);
+    assertEquals(0, h[8]);
+    assertEquals(1, h[9]);
+
+    // first second falls out of the window, its bucket is reused
+    assertEquals(1, m.getCount(10, T + 10000));
+    m.update(-4, T + 10000);
+    assertEquals(2, m.getCount(10, T + 10000));
+    assertEquals(3, m.getMax(10, T + 10000));
+    assertEquals(-4, m.getMax(1, T + 10000));
+    assertEquals(0, m.getCount(10, T + 60000));
+    assertEquals(0, m.getMax(10, T + 60000));
+    assertEquals(4, m.getTotalCount());
+    assertEquals(11, m.getTotalSum());
+  }
+
+  public void testBadSeconds() {
+    RollingMeter m= new RollingMeter(10, T);
+    try {
+      m.getCount(11, T);
+      fail();
+    } catch (IllegalArgumentException e) {}
+  }
+
+  public void testEwma() {
+    RollingMeter m= new RollingMeter(60, T);
+    // 10 events per second for 10 minutes
+    for (long t=T; t<T + 600000; t+=100) m.update(1, t);
+    assertEquals(10.0, m.getOneMinuteRate(T + 600000), 0.01);
+    assertEquals(10.0, m.getFiveMinuteRate(T + 600000), 0.01);
+    assertEquals(10.0, m.getFifteenMinuteRate(T + 600000), 0.01);
+
+    // one idle minute: the 1 minute rate decays to about 1/e
+    long later= T + 660000;
+    assertEquals(10.0 / Math.E, m.getOneMinuteRate(later), 0.05);
+    assertTrue(m.getFiveMinuteRate(later) > 8);
+    assertTrue(m.getFifteenMinuteRate(later) > m.getFiveMinuteRate(later));
+  }
+
+  public void testConcurrentUpdates() throws Exception {
+    final RollingMeter m= new RollingMeter(10, T);
+    Thread[] threads= new Thread[4];
+    for (int i=0; i<threads.length; i++) {
+      threads[i]= new Thread() {
+        public void run() {
+          for (int j=0; j<30000; j++) m.update(j % 7, T + j / 10);
+        }
+      };
+      threads[i].start();
+    }
+    for (int i=0; i<threads.length; i++) threads[i].join();
+
+    long sum= 0;
+    for (int j=0; j<30000; j++) sum+= j % 7;
+    assertEquals(120000, m.getTotalCount());
+    assertEquals(4 * sum, m.getTotalSum());
+    assertEquals(120000, m.getCount(10, T + 2999));
+    assertEquals(4 * sum, m.getSum(10, T + 2999));
+    assertEquals(6, m.getMax(10, T + 2999));
+    assertEquals(40000, m.getCount(1, T + 2999));
+  }
+
+  public void testPerformanceLog() {
+    PerformanceLog.LOG.put("RollingMeterTest", 20);
+    PerformanceLog.LOG.put("RollingMeterTest", 30);
+    RollingMeter m= PerformanceLog.LOG.get("RollingMeterTest").getMeter();
+    assertEquals(2, m.getCount(PerformanceLog.METER_WINDOW_SECONDS));
+    assertEquals(30, m.getMax(PerformanceLog.METER_WINDOW_SECONDS));
+  }
+
+}
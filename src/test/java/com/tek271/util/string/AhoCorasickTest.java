@@ -0,0 +1,134 @@
+package com.tek271.util.string;
+
+import java.util.*;
+
+import com.tek271.util.collections.array.ArrayUtilities;
+import com.tek271.util.collections.list.ListOfString;
+
+import junit.framework.TestCase;
+
+public class AhoCorasickTest extends TestCase {
+
+  private static String randomText(final Random aRandom, final int aLength, final int aLetters) {
+    char[] c= new char[aLength];
+    for (int i=0; i<aLength; i++) c[i]= (char) ('a' + aRandom.nextInt(aLetters));
+    return new String(c);
+  }
+
+  public void testBoyerMooreHorspool() {
+    Random random= new Random(7);
+    for (int round=0; round<200; round++) {
+      String text= randomText(random, 300 + random.nextInt(500), 3);
+      String pattern= randomText(random, 1 + random.nextInt(8), 3);
+      int start= random.nextInt(50);
+      int expected= text.indexOf(pattern, start);
+      assertEquals(expected, ArrayUtilities.indexOf(text.toCharArray(), pattern.toCharArray(), start));
+      assertEquals(expected, ArrayUtilities.indexOf(text.getBytes(), pattern.getBytes(), start));
+      BoyerMooreHorspool bmh= new BoyerMooreHorspool(pattern);
+      assertEquals(expected, bmh.indexOf(text, start));
+      assertEquals(expected, bmh.indexOf(text.toCharArray(), start));
+    }
+    BoyerMooreHorspool bmh= new BoyerMooreHorspool(new byte[] {(byte) 0xFF, 0, (byte) 0x80});
+    byte[] text= new byte[1000];
+    text[700]= (byte) 0xFF;
+    text[702]= (byte) 0x80;
+    assertEquals(700, bmh.indexOf(text, 0));
+    assertEquals(-1, bmh.indexOf(text, 701));
+    assertEquals(-1, bmh.indexOf(text, 0, 702));
+    // chars that share the low byte of a pattern char
+    assertEquals(3, new BoyerMooreHorspool("šb").indexOf("aabšb", 0));
+    assertEquals(5, new BoyerMooreHorspool("").indexOf("abcdef", 5));
+  }
+
+  public void testIndexOf() {
+    AhoCorasick ac= new AhoCorasick(new String[] {"he", "she", "his", "hers", "", null, "she"});
+    int[] index= new int[1];
+    assertEquals(1, ac.indexOf("ushers", 0, index));
+    assertEquals(1, index[0]);  // she starts before he
+    assertEquals(2, ac.indexOf("ushers", 2, index));
+    assertEquals(0, index[0]);
+    assertEquals(-1, ac.indexOf("xyz", 0, index));
+    assertEquals(-1, index[0]);
+    assertEquals(2, ac.indexOf("ushers".getBytes(), 2, 6, index));
+    assertEquals(0, index[0]);
+
+    final List matches= new ArrayList();
+    ac.search("ushers", 0, new AhoCorasick.IMatchHandler() {
+      public boolean match(final int aPatternIndex, final int aStart) {
+        matches.add(aPatternIndex + "@" + aStart);
+        return true;
+      }
+    });
+    assertEquals(Arrays.asList(new String[] {"1@1", "6@1", "0@2", "3@2"}), matches);
+  }
+
+  public void testRandomAgainstSimpleSearch() {
+    Random random= new Random(11);
+    for (int round=0; round<100; round++) {
+      String text= randomText(random, 2000, 4);
+      String[] patterns= new String[10];
+      for (int k=0; k<patterns.length; k++) patterns[k]= randomText(random, 3 + random.nextInt(4), 4);
+      ListOfString list= new ListOfString();
+      list.addAll(Arrays.asList(patterns));
+      AhoCorasick ac= new AhoCorasick(patterns);
+
+      int first= -1, firstIndex= -1, leftmost= -1, leftmostIndex= -1, last= -1, lastIndex= -1;
+      int count= 0;
+      for (int k=0; k<patterns.length; k++) {
+        int i= text.indexOf(patterns[k]);
+        if (i >= 0 && first < 0) {
+          first= i;
+          firstIndex= k;
+        }
+        if (i >= 0 && (leftmost < 0 || i < leftmost)) {
+          leftmost= i;
+          leftmostIndex= k;
+        }
+        int j= text.lastIndexOf(patterns[k]);
+        if (j > last) {
+          last= j;
+          lastIndex= k;
+        }
+        count += StringUtility.countMatches(text, patterns[k]);
+      }
+
+      int[] index= new int[1];
+      assertEquals(leftmost, ac.indexOf(text, 0, index));
+      assertEquals(leftmostIndex, index[0]);
+      assertEquals(first, ac.indexOfFirstPattern(text, 0, index));
+      assertEquals(firstIndex, index[0]);
+      assertEquals(first, ArrayUtilities.indexOf(text.toCharArray(), list, 0, index));
+      assertEquals(firstIndex, index[0]);
+      assertEquals(last, ac.lastIndexOf(text, index));
+      assertEquals(lastIndex, index[0]);
+      assertEquals(last, StringUtility.lastIndexOf(text, list, index));
+      assertEquals(lastIndex, index[0]);
+      assertEquals(count, StringUtility.countMatches(text, list));
+    }
+  }
+
+  public void testCountMatches() {
+    ListOfString list= new ListOfString();
+    list.addAll(Arrays.asList(new String[] {"aa", "a", "", "b", "aa"}));
+    assertEquals(2 + 5 + 0 + 1 + 2, StringUtility.countMatches("aaaaab", list));
+    AhoCorasick ac= new AhoCorasick(list);
+    assertTrue(Arrays.equals(new int[] {2, 5, 0, 1, 2}, ac.countMatches("aaaaab")));
+  }
+
+  public void testLastIndexOfEmptyItem() {
+    List list= Arrays.asList(new String[] {"a", "b", "c", "d", "e", "", "f", "g", ""});
+    String text= randomText(new Random(3), 5000, 7);
+    int[] index= new int[1];
+    assertEquals(5000, StringUtility.lastIndexOf(text, list, index));
+    assertEquals(5, index[0]);
+  }
+
+  public void testSurrogates() {
+    String clef= "𝄞";
+    AhoCorasick ac= new AhoCorasick(new String[] {clef + "x", "y" + clef});
+    int[] index= new int[1];
+    assertEquals(4, ac.lastIndexOf("a" + clef + "y" + clef + "x", index));
+    assertEquals(0, index[0]);
+  }
+
+}
@@ -0,0 +1,64 @@
+package com.tek271.util.string;
+
+import java.io.*;
+import junit.framework.TestCase;
+import com.tek271.util.xml.XmlUtil;
+
+public class CharEscaperTest extends TestCase {
+
+  public void testUnchanged() throws IOException {
+    String s= "nothing to escape here 123";
+    assertSame(s, CharEscaper.HTML.escape(s));
+    assertSame(s, CharEscaper.XML_ATTRIBUTE.escape(s));
+    assertNull(CharEscaper.HTML.escape(null));
+    StringWriter w= new StringWriter();
+    CharEscaper.XML_TEXT.escape(s, w);
+    assertEquals(s, w.toString());
+  }
+
+  public void testXmlAndHtml() throws IOException {
+    String s= "<a b=\"1\" c='2'>x & y\n</a>";
+    assertEquals("&lt;a b=\"1\" c='2'&gt;x &amp; y\n&lt;/a&gt;", CharEscaper.XML_TEXT.escape(s));
+    assertEquals("&lt;a b=&quot;1&quot; c=&apos;2&apos;&gt;x &amp; y&#10;&lt;/a&gt;",
+                 CharEscaper.XML_ATTRIBUTE.escape(s));
+    assertEquals("&lt;a b=&quot;1&quot; c=&#39;2&#39;&gt;x &amp; y\n&lt;/a&gt;",
+                 CharEscaper.HTML.escape(s));
+    assertEquals("&lt;a b=&quot;1&quot; c=&apos;2&apos;&gt;x &amp; y\n&lt;/a&gt;",
+                 XmlUtil.replaceXMLEntities(s, true));
+    assertEquals("&#060;a b=&#034;1&#034; c=&#039;2&#039;&#062;x &#038; y\n&#060;/a&#062;",
+                 XmlUtil.replaceXMLEntities(s, false));
+    StringBuilder b= new StringBuilder("[");
+    CharEscaper.HTML.escape(s, b);
+    assertEquals("[" + CharEscaper.HTML.escape(s), b.toString());
+    assertEquals("&#65;&#60;&#1234;&#0;", StringEscapeUtility.escapeHtml("A<\u04D2\u0000", true));
+    StringWriter w= new StringWriter();
+    StringEscapeUtility.escapeHtml("<\u00E9>", false, w);
+    assertEquals(StringEscapeUtility.escapeHtml("<\u00E9>", false), w.toString());
+  }
+
+  public void testUrl() throws IOException {
+    assertEquals("AB%2DC1", StringEscapeUtility.escapeUrl("AB-C1"));
+    assertEquals("%41%42%2D%43%31", StringEscapeUtility.escapeUrl("AB-C1", true));
+    assertEquals("a%20b%5%100%0000", StringEscapeUtility.escapeUrl("a b\u0005\u0100\u0000"));
+    StringWriter w= new StringWriter();
+    StringEscapeUtility.escapeUrl("x=1&y", false, w);
+    assertEquals("x%3D1%26y", w.toString());
+  }
+
+  public void testUnicode() {
+    assertEquals("\\u0041\\u00E9", StringUtility.toUnicode("A\u00E9"));
+    assertEquals("tab\\u0009 caf\\u00E9 \\u20AC", CharEscaper.UNICODE.escape("tab\t caf\u00E9 \u20AC"));
+  }
+
+  public void testForChars() {
+    assertEquals("&#38;&lt;>", StringUtility.replaceHtmlTags("&<>"));
+    assertEquals("&#38;&lt;''", StringUtility.replaceHtmlTagsAndQuote("&<'"));
+    CharEscaper e= CharEscaper.forChars("hox", new String[] {"HH", null});
+    assertEquals(StringUtility.replaceAll("hello xo", "hox", new String[] {"HH", null}),
+                 e.escape("hello xo"));
+    assertTrue(e.isEscaped('x'));
+    assertFalse(e.isEscaped('e'));
+    assertEquals(2, e.indexOfEscaped("abo", 0));
+  }
+
+}
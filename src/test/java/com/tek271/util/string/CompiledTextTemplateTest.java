@@ -0,0 +1,107 @@
+package com.tek271.util.string;
+
+import java.io.*;
+import java.util.*;
+import junit.framework.TestCase;
+
+public class CompiledTextTemplateTest extends TestCase {
+
+  private static Map values() {
+    Map r= new HashMap();
+    r.put("name", "Abdul");
+    r.put("city", "Chicago");
+    return r;
+  }
+
+  public void testRenderMap() throws IOException {
+    String text= "Hi ${name} from ${city}, ${name}! ${missing} end";
+    CompiledTextTemplate ct= new CompiledTextTemplate(text);
+    assertEquals(TextTemplate.process(text, "${", "}", values()), ct.render(values()));
+    assertEquals("Hi Abdul from Chicago, Abdul! ${missing} end", ct.render(values()));
+    StringWriter w= new StringWriter();
+    ct.render(values(), w);
+    assertEquals(ct.render(values()), w.toString());
+    assertEquals(text, ct.toString());
+    assertEquals(Arrays.asList(new String[] {"name", "city", "name", "missing"}),
+                 ct.getAllTagNames());
+    assertEquals(4, ct.getTagCount());
+  }
+
+  public void testTagEnders() {
+    String text= "a #x, b #y;#x";
+    CompiledTextTemplate ct= new CompiledTextTemplate(text, "#", null);
+    Map m= new HashMap();
+    m.put("x", "1");
+    m.put("y", "2");
+    assertEquals("a 1, b 2;1", ct.render(m));
+    assertEquals(TextTemplate.process(text, "#", null, m), ct.render(m));
+  }
+
+  public void testCaseInsensitive() {
+    TextTemplate tt= new TextTemplate("${Name} ${NAME}");
+    tt.isCaseSensitive= false;
+    CompiledTextTemplate ct= tt.compile();
+    assertEquals("Abdul Abdul", ct.render(values()));
+    assertEquals("${Name} ${NAME}", new CompiledTextTemplate("${Name} ${NAME}").render(values()));
+
+    Locale locale= Locale.getDefault();
+    Locale.setDefault(new Locale("tr", "TR"));
+    try {
+      tt= new TextTemplate("${TITLE} ${Title} ${CITY}");
+      tt.isCaseSensitive= false;
+      ct= tt.compile();
+      Map m= values();
+      m.put("title", "Dr.");
+      assertEquals("Dr. Dr. Chicago", ct.render(m));
+      tt.setAll(m);
+      assertEquals(tt.getText(), ct.render(m));
+    } finally {
+      Locale.setDefault(locale);
+    }
+  }
+
+  public void testLookupAndTransformer() {
+    CompiledTextTemplate ct= new CompiledTextTemplate("go to ${homeUrl/a.html} or ${x}");
+    assertEquals("go to HOMEURL/A.HTML or X", ct.render(new CompiledTextTemplate.ITagLookup() {
+      public String lookup(String aTagName) {
+        return aTagName.toUpperCase();
+      }
+    }));
+    assertEquals("go to www.tek271.com/a.html or ${x}", ct.render(new TextTemplate.ITagTransformer() {
+      public boolean isMatch(String aTag) {
+        return aTag.startsWith("homeUrl");
+      }
+      public String transform(String aTag) {
+        return "www.tek271.com" + aTag.substring("homeUrl".length());
+      }
+    }));
+  }
+
+  public void testConcurrentRender() throws Exception {
+    final CompiledTextTemplate ct= new CompiledTextTemplate("<${a}>${b}</${a}>");
+    final int threads= 4;
+    final boolean[] ok= new boolean[threads];
+    Thread[] ths= new Thread[threads];
+    for (int k=0; k<threads; k++) {
+      final int id= k;
+      ths[k]= new Thread() {
+        public void run() {
+          Map m= new HashMap();
+          m.put("a", "t" + id);
+          boolean good= true;
+          for (int i=0; i<2000; i++) {
+            m.put("b", String.valueOf(i));
+            good &= ("<t" + id + ">" + i + "</t" + id + ">").equals(ct.render(m));
+          }
+          ok[id]= good;
+        }
+      };
+      ths[k].start();
+    }
+    for (int k=0; k<threads; k++) {
+      ths[k].join();
+      assertTrue(ok[k]);
+    }
+  }
+
+}
@@ -0,0 +1,57 @@
+package com.tek271.util.string;
+
+import java.io.*;
+import junit.framework.TestCase;
+import com.tek271.util.Printf;
+
+public class StringBuilderPoolTest extends TestCase {
+
+  public void testReuse() {
+    StringBuilder b1= StringBuilderPool.acquire(10);
+    b1.append("abc");
+    assertEquals("abc", StringBuilderPool.release(b1));
+    StringBuilder b2= StringBuilderPool.acquire(100);
+    assertSame(b1, b2);
+    assertEquals(0, b2.length());
+    assertTrue(b2.capacity() >= 100);
+    StringBuilder b3= StringBuilderPool.acquire(10);  // nested
+    assertNotSame(b2, b3);
+    StringBuilderPool.recycle(b3);
+    StringBuilderPool.recycle(b2);
+  }
+
+  public void testCapacityCap() {
+    StringBuilder big= StringBuilderPool.acquire(StringBuilderPool.MAX_POOLED_CAPACITY + 1);
+    StringBuilderPool.recycle(big);
+    StringBuilder b= StringBuilderPool.acquire(10);
+    assertNotSame(big, b);
+    StringBuilderPool.recycle(b);
+  }
+
+  public void testHex() {
+    assertEquals("0041", StringUtility.toHex('A'));
+    assertEquals("41", StringUtility.toHex('A', true));
+    assertEquals("FFFF", StringUtility.toHex((char) 0xFFFF, true));
+    assertEquals("100", StringUtility.toHex((char) 0x100, true));
+    assertEquals("0000", StringUtility.toHex('\u0000', true));
+    assertEquals("AB%2DC1", StringEscapeUtility.escapeUrl("AB-C1"));
+    assertEquals("%41%42%2D%43%31", StringEscapeUtility.escapeUrl("AB-C1", true));
+    assertEquals("&#65;&#60;", StringEscapeUtility.escapeHtml("A<", true));
+  }
+
+  public void testPooledUtilities() throws IOException {
+    assertEquals("a=1, b=?, c", Printf.p("a=?, b=\\?, c", new String[] {"1", "2"}));
+    assertEquals("1 and 2 and ?", Printf.p("? and ? and ?", "1", "2"));
+    StringWriter w= new StringWriter();
+    Printf.p(w, "x=?", new String[] {"5"});
+    StringBuilder sb= new StringBuilder("> ");
+    Printf.p(sb, "y=? z=?", new String[] {"6"});
+    assertEquals("x=5", w.toString());
+    assertEquals("> y=6 z=?", sb.toString());
+    assertEquals("HHellOO", StringUtility.replaceAll("hello", "ho", new String[] {"HH", "OO"}));
+    assertEquals("hello", StringUtility.replaceAll("hello", "xy", new String[] {"1", "2"}));
+    assertEquals("a[X]b[X]c", StringUtility.replaceBetween("a[1]b[22]c", "X", "[", "]", 0, -1, false, true));
+    assertEquals("a[1]bXc", StringUtility.replaceBetween("a[1]b[22]c", "X", "[", "]", 3, -1, true, true));
+  }
+
+}
@@ -0,0 +1,54 @@
+package com.tek271.util.string;
+
+import java.util.*;
+import junit.framework.TestCase;
+
+public class TextTemplateTest extends TestCase {
+
+  public void testIndexOfTag() {
+    TextTemplate tt= new TextTemplate("${a} ${b} ${a} ${c");
+    assertEquals(0, tt.indexOfTag("a"));
+    assertEquals(2, tt.indexOfTag("a", 1));
+    assertEquals(-1, tt.indexOfTag("a", 3));
+    assertEquals(1, tt.indexOfTag("b"));
+    assertEquals(-1, tt.indexOfTag("c"));  // not terminated
+    assertEquals(-1, tt.indexOfTag("x"));
+  }
+
+  public void testSetAll() {
+    TextTemplate tt= new TextTemplate("${a}-${b}-${a}-${x}");
+    Map m= new HashMap();
+    m.put("a", "1");
+    m.put("b", "2");
+    m.put("z", "9");
+    tt.setAll(m);
+    assertEquals("1-2-1-${x}", tt.getText());
+    tt.setAll(new String[][] {{"a", "3"}, {"x", "4"}});
+    assertEquals("3-2-3-4", tt.getText());
+    assertEquals("3", tt.getTagValue("a"));
+    tt.clearValues();
+    assertEquals("${a}-${b}-${a}-${x}", tt.getText());
+  }
+
+  public void testCaseSensitivity() {
+    TextTemplate tt= new TextTemplate("${Name} ${NAME}");
+    tt.setTagValue("name", "x");
+    assertEquals("${Name} ${NAME}", tt.getText());
+    tt.isCaseSensitive= false;
+    tt.setTagValue("name", "x");
+    assertEquals("x x", tt.getText());
+    assertEquals(1, tt.indexOfTag("nAME", 1));
+    tt.isCaseSensitive= true;
+    tt.setTagValue("NAME", "y");
+    assertEquals("x y", tt.getText());
+  }
+
+  public void testCopy() {
+    TextTemplate tt= new TextTemplate("#a and #b", "#");
+    TextTemplate c= tt.copy();
+    c.setTagValue("b", "2");
+    assertEquals(1, c.indexOfTag("b"));
+    assertEquals("#a and 2", c.getText());
+  }
+
+}